@@ -9,9 +9,11 @@ import java.util.Map;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import com.financetracker.model.Money;
 import com.financetracker.model.Settings;
 import com.financetracker.model.Transaction;
 import com.financetracker.service.BudgetAdjustmentService;
+import com.financetracker.service.KeywordClassifier;
 import com.financetracker.service.SettingsService;
 import com.financetracker.service.TransactionService;
 
@@ -44,34 +46,24 @@ public class AiAssistantService {
                 return "AI服务暂时不可用，请确保已正确配置API密钥和网络连接。";
             }
             
-            // 获取交易数据
-            List<Transaction> allTransactions = transactionService.getAllTransactions();
-            List<Transaction> currentMonthTransactions = transactionService.getTransactionsForCurrentMonth();
-            
             // 构建上下文信息
             StringBuilder context = new StringBuilder();
             context.append("Here is a summary of the current financial data:\\n\\n");
             
-            // 添加当前月份的收支情况
-            double currentMonthIncome = transactionService.getTotalIncome(currentMonthTransactions);
-            double currentMonthExpense = transactionService.getTotalExpense(currentMonthTransactions);
+            // 添加当前月份的收支情况（来自按月汇总的结果）
+            YearMonth currentMonth = YearMonth.now();
+            double currentMonthIncome = transactionService.getTotalAmount(currentMonth, currentMonth, false);
+            double currentMonthExpense = transactionService.getTotalAmount(currentMonth, currentMonth, true);
             double currentMonthBalance = currentMonthIncome - currentMonthExpense;
             
-            YearMonth currentMonth = YearMonth.now();
             context.append(String.format("Current month (%s) income/expense:\\n", currentMonth.format(DateTimeFormatter.ofPattern("yyyy-MM"))));
             context.append(String.format("- Total Income: %.2f\\n", currentMonthIncome));
             context.append(String.format("- Total Expense: %.2f\\n", currentMonthExpense));
             context.append(String.format("- Balance: %.2f\\n\\n", currentMonthBalance));
             
             // 添加按类别统计
-            Map<String, Double> categoryExpenses = new HashMap<>();
-            for (Transaction transaction : currentMonthTransactions) {
-                if (transaction.isExpense()) {
-                    String category = transaction.getCategory();
-                    double amount = transaction.getAmount();
-                    categoryExpenses.put(category, categoryExpenses.getOrDefault(category, 0.0) + amount);
-                }
-            }
+            Map<String, Double> categoryExpenses = transactionService.getCategoryTotals(
+                    currentMonth, currentMonth, true);
             
             // 按支出金额排序类别
             List<Map.Entry<String, Double>> sortedCategories = categoryExpenses.entrySet().stream()
@@ -118,34 +110,24 @@ public class AiAssistantService {
                 return;
             }
             
-            // 获取交易数据
-            List<Transaction> allTransactions = transactionService.getAllTransactions();
-            List<Transaction> currentMonthTransactions = transactionService.getTransactionsForCurrentMonth();
-            
             // 构建上下文信息
             StringBuilder context = new StringBuilder();
             context.append("Here is a summary of the current financial data:\\n\\n");
             
-            // 添加当前月份的收支情况
-            double currentMonthIncome = transactionService.getTotalIncome(currentMonthTransactions);
-            double currentMonthExpense = transactionService.getTotalExpense(currentMonthTransactions);
+            // 添加当前月份的收支情况（来自按月汇总的结果）
+            YearMonth currentMonth = YearMonth.now();
+            double currentMonthIncome = transactionService.getTotalAmount(currentMonth, currentMonth, false);
+            double currentMonthExpense = transactionService.getTotalAmount(currentMonth, currentMonth, true);
             double currentMonthBalance = currentMonthIncome - currentMonthExpense;
             
-            YearMonth currentMonth = YearMonth.now();
             context.append(String.format("Current month (%s) income/expense:\\n", currentMonth.format(DateTimeFormatter.ofPattern("yyyy-MM"))));
             context.append(String.format("- Total Income: %.2f\\n", currentMonthIncome));
             context.append(String.format("- Total Expense: %.2f\\n", currentMonthExpense));
             context.append(String.format("- Balance: %.2f\\n\\n", currentMonthBalance));
             
             // 添加按类别统计
-            Map<String, Double> categoryExpenses = new HashMap<>();
-            for (Transaction transaction : currentMonthTransactions) {
-                if (transaction.isExpense()) {
-                    String category = transaction.getCategory();
-                    double amount = transaction.getAmount();
-                    categoryExpenses.put(category, categoryExpenses.getOrDefault(category, 0.0) + amount);
-                }
-            }
+            Map<String, Double> categoryExpenses = transactionService.getCategoryTotals(
+                    currentMonth, currentMonth, true);
             
             // 按支出金额排序类别
             List<Map.Entry<String, Double>> sortedCategories = categoryExpenses.entrySet().stream()
@@ -191,76 +173,25 @@ public class AiAssistantService {
         // List<Transaction> allTransactions = CsvDataReader.readAllTransactions();
         
         // 默认分类和类型
-        String category = "Others";
+        String category;
         boolean isExpense = amount >= 0;
         
-        // 简单的关键词匹配分析
-        String lowerDesc = description.toLowerCase();
+        // 使用与CSV导入相同的关键词规则，描述只扫描一次
+        KeywordClassifier classifier = KeywordClassifier.getDefault();
+        KeywordClassifier.Matches matches = classifier.scan(description);
         
-        // 优先判断是否为收入 (通常收入类别更明确)
-        if (lowerDesc.contains("salary") || lowerDesc.contains("payroll")) {
-            category = "Salary";
+        // 优先判断是否为收入 (通常收入类别更明确)，再判断支出类别
+        String incomeCategory = classifier.matchCategory(matches, false);
+        String expenseCategory = classifier.matchCategory(matches, true);
+        if (incomeCategory != null) {
+            category = incomeCategory;
             isExpense = false;
-        } else if (lowerDesc.contains("bonus") || lowerDesc.contains("award")) {
-            category = "Bonus";
-            isExpense = false;
-        } else if (lowerDesc.contains("invest") || lowerDesc.contains("stock") || lowerDesc.contains("fund") || lowerDesc.contains("financial")) {
-            category = "Investment";
-            isExpense = false;
-        } else if (lowerDesc.contains("refund") || lowerDesc.contains("reimbursement")) {
-            category = "Refund";
-            isExpense = false;
-        } else if (lowerDesc.contains("interest")) {
-            category = "Interest";
-            isExpense = false;
-        } else if (lowerDesc.contains("gift")) {
-            category = "Gift";
-            isExpense = false;
-        } else if (lowerDesc.contains("freelance")) {
-            category = "Freelance/Part-time";
-            isExpense = false;
-        } 
-        // 如果不是明确的收入，再判断支出类别
-        // (如果上面已经判断为 isExpense = false, 则这里的判断不会覆盖)
-        else if (lowerDesc.contains("food") || lowerDesc.contains("eat") || lowerDesc.contains("meal") || lowerDesc.contains("dining") ||
-            lowerDesc.contains("restaurant") || lowerDesc.contains("grocery")) {
-            category = "Food";
-            isExpense = true;
-        } else if (lowerDesc.contains("traffic") || lowerDesc.contains("bus") || lowerDesc.contains("subway") || lowerDesc.contains("taxi") || 
-                   lowerDesc.contains("gas") || lowerDesc.contains("fuel") || lowerDesc.contains("parking")) {
-            category = "Transportation";
-            isExpense = true;
-        } else if (lowerDesc.contains("rent") || lowerDesc.contains("housing") || lowerDesc.contains("utility") || lowerDesc.contains("mortgage")) {
-            category = "Housing"; // May include some utilities, or separate Utilities later if needed
-            isExpense = true;
-        } else if (lowerDesc.contains("clothing") || lowerDesc.contains("apparel") || lowerDesc.contains("shoe")) {
-            category = "Clothing";
-            isExpense = true;
-        } else if (lowerDesc.contains("entertainment") || lowerDesc.contains("movie") || lowerDesc.contains("game") ||
-                   lowerDesc.contains("hobby")) {
-            category = "Entertainment";
-            isExpense = true;
-        } else if (lowerDesc.contains("shop") || lowerDesc.contains("buy") ||
-                 lowerDesc.contains("purchase") || lowerDesc.contains("store")) {
-            category = "Shopping";
-            isExpense = true;
-        } else if (lowerDesc.contains("medical") || lowerDesc.contains("health") || lowerDesc.contains("doctor") || lowerDesc.contains("hospital") || lowerDesc.contains("pharmacy")) {
-            category = "Healthcare";
-            isExpense = true;
-        } else if (lowerDesc.contains("education") || lowerDesc.contains("school") || lowerDesc.contains("course") || lowerDesc.contains("book")) {
-            category = "Education";
+        } else if (expenseCategory != null) {
+            category = expenseCategory;
             isExpense = true;
         } else {
-            // If no specific income or expense category matched, and isExpense wasn't set to false by an income match,
-            // assume it's an expense and categorize as "Others".
-            // If amount was used for initial isExpense detection, this might need adjustment.
-            // For now, if not an income, it's an expense.
-            if (isExpense) { // If not already set to false (income)
-                 category = "Others";
-            } else {
-                // It was flagged as income by some other means but didn't match a specific income category
-                category = "Other Income";
-            }
+            // 没有匹配任何类别时，按金额判断的类型归入"其他"
+            category = isExpense ? KeywordClassifier.OTHER_EXPENSE : KeywordClassifier.OTHER_INCOME;
         }
         
         result.put("category", category);
@@ -280,20 +211,22 @@ public class AiAssistantService {
         // 获取当前月份的交易记录
         List<Transaction> currentMonthTransactions = CsvDataReader.getCurrentMonthTransactions();
         
-        // 计算总收入和总支出
-        double totalIncome = 0;
-        double totalExpense = 0;
+        // 计算总收入和总支出（以分为单位累加，避免浮点误差）
+        long totalIncomeCents = 0;
+        long totalExpenseCents = 0;
         
         for (Transaction transaction : currentMonthTransactions) {
             if (transaction.isExpense()) {
-                totalExpense += transaction.getAmount();
+                totalExpenseCents += transaction.getAmountCents();
             } else {
-                totalIncome += transaction.getAmount();
+                totalIncomeCents += transaction.getAmountCents();
             }
         }
+        double totalIncome = Money.toMajorUnits(totalIncomeCents);
+        double totalExpense = Money.toMajorUnits(totalExpenseCents);
         
         // 计算净收入
-        double netIncome = totalIncome - totalExpense;
+        double netIncome = Money.toMajorUnits(totalIncomeCents - totalExpenseCents);
         
         // 设置结果
         LocalDate now = LocalDate.now();
@@ -311,14 +244,17 @@ public class AiAssistantService {
         overview.put("transactionCount", currentMonthTransactions.size());
         
         // 计算每个类别的支出
-        Map<String, Double> expenseByCategory = new HashMap<>();
+        Map<String, long[]> expenseCentsByCategory = new HashMap<>();
         for (Transaction transaction : currentMonthTransactions) {
             if (transaction.isExpense()) {
-                String category = transaction.getCategory();
-                double currentAmount = expenseByCategory.getOrDefault(category, 0.0);
-                expenseByCategory.put(category, currentAmount + transaction.getAmount());
+                expenseCentsByCategory.computeIfAbsent(transaction.getCategory(), c -> new long[1])[0]
+                        += transaction.getAmountCents();
             }
         }
+        Map<String, Double> expenseByCategory = new HashMap<>();
+        for (Map.Entry<String, long[]> entry : expenseCentsByCategory.entrySet()) {
+            expenseByCategory.put(entry.getKey(), Money.toMajorUnits(entry.getValue()[0]));
+        }
         
         overview.put("expenseByCategory", expenseByCategory);
         
@@ -423,13 +359,11 @@ public class AiAssistantService {
             System.err.println("AiAssistantService: Settings are null, cannot process monthly savings.");
         }
 
-        List<Transaction> currentMonthTransactions = transactionService.getTransactionsForCurrentMonth();
-        
         // 准备数据
         StringBuilder data = new StringBuilder();
         YearMonth currentMonth = YearMonth.now();
-        double totalIncome = transactionService.getTotalIncome(currentMonthTransactions);
-        double totalExpense = transactionService.getTotalExpense(currentMonthTransactions);
+        double totalIncome = transactionService.getTotalAmount(currentMonth, currentMonth, false);
+        double totalExpense = transactionService.getTotalAmount(currentMonth, currentMonth, true);
         
         data.append(String.format("Current month: %s\n", currentMonth.format(DateTimeFormatter.ofPattern("MMMM yyyy"))));
         data.append(String.format("Total Income: %.2f %s\n", totalIncome, settings != null ? settings.getDefaultCurrency() : ""));
@@ -437,9 +371,8 @@ public class AiAssistantService {
         data.append(String.format("Net Balance: %.2f %s\n\n", (totalIncome - totalExpense), settings != null ? settings.getDefaultCurrency() : ""));
         
         // Expense breakdown by category
-        Map<String, Double> expensesByCategory = currentMonthTransactions.stream()
-            .filter(Transaction::isExpense)
-            .collect(Collectors.groupingBy(Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
+        Map<String, Double> expensesByCategory = transactionService.getCategoryTotals(
+                currentMonth, currentMonth, true);
 
         if (!expensesByCategory.isEmpty()) {
             data.append("Expense Breakdown:\n");
@@ -478,7 +411,6 @@ public class AiAssistantService {
             System.err.println("AiAssistantService: Settings are null, cannot process monthly savings for next month budget context.");
         }
 
-        List<Transaction> currentMonthTransactions = transactionService.getTransactionsForCurrentMonth();
         // Settings settings = settingsService.getSettings(); // Already fetched above
 
         // 准备数据
@@ -486,8 +418,8 @@ public class AiAssistantService {
         YearMonth currentMonth = YearMonth.now();
         YearMonth nextMonth = currentMonth.plusMonths(1);
         
-        double totalIncomeCurrentMonth = transactionService.getTotalIncome(currentMonthTransactions);
-        double totalExpenseCurrentMonth = transactionService.getTotalExpense(currentMonthTransactions);
+        double totalIncomeCurrentMonth = transactionService.getTotalAmount(currentMonth, currentMonth, false);
+        double totalExpenseCurrentMonth = transactionService.getTotalAmount(currentMonth, currentMonth, true);
         
         data.append(String.format("Current month: %s\n", currentMonth.format(DateTimeFormatter.ofPattern("MMMM yyyy"))));
         data.append(String.format("Next month: %s\n", nextMonth.format(DateTimeFormatter.ofPattern("MMMM yyyy"))));
@@ -503,16 +435,10 @@ public class AiAssistantService {
         data.append(String.format("This month's Net Balance: %.2f\n\n", totalIncomeCurrentMonth - totalExpenseCurrentMonth));
         
         // 按类别统计支出 (基于当前月数据作为预测基础)
-        Map<String, Double> categoryExpensesPrediction = new HashMap<>();
         // A more sophisticated prediction might use average of past N months, or trend analysis.
         // For now, using current month's expenses as a simple base.
-        for (Transaction transaction : currentMonthTransactions) {
-            if (transaction.isExpense()) {
-                String category = transaction.getCategory();
-                double amount = transaction.getAmount();
-                categoryExpensesPrediction.put(category, categoryExpensesPrediction.getOrDefault(category, 0.0) + amount);
-            }
-        }
+        Map<String, Double> categoryExpensesPrediction = transactionService.getCategoryTotals(
+                currentMonth, currentMonth, true);
         
         // 获取并应用特殊日期的预算调整
         Map<String, Double> specialDateAdjustments = budgetAdjustmentService.getCategoryAdjustmentsForMonth(nextMonth);
@@ -582,13 +508,11 @@ public class AiAssistantService {
             messageConsumer.accept("[Warning] Settings information is empty, cannot process current month savings goal.\n");
         }
 
-        List<Transaction> currentMonthTransactions = transactionService.getTransactionsForCurrentMonth();
-        
         // 准备数据（与非流式方法相同）
         StringBuilder data = new StringBuilder();
         YearMonth currentMonth = YearMonth.now();
-        double totalIncome = transactionService.getTotalIncome(currentMonthTransactions);
-        double totalExpense = transactionService.getTotalExpense(currentMonthTransactions);
+        double totalIncome = transactionService.getTotalAmount(currentMonth, currentMonth, false);
+        double totalExpense = transactionService.getTotalAmount(currentMonth, currentMonth, true);
         
         data.append(String.format("Current month: %s\n", currentMonth.format(DateTimeFormatter.ofPattern("MMMM yyyy"))));
         data.append(String.format("Total Income: %.2f\n", totalIncome));
@@ -596,14 +520,8 @@ public class AiAssistantService {
         data.append(String.format("Net Balance: %.2f\n\n", totalIncome - totalExpense));
         
         // 按类别统计支出
-        Map<String, Double> categoryExpenses = new HashMap<>();
-        for (Transaction transaction : currentMonthTransactions) {
-            if (transaction.isExpense()) {
-                String category = transaction.getCategory();
-                double amount = transaction.getAmount();
-                categoryExpenses.put(category, categoryExpenses.getOrDefault(category, 0.0) + amount);
-            }
-        }
+        Map<String, Double> categoryExpenses = transactionService.getCategoryTotals(
+                currentMonth, currentMonth, true);
         
         // 按支出金额排序类别
         List<Map.Entry<String, Double>> sortedExpenses = categoryExpenses.entrySet().stream()
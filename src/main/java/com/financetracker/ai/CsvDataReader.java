@@ -5,7 +5,6 @@ import java.nio.file.Path;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import com.financetracker.model.Transaction;
 import com.financetracker.service.TransactionService;
@@ -48,12 +47,15 @@ public class CsvDataReader {
     }
     
     /**
-     * 检查CSV数据库文件是否存在（与isCsvFileExists相同，为兼容性添加）
+     * 检查CSV数据库是否存在
+     * 账本可能是按月分段的文件、尚未迁移的CSV文件，或者只存在于交易日志中，任一存在即可
      * 
      * @return 文件是否存在
      */
     public static boolean databaseExists() {
-        return isCsvFileExists();
+        return isCsvFileExists()
+                || Files.exists(PathUtil.getLedgerManifestPath())
+                || Files.exists(PathUtil.getTransactionsJournalPath());
     }
 
     /**
@@ -76,11 +78,11 @@ public class CsvDataReader {
      * @return 指定月份的交易记录列表
      */
     public static List<Transaction> getTransactionsForMonth(int year, int month) {
-        List<Transaction> allTransactions = readAllTransactions();
-        
-        return allTransactions.stream()
-            .filter(t -> t.getDate().getYear() == year && t.getDate().getMonthValue() == month)
-            .collect(Collectors.toList());
+        if (transactionService != null) {
+            // 由仓库的日期索引按范围查找，无需过滤全部记录
+            return transactionService.getTransactionsForMonth(year, month);
+        }
+        return new ArrayList<>();
     }
     
     /**
@@ -102,11 +104,10 @@ public class CsvDataReader {
      * @return 指定类别的交易记录列表
      */
     public static List<Transaction> getTransactionsByCategory(String category) {
-        List<Transaction> allTransactions = readAllTransactions();
-        
-        return allTransactions.stream()
-            .filter(t -> t.getCategory().equalsIgnoreCase(category))
-            .collect(Collectors.toList());
+        if (transactionService != null) {
+            return transactionService.getTransactionsForCategory(category, true);
+        }
+        return new ArrayList<>();
     }
     
     /**
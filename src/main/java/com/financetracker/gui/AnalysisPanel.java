@@ -18,6 +18,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -34,6 +35,7 @@ import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 
@@ -42,8 +44,9 @@ import com.financetracker.ai.CsvDataReader;
 import com.financetracker.model.SavingGoal;
 import com.financetracker.model.Settings;
 import com.financetracker.model.SpecialDate;
-import com.financetracker.model.Transaction;
 import com.financetracker.service.BudgetAdjustmentService;
+import com.financetracker.service.DomainEvent;
+import com.financetracker.service.DomainEventBus;
 import com.financetracker.service.SettingsService;
 import com.financetracker.service.SpecialDateService;
 import com.financetracker.service.TransactionService;
@@ -59,6 +62,7 @@ public class AnalysisPanel extends JPanel {
     private SpecialDateService specialDateService;
     private BudgetAdjustmentService budgetAdjustmentService;
     private SettingsService settingsService;
+    private ViewRefresher viewRefresher;
     
     private JPanel currentMonthPanel;
     private JPanel aiAssistantPanel;
@@ -100,6 +104,8 @@ public class AnalysisPanel extends JPanel {
         this.specialDateService = specialDateService;
         this.budgetAdjustmentService = budgetAdjustmentService;
         this.aiAssistantService = new AiAssistantService(settingsService);
+        // 没有主窗口时使用自己的刷新线程
+        this.viewRefresher = new ViewRefresher(1);
         
         // 设置CsvDataReader的TransactionService
         CsvDataReader.setTransactionService(transactionService);
@@ -125,11 +131,33 @@ public class AnalysisPanel extends JPanel {
         this.budgetAdjustmentService = budgetAdjustmentService;
         this.mainFrame = mainFrame;
         this.aiAssistantService = new AiAssistantService(settingsService);
+        this.viewRefresher = mainFrame != null ? mainFrame.getViewRefresher() : new ViewRefresher(1);
         
         // 设置CsvDataReader的TransactionService
         CsvDataReader.setTransactionService(transactionService);
         
         initComponents();
+        if (mainFrame != null) {
+            subscribeToChanges(mainFrame.getEventBus());
+        }
+    }
+    
+    /**
+     * 订阅数据变更事件，只刷新受影响的标签页：
+     * 交易变化影响本月统计和下月预算，特殊日期只影响预算，储蓄目标只影响目标进度，
+     * 设置变化（预算、财务月起始日等）影响全部内容
+     */
+    private void subscribeToChanges(DomainEventBus eventBus) {
+        eventBus.subscribe(DomainEvent.TransactionEvent.class, event -> ViewRefresher.runOnEventThread(() -> {
+            updateCurrentMonthView();
+            updateBudgetPanelContents();
+        }));
+        eventBus.subscribe(DomainEvent.SpecialDateChanged.class,
+                event -> ViewRefresher.runOnEventThread(this::updateBudgetPanelContents));
+        eventBus.subscribe(DomainEvent.GoalChanged.class,
+                event -> ViewRefresher.runOnEventThread(this::updateSavingGoalsProgressView));
+        eventBus.subscribe(DomainEvent.SettingsChanged.class,
+                event -> ViewRefresher.runOnEventThread(this::refreshAllAnalysisData));
     }
     
     /**
@@ -171,6 +199,7 @@ public class AnalysisPanel extends JPanel {
         // Create budget panel
         budgetPanel = createBudgetPanel();
         tabbedPane.addTab("Budget of Next Month", budgetPanel);
+        updateBudgetPanelContents();
         
         // Create Saving Goals Progress panel
         savingGoalsProgressPanel = createSavingGoalsProgressPanel();
@@ -432,7 +461,7 @@ public class AnalysisPanel extends JPanel {
         this.budgetSummaryTextArea.setWrapStyleWord(true);
         this.budgetSummaryTextArea.setFont(UIManager.getFont("Label.font"));
 
-        this.budgetSummaryTextArea.setText(generateBudgetSummaryText()); // Populate with generated text
+        this.budgetSummaryTextArea.setText("Loading..."); // Filled in the background by updateBudgetPanelContents()
         JScrollPane budgetSummaryScrollPane = new JScrollPane(this.budgetSummaryTextArea);
         budgetSummaryPanel.add(budgetSummaryScrollPane, BorderLayout.CENTER);
         centralContentPanel.add(budgetSummaryPanel);
@@ -450,7 +479,7 @@ public class AnalysisPanel extends JPanel {
         this.categoryBudgetChartTextArea.setWrapStyleWord(true);
         this.categoryBudgetChartTextArea.setFont(UIManager.getFont("Label.font")); // Monospaced font might be better for text bars
 
-        this.categoryBudgetChartTextArea.setText(generateCategoryBudgetText()); // Populate with generated text
+        this.categoryBudgetChartTextArea.setText("Loading..."); // Filled in the background by updateBudgetPanelContents()
         JScrollPane categoryBudgetChartScrollPane = new JScrollPane(this.categoryBudgetChartTextArea);
         categoryBudgetChartPanel.add(categoryBudgetChartScrollPane, BorderLayout.CENTER);
         centralContentPanel.add(categoryBudgetChartPanel);
@@ -470,7 +499,7 @@ public class AnalysisPanel extends JPanel {
         this.specialDatesTextArea.setWrapStyleWord(true);
         this.specialDatesTextArea.setFont(UIManager.getFont("Label.font"));
         
-        this.specialDatesTextArea.setText(generateSpecialDatesText()); // Populate with generated text
+        this.specialDatesTextArea.setText("Loading..."); // Filled in the background by updateBudgetPanelContents()
         specialDatesDisplayPanel.add(new JScrollPane(this.specialDatesTextArea), BorderLayout.CENTER);
         
         panel.add(specialDatesDisplayPanel, BorderLayout.EAST); 
@@ -612,26 +641,8 @@ public class AnalysisPanel extends JPanel {
      * 更新当前财务月视图
      */
     private void updateCurrentFinancialMonthView() {
-        // 获取当前财务月的交易记录
-        List<Transaction> allTransactions = transactionService.getAllTransactions();
-        Map<String, LocalDate> financialMonthRange = transactionService.getCurrentFinancialMonthRange();
-        LocalDate startDate = financialMonthRange.get("startDate");
-        LocalDate endDate = financialMonthRange.get("endDate");
-        
-        // 筛选当前财务月的交易
-        List<Transaction> transactions = new ArrayList<>();
-        for (Transaction transaction : allTransactions) {
-            LocalDate transactionDate = transaction.getDate();
-            boolean inFinancialMonth = !transactionDate.isBefore(startDate) && !transactionDate.isAfter(endDate);
-            
-            if (inFinancialMonth) {
-                transactions.add(transaction);
-            }
-        }
-        
-        // 更新界面
-        updateSummaryForFinancialMonth(transactions, startDate, endDate);
-        updateCategoryBreakdown(transactions);
+        // 获取当前财务月的日期范围并更新界面（统计直接基于列式快照，无需筛选交易列表）
+        refreshMonthView(transactionService::getCurrentFinancialMonthRange);
     }
     
     /**
@@ -641,38 +652,36 @@ public class AnalysisPanel extends JPanel {
      * @param month 月份(1-12)
      */
     private void updateFinancialMonthView(int year, int month) {
-        // 获取指定财务月的日期范围
-        Map<String, LocalDate> financialMonthRange = transactionService.getFinancialMonthRange(year, month);
-        LocalDate startDate = financialMonthRange.get("startDate");
-        LocalDate endDate = financialMonthRange.get("endDate");
-        
-        // 获取交易记录
-        List<Transaction> allTransactions = transactionService.getAllTransactions();
-        List<Transaction> transactions = new ArrayList<>();
-        
-        // 筛选指定财务月的交易
-        for (Transaction transaction : allTransactions) {
-            LocalDate transactionDate = transaction.getDate();
-            boolean inFinancialMonth = !transactionDate.isBefore(startDate) && !transactionDate.isAfter(endDate);
-            
-            if (inFinancialMonth) {
-                transactions.add(transaction);
-            }
-        }
-        
-        // 更新界面
-        updateSummaryForFinancialMonth(transactions, startDate, endDate);
-        updateCategoryBreakdown(transactions);
+        // 获取指定财务月的日期范围并更新界面
+        refreshMonthView(() -> transactionService.getFinancialMonthRange(year, month));
+    }
+    
+    /**
+     * 在后台计算财务月的摘要和分类明细，完成后在 EDT 上更新文本框。
+     * 连续切换月份时只显示最后选择的月份。
+     * 
+     * @param rangeLoader 返回财务月起止日期，在后台线程执行
+     */
+    private void refreshMonthView(Callable<Map<String, LocalDate>> rangeLoader) {
+        viewRefresher.refresh("analysis.month", () -> {
+            Map<String, LocalDate> financialMonthRange = rangeLoader.call();
+            LocalDate startDate = financialMonthRange.get("startDate");
+            LocalDate endDate = financialMonthRange.get("endDate");
+            return new String[]{buildSummaryForFinancialMonth(startDate, endDate), buildCategoryBreakdown(startDate, endDate)};
+        }, texts -> {
+            summaryTextArea.setText(texts[0]);
+            categoryBreakdownTextArea.setText(texts[1]);
+        });
     }
     
     /**
-     * 为财务月更新摘要信息
+     * 生成财务月的摘要信息
      * 
-     * @param transactions 交易列表
      * @param startDate 财务月开始日期
      * @param endDate 财务月结束日期
+     * @return 摘要文本
      */
-    private void updateSummaryForFinancialMonth(List<Transaction> transactions, LocalDate startDate, LocalDate endDate) {
+    private String buildSummaryForFinancialMonth(LocalDate startDate, LocalDate endDate) {
         StringBuilder summary = new StringBuilder();
         
         String monthName = startDate.getMonth().getDisplayName(TextStyle.FULL, Locale.getDefault());
@@ -691,12 +700,11 @@ public class AnalysisPanel extends JPanel {
         summary.append("财务月统计 (").append(periodText).append(")\n\n");
         
         // 显示设置中的财务月起始日
-        SettingsService settingsService = new SettingsService();
-        int monthStartDay = settingsService.getSettings().getMonthStartDay();
+        int monthStartDay = transactionService.getFinancialCalendar().getMonthStartDay();
         summary.append("当前财务月起始日设置: 每月").append(monthStartDay).append("日\n\n");
         
-        double totalIncome = transactionService.getTotalIncome(transactions);
-        double totalExpense = transactionService.getTotalExpense(transactions);
+        double totalIncome = transactionService.getTotalAmount(startDate, endDate, false);
+        double totalExpense = transactionService.getTotalAmount(startDate, endDate, true);
         double netAmount = totalIncome - totalExpense;
         
         summary.append(String.format("总收入: %.2f\n", totalIncome));
@@ -725,22 +733,11 @@ public class AnalysisPanel extends JPanel {
         LocalDate prevStartDate = previousFinancialMonthRange.get("startDate");
         LocalDate prevEndDate = previousFinancialMonthRange.get("endDate");
 
-        // 2. 获取上一个财务月的所有交易
-        List<Transaction> allTransactions = transactionService.getAllTransactions(); // Re-fetch all or ensure service can filter by date range effectively
-        List<Transaction> previousMonthTransactions = new ArrayList<>();
-        for (Transaction transaction : allTransactions) {
-            LocalDate transactionDate = transaction.getDate();
-            boolean inPreviousFinancialMonth = !transactionDate.isBefore(prevStartDate) && !transactionDate.isAfter(prevEndDate);
-            if (inPreviousFinancialMonth) {
-                previousMonthTransactions.add(transaction);
-            }
-        }
-        
-        // 3. 计算上一个财务月的总支出
-        double lastMonthTotalExpense = transactionService.getTotalExpense(previousMonthTransactions);
+        // 2. 计算上一个财务月的总支出
+        double lastMonthTotalExpense = transactionService.getTotalAmount(prevStartDate, prevEndDate, true);
         summary.append(String.format("上月总支出: %.2f\n", lastMonthTotalExpense));
 
-        // 4. 与当前月支出对比
+        // 3. 与当前月支出对比
         double differenceFromLastMonth = totalExpense - lastMonthTotalExpense;
         if (differenceFromLastMonth > 0) {
             summary.append(String.format("比上月多支出: %.2f\n", differenceFromLastMonth));
@@ -751,30 +748,25 @@ public class AnalysisPanel extends JPanel {
         }
         summary.append("\n");
         
-        summaryTextArea.setText(summary.toString());
+        return summary.toString();
     }
     
     /**
-     * Updates the category breakdown text area.
+     * Builds the text of the category breakdown.
      * 
-     * @param transactions The transactions to use
+     * @param startDate The start date of the period (inclusive)
+     * @param endDate The end date of the period (inclusive)
+     * @return The category breakdown
      */
-    private void updateCategoryBreakdown(List<Transaction> transactions) {
+    private String buildCategoryBreakdown(LocalDate startDate, LocalDate endDate) {
         StringBuilder breakdown = new StringBuilder();
         breakdown.append("Category Breakdown:\n\n");
         
         // Calculate category totals
-        Map<String, Double> categoryTotals = new HashMap<>();
+        Map<String, Double> categoryTotals = transactionService.getCategoryTotals(startDate, endDate, true);
         double totalExpense = 0.0;
-        
-        for (Transaction transaction : transactions) {
-            if (transaction.isExpense()) {
-                String category = transaction.getCategory();
-                double amount = transaction.getAmount();
-                
-                categoryTotals.put(category, categoryTotals.getOrDefault(category, 0.0) + amount);
-                totalExpense += amount;
-            }
+        for (double amount : categoryTotals.values()) {
+            totalExpense += amount;
         }
         
         // Add category totals to breakdown
@@ -797,7 +789,7 @@ public class AnalysisPanel extends JPanel {
             breakdown.append("]\n\n");
         }
         
-        categoryBreakdownTextArea.setText(breakdown.toString());
+        return breakdown.toString();
     }
     
     /**
@@ -928,12 +920,9 @@ public class AnalysisPanel extends JPanel {
      * @return The average monthly income
      */
     private double calculateAverageIncome(int months) {
-        LocalDate today = LocalDate.now();
-        LocalDate startDate = today.minusMonths(months).withDayOfMonth(1);
-        LocalDate endDate = today.withDayOfMonth(today.lengthOfMonth());
+        YearMonth currentMonth = YearMonth.now();
         
-        List<Transaction> transactions = transactionService.getTransactionsForDateRange(startDate, endDate);
-        double totalIncome = transactionService.getTotalIncome(transactions);
+        double totalIncome = transactionService.getTotalAmount(currentMonth.minusMonths(months), currentMonth, false);
         
         return totalIncome / months;
     }
@@ -945,12 +934,9 @@ public class AnalysisPanel extends JPanel {
      * @return The average monthly expense
      */
     private double calculateAverageExpense(int months) {
-        LocalDate today = LocalDate.now();
-        LocalDate startDate = today.minusMonths(months).withDayOfMonth(1);
-        LocalDate endDate = today.withDayOfMonth(today.lengthOfMonth());
+        YearMonth currentMonth = YearMonth.now();
         
-        List<Transaction> transactions = transactionService.getTransactionsForDateRange(startDate, endDate);
-        double totalExpense = transactionService.getTotalExpense(transactions);
+        double totalExpense = transactionService.getTotalAmount(currentMonth.minusMonths(months), currentMonth, true);
         
         return totalExpense / months;
     }
@@ -962,22 +948,13 @@ public class AnalysisPanel extends JPanel {
      * @return The category distribution
      */
     private Map<String, Double> calculateCategoryDistribution(int months) {
-        LocalDate today = LocalDate.now();
-        LocalDate startDate = today.minusMonths(months).withDayOfMonth(1);
-        LocalDate endDate = today.withDayOfMonth(today.lengthOfMonth());
-        
-        List<Transaction> transactions = transactionService.getTransactionsForDateRange(startDate, endDate);
-        double totalExpense = transactionService.getTotalExpense(transactions);
-        
-        Map<String, Double> categoryTotals = new HashMap<>();
+        YearMonth currentMonth = YearMonth.now();
         
-        for (Transaction transaction : transactions) {
-            if (transaction.isExpense()) {
-                String category = transaction.getCategory();
-                double amount = transaction.getAmount();
-                
-                categoryTotals.put(category, categoryTotals.getOrDefault(category, 0.0) + amount);
-            }
+        // 直接读取按月预先汇总的结果，不必遍历这些月份的记录
+        Map<String, Double> categoryTotals = transactionService.getCategoryTotals(currentMonth.minusMonths(months), currentMonth, true);
+        double totalExpense = 0;
+        for (double amount : categoryTotals.values()) {
+            totalExpense += amount;
         }
         
         // Convert to distribution
@@ -1086,7 +1063,7 @@ public class AnalysisPanel extends JPanel {
             // Or just leave it, as user might want to see previous response in old context.
         }
         
-        System.out.println("AnalysisPanel: Refresh complete.");
+        System.out.println("AnalysisPanel: Refresh requested.");
     }
 
     // Placeholder for method to update budget panel contents. Needs to be implemented.
@@ -1099,15 +1076,27 @@ public class AnalysisPanel extends JPanel {
         }
         System.out.println("AnalysisPanel: Updating budget panel contents...");
 
+        // 预算、分类预算和特殊日期的计算都要读取交易，放在后台线程完成
+        viewRefresher.refresh("analysis.budget",
+                () -> new String[]{generateBudgetSummaryText(), generateCategoryBudgetText(), generateSpecialDatesText()},
+                this::showBudgetPanelContents);
+    }
+
+    /**
+     * Shows the texts computed by {@link #updateBudgetPanelContents()}.
+     *
+     * @param texts The budget summary, the category budget and the special dates
+     */
+    private void showBudgetPanelContents(String[] texts) {
         if (this.budgetSummaryTextArea != null) {
-            this.budgetSummaryTextArea.setText(generateBudgetSummaryText());
+            this.budgetSummaryTextArea.setText(texts[0]);
             this.budgetSummaryTextArea.setCaretPosition(0);
         } else {
             System.err.println("AnalysisPanel: budgetSummaryTextArea is null, cannot update.");
         }
 
         if (this.categoryBudgetChartTextArea != null) {
-            this.categoryBudgetChartTextArea.setText(generateCategoryBudgetText());
+            this.categoryBudgetChartTextArea.setText(texts[1]);
             this.categoryBudgetChartTextArea.setCaretPosition(0);
         } else {
             System.err.println("AnalysisPanel: categoryBudgetChartTextArea is null, cannot update.");
@@ -1115,13 +1104,13 @@ public class AnalysisPanel extends JPanel {
 
         if (this.specialDatesTextArea != null) {
             // Update the border title for specialDatesDisplayPanel as well, as month might change
-            JPanel specialDatesDisplayPanel = (JPanel) this.specialDatesTextArea.getParent().getParent(); // JViewport -> JScrollPane -> JPanel
+            JPanel specialDatesDisplayPanel = (JPanel) SwingUtilities.getAncestorOfClass(JPanel.class, this.specialDatesTextArea); // JViewport -> JScrollPane -> JPanel
             if (specialDatesDisplayPanel != null) {
                  YearMonth nextMonth = YearMonth.now().plusMonths(1);
                  String monthName = nextMonth.getMonth().getDisplayName(TextStyle.FULL, Locale.getDefault());
                  specialDatesDisplayPanel.setBorder(BorderFactory.createTitledBorder("Upcoming Special Dates in " + monthName));
             }
-            this.specialDatesTextArea.setText(generateSpecialDatesText());
+            this.specialDatesTextArea.setText(texts[2]);
             this.specialDatesTextArea.setCaretPosition(0);
         } else {
             System.err.println("AnalysisPanel: specialDatesTextArea is null, cannot update.");
@@ -6,13 +6,20 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import com.financetracker.model.Settings;
 import com.financetracker.model.SavingGoal;
+import com.financetracker.service.DomainEvent;
+import com.financetracker.service.DomainEventBus;
+import com.financetracker.service.TransactionService;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The home panel that serves as the main menu of the application.
  */
 public class HomePanel extends JPanel {
     
+    private static final Logger LOGGER = Logger.getLogger(HomePanel.class.getName());
+    
     private MainFrame mainFrame;
     private JLabel remainingBalanceLabel;
     private JPanel savingGoalsProgressPanel;
@@ -27,6 +34,19 @@ public class HomePanel extends JPanel {
     public HomePanel(MainFrame mainFrame) {
         this.mainFrame = mainFrame;
         initComponents();
+        subscribeToChanges(mainFrame.getEventBus());
+    }
+    
+    /**
+     * 交易变化时只重新计算剩余余额；设置或储蓄目标变化时同时刷新目标进度和账户余额
+     */
+    private void subscribeToChanges(DomainEventBus eventBus) {
+        eventBus.subscribe(DomainEvent.TransactionEvent.class,
+                event -> ViewRefresher.runOnEventThread(this::refreshRemainingBalance));
+        eventBus.subscribe(DomainEvent.SettingsChanged.class,
+                event -> ViewRefresher.runOnEventThread(this::updateRemainingBalance));
+        eventBus.subscribe(DomainEvent.GoalChanged.class,
+                event -> ViewRefresher.runOnEventThread(this::updateSavingGoalsProgress));
     }
     
     /**
@@ -145,6 +165,15 @@ public class HomePanel extends JPanel {
      * Called when the panel is shown or relevant data changes.
      */
     public void updateRemainingBalance() {
+        refreshRemainingBalance();
+        updateSavingGoalsProgress(); // Update goals when balance updates
+        updateOverallAccountBalance(); // Update overall balance as well
+    }
+
+    /**
+     * 在后台重新计算当前财务月的剩余余额
+     */
+    private void refreshRemainingBalance() {
         if (mainFrame == null || mainFrame.getTransactionService() == null || mainFrame.getSettingsService() == null) {
             remainingBalanceLabel.setText("Remaining Balance: Error - Services not available");
             return;
@@ -156,8 +185,21 @@ public class HomePanel extends JPanel {
             return;
         }
 
-        try {
-            double balance = mainFrame.getTransactionService().calculateRemainingBalanceForCurrentFinancialMonth(settings);
+        // 读取并汇总交易放在后台线程，结果回到 EDT 再更新标签
+        TransactionService transactionService = mainFrame.getTransactionService();
+        mainFrame.getViewRefresher().refresh("home.remainingBalance", () -> {
+            try {
+                return transactionService.calculateRemainingBalanceForCurrentFinancialMonth(settings);
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Error calculating remaining balance", e);
+                return null;
+            }
+        }, balance -> {
+            if (balance == null) {
+                remainingBalanceLabel.setText("Remaining Balance: Error");
+                remainingBalanceLabel.setForeground(Color.RED);
+                return;
+            }
             String balanceText = String.format("Remaining Balance (Current Financial Month): %.2f %s", balance, settings.getDefaultCurrency());
             remainingBalanceLabel.setText(balanceText);
             if (balance < 0) {
@@ -165,14 +207,7 @@ public class HomePanel extends JPanel {
             } else {
                 remainingBalanceLabel.setForeground(Color.BLUE); // Or UIManager.getColor("Label.foreground") for default
             }
-        } catch (Exception e) {
-            System.err.println("Error calculating or displaying remaining balance: " + e.getMessage());
-            e.printStackTrace();
-            remainingBalanceLabel.setText("Remaining Balance: Error");
-            remainingBalanceLabel.setForeground(Color.RED);
-        }
-        updateSavingGoalsProgress(); // Update goals when balance updates
-        updateOverallAccountBalance(); // Update overall balance as well
+        });
     }
 
     /**
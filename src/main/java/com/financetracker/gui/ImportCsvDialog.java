@@ -1,5 +1,7 @@
 package com.financetracker.gui;
 
+import com.financetracker.service.DateParser;
+import com.financetracker.service.JobScheduler;
 import com.financetracker.service.TransactionService;
 
 import javax.swing.*;
@@ -7,8 +9,10 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,6 +24,8 @@ public class ImportCsvDialog extends JDialog {
     
     private String filePath;
     private TransactionService transactionService;
+    private MainFrame mainFrame;
+    private Runnable onImported;
     private List<String> headers;
     
     /**
@@ -30,9 +36,25 @@ public class ImportCsvDialog extends JDialog {
      * @param transactionService The transaction service
      */
     public ImportCsvDialog(MainFrame mainFrame, String filePath, TransactionService transactionService) {
+        this(mainFrame, filePath, transactionService, null);
+    }
+    
+    /**
+     * Constructor for ImportCsvDialog.
+     * The import runs as a background job of the main frame's {@link JobScheduler}.
+     * 
+     * @param mainFrame The main frame
+     * @param filePath The path to the CSV file
+     * @param transactionService The transaction service
+     * @param onImported Run on the EDT once the import job has finished, may be null
+     */
+    public ImportCsvDialog(MainFrame mainFrame, String filePath, TransactionService transactionService,
+                           Runnable onImported) {
         super(mainFrame, "导入CSV文件", true);
         this.filePath = filePath;
         this.transactionService = transactionService;
+        this.mainFrame = mainFrame;
+        this.onImported = onImported;
         
         // 先读取CSV头，确保headers不为null
         this.headers = readCsvHeaders();
@@ -152,25 +174,11 @@ public class ImportCsvDialog extends JDialog {
         if (amountIndex < 0 && headers.size() > 1) amountIndex = 1;
         if (descIndex < 0 && headers.size() > 2) descIndex = 2;
         
-        // 确定日期格式
-        String dateFormat = "yyyy-MM-dd"; // 默认格式
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            // 跳过标题行
-            reader.readLine();
-            
-            // 读取第一个数据行
-            String dataLine = reader.readLine();
-            if (dataLine != null && dateIndex >= 0) {
-                String[] values = dataLine.split(dataLine.contains(",") ? "," : ";");
-                if (values.length > dateIndex) {
-                    String dateValue = values[dateIndex].trim();
-                    dateFormat = guessDateFormat(dateValue);
-                }
-            }
-        } catch (IOException e) {
-            // 忽略错误，使用默认日期格式
-        }
-        
+        // 确定日期格式：取日期列的前若干行作为样本，整列锁定为最符合的格式
+        String dateFormat = dateIndex >= 0
+                ? DateParser.guessFormat(Paths.get(filePath), headers.get(dateIndex))
+                : DateParser.DEFAULT_FORMAT;
+
         // 返回自动识别的列和日期格式
         String[] result = new String[5];
         result[0] = dateIndex >= 0 ? headers.get(dateIndex) : null;
@@ -209,28 +217,6 @@ public class ImportCsvDialog extends JDialog {
         return -1; // 未找到匹配项
     }
     
-    /**
-     * 根据日期字符串猜测日期格式
-     */
-    private String guessDateFormat(String dateStr) {
-        String[][] formats = {
-            {"yyyy-MM-dd", "\\d{4}-\\d{1,2}-\\d{1,2}"},
-            {"MM/dd/yyyy", "\\d{1,2}/\\d{1,2}/\\d{4}"},
-            {"dd/MM/yyyy", "\\d{1,2}/\\d{1,2}/\\d{4}"},
-            {"yyyy/MM/dd", "\\d{4}/\\d{1,2}/\\d{1,2}"},
-            {"dd-MM-yyyy", "\\d{1,2}-\\d{1,2}-\\d{4}"},
-            {"dd.MM.yyyy", "\\d{1,2}\\.\\d{1,2}\\.\\d{4}"}
-        };
-        
-        for (String[] format : formats) {
-            if (dateStr.matches(format[1])) {
-                return format[0];
-            }
-        }
-        
-        return "yyyy-MM-dd"; // 默认格式
-    }
-    
     /**
      * 导入交易记录
      */
@@ -251,41 +237,48 @@ public class ImportCsvDialog extends JDialog {
             return;
         }
         
-        // 使用SwingWorker在后台执行导入操作
-        SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
-            @Override
-            protected Integer doInBackground() throws Exception {
+        // 在后台任务中执行导入，进度和取消由状态栏的任务列表提供
+        String fileName = new File(filePath).getName();
+        mainFrame.getJobScheduler().submit("导入 " + fileName, job ->
                 // 系统会自动检测交易类型，所以isExpense参数此处无关紧要
-                return transactionService.importFromCsv(filePath, dateColumn, amountColumn, 
-                                                     descriptionColumn, categoryColumn, dateFormat, false);
-            }
-            
-            @Override
-            protected void done() {
-                try {
-                    int count = get();
-                    if (count > 0) {
-                        JOptionPane.showMessageDialog(ImportCsvDialog.this, 
+                transactionService.importFromCsv(filePath, dateColumn, amountColumn,
+                        descriptionColumn, categoryColumn, dateFormat, false,
+                        new TransactionService.ImportProgressListener() {
+                            @Override
+                            public void onProgress(int recordsRead, int imported, int skipped) {
+                                job.setProgress(imported, -1, "已读取 " + recordsRead + " 条");
+                            }
+
+                            @Override
+                            public boolean isCancelled() {
+                                return job.isCancelRequested();
+                            }
+                        }),
+                (job, count) -> SwingUtilities.invokeLater(() -> {
+                    if (onImported != null) {
+                        onImported.run();
+                    }
+                    if (count == null) {
+                        JOptionPane.showMessageDialog(mainFrame, 
+                            "导入时发生错误: " + (job.getError() != null ? job.getError().getMessage() : "未知错误"), 
+                            "导入失败", JOptionPane.ERROR_MESSAGE);
+                    } else if (job.getState() == JobScheduler.State.CANCELLED) {
+                        JOptionPane.showMessageDialog(mainFrame, 
+                            "导入已取消，已保存 " + count + " 条交易记录。", 
+                            "导入取消", JOptionPane.INFORMATION_MESSAGE);
+                    } else if (count > 0) {
+                        JOptionPane.showMessageDialog(mainFrame, 
                             "成功导入 " + count + " 条交易记录。\n日期列: " + dateColumn + 
                             "\n金额列: " + amountColumn + "\n描述列: " + descriptionColumn + 
                             (categoryColumn != null ? "\n类别列: " + categoryColumn : "") + 
                             "\n日期格式: " + dateFormat, 
                             "导入成功", JOptionPane.INFORMATION_MESSAGE);
                     } else {
-                        JOptionPane.showMessageDialog(ImportCsvDialog.this, 
-                            "没有导入任何交易记录。请检查CSV文件格式。", 
+                        JOptionPane.showMessageDialog(mainFrame, 
+                            "没有导入任何交易记录。请检查CSV文件格式，或文件中的记录均已导入过。", 
                             "导入警告", JOptionPane.WARNING_MESSAGE);
                     }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    JOptionPane.showMessageDialog(ImportCsvDialog.this, 
-                        "导入时发生错误: " + e.getMessage(), 
-                        "导入失败", JOptionPane.ERROR_MESSAGE);
-                }
-                dispose();
-            }
-        };
-        
-        worker.execute();
+                }));
+        dispose();
     }
 }
@@ -0,0 +1,142 @@
+package com.financetracker.gui;
+
+import com.financetracker.service.JobScheduler;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Status bar section that shows the background jobs of a {@link JobScheduler}.
+ * It summarises the running jobs with a progress bar, and its button opens the job history,
+ * where queued and running jobs can be cancelled.
+ */
+public class JobStatusPanel extends JPanel {
+
+    private final JobScheduler jobScheduler;
+    private final JLabel summaryLabel;
+    private final JProgressBar progressBar;
+    private final DefaultListModel<JobScheduler.Job> historyModel = new DefaultListModel<>();
+    private JDialog historyDialog;
+    private JList<JobScheduler.Job> historyList;
+    // 合并来自工作线程的频繁进度通知，EDT 上每次只刷新一次
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+
+    /**
+     * Constructor for JobStatusPanel.
+     *
+     * @param jobScheduler The scheduler whose jobs are shown
+     */
+    public JobStatusPanel(JobScheduler jobScheduler) {
+        this.jobScheduler = jobScheduler;
+        setLayout(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        setOpaque(false);
+
+        summaryLabel = new JLabel("无后台任务");
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setPreferredSize(new Dimension(120, 14));
+        progressBar.setVisible(false);
+        JButton historyButton = new JButton("任务");
+        historyButton.setMargin(new Insets(0, 6, 0, 6));
+        historyButton.setFocusPainted(false);
+        historyButton.setToolTipText("查看后台导入/导出任务");
+        historyButton.addActionListener(e -> showHistory());
+
+        add(summaryLabel);
+        add(progressBar);
+        add(historyButton);
+
+        jobScheduler.addListener(job -> {
+            if (refreshPending.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(this::refresh);
+            }
+        });
+    }
+
+    /**
+     * Updates the summary and the history list from the scheduler.
+     */
+    private void refresh() {
+        refreshPending.set(false);
+        List<JobScheduler.Job> jobs = jobScheduler.getJobs();
+        JobScheduler.Job running = null;
+        int active = 0;
+        for (JobScheduler.Job job : jobs) {
+            if (!job.getState().isFinished()) {
+                active++;
+                if (running == null && job.getState() == JobScheduler.State.RUNNING) {
+                    running = job;
+                }
+            }
+        }
+
+        if (active == 0) {
+            summaryLabel.setText(jobs.isEmpty() ? "无后台任务" : "最近: " + jobs.get(0));
+            progressBar.setVisible(false);
+        } else {
+            summaryLabel.setText(active + " 个后台任务" + (running != null ? ": " + running.getName() : ""));
+            double fraction = running != null ? running.getFraction() : -1;
+            progressBar.setIndeterminate(fraction < 0);
+            if (fraction >= 0) {
+                progressBar.setValue((int) Math.round(fraction * 100));
+            }
+            progressBar.setVisible(true);
+        }
+
+        // 保留列表中的选择，以便用户取消所选任务
+        if (historyDialog != null && historyDialog.isVisible()) {
+            JobScheduler.Job selected = historyList.getSelectedValue();
+            historyModel.clear();
+            for (JobScheduler.Job job : jobs) {
+                historyModel.addElement(job);
+            }
+            if (selected != null) {
+                int index = historyModel.indexOf(selected);
+                if (index >= 0) {
+                    historyList.setSelectedIndex(index);
+                }
+            }
+        }
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * 显示任务历史对话框
+     */
+    private void showHistory() {
+        if (historyDialog == null) {
+            Window owner = SwingUtilities.getWindowAncestor(this);
+            historyDialog = new JDialog(owner, "后台任务", Dialog.ModalityType.MODELESS);
+            historyDialog.setLayout(new BorderLayout());
+
+            historyList = new JList<>(historyModel);
+            historyList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            historyDialog.add(new JScrollPane(historyList), BorderLayout.CENTER);
+
+            JButton cancelButton = new JButton("取消所选任务");
+            cancelButton.addActionListener(e -> {
+                JobScheduler.Job job = historyList.getSelectedValue();
+                if (job == null) {
+                    JOptionPane.showMessageDialog(historyDialog, "请选择要取消的任务", "提示", JOptionPane.INFORMATION_MESSAGE);
+                } else if (job.getState().isFinished()) {
+                    JOptionPane.showMessageDialog(historyDialog, "该任务已结束", "提示", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    job.cancel();
+                }
+            });
+            JButton closeButton = new JButton("关闭");
+            closeButton.addActionListener(e -> historyDialog.setVisible(false));
+            JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            buttonPanel.add(cancelButton);
+            buttonPanel.add(closeButton);
+            historyDialog.add(buttonPanel, BorderLayout.SOUTH);
+
+            historyDialog.setSize(520, 300);
+            historyDialog.setLocationRelativeTo(owner);
+        }
+        historyDialog.setVisible(true);
+        refresh();
+    }
+}
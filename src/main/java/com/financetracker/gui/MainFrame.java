@@ -2,6 +2,8 @@ package com.financetracker.gui;
 
 import com.financetracker.model.Settings;
 import com.financetracker.service.BudgetAdjustmentService;
+import com.financetracker.service.DomainEventBus;
+import com.financetracker.service.JobScheduler;
 import com.financetracker.service.SettingsService;
 import com.financetracker.service.SpecialDateService;
 import com.financetracker.service.TransactionService;
@@ -32,8 +34,12 @@ public class MainFrame extends JFrame {
     private SpecialDateService specialDateService;
     private BudgetAdjustmentService budgetAdjustmentService;
     private TransactionService transactionService;
+    private DomainEventBus eventBus;
+    private JobScheduler jobScheduler;
+    private ViewRefresher viewRefresher;
 
     private JPanel navigationPanel;
+    private JPanel statusBar;
     private JLabel statusLabel;
     private Timer statusTimer;
 
@@ -47,11 +53,15 @@ public class MainFrame extends JFrame {
      */
     public MainFrame() {
         // Initialize services
-        settingsService = new SettingsService();
+        // 各服务在保存后通过事件总线通知面板，面板只刷新受影响的部分
+        eventBus = new DomainEventBus();
+        settingsService = new SettingsService(eventBus);
         settings = settingsService.getSettings();
         specialDateService = new SpecialDateService(settingsService);
         budgetAdjustmentService = new BudgetAdjustmentService(settingsService);
-        transactionService = new TransactionService(settings);
+        transactionService = new TransactionService(settings, eventBus);
+        jobScheduler = new JobScheduler(JobScheduler.DEFAULT_CONCURRENCY);
+        viewRefresher = new ViewRefresher(ViewRefresher.DEFAULT_THREADS);
 
         // Set up the frame
         setTitle("个人财务跟踪器");
@@ -75,7 +85,7 @@ public class MainFrame extends JFrame {
 
         // 创建底部状态栏
         createStatusBar();
-        mainPanel.add(statusLabel, BorderLayout.SOUTH);
+        mainPanel.add(statusBar, BorderLayout.SOUTH);
 
         // Initialize panels
         homePanel = new HomePanel(this);
@@ -101,6 +111,11 @@ public class MainFrame extends JFrame {
             @Override
             public void windowClosing(WindowEvent e) {
                 settingsService.saveSettings();
+                // 取消后台任务，等待正在写入的任务停下
+                jobScheduler.shutdown();
+                viewRefresher.shutdown();
+                // 将交易日志合并到 CSV 文件，下次启动无需重放
+                transactionService.compactStorage();
                 // 停止状态栏计时器
                 if (statusTimer != null && statusTimer.isRunning()) {
                     statusTimer.stop();
@@ -234,9 +249,13 @@ public class MainFrame extends JFrame {
     private void createStatusBar() {
         // 创建状态标签
         statusLabel = new JLabel("欢迎使用个人财务跟踪器");
-        statusLabel.setBorder(BorderFactory.createCompoundBorder(
+        statusBar = new JPanel(new BorderLayout());
+        statusBar.setBorder(BorderFactory.createCompoundBorder(
                 BorderFactory.createMatteBorder(1, 0, 0, 0, Color.LIGHT_GRAY),
                 BorderFactory.createEmptyBorder(5, 10, 5, 10)));
+        statusBar.add(statusLabel, BorderLayout.CENTER);
+        // 右侧显示后台任务的进度和历史
+        statusBar.add(new JobStatusPanel(jobScheduler), BorderLayout.EAST);
 
         // 创建时间更新定时器
         statusTimer = new Timer(1000, new ActionListener() {
@@ -323,16 +342,11 @@ public class MainFrame extends JFrame {
         updateNavigationButtons(panelName); // Keep navigation buttons in sync
         updateStatusText("Navigated to " + panelName);
 
-        // Update specific panels when they are shown
-        if ("home".equals(panelName) && homePanel != null) {
-            homePanel.updateRemainingBalance();
-        }
+        // 面板订阅了事件总线，数据变化时已经更新，这里只刷新下拉列表等轻量内容
         if ("analysis".equals(panelName) && analysisPanel != null) {
-            analysisPanel.updateSavingGoalsProgressView(); // Refresh saving goals when analysis panel is shown
             analysisPanel.refreshCategoryList(); // Refresh category dropdowns
         }
         if ("transactions".equals(panelName) && transactionPanel != null) {
-            transactionPanel.loadTransactions(); // Refresh transactions
             transactionPanel.updateCategoryDropdown(); // Refresh categories in dropdown
         }
         if ("settings".equals(panelName) && settingsPanel != null) {
@@ -397,6 +411,33 @@ public class MainFrame extends JFrame {
         return transactionService;
     }
 
+    /**
+     * Gets the scheduler for background import and export jobs.
+     * 
+     * @return The job scheduler
+     */
+    public JobScheduler getJobScheduler() {
+        return jobScheduler;
+    }
+
+    /**
+     * Gets the refresher that computes the panels' data off the event dispatch thread.
+     * 
+     * @return The view refresher
+     */
+    public ViewRefresher getViewRefresher() {
+        return viewRefresher;
+    }
+
+    /**
+     * Gets the bus on which the services publish changes to the data.
+     * 
+     * @return The event bus
+     */
+    public DomainEventBus getEventBus() {
+        return eventBus;
+    }
+
     public HomePanel getHomePanel() {
         return homePanel;
     }
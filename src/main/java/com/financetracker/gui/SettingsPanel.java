@@ -10,6 +10,8 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -27,6 +29,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JSpinner;
 import javax.swing.JTabbedPane;
 import javax.swing.JTable;
+import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.SpinnerDateModel;
@@ -37,6 +40,8 @@ import com.financetracker.model.SavingGoal;
 import com.financetracker.model.Settings;
 import com.financetracker.model.SpecialDate;
 import com.financetracker.service.BudgetAdjustmentService;
+import com.financetracker.service.DomainEvent;
+import com.financetracker.service.KeywordClassifier;
 import com.financetracker.service.SettingsService;
 import com.financetracker.service.SpecialDateService;
 
@@ -87,6 +92,11 @@ public class SettingsPanel extends JPanel {
     
     private JSpinner monthStartDaySpinner;
 
+    // --- Components for Keyword Rules ---
+    private JTextArea incomeRulesArea;
+    private JTextArea expenseRulesArea;
+    private JTextArea typeRulesArea;
+
     // --- Components for Saving Goals Management ---
     private JTable savingGoalsTable;
     private DefaultTableModel savingGoalsTableModel;
@@ -160,6 +170,7 @@ public class SettingsPanel extends JPanel {
         tabbedPane.addTab("Special Dates", new JScrollPane(specialDatesPanel));
         tabbedPane.addTab("Saving Goals", new JScrollPane(savingsGoalsPanel));
         tabbedPane.addTab("General Settings", new JScrollPane(generalSettingsPanelHolder));
+        tabbedPane.addTab("Keyword Rules", new JScrollPane(createKeywordRulesPanel()));
         
         // --- Container for Navigation and Content - REMOVED / REPLACED by JTabbedPane ---
         // JPanel centerAreaPanel = new JPanel(new BorderLayout(0, 5));
@@ -524,12 +535,11 @@ public class SettingsPanel extends JPanel {
             // Add special date
             Settings settings = settingsService.getSettings();
             settings.addSpecialDate(specialDate);
-            settingsService.saveSettings();
+            settingsService.saveSettings(new DomainEvent.SpecialDateChanged(specialDate));
             loadSpecialDates();
             clearSpecialDateForm();
             updateSpecialDateCategoryComboBox();
             mainFrame.refreshCategoryLists();
-            mainFrame.triggerAnalysisPanelRefresh();
             JOptionPane.showMessageDialog(this, "Special date added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(this, "Invalid amount format.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -596,12 +606,11 @@ public class SettingsPanel extends JPanel {
         if (selectedRow >= 0 && selectedRow < specialDates.size()) {
             SpecialDate specialDateToDelete = specialDates.get(selectedRow);
             settings.removeSpecialDate(specialDateToDelete.getId());
-            settingsService.saveSettings();
+            settingsService.saveSettings(new DomainEvent.SpecialDateChanged(specialDateToDelete));
             loadSpecialDates();
             clearSpecialDateForm();
             updateSpecialDateCategoryComboBox();
             mainFrame.refreshCategoryLists();
-            mainFrame.triggerAnalysisPanelRefresh();
             JOptionPane.showMessageDialog(this, "Special date deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
         }
     }
@@ -787,6 +796,9 @@ public class SettingsPanel extends JPanel {
     private void saveChanges() {
         // Save financial month settings first, as they are part of general settings
         saveFinancialMonthSettings();
+        if (!saveKeywordRules()) {
+            return;
+        }
 
         // Update and save settings
         Settings settings = settingsService.getSettings();
@@ -795,8 +807,7 @@ public class SettingsPanel extends JPanel {
         // Persist all changes made
         settingsService.saveSettings();
         mainFrame.setSettings(settings); // Update MainFrame's settings instance
-        mainFrame.refreshCategoryLists(); // Refresh category lists in other panels
-        mainFrame.triggerAnalysisPanelRefresh(); // Refresh AnalysisPanel
+        mainFrame.refreshCategoryLists(); // Refresh category lists in other panels; AnalysisPanel follows the SettingsChanged event
 
         JOptionPane.showMessageDialog(this, "All settings saved successfully!", "Settings Saved", JOptionPane.INFORMATION_MESSAGE);
     }
@@ -1042,10 +1053,9 @@ public class SettingsPanel extends JPanel {
         if (newGoal != null) {
             Settings settings = settingsService.getSettings();
             settings.addSavingGoal(newGoal);
-            settingsService.saveSettings();
+            settingsService.saveSettings(new DomainEvent.GoalChanged(newGoal));
             loadSavingGoals();
             clearSavingGoalForm();
-            mainFrame.triggerAnalysisPanelRefresh();
             JOptionPane.showMessageDialog(this, "New saving goal added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
         }
     }
@@ -1114,13 +1124,12 @@ public class SettingsPanel extends JPanel {
         }
         SavingGoal updatedGoal = prepareSavingGoalFromInputs(currentEditingSavingGoal);
         if (updatedGoal != null) {
-            settingsService.saveSettings();
+            settingsService.saveSettings(new DomainEvent.GoalChanged(updatedGoal));
             loadSavingGoals();
             clearSavingGoalForm();
             currentEditingSavingGoal = null;
             saveGoalButton.setText("Add New Goal");
             addGoalButton.setEnabled(true);
-            mainFrame.triggerAnalysisPanelRefresh();
             JOptionPane.showMessageDialog(this, "Saving goal updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
         }
     }
@@ -1149,10 +1158,9 @@ public class SettingsPanel extends JPanel {
         if (selectedRow >= 0 && selectedRow < goals.size()) {
             SavingGoal goalToDelete = goals.get(selectedRow);
             settings.removeSavingGoal(goalToDelete.getId());
-            settingsService.saveSettings();
+            settingsService.saveSettings(new DomainEvent.GoalChanged(goalToDelete));
             loadSavingGoals();
             clearSavingGoalForm();
-            mainFrame.triggerAnalysisPanelRefresh();
             JOptionPane.showMessageDialog(this, "Saving goal deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
         } else {
             JOptionPane.showMessageDialog(this, "Could not find the saving goal '" + goalName + "' in the current settings. It might have already been deleted.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -1210,6 +1218,75 @@ public class SettingsPanel extends JPanel {
         return panel;
     }
 
+    /**
+     * Creates the panel for editing the keyword rules used to categorise imported transactions.
+     * One rule per line, e.g. "Food: food, meal, restaurant"; see {@link KeywordClassifier}.
+     */
+    private JPanel createKeywordRulesPanel() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JLabel helpLabel = new JLabel("<html>One rule per line: <b>Category: keyword, keyword, ...</b><br>"
+                + "Use <b>a &amp; b</b> for keywords that must appear together, <b>a|b</b> for alternatives "
+                + "and <b>!a</b> for keywords that must not appear. Rules are tried from top to bottom.</html>");
+        helpLabel.setAlignmentX(LEFT_ALIGNMENT);
+        panel.add(helpLabel);
+
+        KeywordClassifier classifier = mainFrame.getTransactionService().getKeywordClassifier();
+        incomeRulesArea = createRulesArea(panel, "Income Category Rules", classifier.getIncomeRules());
+        expenseRulesArea = createRulesArea(panel, "Expense Category Rules", classifier.getExpenseRules());
+        typeRulesArea = createRulesArea(panel, "Income/Expense Rules (income: ... / expense: ...)", classifier.getTypeRules());
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttonPanel.setAlignmentX(LEFT_ALIGNMENT);
+        JButton restoreButton = new JButton("Restore Built-in Rules");
+        restoreButton.addActionListener(e -> {
+            incomeRulesArea.setText(String.join("\n", KeywordClassifier.DEFAULT_INCOME_RULES));
+            expenseRulesArea.setText(String.join("\n", KeywordClassifier.DEFAULT_EXPENSE_RULES));
+            typeRulesArea.setText(String.join("\n", KeywordClassifier.DEFAULT_TYPE_RULES));
+        });
+        buttonPanel.add(restoreButton);
+        panel.add(buttonPanel);
+        return panel;
+    }
+
+    private JTextArea createRulesArea(JPanel parent, String title, List<String> rules) {
+        JTextArea area = new JTextArea(String.join("\n", rules), 8, 60);
+        JScrollPane scrollPane = new JScrollPane(area);
+        scrollPane.setBorder(BorderFactory.createTitledBorder(title));
+        scrollPane.setAlignmentX(LEFT_ALIGNMENT);
+        parent.add(Box.createVerticalStrut(10));
+        parent.add(scrollPane);
+        return area;
+    }
+
+    /**
+     * Validates the edited keyword rules and stores them in the settings.
+     * Rules equal to the built-in ones are stored as null so that later built-in changes apply.
+     *
+     * @return false if the rules are invalid and nothing was stored
+     */
+    private boolean saveKeywordRules() {
+        if (incomeRulesArea == null) {
+            return true;
+        }
+        List<String> incomeRules = Arrays.asList(incomeRulesArea.getText().split("\\R"));
+        List<String> expenseRules = Arrays.asList(expenseRulesArea.getText().split("\\R"));
+        List<String> typeRules = Arrays.asList(typeRulesArea.getText().split("\\R"));
+        try {
+            new KeywordClassifier(incomeRules, expenseRules, typeRules);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, "Invalid keyword rule: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        Settings settings = settingsService.getSettings();
+        settings.setIncomeKeywordRules(incomeRules.equals(KeywordClassifier.DEFAULT_INCOME_RULES) ? null : new ArrayList<>(incomeRules));
+        settings.setExpenseKeywordRules(expenseRules.equals(KeywordClassifier.DEFAULT_EXPENSE_RULES) ? null : new ArrayList<>(expenseRules));
+        settings.setTypeKeywordRules(typeRules.equals(KeywordClassifier.DEFAULT_TYPE_RULES) ? null : new ArrayList<>(typeRules));
+        return true;
+    }
+
     private JPanel createMonthStartDayPanel() {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         
@@ -1265,10 +1342,7 @@ public class SettingsPanel extends JPanel {
         try {
             boolean result = mainFrame.getTransactionService().performMonthEndClosing(mainFrame.getSettingsService());
             if (result) {
-                // Refresh the overall balance display on HomePanel
-                if (mainFrame.getHomePanel() != null) {
-                    mainFrame.getHomePanel().updateOverallAccountBalance();
-                }
+                // HomePanel refreshes the overall balance on the SettingsChanged event
                 Settings currentSettings = mainFrame.getSettingsService().getSettings();
                 String lastClosed = currentSettings.getLastMonthClosed();
                 double newOverallBalance = currentSettings.getOverallAccountBalance();
@@ -3,25 +3,34 @@ package com.financetracker.gui;
 import com.financetracker.model.Transaction;
 import com.financetracker.service.TransactionService;
 import com.financetracker.service.CsvBatchImporter;
+import com.financetracker.service.DomainEvent;
+import com.financetracker.service.DomainEventBus;
+import com.financetracker.service.JobScheduler;
+import com.financetracker.service.MoneyParser;
 import com.financetracker.service.TransactionCsvExporter;
+import com.financetracker.service.TransactionQuery;
 import com.financetracker.gui.AppIcon;
 import com.financetracker.util.PathUtil;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Panel for managing transactions.
@@ -32,15 +41,26 @@ public class TransactionPanel extends JPanel {
     private TransactionService transactionService;
     
     private JTable transactionTable;
-    private DefaultTableModel tableModel;
+    private TransactionTableModel tableModel;
     private JSpinner dateSpinner;
     private JTextField amountField;
     private JTextField descriptionField;
     private JComboBox<String> categoryComboBox;
+    private String lastSuggestedDescription = ""; // 避免覆盖用户对同一描述手动选择的类别
     private JTextField participantField;
     private JTextField notesField;
     private JRadioButton expenseRadio;
     private JRadioButton incomeRadio;
+    // 查询栏
+    private JTextField filterStartField;
+    private JTextField filterEndField;
+    private JComboBox<String> filterCategoryComboBox;
+    private JTextField filterMinAmountField;
+    private JTextField filterMaxAmountField;
+    private JComboBox<String> filterTypeComboBox;
+    private JTextField searchField;
+    private JLabel resultCountLabel;
+    private TransactionQuery currentQuery; // 当前应用的筛选条件，null 表示显示全部
     
     /**
      * Constructor for TransactionPanel.
@@ -52,6 +72,21 @@ public class TransactionPanel extends JPanel {
         this.transactionService = mainFrame.getTransactionService();
         initComponents();
         loadTransactions();
+        subscribeToChanges(mainFrame.getEventBus());
+    }
+    
+    /**
+     * 订阅交易变更事件：单条记录的增删改只更新表格中的一行，批量变更重新加载
+     */
+    private void subscribeToChanges(DomainEventBus eventBus) {
+        eventBus.subscribe(DomainEvent.TransactionAdded.class,
+                event -> ViewRefresher.runOnEventThread(() -> tableModel.transactionAdded(event.getTransaction())));
+        eventBus.subscribe(DomainEvent.TransactionUpdated.class,
+                event -> ViewRefresher.runOnEventThread(() -> tableModel.transactionUpdated(event.getTransaction())));
+        eventBus.subscribe(DomainEvent.TransactionDeleted.class,
+                event -> ViewRefresher.runOnEventThread(() -> tableModel.transactionRemoved(event.getTransaction())));
+        eventBus.subscribe(DomainEvent.TransactionsChanged.class,
+                event -> ViewRefresher.runOnEventThread(this::loadTransactions));
     }
     
     /**
@@ -83,17 +118,14 @@ public class TransactionPanel extends JPanel {
         tablePanel.setLayout(new BorderLayout());
         tablePanel.setBorder(BorderFactory.createTitledBorder("Transactions"));
         
-        String[] columns = {"Date", "Amount", "Description", "Category", "Participant", "Type"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; 
-            }
-        };
+        // 表格直接从交易服务按页读取，不复制整个账本
+        tableModel = new TransactionTableModel(transactionService);
         transactionTable = new JTable(tableModel);
         transactionTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         JScrollPane scrollPane = new JScrollPane(transactionTable);
         tablePanel.add(scrollPane, BorderLayout.CENTER);
+        tablePanel.add(createQueryBar(), BorderLayout.NORTH);
+        tableModel.addTableModelListener(e -> resultCountLabel.setText(tableModel.getRowCount() + " 条记录"));
         
         JPanel tableButtonPanel = new JPanel();
         tableButtonPanel.setLayout(new FlowLayout(FlowLayout.RIGHT));
@@ -142,6 +174,12 @@ public class TransactionPanel extends JPanel {
         gbc.gridx = 0; gbc.gridy = 2; fieldsPanel.add(new JLabel("Description:"), gbc);
         gbc.gridx = 1; gbc.gridy = 2;
         descriptionField = new JTextField(20);
+        descriptionField.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                suggestCategory();
+            }
+        });
         fieldsPanel.add(descriptionField, gbc);
         
         // Category field
@@ -209,25 +247,190 @@ public class TransactionPanel extends JPanel {
     
     /**
      * Loads transactions from the data file and displays them in the table.
+     * The row count and the first page are read in the background; further rows are fetched
+     * as the table shows them.
      */
     public void loadTransactions() {
-        // Clear the table
-        tableModel.setRowCount(0);
-        
-        // Load transactions
-        List<Transaction> transactions = transactionService.getAllTransactions();
-        
-        // Add transactions to the table
-        for (Transaction transaction : transactions) {
-            Object[] row = {
-                transaction.getDate().format(DateTimeFormatter.ISO_LOCAL_DATE),
-                transaction.getAmount(),
-                transaction.getDescription(),
-                transaction.getCategory(),
-                transaction.getParticipant(),
-                transaction.isExpense() ? "Expense" : "Income"
-            };
-            tableModel.addRow(row);
+        // 在后台读取行数和第一页（或筛选结果）；读取期间表格若有增删，快照已过时，重新读取
+        int modificationCount = tableModel.getModificationCount();
+        TransactionQuery query = currentQuery;
+        mainFrame.getViewRefresher().refresh("transactions.table", () -> tableModel.loadSnapshot(query), snapshot -> {
+            if (tableModel.getModificationCount() != modificationCount) {
+                loadTransactions();
+                return;
+            }
+            // 按交易 id 而不是行号保留选中项，重新读取后行号可能已经变化
+            List<Transaction> selected = getSelectedTransactions();
+            tableModel.reload(snapshot);
+            selectTransactions(selected);
+        });
+    }
+
+    /**
+     * Gets the transactions of the selected rows.
+     *
+     * @return The selected transactions, in row order
+     */
+    private List<Transaction> getSelectedTransactions() {
+        List<Transaction> selected = new ArrayList<>();
+        for (int row : transactionTable.getSelectedRows()) {
+            Transaction transaction = tableModel.getTransaction(row);
+            if (transaction != null) {
+                selected.add(transaction);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Selects the rows that show the given transactions, wherever they are now.
+     *
+     * @param transactions The transactions to select
+     */
+    private void selectTransactions(List<Transaction> transactions) {
+        ListSelectionModel selectionModel = transactionTable.getSelectionModel();
+        selectionModel.setValueIsAdjusting(true);
+        try {
+            transactionTable.clearSelection();
+            for (Transaction transaction : transactions) {
+                int row = tableModel.rowOf(transaction);
+                if (row >= 0) {
+                    selectionModel.addSelectionInterval(row, row);
+                }
+            }
+        } finally {
+            selectionModel.setValueIsAdjusting(false);
+        }
+    }
+    
+    /**
+     * Creates the query bar above the table: date range, category, amount range, type and
+     * a search over description, participant and notes.
+     * 
+     * @return The query bar
+     */
+    private JPanel createQueryBar() {
+        JPanel queryBar = new JPanel(new GridLayout(2, 1));
+        
+        JPanel firstRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 2));
+        firstRow.add(new JLabel("日期:"));
+        filterStartField = new JTextField(8);
+        filterStartField.setToolTipText("开始日期 yyyy-MM-dd，留空表示不限");
+        firstRow.add(filterStartField);
+        firstRow.add(new JLabel("至"));
+        filterEndField = new JTextField(8);
+        filterEndField.setToolTipText("结束日期 yyyy-MM-dd，留空表示不限");
+        firstRow.add(filterEndField);
+        firstRow.add(new JLabel("类别:"));
+        filterCategoryComboBox = new JComboBox<>();
+        updateFilterCategories();
+        firstRow.add(filterCategoryComboBox);
+        firstRow.add(new JLabel("类型:"));
+        filterTypeComboBox = new JComboBox<>(new String[]{"全部", "支出", "收入"});
+        firstRow.add(filterTypeComboBox);
+        queryBar.add(firstRow);
+        
+        JPanel secondRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 2));
+        secondRow.add(new JLabel("金额:"));
+        filterMinAmountField = new JTextField(6);
+        secondRow.add(filterMinAmountField);
+        secondRow.add(new JLabel("至"));
+        filterMaxAmountField = new JTextField(6);
+        secondRow.add(filterMaxAmountField);
+        secondRow.add(new JLabel("搜索:"));
+        searchField = new JTextField(12);
+        searchField.setToolTipText("在描述、交易对象和备注中搜索，多个词之间用空格分隔");
+        searchField.addActionListener(e -> applyFilter());
+        secondRow.add(searchField);
+        JButton filterButton = new JButton("筛选");
+        filterButton.addActionListener(e -> applyFilter());
+        secondRow.add(filterButton);
+        JButton clearFilterButton = new JButton("清除");
+        clearFilterButton.addActionListener(e -> clearFilter());
+        secondRow.add(clearFilterButton);
+        resultCountLabel = new JLabel();
+        secondRow.add(resultCountLabel);
+        queryBar.add(secondRow);
+        
+        return queryBar;
+    }
+    
+    /**
+     * 根据查询栏的输入筛选表格，查询在后台线程中通过索引完成
+     */
+    private void applyFilter() {
+        TransactionQuery query = new TransactionQuery();
+        try {
+            query.setStartDate(parseFilterDate(filterStartField));
+            query.setEndDate(parseFilterDate(filterEndField));
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "日期格式应为 yyyy-MM-dd", "错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        try {
+            query.setMinAmountCents(parseFilterAmount(filterMinAmountField));
+            query.setMaxAmountCents(parseFilterAmount(filterMaxAmountField));
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "金额格式不正确: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        // 第一项为“全部类别”
+        if (filterCategoryComboBox.getSelectedIndex() > 0) {
+            query.setCategory((String) filterCategoryComboBox.getSelectedItem());
+        }
+        int typeIndex = filterTypeComboBox.getSelectedIndex();
+        query.setExpense(typeIndex == 1 ? Boolean.TRUE : typeIndex == 2 ? Boolean.FALSE : null);
+        query.setText(searchField.getText());
+        
+        currentQuery = query.isEmpty() ? null : query;
+        loadTransactions();
+    }
+    
+    /**
+     * 清空查询栏并显示全部交易
+     */
+    private void clearFilter() {
+        filterStartField.setText("");
+        filterEndField.setText("");
+        filterMinAmountField.setText("");
+        filterMaxAmountField.setText("");
+        filterCategoryComboBox.setSelectedIndex(0);
+        filterTypeComboBox.setSelectedIndex(0);
+        searchField.setText("");
+        currentQuery = null;
+        loadTransactions();
+    }
+    
+    private static LocalDate parseFilterDate(JTextField field) {
+        String text = field.getText().trim();
+        return text.isEmpty() ? null : LocalDate.parse(text);
+    }
+    
+    private static Long parseFilterAmount(JTextField field) {
+        String text = field.getText().trim();
+        return text.isEmpty() ? null : Math.abs(MoneyParser.parseMinorUnits(text));
+    }
+    
+    /**
+     * 用设置中的支出和收入类别填充查询栏的类别下拉列表
+     */
+    private void updateFilterCategories() {
+        if (filterCategoryComboBox == null || mainFrame.getSettings() == null) {
+            return;
+        }
+        Object selected = filterCategoryComboBox.getSelectedItem();
+        filterCategoryComboBox.removeAllItems();
+        filterCategoryComboBox.addItem("全部类别");
+        for (List<String> categories : List.of(mainFrame.getSettings().getExpenseCategories(),
+                mainFrame.getSettings().getIncomeCategories())) {
+            if (categories != null) {
+                for (String category : categories) {
+                    filterCategoryComboBox.addItem(category);
+                }
+            }
+        }
+        if (selected != null) {
+            filterCategoryComboBox.setSelectedItem(selected);
         }
     }
     
@@ -250,12 +453,9 @@ public class TransactionPanel extends JPanel {
             // Create transaction
             Transaction transaction = new Transaction(date, amount, description, category, participant, notes, isExpense);
             
-            // Save transaction
+            // Save transaction; the table inserts the row when the TransactionAdded event arrives
             transactionService.addTransaction(transaction);
             
-            // Reload transactions
-            loadTransactions();
-            
             // Clear form
             clearForm();
             
@@ -267,6 +467,31 @@ public class TransactionPanel extends JPanel {
         }
     }
     
+    /**
+     * Selects the category predicted from the user's own history for the entered description.
+     */
+    private void suggestCategory() {
+        String description = descriptionField.getText();
+        if (description == null || description.trim().isEmpty() || description.equals(lastSuggestedDescription)) {
+            return;
+        }
+        lastSuggestedDescription = description;
+        boolean isExpense = expenseRadio.isSelected();
+        // 首次预测要从账本训练模型，放到后台线程；结果返回时描述已被改动则不再采用
+        mainFrame.getViewRefresher().refresh("transactions.suggestCategory",
+                () -> transactionService.predictCategory(description, isExpense), prediction -> {
+            if (prediction == null || !description.equals(descriptionField.getText())) {
+                return;
+            }
+            for (int i = 0; i < categoryComboBox.getItemCount(); i++) {
+                if (prediction.getCategory().equals(categoryComboBox.getItemAt(i))) {
+                    categoryComboBox.setSelectedIndex(i);
+                    break;
+                }
+            }
+        });
+    }
+    
     /**
      * Edits the selected transaction.
      */
@@ -278,9 +503,8 @@ public class TransactionPanel extends JPanel {
         }
         
         // Get selected transaction
-        List<Transaction> transactions = transactionService.getAllTransactions();
-        if (selectedRow < transactions.size()) {
-            Transaction transaction = transactions.get(selectedRow);
+        Transaction transaction = tableModel.getTransaction(selectedRow);
+        if (transaction != null) {
             
             // 设置日期选择器的值
             Date transactionDate = Date.from(transaction.getDate().atStartOfDay(ZoneId.systemDefault()).toInstant());
@@ -288,6 +512,7 @@ public class TransactionPanel extends JPanel {
             
             amountField.setText(String.valueOf(transaction.getAmount()));
             descriptionField.setText(transaction.getDescription());
+            lastSuggestedDescription = transaction.getDescription();
             categoryComboBox.setSelectedItem(transaction.getCategory());
             participantField.setText(transaction.getParticipant());
             notesField.setText(transaction.getNotes());
@@ -299,9 +524,6 @@ public class TransactionPanel extends JPanel {
             
             // Delete the transaction (will be replaced when user clicks Add)
             transactionService.deleteTransaction(transaction);
-            
-            // Reload transactions
-            loadTransactions();
         }
     }
     
@@ -375,12 +597,10 @@ public class TransactionPanel extends JPanel {
                     return;
                 }
                 
-                // 显示导入对话框
-                ImportCsvDialog dialog = new ImportCsvDialog(mainFrame, file.getAbsolutePath(), transactionService);
+                // 显示导入对话框，导入在后台任务中完成；交易表格随 TransactionsChanged 事件重新加载
+                ImportCsvDialog dialog = new ImportCsvDialog(mainFrame, file.getAbsolutePath(), transactionService,
+                        null);
                 dialog.setVisible(true);
-                
-                // 重新加载交易记录
-                loadTransactions();
             } else {
                 // 多文件导入
                 processBatchImport(selectedFiles);
@@ -443,66 +663,15 @@ public class TransactionPanel extends JPanel {
             return;
         }
         
-        // 显示进度对话框
-        final JDialog progressDialog = new JDialog(mainFrame, "批量导入中...", true);
-        progressDialog.setLayout(new BorderLayout());
-        JProgressBar progressBar = new JProgressBar();
-        progressBar.setIndeterminate(true);
-        JLabel statusLabel = new JLabel("正在批量导入CSV文件，请稍候...");
-        statusLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        progressDialog.add(statusLabel, BorderLayout.NORTH);
-        progressDialog.add(progressBar, BorderLayout.CENTER);
-        progressDialog.setSize(400, 120);
-        progressDialog.setLocationRelativeTo(this);
-        
-        // 在后台线程中执行导入
-        SwingWorker<com.financetracker.service.CsvBatchImporter.ImportResult, Void> worker = 
-            new SwingWorker<com.financetracker.service.CsvBatchImporter.ImportResult, Void>() {
-                @Override
-                protected com.financetracker.service.CsvBatchImporter.ImportResult doInBackground() throws Exception {
-                    // 创建批量导入器
-                    com.financetracker.service.CsvBatchImporter importer = 
-                        new com.financetracker.service.CsvBatchImporter(transactionService);
-                    
-                    // 执行批量导入
-                    return importer.importCsvFiles(files);
-                }
-                
-                @Override
-                protected void done() {
-                    progressDialog.dispose();
-                    try {
-                        // 获取导入结果
-                        com.financetracker.service.CsvBatchImporter.ImportResult result = get();
-                        
-                        // 根据结果显示不同的消息
-                        if (result.getTotalRecordCount() > 0) {
-                            JOptionPane.showMessageDialog(TransactionPanel.this, 
-                                    "批量导入完成：\n" + result.toString(), 
-                                    "导入成功", JOptionPane.INFORMATION_MESSAGE);
-                            
-                            // 重新加载交易记录
-                            loadTransactions();
-                        } else {
-                            JOptionPane.showMessageDialog(TransactionPanel.this, 
-                                    "未能成功导入任何记录。\n" +
-                                    "原因可能是：\n" +
-                                    "1. CSV文件格式不正确\n" +
-                                    "2. CSV文件中没有有效的交易记录", 
-                                    "导入失败", JOptionPane.WARNING_MESSAGE);
-                        }
-                    } catch (Exception e) {
-                        JOptionPane.showMessageDialog(TransactionPanel.this, 
-                                "批量导入过程中出错: " + e.getMessage(), 
-                                "导入错误", JOptionPane.ERROR_MESSAGE);
-                        e.printStackTrace();
-                    }
-                }
-            };
-        
-        // 启动导入线程
-        worker.execute();
-        progressDialog.setVisible(true);
+        // 在后台任务中执行导入，进度显示在状态栏
+        mainFrame.getJobScheduler().submit("批量导入 " + files.length + " 个CSV文件",
+                job -> new CsvBatchImporter(transactionService)
+                        .importCsvFiles(files, Runtime.getRuntime().availableProcessors(), job),
+                (job, result) -> SwingUtilities.invokeLater(() -> showBatchImportResult(job, result,
+                        "未能成功导入任何记录。\n" +
+                        "原因可能是：\n" +
+                        "1. CSV文件格式不正确\n" +
+                        "2. CSV文件中没有有效的交易记录")));
     }
     
     /**
@@ -510,76 +679,54 @@ public class TransactionPanel extends JPanel {
      * @param directoryPath 目录路径
      */
     private void processBatchImportFromDirectory(String directoryPath) {
-        // 显示进度对话框
-        final JDialog progressDialog = new JDialog(mainFrame, "批量导入中...", true);
-        progressDialog.setLayout(new BorderLayout());
-        JProgressBar progressBar = new JProgressBar();
-        progressBar.setIndeterminate(true);
-        JLabel statusLabel = new JLabel("正在批量导入CSV文件，请稍候...");
-        statusLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        progressDialog.add(statusLabel, BorderLayout.NORTH);
-        progressDialog.add(progressBar, BorderLayout.CENTER);
-        progressDialog.setSize(400, 120);
-        progressDialog.setLocationRelativeTo(this);
-        
-        // 在后台线程中执行导入
-        SwingWorker<com.financetracker.service.CsvBatchImporter.ImportResult, Void> worker = 
-            new SwingWorker<com.financetracker.service.CsvBatchImporter.ImportResult, Void>() {
-                @Override
-                protected com.financetracker.service.CsvBatchImporter.ImportResult doInBackground() throws Exception {
-                    // 创建批量导入器
-                    com.financetracker.service.CsvBatchImporter importer = 
-                        new com.financetracker.service.CsvBatchImporter(transactionService);
-                    
-                    // 执行批量导入
-                    return importer.importFromDirectory(directoryPath);
-                }
-                
-                @Override
-                protected void done() {
-                    progressDialog.dispose();
-                    try {
-                        // 获取导入结果
-                        com.financetracker.service.CsvBatchImporter.ImportResult result = get();
-                        
-                        // 根据结果显示不同的消息
-                        if (result.getTotalRecordCount() > 0) {
-                            JOptionPane.showMessageDialog(TransactionPanel.this, 
-                                    "批量导入完成：\n" + result.toString(), 
-                                    "导入成功", JOptionPane.INFORMATION_MESSAGE);
-                            
-                            // 重新加载交易记录
-                            loadTransactions();
-                        } else {
-                            JOptionPane.showMessageDialog(TransactionPanel.this, 
-                                    "未能成功导入任何记录。\n" +
-                                    "原因可能是：\n" +
-                                    "1. 目录中没有CSV文件\n" +
-                                    "2. CSV文件格式不正确\n" +
-                                    "3. CSV文件中没有有效的交易记录", 
-                                    "导入失败", JOptionPane.WARNING_MESSAGE);
-                        }
-                    } catch (Exception e) {
-                        JOptionPane.showMessageDialog(TransactionPanel.this, 
-                                "批量导入过程中出错: " + e.getMessage(), 
-                                "导入错误", JOptionPane.ERROR_MESSAGE);
-                        e.printStackTrace();
-                    }
-                }
-            };
-        
-        // 启动导入线程
-        worker.execute();
-        progressDialog.setVisible(true);
+        // 在后台任务中执行导入，进度显示在状态栏
+        mainFrame.getJobScheduler().submit("从目录导入 " + new File(directoryPath).getName(),
+                job -> new CsvBatchImporter(transactionService).importFromDirectory(directoryPath, job),
+                (job, result) -> SwingUtilities.invokeLater(() -> showBatchImportResult(job, result,
+                        "未能成功导入任何记录。\n" +
+                        "原因可能是：\n" +
+                        "1. 目录中没有CSV文件\n" +
+                        "2. CSV文件格式不正确\n" +
+                        "3. CSV文件中没有有效的交易记录")));
+    }
+    
+    /**
+     * 在 EDT 上显示批量导入任务的结果
+     * @param job 导入任务
+     * @param result 导入结果，任务失败或取消时为 null
+     * @param emptyMessage 没有导入任何记录时的提示
+     */
+    private void showBatchImportResult(JobScheduler.Job job, CsvBatchImporter.ImportResult result, String emptyMessage) {
+        if (job.getState() == JobScheduler.State.CANCELLED) {
+            // 批量导入在写入之前取消，账本未被修改
+            return;
+        }
+        if (result == null) {
+            Throwable error = job.getError();
+            JOptionPane.showMessageDialog(TransactionPanel.this, 
+                    "批量导入过程中出错: " + (error != null ? error.getMessage() : "未知错误"), 
+                    "导入错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        // 根据结果显示不同的消息
+        if (result.getTotalRecordCount() > 0 || result.getDuplicateRecordCount() > 0) {
+            JOptionPane.showMessageDialog(TransactionPanel.this, 
+                    "批量导入完成：\n" + result.toString(), 
+                    "导入成功", JOptionPane.INFORMATION_MESSAGE);
+            // 交易表格随 TransactionsChanged 事件重新加载
+        } else {
+            JOptionPane.showMessageDialog(TransactionPanel.this, 
+                    emptyMessage, 
+                    "导入失败", JOptionPane.WARNING_MESSAGE);
+        }
     }
     
     /**
      * 导出交易记录到CSV文件，支持整体导出和按月导出
      */
     private void exportCsv() {
-        // 确保有交易记录可以导出
-        List<Transaction> transactions = transactionService.getAllTransactions();
-        if (transactions.isEmpty()) {
+        // 确保有交易记录可以导出；只读取行数，交易记录由后台任务读取
+        if (transactionService.getTransactionCount() == 0) {
             JOptionPane.showMessageDialog(this, 
                 "没有交易记录可以导出。", 
                 "警告", JOptionPane.WARNING_MESSAGE);
@@ -603,17 +750,23 @@ public class TransactionPanel extends JPanel {
         
         // 根据选择执行相应操作
         if (choice == 0) {
-            // 导出所有交易记录
-            boolean success = transactionService.exportAllTransactions();
-            if (success) {
-                JOptionPane.showMessageDialog(this, 
-                    "交易记录已成功导出。\n文件位置: " + exportAllPath,
-                    "导出成功", JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                JOptionPane.showMessageDialog(this, 
-                    "导出交易记录时出错，请稍后再试。", 
-                    "导出失败", JOptionPane.ERROR_MESSAGE);
-            }
+            // 在后台任务中导出所有交易记录
+            mainFrame.getJobScheduler().<Boolean>submit("导出所有交易记录",
+                    job -> transactionService.exportAllTransactions(job),
+                    (job, success) -> SwingUtilities.invokeLater(() -> {
+                        if (job.getState() == JobScheduler.State.CANCELLED) {
+                            return;
+                        }
+                        if (Boolean.TRUE.equals(success)) {
+                            JOptionPane.showMessageDialog(this, 
+                                "交易记录已成功导出。\n文件位置: " + exportAllPath,
+                                "导出成功", JOptionPane.INFORMATION_MESSAGE);
+                        } else {
+                            JOptionPane.showMessageDialog(this, 
+                                "导出交易记录时出错，请稍后再试。", 
+                                "导出失败", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }));
         } else if (choice == 1) {
             // 按月份导出
             exportByMonth();
@@ -625,9 +778,8 @@ public class TransactionPanel extends JPanel {
      * 按月份导出交易记录
      */
     private void exportByMonth() {
-        // 获取所有交易记录
-        List<Transaction> transactions = transactionService.getAllTransactions();
-        if (transactions.isEmpty()) {
+        // 只检查是否有交易记录，交易记录由后台任务读取
+        if (transactionService.getTransactionCount() == 0) {
              JOptionPane.showMessageDialog(this, 
                  "没有交易记录可以导出。", 
                  "警告", JOptionPane.WARNING_MESSAGE);
@@ -646,60 +798,32 @@ public class TransactionPanel extends JPanel {
             return;
         }
 
-        // 获取所有交易记录 (已在前面获取)
-        // List<Transaction> transactions = transactionService.getAllTransactions();
-        
-        // 显示进度对话框
-        final JDialog progressDialog = new JDialog(mainFrame, "导出中...", true);
-        progressDialog.setLayout(new BorderLayout());
-        JProgressBar progressBar = new JProgressBar();
-        progressBar.setIndeterminate(true);
-        JLabel statusLabel = new JLabel("正在导出交易记录，请稍候...");
-        statusLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        progressDialog.add(statusLabel, BorderLayout.NORTH);
-        progressDialog.add(progressBar, BorderLayout.CENTER);
-        progressDialog.setSize(400, 120);
-        progressDialog.setLocationRelativeTo(this);
-        
-        // 在后台线程中执行导出
-        SwingWorker<com.financetracker.service.TransactionCsvExporter.ExportResult, Void> worker = 
-            new SwingWorker<com.financetracker.service.TransactionCsvExporter.ExportResult, Void>() {
-                @Override
-                protected com.financetracker.service.TransactionCsvExporter.ExportResult doInBackground() throws Exception {
-                    // 直接调用 Service 层的方法，不再需要创建 Exporter 实例
-                    return transactionService.exportTransactionsByMonth();
-                }
-                
-                @Override
-                protected void done() {
-                    progressDialog.dispose();
-                    try {
-                        // 获取导出结果
-                        com.financetracker.service.TransactionCsvExporter.ExportResult result = get();
-                        
-                        // 显示结果消息
-                        if (result.getSuccessFileCount() > 0) {
+        // 在后台任务中执行导出，进度显示在状态栏
+        mainFrame.getJobScheduler().submit("按月份导出交易记录",
+                job -> transactionService.exportTransactionsByMonth(job),
+                (job, result) -> SwingUtilities.invokeLater(() -> {
+                    if (result == null) {
+                        Throwable error = job.getError();
+                        if (error != null) {
                             JOptionPane.showMessageDialog(TransactionPanel.this, 
-                                    "导出完成：\n" + result.toString() + "\n" +
-                                    "文件已保存到目录：\n" + directoryPath,
-                                    "导出成功", JOptionPane.INFORMATION_MESSAGE);
-                        } else {
-                            JOptionPane.showMessageDialog(TransactionPanel.this, 
-                                    "导出失败，未能成功创建任何文件。", 
-                                    "导出失败", JOptionPane.ERROR_MESSAGE);
+                                    "导出过程中出错: " + error.getMessage(), 
+                                    "导出错误", JOptionPane.ERROR_MESSAGE);
                         }
-                    } catch (Exception e) {
+                        return;
+                    }
+                    // 显示结果消息，取消时已导出的文件保留
+                    if (result.getSuccessFileCount() > 0) {
+                        JOptionPane.showMessageDialog(TransactionPanel.this, 
+                                (job.getState() == JobScheduler.State.CANCELLED ? "导出已取消：\n" : "导出完成：\n")
+                                + result.toString() + "\n" +
+                                "文件已保存到目录：\n" + directoryPath,
+                                "导出成功", JOptionPane.INFORMATION_MESSAGE);
+                    } else if (job.getState() != JobScheduler.State.CANCELLED) {
                         JOptionPane.showMessageDialog(TransactionPanel.this, 
-                                "导出过程中出错: " + e.getMessage(), 
-                                "导出错误", JOptionPane.ERROR_MESSAGE);
-                        e.printStackTrace();
+                                "导出失败，未能成功创建任何文件。", 
+                                "导出失败", JOptionPane.ERROR_MESSAGE);
                     }
-                }
-            };
-        
-        // 启动导出线程
-        worker.execute();
-        progressDialog.setVisible(true);
+                }));
     }
     
     /**
@@ -711,6 +835,7 @@ public class TransactionPanel extends JPanel {
         
         amountField.setText("");
         descriptionField.setText("");
+        lastSuggestedDescription = "";
         categoryComboBox.setSelectedIndex(0);
         participantField.setText("");
         notesField.setText("");
@@ -741,26 +866,23 @@ public class TransactionPanel extends JPanel {
         }
         
         try {
-            // 获取所有交易
-            List<Transaction> transactions = transactionService.getAllTransactions();
-            
-            // 按降序排列索引，防止删除时索引变化
-            java.util.Arrays.sort(selectedRows);
-            for (int i = selectedRows.length - 1; i >= 0; i--) {
-                int row = selectedRows[i];
-                if (row < transactions.size()) {
-                    Transaction transaction = transactions.get(row);
-                    transactionService.deleteTransaction(transaction);
-                }
+            // 按 id 一次性删除所选交易：只追加一次日志，只发布一次变更事件
+            Set<String> selectedIds = new LinkedHashSet<>();
+            for (Transaction transaction : getSelectedTransactions()) {
+                selectedIds.add(transaction.getId());
+            }
+            int deletedCount = transactionService.deleteTransactions(selectedIds);
+            if (deletedCount < 0) {
+                JOptionPane.showMessageDialog(this, 
+                        "删除交易记录时出错: 无法保存数据文件", 
+                        "错误", JOptionPane.ERROR_MESSAGE);
+                return;
             }
-            
-            // 重新加载交易
-            loadTransactions();
             
             // 显示成功消息
-            String successMessage = selectedRows.length == 1 
+            String successMessage = deletedCount == 1 
                 ? "已成功删除交易记录" 
-                : "已成功删除 " + selectedRows.length + " 条交易记录";
+                : "已成功删除 " + deletedCount + " 条交易记录";
                 
             JOptionPane.showMessageDialog(this, 
                     successMessage, 
@@ -815,6 +937,7 @@ public class TransactionPanel extends JPanel {
      */
     public void refreshCategoryList() {
         updateCategoryDropdown(); // Now calls the new method that respects transaction type
+        updateFilterCategories();
         // No need to explicitly save/restore selected item here, updateCategoryDropdown handles it.
     }
 }
@@ -0,0 +1,369 @@
+package com.financetracker.gui;
+
+import com.financetracker.model.Transaction;
+import com.financetracker.service.TransactionQuery;
+import com.financetracker.service.TransactionService;
+
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table model that reads the transactions straight from the {@link TransactionService}.
+ * Rows are fetched a page at a time when the table first paints them, and only a few pages
+ * are kept, so a large ledger is neither copied nor formatted up front. Cells are formatted
+ * when they are rendered. Adding, updating or removing one transaction fires an event for
+ * that row only instead of reloading the table.
+ * When a {@link TransactionQuery} is applied, the rows are the matches the service found
+ * through its indexes, kept as a list of references in the same order.
+ */
+public class TransactionTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"Date", "Amount", "Description", "Category", "Participant", "Type"};
+    // 每页的行数和最多缓存的页数
+    private static final int PAGE_SIZE = 500;
+    private static final int MAX_CACHED_PAGES = 16;
+
+    private final TransactionService transactionService;
+    private int rowCount;
+    // 当前筛选条件及其结果；未筛选时为 null，按页读取整个账本
+    private TransactionQuery query;
+    private List<Transaction> matches;
+    // 每次行变化时加一，用来识别在后台读取期间已经过时的快照
+    private int modificationCount;
+    // 按页号缓存的行，最近使用的在后
+    private final Map<Integer, List<Transaction>> pages = new LinkedHashMap<Integer, List<Transaction>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Transaction>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    /**
+     * Constructor for TransactionTableModel.
+     *
+     * @param transactionService The service to read transactions from
+     */
+    public TransactionTableModel(TransactionService transactionService) {
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * Re-reads the row count and drops the cached pages, after the ledger changed in ways
+     * the model was not told about, such as an import.
+     */
+    public void reload() {
+        modificationCount++;
+        if (matches != null) {
+            matches = transactionService.searchTransactions(query);
+            rowCount = matches.size();
+        } else {
+            rowCount = transactionService.getTransactionCount();
+        }
+        pages.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Reads the row count and the first page, or the matches of a query. Safe to call on a
+     * background thread; the result is shown with {@link #reload(Snapshot)} on the event
+     * dispatch thread.
+     *
+     * @param query The filter, or null to show every transaction
+     * @return The snapshot
+     */
+    public Snapshot loadSnapshot(TransactionQuery query) {
+        if (query != null && !query.isEmpty()) {
+            List<Transaction> found = transactionService.searchTransactions(query);
+            return new Snapshot(found.size(), null, query, found);
+        }
+        int count = transactionService.getTransactionCount();
+        return new Snapshot(count, transactionService.getTransactionPage(0, PAGE_SIZE), null, null);
+    }
+
+    /**
+     * @return The filter applied by the last {@link #reload(Snapshot)}, or null
+     */
+    public TransactionQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * @return A number that changes whenever rows are added, removed or reloaded
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Shows a snapshot read by {@link #loadSnapshot(TransactionQuery)}.
+     *
+     * @param snapshot The snapshot
+     */
+    public void reload(Snapshot snapshot) {
+        modificationCount++;
+        rowCount = snapshot.rowCount;
+        query = snapshot.query;
+        matches = snapshot.matches;
+        pages.clear();
+        if (snapshot.firstPage != null) {
+            pages.put(0, snapshot.firstPage);
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Gets the transaction shown in a row.
+     *
+     * @param row The row index
+     * @return The transaction, or null if the row is out of range
+     */
+    public Transaction getTransaction(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+        if (matches != null) {
+            return matches.get(row);
+        }
+        int pageNumber = row / PAGE_SIZE;
+        List<Transaction> page = pages.get(pageNumber);
+        if (page == null) {
+            page = transactionService.getTransactionPage(pageNumber * PAGE_SIZE, PAGE_SIZE);
+            pages.put(pageNumber, page);
+        }
+        int offset = row - pageNumber * PAGE_SIZE;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    /**
+     * Finds the row a transaction is shown in, by its id, so that a selection survives
+     * reloads and edits that move rows.
+     *
+     * @param transaction The transaction
+     * @return The row, or -1 if it is not shown
+     */
+    public int rowOf(Transaction transaction) {
+        int row = cachedRowOf(transaction.getId());
+        if (row >= 0 || matches != null) {
+            return row;
+        }
+        row = transactionService.indexOfTransaction(transaction);
+        return row < rowCount ? row : -1;
+    }
+
+    /**
+     * Shows a transaction that has just been added to the ledger.
+     *
+     * @param transaction The added transaction
+     */
+    public void transactionAdded(Transaction transaction) {
+        if (matches != null) {
+            matchAdded(transaction);
+            return;
+        }
+        int row = transactionService.indexOfTransaction(transaction);
+        if (row < 0) {
+            reload();
+            return;
+        }
+        modificationCount++;
+        rowCount++;
+        dropPagesFrom(row);
+        fireTableRowsInserted(row, row);
+    }
+
+    /**
+     * Removes a row whose transaction has just been deleted from the ledger.
+     *
+     * @param row The row the transaction was shown in
+     */
+    public void transactionRemoved(int row) {
+        if (row < 0 || row >= rowCount) {
+            return;
+        }
+        modificationCount++;
+        rowCount--;
+        if (matches != null) {
+            matches.remove(row);
+        }
+        dropPagesFrom(row);
+        fireTableRowsDeleted(row, row);
+    }
+
+    /**
+     * Removes the row of a transaction that has just been deleted from the ledger.
+     * The row is looked up among the cached pages, where a transaction the user just deleted
+     * always is; otherwise the table is reloaded. While filtered, a transaction that is not
+     * among the matches is ignored.
+     *
+     * @param transaction The deleted transaction
+     */
+    public void transactionRemoved(Transaction transaction) {
+        int row = cachedRowOf(transaction.getId());
+        if (row < 0 && matches == null) {
+            reload();
+        } else if (row >= 0) {
+            transactionRemoved(row);
+        }
+    }
+
+    /**
+     * Refreshes the row of a transaction that has just been changed in the ledger.
+     *
+     * @param transaction The changed transaction
+     */
+    public void transactionUpdated(Transaction transaction) {
+        int row = cachedRowOf(transaction.getId());
+        if (matches != null) {
+            // 修改后可能不再符合筛选条件，或者移到别的位置
+            if (row >= 0) {
+                transactionRemoved(row);
+            }
+            matchAdded(transaction);
+        } else if (row < 0) {
+            reload();
+        } else {
+            transactionUpdated(row, transaction);
+        }
+    }
+
+    /**
+     * Refreshes a row whose transaction has just been changed in the ledger. If the change
+     * moved the transaction, e.g. to another date, it is removed and inserted again.
+     *
+     * @param row The row the transaction was shown in
+     * @param transaction The changed transaction
+     */
+    public void transactionUpdated(int row, Transaction transaction) {
+        int newRow = transactionService.indexOfTransaction(transaction);
+        if (newRow == row) {
+            modificationCount++;
+            dropPagesFrom(row);
+            fireTableRowsUpdated(row, row);
+        } else {
+            transactionRemoved(row);
+            transactionAdded(transaction);
+        }
+    }
+
+    /**
+     * 新增的交易符合筛选条件时，按日期插入到筛选结果中
+     */
+    private void matchAdded(Transaction transaction) {
+        if (!query.matches(transaction)) {
+            return;
+        }
+        LocalDate date = transaction.getDate();
+        int low = 0;
+        int high = matches.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (matches.get(mid).getDate().isBefore(date)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        modificationCount++;
+        matches.add(low, transaction);
+        rowCount++;
+        fireTableRowsInserted(low, low);
+    }
+
+    /**
+     * 在筛选结果或缓存页中查找交易所在的行，找不到时返回 -1
+     */
+    private int cachedRowOf(String id) {
+        if (matches != null) {
+            for (int i = 0; i < matches.size(); i++) {
+                if (matches.get(i).getId().equals(id)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        for (Map.Entry<Integer, List<Transaction>> entry : pages.entrySet()) {
+            List<Transaction> page = entry.getValue();
+            for (int i = 0; i < page.size(); i++) {
+                if (page.get(i).getId().equals(id)) {
+                    return entry.getKey() * PAGE_SIZE + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 删除从某一行开始的缓存页，这些页中的行已经移动
+     */
+    private void dropPagesFrom(int row) {
+        int firstPage = row / PAGE_SIZE;
+        pages.keySet().removeIf(pageNumber -> pageNumber >= firstPage);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Transaction transaction = getTransaction(row);
+        if (transaction == null) {
+            return null;
+        }
+        // 只格式化正在显示的单元格
+        switch (column) {
+            case 0:
+                return transaction.getDate().format(DateTimeFormatter.ISO_LOCAL_DATE);
+            case 1:
+                return transaction.getAmount();
+            case 2:
+                return transaction.getDescription();
+            case 3:
+                return transaction.getCategory();
+            case 4:
+                return transaction.getParticipant();
+            case 5:
+                return transaction.isExpense() ? "Expense" : "Income";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * The row count and first page of the ledger, or the matches of a query, read off the
+     * event dispatch thread.
+     */
+    public static final class Snapshot {
+        private final int rowCount;
+        private final List<Transaction> firstPage;
+        private final TransactionQuery query;
+        private final List<Transaction> matches;
+
+        private Snapshot(int rowCount, List<Transaction> firstPage, TransactionQuery query, List<Transaction> matches) {
+            this.rowCount = rowCount;
+            this.firstPage = firstPage;
+            this.query = query;
+            this.matches = matches;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.financetracker.gui;
+
+import javax.swing.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Computes the data shown by the panels on background threads and hands the results to the
+ * event dispatch thread, so that reading the ledger and aggregating it never freezes the window.
+ * Refreshes are identified by a key, e.g. one per text area. While a refresh for a key is
+ * running, further requests for that key are coalesced: only the newest waits, and it runs once
+ * the current one has finished, whose result is then dropped as out of date.
+ */
+public final class ViewRefresher {
+
+    private static final Logger LOGGER = Logger.getLogger(ViewRefresher.class.getName());
+
+    /**
+     * The number of refreshes that are computed at the same time.
+     */
+    public static final int DEFAULT_THREADS = 2;
+
+    private final ExecutorService executor;
+    // 每个键的刷新状态，只在 slots 上同步访问
+    private final Map<String, Slot> slots = new HashMap<>();
+
+    /**
+     * Constructor for ViewRefresher.
+     *
+     * @param threads The number of refreshes that are computed at the same time
+     */
+    public ViewRefresher(int threads) {
+        AtomicInteger threadCount = new AtomicInteger(1);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "view-refresh-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a refresh. The loader runs on a background thread; the publisher receives its
+     * result on the event dispatch thread, unless a newer refresh for the same key was
+     * requested in the meantime.
+     *
+     * @param key Identifies what is refreshed; requests with the same key are coalesced
+     * @param loader Reads and aggregates the data, must not touch Swing components
+     * @param publisher Shows the result
+     * @param <T> The result type
+     */
+    public <T> void refresh(String key, Callable<T> loader, Consumer<T> publisher) {
+        Request<T> request = new Request<>(loader, publisher);
+        boolean start;
+        synchronized (slots) {
+            Slot slot = slots.computeIfAbsent(key, k -> new Slot());
+            // 替换尚未开始的请求，正在运行的刷新结束后只执行最新的一次
+            slot.pending = request;
+            slot.generation++;
+            start = !slot.running;
+            slot.running = true;
+        }
+        if (start) {
+            try {
+                executor.execute(() -> drain(key));
+            } catch (RejectedExecutionException e) {
+                // 窗口正在关闭
+                synchronized (slots) {
+                    slots.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a task on the event dispatch thread: right away if called there, later otherwise.
+     * Used by panels for change events, which may be published on a background thread.
+     *
+     * @param task The task
+     */
+    public static void runOnEventThread(Runnable task) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            task.run();
+        } else {
+            SwingUtilities.invokeLater(task);
+        }
+    }
+
+    /**
+     * Stops the background threads. Refreshes that are still queued are dropped.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 依次执行某个键上等待的请求，直到没有新的请求
+     */
+    private void drain(String key) {
+        while (true) {
+            Request<?> request;
+            long generation;
+            synchronized (slots) {
+                Slot slot = slots.get(key);
+                if (slot == null || slot.pending == null) {
+                    if (slot != null) {
+                        slot.running = false;
+                    }
+                    return;
+                }
+                request = slot.pending;
+                slot.pending = null;
+                generation = slot.generation;
+            }
+            run(key, request, generation);
+        }
+    }
+
+    private <T> void run(String key, Request<T> request, long generation) {
+        T result;
+        try {
+            result = request.loader.call();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to refresh view: " + key, e);
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            // 计算期间有新的请求时，结果已经过时，由新的请求负责显示
+            synchronized (slots) {
+                Slot slot = slots.get(key);
+                if (slot == null || slot.generation != generation) {
+                    return;
+                }
+            }
+            try {
+                request.publisher.accept(result);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to show refreshed view: " + key, e);
+            }
+        });
+    }
+
+    private static final class Slot {
+        private Request<?> pending;
+        private boolean running;
+        private long generation;
+    }
+
+    private static final class Request<T> {
+        private final Callable<T> loader;
+        private final Consumer<T> publisher;
+
+        private Request(Callable<T> loader, Consumer<T> publisher) {
+            this.loader = loader;
+            this.publisher = publisher;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.financetracker.model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * An exact amount of money: a whole number of minor units (cents) and a currency code.
+ * Amounts are added and compared as longs, so sums never pick up floating-point error.
+ * All amounts in the ledger are in the currency of the settings, so the code is only
+ * checked when two amounts are combined.
+ */
+public final class Money implements Serializable, Comparable<Money> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of minor units in one major unit.
+     */
+    public static final long MINOR_UNITS = 100;
+
+    /**
+     * The currency used when none is configured.
+     */
+    public static final String DEFAULT_CURRENCY = "CNY";
+
+    private final long minorUnits;
+    private final String currency;
+
+    private Money(long minorUnits, String currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency != null ? currency : DEFAULT_CURRENCY;
+    }
+
+    /**
+     * Creates an amount from minor units.
+     *
+     * @param minorUnits The amount in minor units
+     * @param currency The currency code, or null for {@link #DEFAULT_CURRENCY}
+     * @return The amount
+     */
+    public static Money of(long minorUnits, String currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    /**
+     * Creates an amount from major units, rounded half up to the nearest minor unit.
+     *
+     * @param amount The amount in major units
+     * @param currency The currency code, or null for {@link #DEFAULT_CURRENCY}
+     * @return The amount
+     */
+    public static Money ofMajor(double amount, String currency) {
+        return new Money(toMinorUnits(amount), currency);
+    }
+
+    /**
+     * @param currency The currency code, or null for {@link #DEFAULT_CURRENCY}
+     * @return A zero amount
+     */
+    public static Money zero(String currency) {
+        return new Money(0, currency);
+    }
+
+    /**
+     * Converts an amount in major units to whole minor units.
+     *
+     * @param amount The amount in major units
+     * @return The amount in minor units, rounded half up
+     */
+    public static long toMinorUnits(double amount) {
+        return Math.round(amount * MINOR_UNITS);
+    }
+
+    /**
+     * Parses an amount written by {@link #toPlainString(long)} back into minor units, without
+     * going through a double. Plain decimals such as "-1234.50" are read exactly; the
+     * exponent form "1.0E7" that older versions of the data files contain is accepted too.
+     *
+     * @param text The amount in major units
+     * @return The amount in minor units, rounded half up past the cents
+     * @throws NumberFormatException If the text is not a decimal number or out of range
+     */
+    public static long parsePlainString(String text) {
+        try {
+            return new BigDecimal(text.trim()).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    /**
+     * Converts minor units to the nearest double in major units, for display and for
+     * calculations such as percentages that are not kept.
+     *
+     * @param minorUnits The amount in minor units
+     * @return The amount in major units
+     */
+    public static double toMajorUnits(long minorUnits) {
+        return minorUnits / (double) MINOR_UNITS;
+    }
+
+    /**
+     * Formats minor units as a plain decimal number, e.g. "-1234.50".
+     *
+     * @param minorUnits The amount in minor units
+     * @return The formatted amount
+     */
+    public static String toPlainString(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, 2).toPlainString();
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * @return The amount in major units
+     */
+    public double toDouble() {
+        return toMajorUnits(minorUnits);
+    }
+
+    public Money plus(Money other) {
+        checkCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        checkCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits), currency);
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    private void checkCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Cannot combine " + currency + " and " + other.currency + " amounts");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && currency.equals(money.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minorUnits, currency);
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString(minorUnits) + " " + currency;
+    }
+}
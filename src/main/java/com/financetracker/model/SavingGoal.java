@@ -1,5 +1,7 @@
 package com.financetracker.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.Objects;
@@ -10,21 +12,25 @@ public class SavingGoal implements Serializable {
     private String id;
     private String name; // e.g., "New Car Fund", "Vacation to Hawaii"
     private String description; // Optional: further details about the goal
-    private double targetAmount; // The total amount to save
-    private double currentAmount; // Amount saved so far
-    private double monthlyContribution; // The amount to save each month as a transaction
+    private long targetAmountCents; // The total amount to save
+    private long currentAmountCents; // Amount saved so far
+    private long monthlyContributionCents; // The amount to save each month as a transaction
     private LocalDate startDate; // When the goal/monthly contributions start
     private LocalDate targetDate; // Optional: when the goal should ideally be reached
     private boolean isActive; // To enable/disable automatic monthly contributions
     private String associatedAccount; // Optional: if savings are tied to a specific (virtual) account
+    // Amounts of goals saved before they were kept in cents; only read when loading such a file
+    private double targetAmount;
+    private double currentAmount;
+    private double monthlyContribution;
 
     public SavingGoal() {
         this.id = UUID.randomUUID().toString();
         this.isActive = true; // Default to active
         this.startDate = LocalDate.now();
-        this.currentAmount = 0.0;
-        this.targetAmount = 0.0; // Default target to 0, user must set
-        this.monthlyContribution = 0.0; // Default contribution to 0
+        this.currentAmountCents = 0;
+        this.targetAmountCents = 0; // Default target to 0, user must set
+        this.monthlyContributionCents = 0; // Default contribution to 0
     }
 
     public SavingGoal(String name, double targetAmount, double monthlyContribution, LocalDate startDate) {
@@ -55,9 +61,12 @@ public class SavingGoal implements Serializable {
     public String getId() { return id; }
     public String getName() { return name; }
     public String getDescription() { return description; }
-    public double getTargetAmount() { return targetAmount; }
-    public double getCurrentAmount() { return currentAmount; }
-    public double getMonthlyContribution() { return monthlyContribution; }
+    public double getTargetAmount() { return Money.toMajorUnits(targetAmountCents); }
+    public double getCurrentAmount() { return Money.toMajorUnits(currentAmountCents); }
+    public double getMonthlyContribution() { return Money.toMajorUnits(monthlyContributionCents); }
+    public long getTargetAmountCents() { return targetAmountCents; }
+    public long getCurrentAmountCents() { return currentAmountCents; }
+    public long getMonthlyContributionCents() { return monthlyContributionCents; }
     public LocalDate getStartDate() { return startDate; }
     public LocalDate getTargetDate() { return targetDate; }
     public boolean isActive() { return isActive; }
@@ -68,25 +77,32 @@ public class SavingGoal implements Serializable {
     public void setName(String name) { this.name = name; }
     public void setDescription(String description) { this.description = description; }
     public void setTargetAmount(double targetAmount) {
-        if (targetAmount < 0) {
+        setTargetAmountCents(Money.toMinorUnits(targetAmount));
+    }
+    public void setTargetAmountCents(long targetAmountCents) {
+        if (targetAmountCents < 0) {
             // Silently set to 0 or throw exception based on desired behavior.
             // For now, let's default to 0 if negative, as per bug report (avoid negative target)
-            this.targetAmount = 0;
+            this.targetAmountCents = 0;
             // throw new IllegalArgumentException("Target amount cannot be negative.");
         } else {
-            this.targetAmount = targetAmount;
+            this.targetAmountCents = targetAmountCents;
         }
     }
     public void setCurrentAmount(double currentAmount) { 
         // Current amount can be anything, even negative if money was withdrawn somehow
-        this.currentAmount = currentAmount; 
+        this.currentAmountCents = Money.toMinorUnits(currentAmount); 
     }
+    public void setCurrentAmountCents(long currentAmountCents) { this.currentAmountCents = currentAmountCents; }
     public void setMonthlyContribution(double monthlyContribution) {
-        if (monthlyContribution < 0) {
-            this.monthlyContribution = 0;
+        setMonthlyContributionCents(Money.toMinorUnits(monthlyContribution));
+    }
+    public void setMonthlyContributionCents(long monthlyContributionCents) {
+        if (monthlyContributionCents < 0) {
+            this.monthlyContributionCents = 0;
             // throw new IllegalArgumentException("Monthly contribution cannot be negative.");
         } else {
-            this.monthlyContribution = monthlyContribution;
+            this.monthlyContributionCents = monthlyContributionCents;
         }
     }
     public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
@@ -96,28 +112,36 @@ public class SavingGoal implements Serializable {
 
     // Business logic methods
     public void addContribution(double amount) {
-        if (amount < 0) {
+        addContributionCents(Money.toMinorUnits(amount));
+    }
+
+    public void addContributionCents(long amountCents) {
+        if (amountCents < 0) {
              // Allow negative contributions (withdrawals from goal) if necessary
              // For now, assuming positive contributions for simplicity from auto-savings
              // throw new IllegalArgumentException("Contribution amount cannot be negative for addContribution.");
         }
-        this.currentAmount += amount;
+        this.currentAmountCents += amountCents;
     }
 
     public double getProgressPercentage() {
-        if (targetAmount <= 0) {
+        if (targetAmountCents <= 0) {
             return 0.0; 
         }
-        double progress = (currentAmount / targetAmount) * 100.0;
+        double progress = ((double) currentAmountCents / targetAmountCents) * 100.0;
         return Math.min(Math.max(progress, 0.0), 100.0); // Cap between 0 and 100
     }
 
     public double getRemainingAmount() {
-        return Math.max(0, targetAmount - currentAmount);
+        return Money.toMajorUnits(getRemainingAmountCents());
+    }
+
+    public long getRemainingAmountCents() {
+        return Math.max(0, targetAmountCents - currentAmountCents);
     }
     
     public boolean isCompleted() {
-        return currentAmount >= targetAmount && targetAmount > 0; 
+        return currentAmountCents >= targetAmountCents && targetAmountCents > 0; 
     }
 
     @Override
@@ -138,12 +162,25 @@ public class SavingGoal implements Serializable {
         return "SavingGoal{" +
                "id='" + id + '\'' +
                ", name='" + name + '\'' +
-               ", targetAmount=" + targetAmount +
-               ", currentAmount=" + currentAmount +
-               ", monthlyContribution=" + monthlyContribution +
+               ", targetAmount=" + Money.toPlainString(targetAmountCents) +
+               ", currentAmount=" + Money.toPlainString(currentAmountCents) +
+               ", monthlyContribution=" + Money.toPlainString(monthlyContributionCents) +
                ", startDate=" + startDate +
                ", targetDate=" + targetDate +
                ", isActive=" + isActive +
                '}';
     }
-} 
\ No newline at end of file
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Goals saved by older versions hold their amounts as doubles
+        if (targetAmount != 0 || currentAmount != 0 || monthlyContribution != 0) {
+            targetAmountCents = Money.toMinorUnits(targetAmount);
+            currentAmountCents = Money.toMinorUnits(currentAmount);
+            monthlyContributionCents = Money.toMinorUnits(monthlyContribution);
+            targetAmount = 0;
+            currentAmount = 0;
+            monthlyContribution = 0;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.financetracker.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -22,14 +24,23 @@ public class Settings implements Serializable {
     private boolean autoBackupEnabled; // Whether to automatically backup data
     private int backupFrequencyDays; // How often to backup data (in days)
     private boolean aiAssistanceEnabled; // Whether AI features are enabled
-    private double monthlyBudget;
+    private long monthlyBudgetCents;
     private int budgetStartDay;
 
     // New fields for Special Dates and Saving Goals
     private List<SpecialDate> specialDates;
     private List<SavingGoal> savingGoals;
-    private double overallAccountBalance;
+    private long overallAccountBalanceCents;
     private String lastMonthClosed; // Stores YYYY-MM of the last financial month closed
+
+    // Keyword rules for automatic categorisation; null means the built-in rules are used
+    private List<String> incomeKeywordRules;
+    private List<String> expenseKeywordRules;
+    private List<String> typeKeywordRules;
+
+    // Amounts of settings saved before they were kept in cents; only read when loading such a file
+    private double monthlyBudget;
+    private double overallAccountBalance;
     
     /**
      * 默认构造函数
@@ -59,13 +70,13 @@ public class Settings implements Serializable {
         this.autoBackupEnabled = true;
         this.backupFrequencyDays = 7;
         this.aiAssistanceEnabled = true;
-        this.monthlyBudget = 5000.0;
+        this.monthlyBudgetCents = 500000;
         this.budgetStartDay = 1;
 
         // Initialize new lists
         this.specialDates = new ArrayList<>();
         this.savingGoals = new ArrayList<>();
-        this.overallAccountBalance = 0.0;
+        this.overallAccountBalanceCents = 0;
         this.lastMonthClosed = ""; // Or a sensible default like one month before app's first possible use
     }
 
@@ -163,14 +174,25 @@ public class Settings implements Serializable {
      * 获取月度预算
      */
     public double getMonthlyBudget() {
-        return monthlyBudget;
+        return Money.toMajorUnits(monthlyBudgetCents);
     }
     
     /**
-     * 设置月度预算
+     * 设置月度预算（四舍五入到分）
      */
     public void setMonthlyBudget(double monthlyBudget) {
-        this.monthlyBudget = monthlyBudget;
+        this.monthlyBudgetCents = Money.toMinorUnits(monthlyBudget);
+    }
+    
+    /**
+     * 获取月度预算（以分为单位）
+     */
+    public long getMonthlyBudgetCents() {
+        return monthlyBudgetCents;
+    }
+    
+    public void setMonthlyBudgetCents(long monthlyBudgetCents) {
+        this.monthlyBudgetCents = monthlyBudgetCents;
     }
     
     /**
@@ -227,12 +249,15 @@ public class Settings implements Serializable {
         ));
         this.dataStoragePath = "data/";
         this.autoBackupEnabled = true;
-        this.monthlyBudget = 5000.0;
+        this.monthlyBudgetCents = 500000;
         this.budgetStartDay = 1;
         this.specialDates = new ArrayList<>();
         this.savingGoals = new ArrayList<>();
-        this.overallAccountBalance = 0.0;
+        this.overallAccountBalanceCents = 0;
         this.lastMonthClosed = "";
+        this.incomeKeywordRules = null;
+        this.expenseKeywordRules = null;
+        this.typeKeywordRules = null;
     }
     
     /**
@@ -358,11 +383,22 @@ public class Settings implements Serializable {
 
     // Getters and Setters for new fields
     public double getOverallAccountBalance() {
-        return overallAccountBalance;
+        return Money.toMajorUnits(overallAccountBalanceCents);
     }
 
     public void setOverallAccountBalance(double overallAccountBalance) {
-        this.overallAccountBalance = overallAccountBalance;
+        this.overallAccountBalanceCents = Money.toMinorUnits(overallAccountBalance);
+    }
+
+    /**
+     * @return The overall account balance in the default currency, exact to the cent
+     */
+    public Money getOverallAccountBalanceMoney() {
+        return Money.of(overallAccountBalanceCents, defaultCurrency);
+    }
+
+    public void setOverallAccountBalanceMoney(Money overallAccountBalance) {
+        this.overallAccountBalanceCents = overallAccountBalance.getMinorUnits();
     }
 
     public String getLastMonthClosed() {
@@ -372,4 +408,50 @@ public class Settings implements Serializable {
     public void setLastMonthClosed(String lastMonthClosed) {
         this.lastMonthClosed = lastMonthClosed;
     }
+
+    /**
+     * @return The rules that name income categories, or null to use the built-in rules
+     */
+    public List<String> getIncomeKeywordRules() {
+        return incomeKeywordRules;
+    }
+
+    public void setIncomeKeywordRules(List<String> incomeKeywordRules) {
+        this.incomeKeywordRules = incomeKeywordRules;
+    }
+
+    /**
+     * @return The rules that name expense categories, or null to use the built-in rules
+     */
+    public List<String> getExpenseKeywordRules() {
+        return expenseKeywordRules;
+    }
+
+    public void setExpenseKeywordRules(List<String> expenseKeywordRules) {
+        this.expenseKeywordRules = expenseKeywordRules;
+    }
+
+    /**
+     * @return The rules that decide between income and expense, or null to use the built-in rules
+     */
+    public List<String> getTypeKeywordRules() {
+        return typeKeywordRules;
+    }
+
+    public void setTypeKeywordRules(List<String> typeKeywordRules) {
+        this.typeKeywordRules = typeKeywordRules;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // 旧版本的设置文件以 double 保存金额，读取后转换为分
+        if (monthlyBudget != 0) {
+            monthlyBudgetCents = Money.toMinorUnits(monthlyBudget);
+            monthlyBudget = 0;
+        }
+        if (overallAccountBalance != 0) {
+            overallAccountBalanceCents = Money.toMinorUnits(overallAccountBalance);
+            overallAccountBalance = 0;
+        }
+    }
 }
@@ -12,7 +12,7 @@ public class Transaction implements Serializable {
     
     private String id;
     private LocalDate date;
-    private double amount;
+    private long amountCents; // exact amount in cents
     private String description;
     private String category;
     private String participant; // payer or payee
@@ -38,7 +38,7 @@ public class Transaction implements Serializable {
                       String category, boolean isExpense) {
         this.id = id;
         this.date = date;
-        this.amount = amount;
+        this.amountCents = Money.toMinorUnits(amount);
         this.description = description;
         this.category = category;
         this.participant = null; // Not provided in CSV import
@@ -46,11 +46,32 @@ public class Transaction implements Serializable {
         this.isExpense = isExpense;
     }
 
+    /**
+     * Creates a stored transaction with the exact amount in cents.
+     * A named factory rather than a constructor overload, so that an int or long amount
+     * passed to {@link #Transaction(String, LocalDate, double, String, String, boolean)}
+     * keeps meaning major units.
+     * 
+     * @param id The transaction ID
+     * @param date The transaction date
+     * @param amountCents The transaction amount in cents
+     * @param description The transaction description
+     * @param category The transaction category
+     * @param isExpense Whether the transaction is an expense
+     * @return The transaction
+     */
+    public static Transaction ofCents(String id, LocalDate date, long amountCents, String description,
+                                      String category, boolean isExpense) {
+        Transaction transaction = new Transaction(id, date, 0.0, description, category, isExpense);
+        transaction.amountCents = amountCents;
+        return transaction;
+    }
+
     public Transaction(LocalDate date, double amount, String description, 
                       String category, String participant, String notes, boolean isExpense) {
         this.id = java.util.UUID.randomUUID().toString();
         this.date = date;
-        this.amount = amount;
+        this.amountCents = Money.toMinorUnits(amount);
         this.description = description;
         this.category = category;
         this.participant = participant;
@@ -75,12 +96,36 @@ public class Transaction implements Serializable {
         this.date = date;
     }
 
+    /**
+     * @return The amount in major units, for display; use {@link #getAmountCents()} for sums
+     */
     public double getAmount() {
-        return amount;
+        return Money.toMajorUnits(amountCents);
     }
 
+    /**
+     * Sets the amount, rounded half up to whole cents.
+     *
+     * @param amount The amount in major units
+     */
     public void setAmount(double amount) {
-        this.amount = amount;
+        this.amountCents = Money.toMinorUnits(amount);
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public void setAmountCents(long amountCents) {
+        this.amountCents = amountCents;
+    }
+
+    /**
+     * @param currency The ledger currency
+     * @return The amount as {@link Money}
+     */
+    public Money getMoney(String currency) {
+        return Money.of(amountCents, currency);
     }
 
     public String getDescription() {
@@ -141,7 +186,7 @@ public class Transaction implements Serializable {
         return "Transaction{" +
                 "id='" + id + '\'' +
                 ", date=" + date +
-                ", amount=" + amount +
+                ", amount=" + Money.toPlainString(amountCents) +
                 ", description='" + description + '\'' +
                 ", category='" + category + '\'' +
                 ", participant='" + participant + '\'' +
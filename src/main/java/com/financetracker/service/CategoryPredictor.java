@@ -0,0 +1,276 @@
+package com.financetracker.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.financetracker.model.Transaction;
+
+/**
+ * Multinomial naive Bayes model that predicts a transaction's category and type from its
+ * description, trained on the user's own ledger. Descriptions are split into hashed word
+ * tokens (and character bigrams for Chinese text), so the model stays small and a prediction
+ * is a few dozen map lookups. It learns incrementally: adding a transaction adds its counts,
+ * and editing or deleting one takes back the counts it was learned with.
+ */
+public final class CategoryPredictor {
+
+    // 少于这么多条训练数据时不作预测
+    private static final int MIN_TRAINING_COUNT = 20;
+    // 一个类别至少要有这么多条记录才会被预测
+    private static final int MIN_LABEL_COUNT = 3;
+    // 后验概率低于此值时不作预测，交给关键词规则处理
+    private static final double MIN_CONFIDENCE = 0.6;
+
+    private final Map<Label, LabelStats> labels = new HashMap<>();
+    // 每个词在所有训练数据中出现的次数，降为 0 时移出词表
+    private final Map<Integer, Integer> vocabulary = new HashMap<>();
+    // 按交易 id 记录学习时的类别和描述；交易对象可能已被原地修改，撤销时不能读取它的当前值
+    private final Map<String, Example> examples = new HashMap<>();
+    private int trainingCount = 0;
+
+    /**
+     * Learns one labelled transaction. Transactions without a description or category are ignored.
+     * If a transaction with the same id was learned before, its old version is unlearned first,
+     * so learning an edited transaction replaces it.
+     *
+     * @param transaction The transaction
+     */
+    public synchronized void learn(Transaction transaction) {
+        unlearn(transaction);
+        String category = transaction.getCategory();
+        if (category == null || category.trim().isEmpty()) {
+            return;
+        }
+        List<Integer> tokens = tokenize(transaction.getDescription());
+        if (tokens.isEmpty()) {
+            return;
+        }
+        Label label = new Label(category, transaction.isExpense());
+        LabelStats stats = labels.computeIfAbsent(label, l -> new LabelStats());
+        stats.documentCount++;
+        for (int token : tokens) {
+            stats.tokenCounts.merge(token, 1, Integer::sum);
+            stats.tokenTotal++;
+            vocabulary.merge(token, 1, Integer::sum);
+        }
+        trainingCount++;
+        if (transaction.getId() != null) {
+            examples.put(transaction.getId(), new Example(label, transaction.getDescription()));
+        }
+    }
+
+    /**
+     * Takes back what was learned from a transaction, e.g. after it was deleted or before its
+     * edited version is learned. The counts removed are those of the version that was learned,
+     * found by the transaction's id. Transactions that were not learned are ignored.
+     *
+     * @param transaction The transaction
+     */
+    public synchronized void unlearn(Transaction transaction) {
+        Example example = transaction.getId() == null ? null : examples.remove(transaction.getId());
+        if (example == null) {
+            return;
+        }
+        LabelStats stats = labels.get(example.label);
+        for (int token : tokenize(example.description)) {
+            stats.tokenCounts.computeIfPresent(token, (t, count) -> count > 1 ? count - 1 : null);
+            stats.tokenTotal--;
+            vocabulary.computeIfPresent(token, (t, count) -> count > 1 ? count - 1 : null);
+        }
+        if (--stats.documentCount == 0) {
+            labels.remove(example.label);
+        }
+        trainingCount--;
+    }
+
+    /**
+     * Learns every labelled transaction in a collection.
+     *
+     * @param transactions The transactions
+     */
+    public synchronized void learnAll(Iterable<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            learn(transaction);
+        }
+    }
+
+    /**
+     * @return The number of transactions the model was trained on
+     */
+    public synchronized int getTrainingCount() {
+        return trainingCount;
+    }
+
+    /**
+     * Predicts the category of a description.
+     *
+     * @param description The transaction description
+     * @param isExpense Restricts the prediction to expense (true) or income (false) categories,
+     *                  or null to predict the type as well
+     * @return The prediction, or null if the model has too little data or is not confident enough
+     */
+    public synchronized Prediction predict(String description, Boolean isExpense) {
+        if (trainingCount < MIN_TRAINING_COUNT) {
+            return null;
+        }
+        List<Integer> tokens = tokenize(description);
+        // 没有任何见过的词时只剩先验概率，不作预测
+        if (tokens.stream().noneMatch(vocabulary::containsKey)) {
+            return null;
+        }
+
+        // 对数空间计算，最后归一化为后验概率
+        double vocabularySize = vocabulary.size();
+        Label best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        List<Double> scores = new ArrayList<>();
+        for (Map.Entry<Label, LabelStats> entry : labels.entrySet()) {
+            Label label = entry.getKey();
+            LabelStats stats = entry.getValue();
+            if (stats.documentCount < MIN_LABEL_COUNT || (isExpense != null && label.isExpense != isExpense)) {
+                continue;
+            }
+            double score = Math.log(stats.documentCount / (double) trainingCount);
+            double denominator = Math.log(stats.tokenTotal + vocabularySize);
+            for (int token : tokens) {
+                score += Math.log(stats.tokenCounts.getOrDefault(token, 0) + 1) - denominator;
+            }
+            scores.add(score);
+            if (score > bestScore) {
+                bestScore = score;
+                best = label;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        double total = 0;
+        for (double score : scores) {
+            total += Math.exp(score - bestScore);
+        }
+        double confidence = 1 / total;
+        if (confidence < MIN_CONFIDENCE) {
+            return null;
+        }
+        return new Prediction(best.category, best.isExpense, confidence);
+    }
+
+    /**
+     * Splits a description into hashed tokens: lower-case words of two or more letters, and
+     * overlapping character pairs for runs of Chinese characters. Digits are ignored since
+     * they are usually dates, card numbers or order ids.
+     */
+    static List<Integer> tokenize(String description) {
+        List<Integer> tokens = new ArrayList<>();
+        if (description == null) {
+            return tokens;
+        }
+        String text = description.toLowerCase();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (isIdeograph(c)) {
+                int start = i;
+                while (i < text.length() && isIdeograph(text.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(text.substring(start, i).hashCode());
+                }
+                for (int j = start; j + 2 <= i; j++) {
+                    tokens.add(text.substring(j, j + 2).hashCode());
+                }
+            } else if (Character.isLetter(c)) {
+                int start = i;
+                while (i < text.length() && Character.isLetter(text.charAt(i)) && !isIdeograph(text.charAt(i))) {
+                    i++;
+                }
+                if (i - start >= 2) {
+                    tokens.add(text.substring(start, i).hashCode());
+                }
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isIdeograph(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+
+    /**
+     * A predicted category and type.
+     */
+    public static final class Prediction {
+        private final String category;
+        private final boolean isExpense;
+        private final double confidence;
+
+        private Prediction(String category, boolean isExpense, double confidence) {
+            this.category = category;
+            this.isExpense = isExpense;
+            this.confidence = confidence;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public boolean isExpense() {
+            return isExpense;
+        }
+
+        /**
+         * @return The posterior probability of the prediction among the candidate categories
+         */
+        public double getConfidence() {
+            return confidence;
+        }
+    }
+
+    private static final class Label {
+        final String category;
+        final boolean isExpense;
+
+        Label(String category, boolean isExpense) {
+            this.category = category;
+            this.isExpense = isExpense;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Label)) {
+                return false;
+            }
+            Label other = (Label) o;
+            return isExpense == other.isExpense && category.equals(other.category);
+        }
+
+        @Override
+        public int hashCode() {
+            return category.hashCode() * 31 + (isExpense ? 1 : 0);
+        }
+    }
+
+    private static final class Example {
+        final Label label;
+        final String description;
+
+        Example(Label label, String description) {
+            this.label = label;
+            this.description = description;
+        }
+    }
+
+    private static final class LabelStats {
+        int documentCount;
+        int tokenTotal;
+        final Map<Integer, Integer> tokenCounts = new HashMap<>();
+    }
+}
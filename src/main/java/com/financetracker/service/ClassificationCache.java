@@ -0,0 +1,214 @@
+package com.financetracker.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded LRU cache of keyword classifications, keyed by normalised description.
+ * Bank exports repeat the same merchant strings many times, so most rows of an import are
+ * answered from here instead of being scanned by the {@link KeywordClassifier}.
+ *
+ * The cache is tied to a fingerprint of the rules and categories it was filled with and is
+ * emptied when the fingerprint changes. It is written to a tab-separated file so that the
+ * next import starts warm; a file with a different fingerprint is ignored.
+ */
+final class ClassificationCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ClassificationCache.class.getName());
+
+    private static final String HEADER_PREFIX = "# fingerprint ";
+
+    private final Path cacheFile;
+    private final int capacity;
+    // 按访问顺序排列，最久未使用的在最前面
+    private final LinkedHashMap<String, Classification> entries;
+
+    private String fingerprint;
+    private boolean loaded = false;
+    private boolean dirty = false;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Constructor for ClassificationCache.
+     *
+     * @param cacheFile The file the cache is persisted to
+     * @param capacity The maximum number of descriptions kept
+     */
+    ClassificationCache(Path cacheFile, int capacity) {
+        this.cacheFile = cacheFile;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Classification> eldest) {
+                return size() > ClassificationCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Normalises a description into a cache key: lower case, trimmed, and with every run of
+     * digits (card numbers, order ids, dates) replaced by a single '#'.
+     *
+     * @param description The description, may be null
+     * @param keepDigits Whether digits must be kept because a keyword contains one
+     * @return The cache key
+     */
+    static String normalise(String description, boolean keepDigits) {
+        if (description == null) {
+            return "";
+        }
+        String lower = description.trim().toLowerCase();
+        if (keepDigits) {
+            return lower;
+        }
+        StringBuilder key = new StringBuilder(lower.length());
+        boolean inDigits = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (!inDigits) {
+                    key.append('#');
+                    inDigits = true;
+                }
+            } else {
+                key.append(c);
+                inDigits = false;
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Ties the cache to the rules and categories it is filled with. Entries made under a
+     * different fingerprint are discarded; the persisted file is read on first use.
+     *
+     * @param newFingerprint The fingerprint of the current rules and categories
+     */
+    synchronized void setFingerprint(String newFingerprint) {
+        if (newFingerprint.equals(fingerprint)) {
+            return;
+        }
+        if (fingerprint != null && !entries.isEmpty()) {
+            LOGGER.log(Level.FINE, "Classification rules changed, discarding {0} cached classifications",
+                    entries.size());
+            dirty = true;
+        }
+        entries.clear();
+        fingerprint = newFingerprint;
+        if (!loaded) {
+            loaded = true;
+            load();
+        }
+    }
+
+    synchronized Classification get(String key) {
+        Classification classification = entries.get(key);
+        if (classification == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return classification;
+    }
+
+    synchronized void put(String key, Classification classification) {
+        entries.put(key, classification);
+        dirty = true;
+    }
+
+    /**
+     * Writes the cache to its file if it changed since it was loaded or last saved.
+     *
+     * @return true if there was nothing to save or the file was written, false otherwise
+     */
+    synchronized boolean save() {
+        if (!dirty || fingerprint == null) {
+            return true;
+        }
+        Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                writer.write(HEADER_PREFIX + fingerprint);
+                writer.newLine();
+                for (Map.Entry<String, Classification> entry : entries.entrySet()) {
+                    Classification c = entry.getValue();
+                    if (!storable(entry.getKey()) || !storable(c.incomeCategory) || !storable(c.expenseCategory)) {
+                        continue;
+                    }
+                    writer.write(entry.getKey() + '\t' + c.incomeCategory + '\t' + c.expenseCategory + '\t'
+                            + (c.expenseByKeywords ? '1' : '0'));
+                    writer.newLine();
+                }
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            dirty = false;
+            LOGGER.log(Level.FINE, "Saved {0} classifications ({1} hits, {2} misses)",
+                    new Object[]{entries.size(), hits, misses});
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not save classification cache to " + cacheFile, e);
+            return false;
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(cacheFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !header.equals(HEADER_PREFIX + fingerprint)) {
+                // 规则或类别已经改变，旧的缓存作废
+                dirty = true;
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length == 4) {
+                    entries.put(fields[0], new Classification(fields[1], fields[2], "1".equals(fields[3])));
+                }
+            }
+            LOGGER.log(Level.FINE, "Loaded {0} cached classifications", entries.size());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read classification cache " + cacheFile, e);
+            entries.clear();
+        }
+    }
+
+    private static boolean storable(String value) {
+        return value.indexOf('\t') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0;
+    }
+
+    /**
+     * What the keyword rules conclude from one description on its own.
+     */
+    static final class Classification {
+        // 按收入规则和按支出规则得到的类别（未匹配时为"其他"类别）
+        final String incomeCategory;
+        final String expenseCategory;
+        // 仅根据描述中的关键词判断是否为支出
+        final boolean expenseByKeywords;
+
+        Classification(String incomeCategory, String expenseCategory, boolean expenseByKeywords) {
+            this.incomeCategory = incomeCategory;
+            this.expenseCategory = expenseCategory;
+            this.expenseByKeywords = expenseByKeywords;
+        }
+
+        String getCategory(boolean isExpense) {
+            return isExpense ? expenseCategory : incomeCategory;
+        }
+    }
+}
@@ -5,8 +5,23 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.financetracker.model.Transaction;
 // 导入 Stream 类，用于处理数据流操作
 
 /**
@@ -29,6 +44,14 @@ import java.util.List;
 public class CsvBatchImporter {
     // 定义 CsvBatchImporter 类，用于批量导入 CSV 文件中的交易记录
 
+    private static final Logger LOGGER = Logger.getLogger(CsvBatchImporter.class.getName());
+
+    // 等待文件读取时检查取消的间隔
+    private static final long CANCEL_POLL_MILLIS = 200;
+
+    // 所有批次共用的文件读取线程，线程数不超过处理器数量，不随批次创建
+    private static final ExecutorService FILE_READERS = createFileReaders();
+
     private TransactionService transactionService;
     // 定义类成员变量 transactionService，类型为 TransactionService，用于处理交易记录的业务逻辑
 
@@ -45,57 +68,202 @@ public class CsvBatchImporter {
      * @return 导入结果
      */
     public ImportResult importCsvFiles(File[] files) {
+        return importCsvFiles(files, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 批量导入CSV文件
+     * 各文件在所有批次共用的读取线程上并行解析和分类，每个批次同时最多读取 parallelism 个文件。
+     * 结果按传入的文件顺序合并，一次追加到交易日志，整批只写一次账本。
+     * 账本中已有的记录以及本批次前面文件中已出现的记录会被跳过并计为重复，重新导入有重叠的账单不会重复记账。
+     * 
+     * @param files 要导入的文件数组
+     * @param parallelism 同时解析的文件数
+     * @return 导入结果，包含每个文件的耗时
+     */
+    public ImportResult importCsvFiles(File[] files, int parallelism) {
+        return importCsvFiles(files, parallelism, null);
+    }
+
+    /**
+     * 批量导入CSV文件，作为后台任务运行
+     * 每读完一个文件报告一次进度；取消后在写入存储之前停止，不保存任何记录
+     * 
+     * @param files 要导入的文件数组
+     * @param parallelism 同时解析的文件数
+     * @param job 运行该导入的后台任务，可为 null
+     * @return 导入结果，包含每个文件的耗时
+     * @throws CancellationException 如果任务在写入存储之前被取消
+     */
+    public ImportResult importCsvFiles(File[] files, int parallelism, JobScheduler.Job job) {
         ImportResult result = new ImportResult();
+        long startTime = System.nanoTime();
 
+        List<File> validFiles = new ArrayList<>();
         for (File file : files) {
             if (!file.exists() || !file.isFile() || !file.getName().toLowerCase().endsWith(".csv")) {
                 result.failedFileCount++;
                 continue;
             }
+            validFiles.add(file);
+        }
+        if (validFiles.isEmpty()) {
+            result.totalMillis = (System.nanoTime() - startTime) / 1_000_000;
+            return result;
+        }
 
-            try {
-                // 检测CSV头信息
-                List<String> headers = readCsvHeaders(file.getAbsolutePath());
-                if (headers == null || headers.isEmpty()) {
-                    result.failedFileCount++;
-                    continue;
+        int window = Math.max(1, Math.min(parallelism, validFiles.size()));
+        List<FileImportResult> fileResults = new ArrayList<>();
+        List<List<Transaction>> fileTransactions = new ArrayList<>();
+        List<Future<List<Transaction>>> futures = new ArrayList<>();
+        try {
+            for (File file : validFiles) {
+                fileResults.add(new FileImportResult(file.getName()));
+            }
+            // 同时最多提交 window 个文件，每读完一个再提交下一个
+            for (int i = 0; i < window; i++) {
+                futures.add(submitRead(validFiles.get(i), fileResults.get(i)));
+            }
+            for (int i = 0; i < validFiles.size(); i++) {
+                if (job != null) {
+                    job.setProgress(i, validFiles.size(), "读取 " + validFiles.get(i).getName());
                 }
-
-                // 自动检测列映射
-                String[] columnMappings = autoDetectColumns(file.getAbsolutePath(), headers);
-
-                if (columnMappings[0] == null || columnMappings[1] == null || columnMappings[2] == null) {
-                    // 缺少必要的列
-                    result.failedFileCount++;
-                    continue;
+                try {
+                    fileTransactions.add(awaitFile(futures.get(i), job));
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.WARNING, "Failed to read CSV file " + validFiles.get(i).getName(), e.getCause());
+                    fileTransactions.add(null);
                 }
-
-                // 执行导入
-                int importedCount = transactionService.importFromCsv(
-                        file.getAbsolutePath(),
-                        columnMappings[0], // 日期列
-                        columnMappings[1], // 金额列
-                        columnMappings[2], // 描述列
-                        columnMappings[3], // 类别列，可能为null
-                        columnMappings[4], // 日期格式
-                        false // isExpense参数已被忽略，由系统自动检测
-                );
-
-                if (importedCount > 0) {
-                    result.successFileCount++;
-                    result.totalRecordCount += importedCount;
-                } else {
-                    result.failedFileCount++;
+                int next = i + window;
+                if (next < validFiles.size()) {
+                    futures.add(submitRead(validFiles.get(next), fileResults.get(next)));
                 }
-            } catch (Exception e) {
-                result.failedFileCount++;
-                e.printStackTrace();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.failedFileCount += validFiles.size();
+            return result;
+        } finally {
+            // 取消或中断时停止本批次仍在读取的文件，共用的线程池保持运行
+            for (Future<List<Transaction>> future : futures) {
+                future.cancel(true);
             }
         }
 
+        if (job != null) {
+            // 写入存储之后不再响应取消，保证整批要么全部保存要么都不保存
+            job.checkCancelled();
+            job.setProgress(validFiles.size(), validFiles.size(), "保存");
+        }
+
+        // 按文件顺序去重并合并，一次性写入
+        List<Transaction> merged = new ArrayList<>();
+        TransactionDuplicateIndex.Statement statement = new TransactionDuplicateIndex.Statement();
+        for (int i = 0; i < fileTransactions.size(); i++) {
+            List<Transaction> transactions = fileTransactions.get(i);
+            if (transactions != null) {
+                List<Transaction> fresh = transactionService.removeDuplicates(transactions, statement);
+                fileResults.get(i).duplicateCount = transactions.size() - fresh.size();
+                merged.addAll(fresh);
+                statement = statement.next();
+            }
+        }
+        long commitStart = System.nanoTime();
+        boolean saved = merged.isEmpty() || transactionService.addTransactions(merged);
+        result.commitMillis = (System.nanoTime() - commitStart) / 1_000_000;
+        if (!saved) {
+            LOGGER.log(Level.SEVERE, "Failed to save {0} transactions from a batch of {1} CSV files",
+                    new Object[]{merged.size(), validFiles.size()});
+        }
+        transactionService.saveClassificationCache();
+
+        for (int i = 0; i < fileResults.size(); i++) {
+            FileImportResult fileResult = fileResults.get(i);
+            List<Transaction> transactions = fileTransactions.get(i);
+            if (saved && transactions != null && !transactions.isEmpty()) {
+                fileResult.success = true;
+                result.successFileCount++;
+                result.totalRecordCount += transactions.size() - fileResult.duplicateCount;
+                result.duplicateRecordCount += fileResult.duplicateCount;
+            } else {
+                result.failedFileCount++;
+            }
+            result.fileResults.add(fileResult);
+        }
+        result.totalMillis = (System.nanoTime() - startTime) / 1_000_000;
         return result;
     }
 
+    private Future<List<Transaction>> submitRead(File file, FileImportResult fileResult) {
+        return FILE_READERS.submit(() -> readCsvFile(file, fileResult));
+    }
+
+    private static ExecutorService createFileReaders() {
+        AtomicInteger threadCount = new AtomicInteger(1);
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "csv-batch-reader-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 等待一个文件读取完成，期间定期检查任务是否被取消
+     */
+    private List<Transaction> awaitFile(Future<List<Transaction>> future, JobScheduler.Job job)
+            throws InterruptedException, ExecutionException {
+        if (job == null) {
+            return future.get();
+        }
+        while (true) {
+            job.checkCancelled();
+            try {
+                return future.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // 继续等待
+            }
+        }
+    }
+
+    /**
+     * 检测列结构并读取一个文件中的交易记录（在工作线程中执行）
+     * 
+     * @param file 文件
+     * @param fileResult 用于记录该文件的统计信息
+     * @return 读取到的交易记录，缺少必要的列时返回 null
+     */
+    private List<Transaction> readCsvFile(File file, FileImportResult fileResult) throws IOException {
+        long startTime = System.nanoTime();
+        try {
+            // 检测CSV头信息
+            List<String> headers = readCsvHeaders(file.getAbsolutePath());
+            if (headers == null || headers.isEmpty()) {
+                return null;
+            }
+
+            // 自动检测列映射
+            String[] columnMappings = autoDetectColumns(file.getAbsolutePath(), headers);
+
+            if (columnMappings[0] == null || columnMappings[1] == null || columnMappings[2] == null) {
+                // 缺少必要的列
+                return null;
+            }
+
+            List<Transaction> transactions = transactionService.readTransactionsFromCsv(
+                    file.getAbsolutePath(),
+                    columnMappings[0], // 日期列
+                    columnMappings[1], // 金额列
+                    columnMappings[2], // 描述列
+                    columnMappings[3], // 类别列，可能为null
+                    columnMappings[4]  // 日期格式
+            );
+            fileResult.recordCount = transactions.size();
+            return transactions;
+        } finally {
+            fileResult.millis = (System.nanoTime() - startTime) / 1_000_000;
+        }
+    }
+
     /**
      * 从目录导入CSV文件
      * 
@@ -103,6 +271,18 @@ public class CsvBatchImporter {
      * @return 导入结果
      */
     public ImportResult importFromDirectory(String directoryPath) {
+        return importFromDirectory(directoryPath, null);
+    }
+
+    /**
+     * 从目录导入CSV文件，作为后台任务运行
+     * 
+     * @param directoryPath 目录路径
+     * @param job 运行该导入的后台任务，可为 null
+     * @return 导入结果
+     * @throws CancellationException 如果任务在写入存储之前被取消
+     */
+    public ImportResult importFromDirectory(String directoryPath, JobScheduler.Job job) {
         File dir = new File(directoryPath);
         if (!dir.exists() || !dir.isDirectory()) {
             ImportResult result = new ImportResult();
@@ -124,7 +304,7 @@ public class CsvBatchImporter {
         }
 
         // 执行批量导入
-        return importCsvFiles(csvFiles);
+        return importCsvFiles(csvFiles, Runtime.getRuntime().availableProcessors(), job);
     }
 
     /**
@@ -185,24 +365,10 @@ public class CsvBatchImporter {
         if (descIndex < 0 && headers.size() > 2)
             descIndex = 2;
 
-        // 确定日期格式
-        String dateFormat = "yyyy-MM-dd"; // 默认格式
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            // 跳过标题行
-            reader.readLine();
-
-            // 读取第一个数据行
-            String dataLine = reader.readLine();
-            if (dataLine != null && dateIndex >= 0) {
-                String[] values = dataLine.split(dataLine.contains(",") ? "," : ";");
-                if (values.length > dateIndex) {
-                    String dateValue = values[dateIndex].trim();
-                    dateFormat = guessDateFormat(dateValue);
-                }
-            }
-        } catch (Exception e) {
-            // 忽略错误，使用默认日期格式
-        }
+        // 确定日期格式：取日期列的前若干行作为样本，整列锁定为最符合的格式
+        String dateFormat = dateIndex >= 0
+                ? DateParser.guessFormat(Paths.get(filePath), headers.get(dateIndex))
+                : DateParser.DEFAULT_FORMAT;
 
         // 返回自动识别的列和日期格式
         String[] result = new String[5];
@@ -246,31 +412,6 @@ public class CsvBatchImporter {
         return -1; // 未找到匹配项
     }
 
-    /**
-     * 根据日期字符串猜测日期格式
-     * 
-     * @param dateStr 日期字符串
-     * @return 最可能的日期格式
-     */
-    private String guessDateFormat(String dateStr) {
-        String[][] formats = {
-                { "yyyy-MM-dd", "\\d{4}-\\d{1,2}-\\d{1,2}" },
-                { "MM/dd/yyyy", "\\d{1,2}/\\d{1,2}/\\d{4}" },
-                { "dd/MM/yyyy", "\\d{1,2}/\\d{1,2}/\\d{4}" },
-                { "yyyy/MM/dd", "\\d{4}/\\d{1,2}/\\d{1,2}" },
-                { "dd-MM-yyyy", "\\d{1,2}-\\d{1,2}-\\d{4}" },
-                { "dd.MM.yyyy", "\\d{1,2}\\.\\d{1,2}\\.\\d{4}" }
-        };
-
-        for (String[] format : formats) {
-            if (dateStr.matches(format[1])) {
-                return format[0];
-            }
-        }
-
-        return "yyyy-MM-dd"; // 默认格式
-    }
-
     /**
      * 导入结果类
      */
@@ -283,6 +424,14 @@ public class CsvBatchImporter {
         // 定义失败导入的文件数，初始为 0
         private int totalRecordCount = 0;
         // 定义导入的总记录数，初始为 0
+        private int duplicateRecordCount = 0;
+        // 因账本中已存在而跳过的记录数
+        private long totalMillis = 0;
+        // 整个批次的耗时（毫秒）
+        private long commitMillis = 0;
+        // 写入存储的耗时（毫秒）
+        private final List<FileImportResult> fileResults = new ArrayList<>();
+        // 每个文件的导入结果，按传入的文件顺序
 
         public int getSuccessFileCount() {
             return successFileCount;
@@ -314,10 +463,81 @@ public class CsvBatchImporter {
         }
         // 设置总记录数
 
+        // 获取跳过的重复记录数
+        public int getDuplicateRecordCount() {
+            return duplicateRecordCount;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public long getCommitMillis() {
+            return commitMillis;
+        }
+
+        // 获取每个文件的导入结果
+        public List<FileImportResult> getFileResults() {
+            return Collections.unmodifiableList(fileResults);
+        }
+
+        // 获取整个批次的吞吐量（条/秒）
+        public double getRecordsPerSecond() {
+            return totalMillis > 0 ? totalRecordCount * 1000.0 / totalMillis : 0;
+        }
+
         @Override
         public String toString() {
-            return "成功导入 " + successFileCount + " 个文件，失败 " + failedFileCount + " 个文件，共 " + totalRecordCount + " 条记录";
+            return "成功导入 " + successFileCount + " 个文件，失败 " + failedFileCount + " 个文件，共 " + totalRecordCount + " 条记录，跳过 " + duplicateRecordCount + " 条重复记录，耗时 " + totalMillis + " ms";
             // 重写 toString 方法，返回导入结果的描述
         }
     }
+
+    /**
+     * 单个文件的导入结果
+     */
+    public static class FileImportResult {
+        private final String fileName;
+        private int recordCount = 0;
+        private int duplicateCount = 0;
+        private long millis = 0;
+        private boolean success = false;
+
+        public FileImportResult(String fileName) {
+            this.fileName = fileName;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        // 获取该文件读取到的记录数
+        public int getRecordCount() {
+            return recordCount;
+        }
+
+        // 获取该文件中账本已有、因而跳过的记录数
+        public int getDuplicateCount() {
+            return duplicateCount;
+        }
+
+        // 获取解析和分类该文件的耗时（毫秒）
+        public long getMillis() {
+            return millis;
+        }
+
+        // 获取该文件的吞吐量（条/秒）
+        public double getRecordsPerSecond() {
+            return millis > 0 ? recordCount * 1000.0 / millis : 0;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        @Override
+        public String toString() {
+            return fileName + ": " + recordCount + " 条记录（" + duplicateCount + " 条重复），" + millis + " ms" + (success ? "" : "（失败）");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,292 @@
+package com.financetracker.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Parses the dates of an imported CSV column.
+ * The format is guessed once from a sample of the column and then locked in. The common
+ * numeric layouts are read by a hand-written digit scanner, with no regular expressions or
+ * formatters involved. Other patterns use a {@link DateTimeFormatter} that is compiled once
+ * and cached. A value that does not fit the locked format is tried against the other known
+ * layouts, as the import has always done.
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public final class DateParser {
+
+    /**
+     * The format used when nothing better is known.
+     */
+    public static final String DEFAULT_FORMAT = "yyyy-MM-dd";
+
+    /**
+     * The number of leading values of a column worth sampling to guess its format.
+     */
+    public static final int SAMPLE_SIZE = 50;
+
+    // 已知的数字日期布局，顺序即猜测时的优先顺序（月/日在前的美式格式优先于日/月）
+    private static final Layout[] LAYOUTS = {
+        new Layout("yyyy-MM-dd", Order.YMD, '-'),
+        new Layout("MM/dd/yyyy", Order.MDY, '/'),
+        new Layout("dd/MM/yyyy", Order.DMY, '/'),
+        new Layout("yyyy/MM/dd", Order.YMD, '/'),
+        new Layout("dd-MM-yyyy", Order.DMY, '-'),
+        new Layout("dd.MM.yyyy", Order.DMY, '.')
+    };
+
+    // 编译过的 DateTimeFormatter，按模式缓存
+    private static final Map<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+    private final String format;
+    private final Layout layout;
+    private final DateTimeFormatter formatter;
+
+    private DateParser(String format, Layout layout, DateTimeFormatter formatter) {
+        this.format = format;
+        this.layout = layout;
+        this.formatter = formatter;
+    }
+
+    /**
+     * Creates a parser locked to a format. An invalid pattern leaves only the known layouts.
+     *
+     * @param format The date pattern, e.g. "yyyy-MM-dd"; null for the default
+     * @return The parser
+     */
+    public static DateParser forFormat(String format) {
+        if (format == null || format.trim().isEmpty()) {
+            format = DEFAULT_FORMAT;
+        }
+        Layout layout = findLayout(format);
+        DateTimeFormatter formatter = layout == null ? getFormatter(format) : null;
+        return new DateParser(format, layout, formatter);
+    }
+
+    /**
+     * Guesses the format of a date column from a sample of its values.
+     * The known layout that reads the most values wins; ties go to the earlier layout, so
+     * "01/02/2024" on its own is taken as month first unless another value such as
+     * "13/02/2024" only fits day first.
+     *
+     * @param samples Date values from the column
+     * @return The guessed pattern, or {@link #DEFAULT_FORMAT} if no layout fits
+     */
+    public static String guessFormat(Iterable<String> samples) {
+        int[] counts = new int[LAYOUTS.length];
+        for (String sample : samples) {
+            if (sample == null) {
+                continue;
+            }
+            String value = sample.trim();
+            for (int i = 0; i < LAYOUTS.length; i++) {
+                if (LAYOUTS[i].parse(value) != null) {
+                    counts[i]++;
+                }
+            }
+        }
+        int best = -1;
+        for (int i = 0; i < LAYOUTS.length; i++) {
+            if (counts[i] > 0 && (best < 0 || counts[i] > counts[best])) {
+                best = i;
+            }
+        }
+        return best < 0 ? DEFAULT_FORMAT : LAYOUTS[best].pattern;
+    }
+
+    /**
+     * Guesses the format of a date column from the first {@link #SAMPLE_SIZE} rows of a CSV
+     * file, reading the file the same way the import does, so quoted fields are handled.
+     *
+     * @param csv The CSV file, with a header row
+     * @param dateColumn The name of the date column, ignoring case
+     * @return The guessed pattern, or {@link #DEFAULT_FORMAT} if the file or the column cannot be read
+     */
+    public static String guessFormat(Path csv, String dateColumn) {
+        if (dateColumn == null) {
+            return DEFAULT_FORMAT;
+        }
+        List<String> samples = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT.builder()
+                    .setHeader()
+                    .setSkipHeaderRecord(true)
+                    .setIgnoreHeaderCase(true)
+                    .setTrim(true)
+                    .build())) {
+            for (CSVRecord record : parser) {
+                if (samples.size() >= SAMPLE_SIZE) {
+                    break;
+                }
+                if (record.isSet(dateColumn)) {
+                    samples.add(record.get(dateColumn));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 读取失败时用已取得的样本，没有样本则为默认格式
+        }
+        return guessFormat(samples);
+    }
+
+    /**
+     * @return The format this parser is locked to
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Parses a date with the locked format, falling back to the other known layouts.
+     *
+     * @param value The date string
+     * @return The date, or null if it cannot be parsed
+     */
+    public LocalDate parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.trim();
+        LocalDate date = parseLocked(text);
+        if (date != null) {
+            return date;
+        }
+        // 个别行的格式与整列不同时，依次尝试其他已知格式
+        for (Layout other : LAYOUTS) {
+            if (other != layout) {
+                date = other.parse(text);
+                if (date != null) {
+                    return date;
+                }
+            }
+        }
+        return null;
+    }
+
+    private LocalDate parseLocked(String text) {
+        if (layout != null) {
+            return layout.parse(text);
+        }
+        if (formatter != null) {
+            try {
+                return LocalDate.parse(text, formatter);
+            } catch (DateTimeException e) {
+                // 交给其他格式处理
+            }
+        }
+        return null;
+    }
+
+    private static Layout findLayout(String format) {
+        for (Layout layout : LAYOUTS) {
+            if (layout.pattern.equals(format)) {
+                return layout;
+            }
+        }
+        return null;
+    }
+
+    private static DateTimeFormatter getFormatter(String format) {
+        DateTimeFormatter formatter = FORMATTERS.get(format);
+        if (formatter == null) {
+            try {
+                formatter = DateTimeFormatter.ofPattern(format);
+            } catch (IllegalArgumentException e) {
+                System.err.println("无效的日期格式: " + format + "，将尝试常见日期格式");
+                return null;
+            }
+            FORMATTERS.putIfAbsent(format, formatter);
+        }
+        return formatter;
+    }
+
+    private enum Order {
+        YMD, MDY, DMY
+    }
+
+    /**
+     * A numeric layout of three digit groups separated by one character, with a four digit
+     * year and one or two digit month and day.
+     */
+    private static final class Layout {
+        final String pattern;
+        final Order order;
+        final char separator;
+
+        Layout(String pattern, Order order, char separator) {
+            this.pattern = pattern;
+            this.order = order;
+            this.separator = separator;
+        }
+
+        LocalDate parse(String text) {
+            int length = text.length();
+            int first = 0;
+            int second = 0;
+            int third = 0;
+            int field = 0;
+            int digits = 0;
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    if (++digits > 4) {
+                        return null;
+                    }
+                    int digit = c - '0';
+                    if (field == 0) {
+                        first = first * 10 + digit;
+                    } else if (field == 1) {
+                        second = second * 10 + digit;
+                    } else {
+                        third = third * 10 + digit;
+                    }
+                } else if (c == separator && field < 2 && digits > 0 && isValidWidth(field, digits)) {
+                    field++;
+                    digits = 0;
+                } else {
+                    return null;
+                }
+            }
+            if (field != 2 || !isValidWidth(2, digits)) {
+                return null;
+            }
+            switch (order) {
+                case YMD:
+                    return toDate(first, second, third);
+                case MDY:
+                    return toDate(third, first, second);
+                default:
+                    return toDate(third, second, first);
+            }
+        }
+
+        private boolean isValidWidth(int field, int digits) {
+            boolean isYear = order == Order.YMD ? field == 0 : field == 2;
+            return isYear ? digits == 4 : digits >= 1 && digits <= 2;
+        }
+
+        private static LocalDate toDate(int year, int month, int day) {
+            if (month < 1 || month > 12 || day < 1 || day > 31) {
+                return null;
+            }
+            // 与 DateTimeFormatter 的默认（SMART）解析一致：超出当月天数的日期取当月最后一天
+            int lastDay = Month.of(month).length(Year.isLeap(year));
+            return LocalDate.of(year, month, Math.min(day, lastDay));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.financetracker.service;
+
+import com.financetracker.model.SavingGoal;
+import com.financetracker.model.Settings;
+import com.financetracker.model.SpecialDate;
+import com.financetracker.model.Transaction;
+
+/**
+ * A change to the application's data, published by the services on a {@link DomainEventBus}
+ * after it has been saved. Each kind of change is its own subclass, so subscribers can apply
+ * just the change they care about instead of reloading everything.
+ */
+public abstract class DomainEvent {
+
+    private DomainEvent() {
+    }
+
+    /**
+     * Base of the events that change the ledger, for subscribers that react to any of them.
+     */
+    public abstract static class TransactionEvent extends DomainEvent {
+        private TransactionEvent() {
+        }
+    }
+
+    /**
+     * A single transaction was added.
+     */
+    public static final class TransactionAdded extends TransactionEvent {
+        private final Transaction transaction;
+
+        public TransactionAdded(Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        public Transaction getTransaction() {
+            return transaction;
+        }
+    }
+
+    /**
+     * A single transaction was changed, possibly moving it to another date.
+     */
+    public static final class TransactionUpdated extends TransactionEvent {
+        private final Transaction transaction;
+
+        public TransactionUpdated(Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        public Transaction getTransaction() {
+            return transaction;
+        }
+    }
+
+    /**
+     * A single transaction was deleted.
+     */
+    public static final class TransactionDeleted extends TransactionEvent {
+        private final Transaction transaction;
+
+        public TransactionDeleted(Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        public Transaction getTransaction() {
+            return transaction;
+        }
+    }
+
+    /**
+     * Many transactions changed at once, e.g. by an import or by replacing the ledger.
+     * One event is published for the whole operation rather than one per transaction.
+     */
+    public static final class TransactionsChanged extends TransactionEvent {
+        private final int count;
+
+        public TransactionsChanged(int count) {
+            this.count = count;
+        }
+
+        /**
+         * @return The number of transactions added or written
+         */
+        public int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * The settings were saved, e.g. the budget, the categories or the account balance changed.
+     */
+    public static final class SettingsChanged extends DomainEvent {
+        private final Settings settings;
+
+        public SettingsChanged(Settings settings) {
+            this.settings = settings;
+        }
+
+        public Settings getSettings() {
+            return settings;
+        }
+    }
+
+    /**
+     * A special date was added, changed or deleted.
+     */
+    public static final class SpecialDateChanged extends DomainEvent {
+        private final SpecialDate specialDate;
+
+        public SpecialDateChanged(SpecialDate specialDate) {
+            this.specialDate = specialDate;
+        }
+
+        /**
+         * @return The special date, or null if all of them were cleared
+         */
+        public SpecialDate getSpecialDate() {
+            return specialDate;
+        }
+    }
+
+    /**
+     * A saving goal was added, changed or deleted.
+     */
+    public static final class GoalChanged extends DomainEvent {
+        private final SavingGoal goal;
+
+        public GoalChanged(SavingGoal goal) {
+            this.goal = goal;
+        }
+
+        public SavingGoal getGoal() {
+            return goal;
+        }
+    }
+}
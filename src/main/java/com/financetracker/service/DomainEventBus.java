@@ -0,0 +1,72 @@
+package com.financetracker.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers {@link DomainEvent}s from the services to the panels and caches that subscribed
+ * to them. A subscriber to a class also receives its subclasses, e.g. subscribing to
+ * {@link DomainEvent.TransactionEvent} receives every change to the ledger.
+ * Events are delivered on the thread that published them, which for imports is a background
+ * thread; subscribers that touch Swing components must hand the work to the event thread.
+ */
+public final class DomainEventBus {
+
+    private static final Logger LOGGER = Logger.getLogger(DomainEventBus.class.getName());
+
+    /**
+     * Receives events of one type.
+     *
+     * @param <E> The event type
+     */
+    public interface Subscriber<E extends DomainEvent> {
+        void onEvent(E event);
+    }
+
+    private final Map<Class<?>, List<Subscriber<?>>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Subscribes to events of a type and its subclasses.
+     *
+     * @param type The event type
+     * @param subscriber The subscriber
+     * @param <E> The event type
+     */
+    public <E extends DomainEvent> void subscribe(Class<E> type, Subscriber<? super E> subscriber) {
+        subscribers.computeIfAbsent(type, k -> new CopyOnWriteArrayList<>()).add(subscriber);
+    }
+
+    public <E extends DomainEvent> void unsubscribe(Class<E> type, Subscriber<? super E> subscriber) {
+        List<Subscriber<?>> list = subscribers.get(type);
+        if (list != null) {
+            list.remove(subscriber);
+        }
+    }
+
+    /**
+     * Delivers an event to the subscribers of its class and of its superclasses.
+     * A failing subscriber is logged and does not stop the others.
+     *
+     * @param event The event
+     */
+    @SuppressWarnings("unchecked")
+    public void publish(DomainEvent event) {
+        for (Class<?> type = event.getClass(); type != null && DomainEvent.class.isAssignableFrom(type); type = type.getSuperclass()) {
+            List<Subscriber<?>> list = subscribers.get(type);
+            if (list == null) {
+                continue;
+            }
+            for (Subscriber<?> subscriber : list) {
+                try {
+                    ((Subscriber<DomainEvent>) subscriber).onEvent(event);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Event subscriber failed for " + event.getClass().getSimpleName(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.financetracker.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Financial months as defined by {@link com.financetracker.model.Settings#getMonthStartDay()}.
+ * A financial month is identified by the calendar month it starts in: with a start day of 25,
+ * the financial month 2024-03 runs from 2024-03-25 to 2024-04-24. Start days past the end of a
+ * short month are clamped to its last day.
+ */
+public final class FinancialCalendar {
+
+    private final int monthStartDay;
+
+    /**
+     * Constructor for FinancialCalendar.
+     *
+     * @param monthStartDay The day of the month on which a financial month starts (1-31)
+     */
+    public FinancialCalendar(int monthStartDay) {
+        if (monthStartDay < 1 || monthStartDay > 31) {
+            throw new IllegalArgumentException("Month start day must be between 1 and 31");
+        }
+        this.monthStartDay = monthStartDay;
+    }
+
+    public int getMonthStartDay() {
+        return monthStartDay;
+    }
+
+    /**
+     * Gets the first day of a financial month.
+     *
+     * @param period The financial month
+     * @return The start date (inclusive)
+     */
+    public LocalDate getStartDate(YearMonth period) {
+        return period.atDay(Math.min(monthStartDay, period.lengthOfMonth()));
+    }
+
+    /**
+     * Gets the last day of a financial month, the day before the next one starts.
+     *
+     * @param period The financial month
+     * @return The end date (inclusive)
+     */
+    public LocalDate getEndDate(YearMonth period) {
+        return getStartDate(period.plusMonths(1)).minusDays(1);
+    }
+
+    /**
+     * Gets the financial month a date belongs to.
+     *
+     * @param date The date
+     * @return The financial month
+     */
+    public YearMonth periodOf(LocalDate date) {
+        YearMonth month = YearMonth.from(date);
+        return date.isBefore(getStartDate(month)) ? month.minusMonths(1) : month;
+    }
+
+    /**
+     * Gets the financial month that contains today.
+     *
+     * @return The current financial month
+     */
+    public YearMonth currentPeriod() {
+        return periodOf(LocalDate.now());
+    }
+}
@@ -0,0 +1,445 @@
+package com.financetracker.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs long import and export jobs in the background on a bounded pool of threads.
+ * Jobs beyond the pool size wait in a queue, so large I/O jobs never compete for more than a
+ * few threads and never run on the event dispatch thread. Each job reports its progress and
+ * throughput, and can be cancelled: a queued job is dropped, a running job is asked to stop
+ * and checks {@link Job#isCancelRequested()} at safe points. The most recent jobs are kept
+ * as a history for the status bar.
+ */
+public final class JobScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(JobScheduler.class.getName());
+
+    /**
+     * The number of jobs that run at the same time when nothing else is configured.
+     */
+    public static final int DEFAULT_CONCURRENCY = 2;
+
+    // 历史中保留的已结束任务数量
+    private static final int HISTORY_SIZE = 20;
+
+    /**
+     * The life cycle of a job.
+     */
+    public enum State {
+        QUEUED("等待中"),
+        RUNNING("运行中"),
+        SUCCEEDED("已完成"),
+        FAILED("失败"),
+        CANCELLED("已取消");
+
+        private final String displayName;
+
+        State(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    /**
+     * The work of a job.
+     *
+     * @param <T> The result type
+     */
+    public interface Task<T> {
+        /**
+         * Runs the job on a worker thread.
+         *
+         * @param job The job, for reporting progress and checking for cancellation
+         * @return The result
+         * @throws Exception If the job fails; a {@link CancellationException} marks it cancelled
+         */
+        T run(Job job) throws Exception;
+    }
+
+    /**
+     * Receives the result of a job once it has finished.
+     *
+     * @param <T> The result type
+     */
+    public interface Callback<T> {
+        /**
+         * Called on the worker thread when the job has finished, whatever its final state.
+         *
+         * @param job The job
+         * @param result The result, or null if the job failed or was cancelled before returning one
+         */
+        void finished(Job job, T result);
+    }
+
+    /**
+     * Notified whenever a job is submitted, starts, reports progress or finishes.
+     */
+    public interface Listener {
+        /**
+         * Called on the thread that changed the job, which is usually a worker thread.
+         *
+         * @param job The job that changed
+         */
+        void jobChanged(Job job);
+    }
+
+    private final ExecutorService executor;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // 最近的任务，最新的在前
+    private final Deque<Job> history = new ArrayDeque<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    /**
+     * Constructor for JobScheduler.
+     *
+     * @param concurrency The number of jobs that run at the same time
+     */
+    public JobScheduler(int concurrency) {
+        AtomicInteger threadCount = new AtomicInteger(1);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency), runnable -> {
+            Thread thread = new Thread(runnable, "background-job-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Queues a job.
+     *
+     * @param name The name shown in the job history
+     * @param task The work
+     * @param callback Receives the result, may be null
+     * @param <T> The result type
+     * @return The job
+     */
+    public <T> Job submit(String name, Task<T> task, Callback<T> callback) {
+        Job job = new Job(nextId.getAndIncrement(), name);
+        synchronized (history) {
+            history.addFirst(job);
+            trimHistory();
+        }
+        try {
+            executor.execute(() -> run(job, task, callback));
+        } catch (RuntimeException e) {
+            // 调度器已关闭
+            job.finish(State.FAILED, e);
+            notifyListeners(job);
+            if (callback != null) {
+                callback.finished(job, null);
+            }
+            return job;
+        }
+        notifyListeners(job);
+        return job;
+    }
+
+    /**
+     * @return The running, queued and recently finished jobs, newest first
+     */
+    public List<Job> getJobs() {
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+
+    /**
+     * @return The number of jobs that are queued or running
+     */
+    public int getActiveJobCount() {
+        int count = 0;
+        for (Job job : getJobs()) {
+            if (!job.getState().isFinished()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Cancels every job and waits a few seconds for the running ones to stop.
+     */
+    public void shutdown() {
+        for (Job job : getJobs()) {
+            job.cancel();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOGGER.warning("Background jobs did not stop within 5 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> void run(Job job, Task<T> task, Callback<T> callback) {
+        if (!job.start()) {
+            // 排队期间已被取消，只通知调用方
+            if (callback != null) {
+                callback.finished(job, null);
+            }
+            return;
+        }
+        notifyListeners(job);
+        T result = null;
+        try {
+            result = task.run(job);
+            job.finish(job.isCancelRequested() ? State.CANCELLED : State.SUCCEEDED, null);
+        } catch (CancellationException e) {
+            job.finish(State.CANCELLED, null);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Background job failed: " + job.getName(), e);
+            job.finish(State.FAILED, e);
+        }
+        notifyListeners(job);
+        if (callback != null) {
+            try {
+                callback.finished(job, result);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Callback of background job failed: " + job.getName(), e);
+            }
+        }
+        synchronized (history) {
+            trimHistory();
+        }
+    }
+
+    /**
+     * Drops the oldest finished jobs beyond {@link #HISTORY_SIZE}; unfinished jobs are kept.
+     */
+    private void trimHistory() {
+        int excess = history.size() - HISTORY_SIZE;
+        for (Iterator<Job> it = history.descendingIterator(); excess > 0 && it.hasNext(); ) {
+            if (it.next().getState().isFinished()) {
+                it.remove();
+                excess--;
+            }
+        }
+    }
+
+    private void notifyListeners(Job job) {
+        for (Listener listener : listeners) {
+            try {
+                listener.jobChanged(job);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Job listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * A submitted job. Its state and progress can be read from any thread.
+     */
+    public final class Job {
+        private final int id;
+        private final String name;
+        private final long submittedAt = System.currentTimeMillis();
+        private volatile State state = State.QUEUED;
+        private volatile boolean cancelRequested = false;
+        private volatile long done = 0;
+        private volatile long total = -1;
+        private volatile String message = "";
+        private volatile long startNanos = 0;
+        private volatile long elapsedNanos = 0;
+        private volatile Throwable error;
+
+        private Job(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * @return The time the job was submitted, in milliseconds since the epoch
+         */
+        public long getSubmittedAt() {
+            return submittedAt;
+        }
+
+        /**
+         * @return The number of items processed so far
+         */
+        public long getDone() {
+            return done;
+        }
+
+        /**
+         * @return The total number of items, or -1 if it is not known
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * @return What the job is doing right now, may be empty
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return The progress between 0 and 1, or -1 if the total is not known
+         */
+        public double getFraction() {
+            long t = total;
+            return t > 0 ? Math.min(1.0, done / (double) t) : -1;
+        }
+
+        /**
+         * @return The time the job has been running, or ran for, in milliseconds
+         */
+        public long getElapsedMillis() {
+            long start = startNanos;
+            if (start == 0) {
+                return 0;
+            }
+            return (state.isFinished() ? elapsedNanos : System.nanoTime() - start) / 1_000_000;
+        }
+
+        /**
+         * @return The number of items processed per second
+         */
+        public double getItemsPerSecond() {
+            long millis = getElapsedMillis();
+            return millis > 0 ? done * 1000.0 / millis : 0;
+        }
+
+        /**
+         * @return The error the job failed with, or null
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * Reports progress. Called by the task.
+         *
+         * @param done The number of items processed so far
+         * @param total The total number of items, or -1 if it is not known
+         */
+        public void setProgress(long done, long total) {
+            this.done = done;
+            this.total = total;
+            notifyListeners(this);
+        }
+
+        /**
+         * Reports progress with a description of the current step. Called by the task.
+         *
+         * @param done The number of items processed so far
+         * @param total The total number of items, or -1 if it is not known
+         * @param message What the job is doing
+         */
+        public void setProgress(long done, long total, String message) {
+            this.message = message != null ? message : "";
+            setProgress(done, total);
+        }
+
+        /**
+         * @return true once the job has been asked to stop
+         */
+        public boolean isCancelRequested() {
+            return cancelRequested;
+        }
+
+        /**
+         * Stops the task if the job has been asked to stop. Called by the task at safe points.
+         *
+         * @throws CancellationException If cancellation was requested
+         */
+        public void checkCancelled() {
+            if (cancelRequested) {
+                throw new CancellationException(name + " was cancelled");
+            }
+        }
+
+        /**
+         * Asks the job to stop. A queued job is dropped right away; a running job stops at its
+         * next safe point, keeping whatever it had already saved.
+         */
+        public void cancel() {
+            if (state.isFinished()) {
+                return;
+            }
+            cancelRequested = true;
+            synchronized (this) {
+                if (state == State.QUEUED) {
+                    // 工作线程取到它时会直接跳过
+                    finish(State.CANCELLED, null);
+                }
+            }
+            notifyListeners(this);
+        }
+
+        private synchronized boolean start() {
+            if (state != State.QUEUED) {
+                return false;
+            }
+            state = State.RUNNING;
+            startNanos = System.nanoTime();
+            return true;
+        }
+
+        private synchronized void finish(State finalState, Throwable failure) {
+            if (startNanos != 0) {
+                elapsedNanos = System.nanoTime() - startNanos;
+            }
+            error = failure;
+            state = finalState;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(name).append(" - ").append(state.getDisplayName());
+            double fraction = getFraction();
+            if (state == State.RUNNING && fraction >= 0) {
+                text.append(' ').append(Math.round(fraction * 100)).append('%');
+            }
+            if (done > 0) {
+                text.append("，").append(done).append(total > 0 ? "/" + total : "").append(" 项");
+            }
+            if (startNanos != 0 && done > 0) {
+                text.append("，").append(Math.round(getItemsPerSecond())).append(" 项/秒");
+            }
+            return text.toString();
+        }
+    }
+}
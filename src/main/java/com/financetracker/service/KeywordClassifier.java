@@ -0,0 +1,417 @@
+package com.financetracker.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Keyword rule engine used to categorise transactions from their description.
+ * Every keyword of every rule is compiled into one Aho-Corasick automaton, so a description is
+ * scanned once and all rules are then decided from the set of keywords it contains.
+ *
+ * Rules are plain text so that they can be stored in {@link com.financetracker.model.Settings}
+ * and edited without recompiling. Each rule is a line {@code Name: condition}. The condition
+ * matches if any of its comma-separated terms matches. A term is a list of groups joined by
+ * {@code &}, and every group must match. A group is a list of keywords separated by {@code |}
+ * and matches if the description contains any of them. A group prefixed with {@code !}
+ * matches if the description contains none of them. For example:
+ * <pre>
+ * Interest: interest, bank &amp; deposit
+ * Communication: phone &amp; !bill, mobile, communication
+ * </pre>
+ * Keywords are matched case-insensitively. Rules are tried in order and the first match wins.
+ */
+public final class KeywordClassifier {
+
+    public static final String OTHER_INCOME = "Other Income";
+    public static final String OTHER_EXPENSE = "Others";
+    public static final String INCOME = "income";
+    public static final String EXPENSE = "expense";
+
+    public static final List<String> DEFAULT_INCOME_RULES = List.of(
+            "Salary: salary, payroll",
+            "Bonus: bonus, award",
+            "Investment: invest, stock, fund, financial",
+            "Interest: interest, bank & deposit",
+            "Refund: refund, reimbursement",
+            "Gift: gift, present",
+            "Freelance/Part-time: freelance, part-time job");
+
+    public static final List<String> DEFAULT_EXPENSE_RULES = List.of(
+            "Food: food, eat, meal, restaurant, grocery, supermarket, dining",
+            "Clothing: shop|buy|purchase|store|mall|online|taobao|jd|amazon|apparel & cloth|shoe|bag|wear|fashion",
+            "Shopping: shop, buy, purchase, store, mall, online, taobao, jd, amazon, apparel",
+            "Transportation: traffic, bus, subway, taxi, didi, train, flight, gas, fuel, parking",
+            "Housing: house, rent, mortgage, hotel, property fee, accommodation",
+            "Utilities: utility, water, electricity, gas, internet, phone & bill",
+            "Communication: phone & !bill, mobile, communication",
+            "Entertainment: entertainment, movie, game, travel, concert, sport, hobby",
+            "Healthcare: medical, medicine, hospital, health, doctor, pharmacy",
+            "Education: education, school, course, book, training, tuition",
+            "Kids: child, kid, baby",
+            "Pets: pet, cat, dog",
+            "Insurance: insurance",
+            "Taxes: tax",
+            "Donation: donation, charity",
+            "Repairs/Maintenance: repair, maintenance",
+            "Fitness/Sports: gym, fitness",
+            "Subscriptions/Memberships: subscription, membership");
+
+    // 收入关键词优先，其次是支出关键词，最后是常见的收入来源名称（同时出现转出、支出等词时仍为支出）
+    public static final List<String> DEFAULT_TYPE_RULES = List.of(
+            "income: salary, income, bonus, refund, reimbursement, interest, dividend, return, rebate, subsidy, "
+                    + "allowance, benefit, rent income, part-time, side job, gift, payroll, revenue, earnings",
+            "expense: expense, cost, purchase, buy, pay, payment, bill, fee, charge, spend, spent, order",
+            "expense: 工商银行|农业银行|建设银行|中国银行|交通银行|招商银行|邮政储蓄|支付宝|微信|公司|单位|企业|集团|有限公司|银行转账|转账收入"
+                    + " & 转出|支出|付款|消费",
+            "income: 工商银行, 农业银行, 建设银行, 中国银行, 交通银行, 招商银行, 邮政储蓄, 支付宝, 微信, 公司, 单位, 企业, 集团, "
+                    + "有限公司, 银行转账, 转账收入");
+
+    private static final KeywordClassifier DEFAULT =
+            new KeywordClassifier(DEFAULT_INCOME_RULES, DEFAULT_EXPENSE_RULES, DEFAULT_TYPE_RULES);
+
+    private final List<String> incomeRuleText;
+    private final List<String> expenseRuleText;
+    private final List<String> typeRuleText;
+
+    private final Rule[] incomeRules;
+    private final Rule[] expenseRules;
+    private final Rule[] typeRules;
+    private final List<String> incomeCategoryNames;
+    private final List<String> expenseCategoryNames;
+
+    // Aho-Corasick 自动机：每个状态的转移按字符排序，便于二分查找
+    private final char[][] transitionChars;
+    private final int[][] transitionTargets;
+    private final int[] failure;
+    // 到达该状态时匹配到的关键词（已合并失败链上的输出）
+    private final int[][] outputs;
+    private final int keywordCount;
+    private final boolean digitKeywords;
+
+    /**
+     * Compiles a classifier.
+     *
+     * @param incomeRules Rules that name the income categories, in priority order
+     * @param expenseRules Rules that name the expense categories, in priority order
+     * @param typeRules Rules named {@link #INCOME} or {@link #EXPENSE} that decide the type
+     * @throws IllegalArgumentException If a rule has no name or no keywords
+     */
+    public KeywordClassifier(List<String> incomeRules, List<String> expenseRules, List<String> typeRules) {
+        this.incomeRuleText = Collections.unmodifiableList(new ArrayList<>(incomeRules));
+        this.expenseRuleText = Collections.unmodifiableList(new ArrayList<>(expenseRules));
+        this.typeRuleText = Collections.unmodifiableList(new ArrayList<>(typeRules));
+
+        Map<String, Integer> keywordIds = new LinkedHashMap<>();
+        this.incomeRules = parseRules(incomeRuleText, keywordIds);
+        this.expenseRules = parseRules(expenseRuleText, keywordIds);
+        this.typeRules = parseRules(typeRuleText, keywordIds);
+        for (Rule rule : this.typeRules) {
+            if (!rule.name.equals(INCOME) && !rule.name.equals(EXPENSE)) {
+                throw new IllegalArgumentException("Type rules must be named income or expense: " + rule.name);
+            }
+        }
+        this.keywordCount = keywordIds.size();
+        this.digitKeywords = keywordIds.keySet().stream().anyMatch(k -> k.matches(".*[0-9#].*"));
+        this.incomeCategoryNames = categoryNames(this.incomeRules, OTHER_INCOME);
+        this.expenseCategoryNames = categoryNames(this.expenseRules, OTHER_EXPENSE);
+
+        // 构建字典树
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> stateOutputs = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        stateOutputs.add(new ArrayList<>());
+        for (Map.Entry<String, Integer> entry : keywordIds.entrySet()) {
+            int state = 0;
+            for (char c : entry.getKey().toCharArray()) {
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    stateOutputs.add(new ArrayList<>());
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            stateOutputs.get(state).add(entry.getValue());
+        }
+
+        int stateCount = trie.size();
+        transitionChars = new char[stateCount][];
+        transitionTargets = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            TreeMap<Character, Integer> edges = trie.get(state);
+            transitionChars[state] = new char[edges.size()];
+            transitionTargets[state] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                transitionChars[state][i] = edge.getKey();
+                transitionTargets[state][i] = edge.getValue();
+                i++;
+            }
+        }
+
+        // 按层次计算失败指针，并把失败状态的输出合并进来
+        failure = new int[stateCount];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : transitionTargets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            stateOutputs.get(state).addAll(stateOutputs.get(failure[state]));
+            for (int i = 0; i < transitionChars[state].length; i++) {
+                char c = transitionChars[state][i];
+                int child = transitionTargets[state][i];
+                int fallback = failure[state];
+                int target = step(fallback, c);
+                while (target < 0 && fallback != 0) {
+                    fallback = failure[fallback];
+                    target = step(fallback, c);
+                }
+                failure[child] = target < 0 ? 0 : target;
+                queue.add(child);
+            }
+        }
+        outputs = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            outputs[state] = stateOutputs.get(state).stream().mapToInt(Integer::intValue).distinct().toArray();
+        }
+    }
+
+    /**
+     * @return The classifier compiled from the built-in rules
+     */
+    public static KeywordClassifier getDefault() {
+        return DEFAULT;
+    }
+
+    public List<String> getIncomeRules() {
+        return incomeRuleText;
+    }
+
+    public List<String> getExpenseRules() {
+        return expenseRuleText;
+    }
+
+    public List<String> getTypeRules() {
+        return typeRuleText;
+    }
+
+    /**
+     * Whether a keyword contains a digit or '#', in which case descriptions that differ only in
+     * their digits may classify differently.
+     */
+    public boolean hasDigitKeywords() {
+        return digitKeywords;
+    }
+
+    /**
+     * Scans a description once for every keyword of every rule.
+     *
+     * @param description The transaction description, may be null
+     * @return The keywords found in the description
+     */
+    public Matches scan(String description) {
+        BitSet found = new BitSet(keywordCount);
+        if (description != null) {
+            String text = description.toLowerCase();
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                int next = step(state, c);
+                while (next < 0 && state != 0) {
+                    state = failure[state];
+                    next = step(state, c);
+                }
+                state = next < 0 ? 0 : next;
+                for (int keyword : outputs[state]) {
+                    found.set(keyword);
+                }
+            }
+        }
+        return new Matches(found);
+    }
+
+    /**
+     * Gets the category of a description.
+     *
+     * @param matches The result of {@link #scan(String)}
+     * @param isExpense Whether to use the expense or the income rules
+     * @return The first matching category, or {@link #OTHER_EXPENSE} / {@link #OTHER_INCOME}
+     */
+    public String categorize(Matches matches, boolean isExpense) {
+        String category = matchCategory(matches, isExpense);
+        if (category != null) {
+            return category;
+        }
+        return isExpense ? OTHER_EXPENSE : OTHER_INCOME;
+    }
+
+    /**
+     * Gets the category of a description without falling back to a catch-all category.
+     *
+     * @param matches The result of {@link #scan(String)}
+     * @param isExpense Whether to use the expense or the income rules
+     * @return The first matching category, or null if no rule matched
+     */
+    public String matchCategory(Matches matches, boolean isExpense) {
+        Rule rule = firstMatch(isExpense ? expenseRules : incomeRules, matches.found);
+        return rule == null ? null : rule.name;
+    }
+
+    /**
+     * Decides from the keywords of a description whether it is an expense.
+     *
+     * @param matches The result of {@link #scan(String)}
+     * @return The type of the first matching type rule; an expense if none matches
+     */
+    public boolean isExpense(Matches matches) {
+        Rule rule = firstMatch(typeRules, matches.found);
+        return rule == null || rule.name.equals(EXPENSE);
+    }
+
+    /**
+     * Gets the category names of the income or expense rules, including the catch-all category.
+     *
+     * @param isExpense Whether to list the expense or the income categories
+     * @return The category names in rule order
+     */
+    public List<String> getCategoryNames(boolean isExpense) {
+        return isExpense ? expenseCategoryNames : incomeCategoryNames;
+    }
+
+    private static List<String> categoryNames(Rule[] rules, String other) {
+        List<String> names = new ArrayList<>();
+        for (Rule rule : rules) {
+            if (!names.contains(rule.name)) {
+                names.add(rule.name);
+            }
+        }
+        if (!names.contains(other)) {
+            names.add(other);
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    private int step(int state, char c) {
+        int index = Arrays.binarySearch(transitionChars[state], c);
+        return index < 0 ? -1 : transitionTargets[state][index];
+    }
+
+    private static Rule firstMatch(Rule[] rules, BitSet found) {
+        for (Rule rule : rules) {
+            if (rule.matches(found)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private static Rule[] parseRules(List<String> lines, Map<String, Integer> keywordIds) {
+        List<Rule> rules = new ArrayList<>();
+        for (String line : lines) {
+            if (line == null || line.trim().isEmpty() || line.trim().startsWith("#")) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0 || line.substring(0, colon).trim().isEmpty()) {
+                throw new IllegalArgumentException("Rule has no name: " + line);
+            }
+            String name = line.substring(0, colon).trim();
+            List<Group[]> terms = new ArrayList<>();
+            for (String termText : line.substring(colon + 1).split(",")) {
+                List<Group> groups = new ArrayList<>();
+                for (String groupText : termText.split("&")) {
+                    String text = groupText.trim();
+                    boolean negated = text.startsWith("!");
+                    if (negated) {
+                        text = text.substring(1);
+                    }
+                    List<Integer> ids = new ArrayList<>();
+                    for (String keyword : text.split("\\|")) {
+                        String normalised = keyword.trim().toLowerCase();
+                        if (!normalised.isEmpty()) {
+                            ids.add(keywordIds.computeIfAbsent(normalised, k -> keywordIds.size()));
+                        }
+                    }
+                    if (!ids.isEmpty()) {
+                        groups.add(new Group(negated, ids.stream().mapToInt(Integer::intValue).toArray()));
+                    }
+                }
+                if (!groups.isEmpty()) {
+                    terms.add(groups.toArray(new Group[0]));
+                }
+            }
+            if (terms.isEmpty()) {
+                throw new IllegalArgumentException("Rule has no keywords: " + line);
+            }
+            rules.add(new Rule(name, terms.toArray(new Group[0][])));
+        }
+        return rules.toArray(new Rule[0]);
+    }
+
+    /**
+     * Keywords found in one description.
+     */
+    public static final class Matches {
+        private final BitSet found;
+
+        private Matches(BitSet found) {
+            this.found = found;
+        }
+    }
+
+    private static final class Rule {
+        final String name;
+        // 任一项满足即匹配；每一项中的所有组都必须满足
+        final Group[][] terms;
+
+        Rule(String name, Group[][] terms) {
+            this.name = name;
+            this.terms = terms;
+        }
+
+        boolean matches(BitSet found) {
+            for (Group[] term : terms) {
+                boolean all = true;
+                for (Group group : term) {
+                    if (!group.matches(found)) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (all) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Group {
+        final boolean negated;
+        final int[] keywords;
+
+        Group(boolean negated, int[] keywords) {
+            this.negated = negated;
+            this.keywords = keywords;
+        }
+
+        boolean matches(BitSet found) {
+            for (int keyword : keywords) {
+                if (found.get(keyword)) {
+                    return !negated;
+                }
+            }
+            return negated;
+        }
+    }
+}
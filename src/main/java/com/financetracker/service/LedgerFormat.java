@@ -0,0 +1,33 @@
+package com.financetracker.service;
+
+import com.financetracker.ai.ConfigLoader;
+
+/**
+ * On-disk format of the ledger segments.
+ * Selected with the {@code ledger.format} key in config.properties ({@code csv} or {@code binary});
+ * CSV stays the default so the data files remain readable in a spreadsheet.
+ */
+public enum LedgerFormat {
+    CSV(".csv"),
+    BINARY(".bin");
+
+    private final String fileSuffix;
+
+    LedgerFormat(String fileSuffix) {
+        this.fileSuffix = fileSuffix;
+    }
+
+    public String getFileSuffix() {
+        return fileSuffix;
+    }
+
+    /**
+     * Gets the format configured in config.properties.
+     *
+     * @return The configured format, CSV if none or an unknown value is configured
+     */
+    public static LedgerFormat fromConfig() {
+        String value = ConfigLoader.getProperty("ledger.format", "csv").trim();
+        return "binary".equalsIgnoreCase(value) ? BINARY : CSV;
+    }
+}
@@ -0,0 +1,146 @@
+package com.financetracker.service;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Zero-copy reader for binary ledger segments written by {@link TransactionBinaryCodec}.
+ * The file is mapped with {@link FileChannel#map} and the fixed-width columns (date, amount,
+ * expense flag, category and participant codes) are read in place through a
+ * {@link TransactionCursor}, so aggregations can walk a segment without decoding ids,
+ * descriptions or notes and without creating a Transaction per row.
+ *
+ * On Windows a mapped file cannot be replaced until the mapping is garbage collected, and
+ * Java offers no way to unmap it earlier, so there the file is read into a heap buffer
+ * instead and the segment store can always rewrite it.
+ *
+ * The trailing checksum is not verified here because that would touch every byte of the
+ * file; damaged files are still detected the next time the segment is fully loaded.
+ */
+public final class MappedSegmentReader {
+
+    // Windows 不允许替换仍被映射的文件
+    private static final boolean MAP_FILES = !System.getProperty("os.name", "").startsWith("Windows");
+
+    private MappedSegmentReader() {
+    }
+
+    /**
+     * Maps a binary segment and returns a cursor over its rows.
+     * The mapping is released when the cursor is garbage collected; on Windows the file is
+     * read into memory instead and nothing stays open.
+     *
+     * @param path The binary segment file
+     * @return A cursor positioned before the first row
+     * @throws IOException If the file cannot be mapped or is not a binary ledger file
+     */
+    public static TransactionCursor open(Path path) throws IOException {
+        ByteBuffer buffer;
+        if (MAP_FILES) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        } else {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        }
+        try {
+            if (buffer.getInt() != TransactionBinaryCodec.MAGIC) {
+                throw new IOException("Not a binary ledger file: " + path);
+            }
+            short version = buffer.getShort();
+            if (version != TransactionBinaryCodec.VERSION) {
+                throw new IOException("Unsupported binary ledger version " + version + ": " + path);
+            }
+            int flags = buffer.get();
+            if ((flags & TransactionBinaryCodec.FLAG_AMOUNTS_IN_CENTS) == 0) {
+                // 旧版本以 double 保存金额的分段由 TransactionSegmentStore 读取时改写
+                throw new IOException("Binary ledger file stores double amounts: " + path);
+            }
+            int rows = buffer.getInt();
+            String[] dictionary = new String[buffer.getInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                byte[] utf8 = new byte[buffer.getInt()];
+                buffer.get(utf8);
+                dictionary[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+            int datesOffset = buffer.position();
+            int amountsOffset = datesOffset + rows * Integer.BYTES;
+            int expensesOffset = amountsOffset + rows * Long.BYTES;
+            int categoriesOffset = expensesOffset + rows;
+            int participantsOffset = categoriesOffset + rows * Integer.BYTES;
+            if (participantsOffset + (long) rows * Integer.BYTES > buffer.limit()) {
+                throw new IOException("Binary ledger file is truncated: " + path);
+            }
+            return new MappedCursor(buffer, rows, dictionary, datesOffset, amountsOffset, expensesOffset, categoriesOffset, participantsOffset);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Binary ledger file is damaged: " + path, e);
+        }
+    }
+
+    /**
+     * Cursor that reads each column with absolute gets on the mapped buffer.
+     */
+    private static final class MappedCursor implements TransactionCursor {
+        private final ByteBuffer buffer;
+        private final int rows;
+        private final String[] dictionary;
+        private final int datesOffset;
+        private final int amountsOffset;
+        private final int expensesOffset;
+        private final int categoriesOffset;
+        private final int participantsOffset;
+        private int row = -1;
+
+        MappedCursor(ByteBuffer buffer, int rows, String[] dictionary,
+                int datesOffset, int amountsOffset, int expensesOffset, int categoriesOffset, int participantsOffset) {
+            this.buffer = buffer;
+            this.rows = rows;
+            this.dictionary = dictionary;
+            this.datesOffset = datesOffset;
+            this.amountsOffset = amountsOffset;
+            this.expensesOffset = expensesOffset;
+            this.categoriesOffset = categoriesOffset;
+            this.participantsOffset = participantsOffset;
+        }
+
+        @Override
+        public boolean next() {
+            return ++row < rows;
+        }
+
+        @Override
+        public long getEpochDay() {
+            return buffer.getInt(datesOffset + row * Integer.BYTES);
+        }
+
+        @Override
+        public long getAmountCents() {
+            return buffer.getLong(amountsOffset + row * Long.BYTES);
+        }
+
+        @Override
+        public boolean isExpense() {
+            return buffer.get(expensesOffset + row) != 0;
+        }
+
+        @Override
+        public String getCategory() {
+            return lookup(buffer.getInt(categoriesOffset + row * Integer.BYTES));
+        }
+
+        @Override
+        public String getParticipant() {
+            return lookup(buffer.getInt(participantsOffset + row * Integer.BYTES));
+        }
+
+        private String lookup(int code) {
+            return code == TransactionBinaryCodec.NO_VALUE ? null : dictionary[code];
+        }
+    }
+}
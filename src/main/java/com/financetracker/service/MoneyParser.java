@@ -0,0 +1,151 @@
+package com.financetracker.service;
+
+import com.financetracker.model.Money;
+
+/**
+ * Parses amounts from imported money columns into exact minor units (cents).
+ * The text is scanned once without building intermediate strings or regular expressions.
+ * It accepts what bank exports commonly contain:
+ * <ul>
+ * <li>currency symbols and codes, e.g. "¥1,200.00", "CNY 35.5" or "$12"</li>
+ * <li>thousands separators, e.g. "1,234,567.89", "1.234,56", "1 234,56" or "1'234.50"</li>
+ * <li>negative amounts written as "-12.50", "12.50-" or "(12.50)"</li>
+ * <li>full-width digits and punctuation, e.g. "１２３．４５"</li>
+ * </ul>
+ * When a single '.' or ',' could be either a decimal point or a thousands separator, it is
+ * taken as a decimal point, except that a lone comma followed by exactly three digits is a
+ * thousands separator ("1,234" is 1234). Fractions beyond cents are rounded half up.
+ */
+public final class MoneyParser {
+
+    private static final int MINOR_DIGITS = 2;
+    // long 可以精确表示的十进制位数
+    private static final int MAX_DIGITS = 18;
+
+    private MoneyParser() {
+    }
+
+    /**
+     * Parses an amount into minor units.
+     *
+     * @param text The amount as written in the file
+     * @return The amount in minor units, negative for negative amounts
+     * @throws NumberFormatException If the text contains no digits or too many of them
+     */
+    public static long parseMinorUnits(CharSequence text) {
+        if (text == null) {
+            throw new NumberFormatException("Amount is missing");
+        }
+        long value = 0;
+        int digitCount = 0;
+        boolean sawDigit = false;
+        boolean negative = false;
+        // 最后一个位于数字之间的 '.' 或 ','，及其后的数字个数，用于判断它是小数点还是千位分隔符
+        char pendingSeparator = 0;
+        char lastSeparator = 0;
+        int digitsAfterSeparator = 0;
+        int dots = 0;
+        int commas = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalise(text.charAt(i));
+            if (c >= '0' && c <= '9') {
+                if (pendingSeparator != 0) {
+                    if (pendingSeparator == '.') {
+                        dots++;
+                    } else {
+                        commas++;
+                    }
+                    lastSeparator = pendingSeparator;
+                    digitsAfterSeparator = 0;
+                    pendingSeparator = 0;
+                }
+                sawDigit = true;
+                // 前导零不占用有效位数
+                if (value != 0 || c != '0') {
+                    if (++digitCount > MAX_DIGITS) {
+                        throw new NumberFormatException("Amount has too many digits: " + text);
+                    }
+                    value = value * 10 + (c - '0');
+                }
+                if (lastSeparator != 0) {
+                    digitsAfterSeparator++;
+                }
+            } else if (c == '.' || c == ',') {
+                pendingSeparator = c;
+            } else if (c == '-' || c == '(') {
+                negative = true;
+            }
+            // 货币符号、货币代码、空格、撇号等其他字符一律忽略
+        }
+        if (!sawDigit) {
+            throw new NumberFormatException("Amount has no digits: " + text);
+        }
+
+        int fractionDigits = isDecimalSeparator(lastSeparator, dots, commas, digitsAfterSeparator)
+                ? digitsAfterSeparator : 0;
+        long minor = scale(value, fractionDigits, text);
+        return negative ? -minor : minor;
+    }
+
+    /**
+     * Parses an amount into major units, exact to the cent.
+     *
+     * @param text The amount as written in the file
+     * @return The amount, negative for negative amounts
+     * @throws NumberFormatException If the text contains no digits or too many of them
+     */
+    public static double parse(CharSequence text) {
+        return Money.toMajorUnits(parseMinorUnits(text));
+    }
+
+    private static boolean isDecimalSeparator(char separator, int dots, int commas, int digitsAfter) {
+        if (separator == 0) {
+            return false;
+        }
+        int sameKind = separator == '.' ? dots : commas;
+        if (sameKind > 1) {
+            // "1,234,567" 或 "1.234.567"：重复出现的只能是千位分隔符
+            return false;
+        }
+        if (dots > 0 && commas > 0) {
+            // 两种都出现时，最后出现的是小数点："1,234.56"、"1.234,56"
+            return true;
+        }
+        return separator == '.' || digitsAfter != 3;
+    }
+
+    private static long scale(long value, int fractionDigits, CharSequence text) {
+        if (fractionDigits <= MINOR_DIGITS) {
+            long factor = 1;
+            for (int i = fractionDigits; i < MINOR_DIGITS; i++) {
+                factor *= 10;
+            }
+            if (value > Long.MAX_VALUE / factor) {
+                throw new NumberFormatException("Amount is too large: " + text);
+            }
+            return value * factor;
+        }
+        // 超出分的部分四舍五入
+        long divisor = 1;
+        for (int i = MINOR_DIGITS; i < fractionDigits; i++) {
+            divisor *= 10;
+        }
+        long minor = value / divisor;
+        return value % divisor * 2 >= divisor ? minor + 1 : minor;
+    }
+
+    /**
+     * Maps full-width digits and punctuation and the Unicode minus sign to their ASCII forms.
+     */
+    private static char normalise(char c) {
+        if (c >= '！' && c <= '～') {
+            // 全角 ASCII 字符（０-９、．、，、－、（ 等）
+            return (char) (c - '！' + '!');
+        }
+        if (c == '−') {
+            return '-';
+        }
+        return c;
+    }
+}
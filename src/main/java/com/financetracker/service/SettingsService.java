@@ -15,12 +15,23 @@ public class SettingsService {
 
     private Settings settings;
     private final DataService<Settings> dataService;
+    private final DomainEventBus eventBus;
 
     /**
      * 构造函数
      */
     public SettingsService() {
+        this(new DomainEventBus());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param eventBus 保存设置后发布变更事件的总线
+     */
+    public SettingsService(DomainEventBus eventBus) {
         this.dataService = new SerializationService<>(Settings.class);
+        this.eventBus = eventBus;
         loadSettings();
     }
 
@@ -32,9 +43,27 @@ public class SettingsService {
     }
 
     /**
-     * 保存设置
+     * 保存设置，成功后发布 {@link DomainEvent.SettingsChanged}
      */
     public boolean saveSettings() {
+        return saveSettings(new DomainEvent.SettingsChanged(settings));
+    }
+
+    /**
+     * 保存设置，成功后发布描述这次修改的事件
+     *
+     * @param event 例如 {@link DomainEvent.SpecialDateChanged} 或 {@link DomainEvent.GoalChanged}
+     * @return 是否保存成功
+     */
+    public boolean saveSettings(DomainEvent event) {
+        if (!writeSettings()) {
+            return false;
+        }
+        eventBus.publish(event);
+        return true;
+    }
+
+    private boolean writeSettings() {
         String filePath = PathUtil.getSettingsDatPath().toString();
         return dataService.saveItemToFile(settings, filePath);
     }
@@ -49,7 +78,7 @@ public class SettingsService {
         if (loadedSettings == null) {
             LOGGER.log(Level.INFO, "Settings file not found or failed to load. Creating default settings.");
             settings = new Settings();
-            return saveSettings();
+            return writeSettings();
         } else {
             settings = loadedSettings;
             // Ensure lists are not null after deserializing an older version
@@ -62,7 +62,7 @@ public class SpecialDateService {
         }
 
         settings.getSpecialDates().add(specialDate);
-        boolean saved = settingsService.saveSettings();
+        boolean saved = settingsService.saveSettings(new DomainEvent.SpecialDateChanged(specialDate));
         if (!saved) {
             LOGGER.log(Level.SEVERE, "Failed to save settings after adding special date: " + specialDate.getName());
             // Optionally, remove the added date from the list if save fails to maintain consistency
@@ -91,7 +91,7 @@ public class SpecialDateService {
         for (int i = 0; i < specialDates.size(); i++) {
             if (specialDates.get(i).getId().equals(specialDateToUpdate.getId())) {
                 specialDates.set(i, specialDateToUpdate);
-                boolean saved = settingsService.saveSettings();
+                boolean saved = settingsService.saveSettings(new DomainEvent.SpecialDateChanged(specialDateToUpdate));
                 if (!saved) {
                     LOGGER.log(Level.SEVERE, "Failed to save settings after updating special date: " + specialDateToUpdate.getName());
                 }
@@ -119,7 +119,7 @@ public class SpecialDateService {
         boolean removed = settings.getSpecialDates().removeIf(sd -> sd.getId().equals(specialDate.getId()));
         
         if (removed) {
-            boolean saved = settingsService.saveSettings();
+            boolean saved = settingsService.saveSettings(new DomainEvent.SpecialDateChanged(specialDate));
             if (!saved) {
                  LOGGER.log(Level.SEVERE, "Failed to save settings after deleting special date: " + specialDate.getName());
             }
@@ -201,7 +201,7 @@ public class SpecialDateService {
             return false; // Or true if considered 'nothing to clear'
         }
         settings.getSpecialDates().clear();
-        boolean saved = settingsService.saveSettings();
+        boolean saved = settingsService.saveSettings(new DomainEvent.SpecialDateChanged(null));
         if (!saved) {
             LOGGER.log(Level.SEVERE, "Failed to save settings after clearing all special dates.");
         }
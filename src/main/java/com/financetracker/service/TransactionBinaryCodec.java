@@ -0,0 +1,313 @@
+package com.financetracker.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import com.financetracker.model.Money;
+import com.financetracker.model.Transaction;
+
+/**
+ * Compact binary columnar encoding of a list of transactions.
+ *
+ * Layout (big-endian): a header (magic, version, flags, row count), the category/participant
+ * dictionary, then one column after the other: epoch-day ints, amounts, expense flags,
+ * dictionary codes for category and participant, ids, descriptions and notes. The file ends
+ * with a CRC32 of everything before it.
+ *
+ * Amounts are stored as long minor units (cents), the unit transactions hold them in; files
+ * written before that may hold raw double bits instead, which is recorded in the flags and still
+ * read so that {@link TransactionSegmentStore} can rewrite them once in cents (see
+ * {@link #hasDoubleAmounts}). Ids are stored as two longs when every id is a canonical UUID, otherwise as strings, so
+ * that the encoding is always lossless, which makes {@link #csvToBinary} and
+ * {@link #binaryToCsv} exact inverses.
+ */
+public final class TransactionBinaryCodec {
+
+    // 文件头与列布局同时被 MappedSegmentReader 使用
+    static final int MAGIC = 0x46544C42; // "FTLB"
+    static final short VERSION = 1;
+    static final int FLAG_AMOUNTS_IN_CENTS = 1;
+    static final int FLAG_UUID_IDS = 2;
+    static final int NO_VALUE = -1;
+
+    private TransactionBinaryCodec() {
+    }
+
+    /**
+     * Writes transactions to a binary file, in the given order.
+     *
+     * @param transactions The transactions to write
+     * @param path The target file
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(List<Transaction> transactions, Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, encode(transactions));
+    }
+
+    /**
+     * Reads a binary file written by {@link #write}.
+     *
+     * @param path The file to read
+     * @return The transactions in file order, empty if the file does not exist
+     * @throws IOException If the file cannot be read or is damaged
+     */
+    public static List<Transaction> read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+        return decode(Files.readAllBytes(path));
+    }
+
+    /**
+     * Converts a CSV file in the transactions.csv layout to the binary format.
+     *
+     * @param csvExporter The exporter that reads the CSV file
+     * @param csvPath The CSV file
+     * @param binaryPath The binary file to write
+     * @return The number of converted transactions
+     * @throws IOException If the binary file cannot be written
+     */
+    public static int csvToBinary(TransactionCsvExporter csvExporter, Path csvPath, Path binaryPath) throws IOException {
+        List<Transaction> transactions = csvExporter.importTransactionsFromFile(csvPath);
+        write(transactions, binaryPath);
+        return transactions.size();
+    }
+
+    /**
+     * Converts a binary file back to a CSV file in the transactions.csv layout.
+     *
+     * @param csvExporter The exporter that writes the CSV file
+     * @param binaryPath The binary file
+     * @param csvPath The CSV file to write
+     * @return The number of converted transactions
+     * @throws IOException If the binary file cannot be read or the CSV file cannot be written
+     */
+    public static int binaryToCsv(TransactionCsvExporter csvExporter, Path binaryPath, Path csvPath) throws IOException {
+        List<Transaction> transactions = read(binaryPath);
+        if (!csvExporter.exportTransactionsToFile(transactions, csvPath)) {
+            throw new IOException("Failed to write " + csvPath);
+        }
+        return transactions.size();
+    }
+
+    /**
+     * Tells whether a file was written before amounts were stored in cents, from its header.
+     *
+     * @param path The binary segment file
+     * @return true if the amounts are raw double bits
+     * @throws IOException If the file cannot be read or is not a binary ledger file
+     */
+    static boolean hasDoubleAmounts(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a binary ledger file: " + path);
+            }
+            in.readShort();
+            return (in.readByte() & FLAG_AMOUNTS_IN_CENTS) == 0;
+        }
+    }
+
+    static byte[] encode(List<Transaction> transactions) throws IOException {
+        int rows = transactions.size();
+        int flags = FLAG_AMOUNTS_IN_CENTS | FLAG_UUID_IDS;
+        Map<String, Integer> dictionaryCodes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        for (Transaction t : transactions) {
+            if (!isCanonicalUuid(t.getId())) {
+                flags &= ~FLAG_UUID_IDS;
+            }
+            addToDictionary(t.getCategory(), dictionaryCodes, dictionary);
+            addToDictionary(t.getParticipant(), dictionaryCodes, dictionary);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + rows * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeByte(flags);
+        out.writeInt(rows);
+
+        out.writeInt(dictionary.size());
+        for (String value : dictionary) {
+            writeString(out, value);
+        }
+
+        for (Transaction t : transactions) {
+            out.writeInt((int) t.getDate().toEpochDay());
+        }
+        for (Transaction t : transactions) {
+            out.writeLong(t.getAmountCents());
+        }
+        for (Transaction t : transactions) {
+            out.writeByte(t.isExpense() ? 1 : 0);
+        }
+        for (Transaction t : transactions) {
+            out.writeInt(dictionaryCode(t.getCategory(), dictionaryCodes));
+        }
+        for (Transaction t : transactions) {
+            out.writeInt(dictionaryCode(t.getParticipant(), dictionaryCodes));
+        }
+        if ((flags & FLAG_UUID_IDS) != 0) {
+            for (Transaction t : transactions) {
+                UUID id = UUID.fromString(t.getId());
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+            }
+        } else {
+            for (Transaction t : transactions) {
+                writeString(out, t.getId());
+            }
+        }
+        for (Transaction t : transactions) {
+            writeString(out, t.getDescription());
+        }
+        for (Transaction t : transactions) {
+            writeString(out, t.getNotes());
+        }
+        out.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static List<Transaction> decode(byte[] data) throws IOException {
+        if (data.length < Long.BYTES) {
+            throw new IOException("Binary ledger file is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - Long.BYTES);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.getLong(data.length - Long.BYTES) != crc.getValue()) {
+            throw new IOException("Binary ledger file failed its checksum");
+        }
+        buffer.limit(data.length - Long.BYTES);
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a binary ledger file");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary ledger version " + version);
+            }
+            int flags = buffer.get();
+            int rows = buffer.getInt();
+
+            String[] dictionary = new String[buffer.getInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(buffer);
+            }
+
+            int[] epochDays = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                epochDays[i] = buffer.getInt();
+            }
+            long[] amounts = new long[rows];
+            for (int i = 0; i < rows; i++) {
+                long raw = buffer.getLong();
+                // 旧版本写入的文件可能以 double 保存金额，只读取，由分段存储改写为分
+                amounts[i] = (flags & FLAG_AMOUNTS_IN_CENTS) != 0 ? raw : Money.toMinorUnits(Double.longBitsToDouble(raw));
+            }
+            boolean[] expenses = new boolean[rows];
+            for (int i = 0; i < rows; i++) {
+                expenses[i] = buffer.get() != 0;
+            }
+            int[] categories = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                categories[i] = buffer.getInt();
+            }
+            int[] participants = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                participants[i] = buffer.getInt();
+            }
+            String[] ids = new String[rows];
+            for (int i = 0; i < rows; i++) {
+                ids[i] = (flags & FLAG_UUID_IDS) != 0
+                        ? new UUID(buffer.getLong(), buffer.getLong()).toString()
+                        : readString(buffer);
+            }
+
+            List<Transaction> transactions = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                // 使用带 id 的工厂方法，避免无参构造函数为每行生成随机 UUID
+                Transaction t = Transaction.ofCents(ids[i], LocalDate.ofEpochDay(epochDays[i]), amounts[i],
+                        null, lookup(dictionary, categories[i]), expenses[i]);
+                t.setParticipant(lookup(dictionary, participants[i]));
+                transactions.add(t);
+            }
+            for (int i = 0; i < rows; i++) {
+                transactions.get(i).setDescription(readString(buffer));
+            }
+            for (int i = 0; i < rows; i++) {
+                transactions.get(i).setNotes(readString(buffer));
+            }
+            return transactions;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Binary ledger file is damaged", e);
+        }
+    }
+
+    private static boolean isCanonicalUuid(String id) {
+        if (id == null || id.length() != 36) {
+            return false;
+        }
+        try {
+            return UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void addToDictionary(String value, Map<String, Integer> codes, List<String> dictionary) {
+        if (value != null && !codes.containsKey(value)) {
+            codes.put(value, dictionary.size());
+            dictionary.add(value);
+        }
+    }
+
+    private static int dictionaryCode(String value, Map<String, Integer> codes) {
+        return value == null ? NO_VALUE : codes.get(value);
+    }
+
+    private static String lookup(String[] dictionary, int code) {
+        return code == NO_VALUE ? null : dictionary[code];
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NO_VALUE);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NO_VALUE) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,205 @@
+package com.financetracker.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.financetracker.model.Transaction;
+
+/**
+ * Inverted index from category to the transactions filed under it.
+ * Each posting list is sorted by date, newest first, in the same order as the repository,
+ * so a category lookup returns its list directly and a category plus date range lookup
+ * narrows the list with a binary search instead of testing every transaction.
+ * Case-insensitive lookups go through a second map from the lower-cased name to the
+ * spellings actually used, whose posting lists are then merged.
+ */
+final class TransactionCategoryIndex {
+
+    private final Map<String, List<Transaction>> postings = new HashMap<>();
+    // 小写类别名 -> 实际使用的各种写法
+    private final Map<String, List<String>> spellings = new HashMap<>();
+    // 记录每条交易被索引时的类别；调用方可能直接修改了交易对象的类别再调用 update
+    private final Map<String, String> categoriesById = new HashMap<>();
+
+    /**
+     * Builds an index over transactions that are already sorted newest first.
+     *
+     * @param monthsNewestFirst The month lists, newest month first, each sorted newest first
+     * @return The index
+     */
+    static TransactionCategoryIndex build(Collection<List<Transaction>> monthsNewestFirst) {
+        TransactionCategoryIndex index = new TransactionCategoryIndex();
+        for (List<Transaction> monthTransactions : monthsNewestFirst) {
+            for (Transaction transaction : monthTransactions) {
+                String category = transaction.getCategory();
+                if (category != null) {
+                    // 按顺序追加即可保持倒序，无需查找插入位置
+                    index.postingsFor(category).add(transaction);
+                    index.categoriesById.put(transaction.getId(), category);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds a transaction after every posting with the same or a later date.
+     *
+     * @param transaction The transaction to add
+     */
+    void add(Transaction transaction) {
+        String category = transaction.getCategory();
+        if (category == null) {
+            return;
+        }
+        List<Transaction> postingList = postingsFor(category);
+        postingList.add(firstPostingBefore(postingList, transaction.getDate().toEpochDay()), transaction);
+        categoriesById.put(transaction.getId(), category);
+    }
+
+    /**
+     * Removes a transaction from the posting list of the category it was indexed under.
+     *
+     * @param id The transaction id
+     */
+    void remove(String id) {
+        String category = categoriesById.remove(id);
+        if (category == null) {
+            return;
+        }
+        List<Transaction> postingList = postings.get(category);
+        for (int i = 0; i < postingList.size(); i++) {
+            if (postingList.get(i).getId().equals(id)) {
+                postingList.remove(i);
+                break;
+            }
+        }
+        if (postingList.isEmpty()) {
+            postings.remove(category);
+            List<String> names = spellings.get(key(category));
+            names.remove(category);
+            if (names.isEmpty()) {
+                spellings.remove(key(category));
+            }
+        }
+    }
+
+    /**
+     * Gets the transactions of a category.
+     *
+     * @param category The category
+     * @param ignoreCase Whether to match the category name case-insensitively
+     * @return The matching transactions, newest first
+     */
+    List<Transaction> find(String category, boolean ignoreCase) {
+        List<Transaction> result = new ArrayList<>();
+        for (List<Transaction> postingList : postingListsFor(category, ignoreCase)) {
+            result = merge(result, postingList, 0, postingList.size());
+        }
+        return result;
+    }
+
+    /**
+     * Gets the transactions of a category whose date falls within the given range.
+     *
+     * @param category The category
+     * @param ignoreCase Whether to match the category name case-insensitively
+     * @param startDate The start date (inclusive)
+     * @param endDate The end date (inclusive)
+     * @return The matching transactions, newest first
+     */
+    List<Transaction> find(String category, boolean ignoreCase, LocalDate startDate, LocalDate endDate) {
+        List<Transaction> result = new ArrayList<>();
+        if (startDate.isAfter(endDate)) {
+            return result;
+        }
+        for (List<Transaction> postingList : postingListsFor(category, ignoreCase)) {
+            int from = firstPostingBefore(postingList, endDate.toEpochDay() + 1);
+            int to = firstPostingBefore(postingList, startDate.toEpochDay());
+            result = merge(result, postingList, from, to);
+        }
+        return result;
+    }
+
+    private List<List<Transaction>> postingListsFor(String category, boolean ignoreCase) {
+        List<List<Transaction>> lists = new ArrayList<>();
+        if (category == null) {
+            return lists;
+        }
+        if (!ignoreCase) {
+            List<Transaction> postingList = postings.get(category);
+            if (postingList != null) {
+                lists.add(postingList);
+            }
+            return lists;
+        }
+        for (String name : spellings.getOrDefault(key(category), new ArrayList<>())) {
+            // 小写后相同不一定 equalsIgnoreCase，保持原来的比较语义
+            if (name.equalsIgnoreCase(category)) {
+                lists.add(postings.get(name));
+            }
+        }
+        return lists;
+    }
+
+    private List<Transaction> postingsFor(String category) {
+        List<Transaction> postingList = postings.get(category);
+        if (postingList == null) {
+            postingList = new ArrayList<>();
+            postings.put(category, postingList);
+            spellings.computeIfAbsent(key(category), k -> new ArrayList<>()).add(category);
+        }
+        return postingList;
+    }
+
+    /**
+     * Finds the first posting dated strictly before a day.
+     */
+    private static int firstPostingBefore(List<Transaction> postingList, long epochDay) {
+        int low = 0;
+        int high = postingList.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (postingList.get(mid).getDate().toEpochDay() >= epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Merges a run of a posting list into a result that is already sorted newest first.
+     */
+    private static List<Transaction> merge(List<Transaction> sorted, List<Transaction> postingList, int from, int to) {
+        if (from >= to) {
+            return sorted;
+        }
+        if (sorted.isEmpty()) {
+            return new ArrayList<>(postingList.subList(from, to));
+        }
+        List<Transaction> merged = new ArrayList<>(sorted.size() + to - from);
+        int i = 0;
+        int j = from;
+        while (i < sorted.size() && j < to) {
+            if (postingList.get(j).getDate().isAfter(sorted.get(i).getDate())) {
+                merged.add(postingList.get(j++));
+            } else {
+                merged.add(sorted.get(i++));
+            }
+        }
+        merged.addAll(sorted.subList(i, sorted.size()));
+        merged.addAll(postingList.subList(j, to));
+        return merged;
+    }
+
+    private static String key(String category) {
+        return category.toLowerCase(Locale.ROOT);
+    }
+}
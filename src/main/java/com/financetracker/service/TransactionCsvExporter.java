@@ -21,6 +21,7 @@ import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
 
+import com.financetracker.model.Money;
 import com.financetracker.model.Transaction;
 import com.financetracker.util.PathUtil;
 // 导入 Transaction 类，表示交易记录的模型类
@@ -30,13 +31,12 @@ import com.financetracker.util.PathUtil;
  * 作为本地CSV数据库的接口。主要功能包括：
  * 1. 将交易记录列表导出到CSV文件
  * 2. 从CSV文件读取交易记录列表
- * 3. 单条交易记录的增删改查操作
- * 4. 按月份分组导出交易记录
- * 5. 创建数据备份
+ * 3. 按月份分组导出交易记录
+ * 4. 创建数据备份
+ * 单条交易记录的增删改由 TransactionRepository 写入交易日志，不经过本类
  * 
  * 特点：
  * - 使用固定的CSV文件路径作为本地数据库
- * - 实现完整的CRUD操作
  * - 提供数据分组和批量处理功能
  */
 /**
@@ -77,6 +77,9 @@ public class TransactionCsvExporter {
     };
     // 定义 CSV 文件的表头数组，包含交易记录的各个字段名称
 
+    // 后台导出时每写入多少条记录报告一次进度、检查一次取消
+    private static final int PROGRESS_INTERVAL = 1000;
+
     /**
      * 将交易记录列表导出到CSV文件
      * 
@@ -111,7 +114,7 @@ public class TransactionCsvExporter {
                     csvPrinter.printRecord(
                             transaction.getId(),
                             transaction.getDate().format(DATE_FORMATTER),
-                            transaction.getAmount(),
+                            Money.toPlainString(transaction.getAmountCents()),
                             transaction.getDescription(),
                             transaction.getCategory(),
                             transaction.getParticipant(),
@@ -142,10 +145,19 @@ public class TransactionCsvExporter {
     // 方法注释：说明该方法用于从 CSV 文件读取交易记录
     public List<Transaction> importTransactionsFromCSV() {
         // 定义方法，返回从 CSV 文件读取的交易记录列表
+        return importTransactionsFromFile(getCsvFilePath());
+        // 读取默认的 transactions.csv 文件
+    }
+
+    /**
+     * 从指定的CSV文件读取交易记录
+     * 
+     * @param path CSV文件路径（transactions.csv 或按月分段文件）
+     * @return 读取到的交易记录列表
+     */
+    public List<Transaction> importTransactionsFromFile(Path path) {
         List<Transaction> transactions = new ArrayList<>();
         // 创建空 ArrayList 用于存储交易记录
-        Path path = getCsvFilePath();
-        // 将 CSV 文件路径转换为 Path 对象
 
         if (!Files.exists(path)) {
             // 检查 CSV 文件是否存在
@@ -165,8 +177,8 @@ public class TransactionCsvExporter {
                 // 获取 ID 字段
                 LocalDate date = LocalDate.parse(record.get("Date"), DATE_FORMATTER);
                 // 获取 Date 字段并使用 DATE_FORMATTER 解析为 LocalDate
-                double amount = Double.parseDouble(record.get("Amount"));
-                // 获取 Amount 字段并解析为 double
+                long amountCents = Money.parsePlainString(record.get("Amount"));
+                // 获取 Amount 字段并直接解析为分，不经过 double
                 String description = record.get("Description");
                 // 获取 Description 字段
                 String category = record.get("Category");
@@ -178,14 +190,12 @@ public class TransactionCsvExporter {
                 boolean isExpense = Boolean.parseBoolean(record.get("IsExpense"));
                 // 获取 IsExpense 字段并解析为 boolean
 
-                Transaction transaction = new Transaction();
-                // 创建新的 Transaction 对象
+                Transaction transaction = Transaction.ofCents(id, date, amountCents, description, category, isExpense);
+                // 按分创建 Transaction 对象（无参构造函数会为每行生成一个随机 UUID，加载大文件时开销明显）
                 transaction.setId(id);
                 // 设置交易 ID
                 transaction.setDate(date);
                 // 设置交易日期
-                transaction.setAmount(amount);
-                // 设置交易金额
                 transaction.setDescription(description);
                 // 设置交易描述
                 transaction.setCategory(category);
@@ -209,106 +219,6 @@ public class TransactionCsvExporter {
         // 返回读取到的交易记录列表
     }
 
-    /**
-     * 将单个交易记录添加到CSV文件
-     * 
-     * @param transaction 要添加的交易记录
-     * @return 是否成功添加
-     */
-    // 方法注释：说明该方法用于向 CSV 文件添加单个交易记录
-    public boolean addTransactionToCSV(Transaction transaction) {
-        // 定义方法，接收 Transaction 对象，返回是否添加成功
-        List<Transaction> transactions = importTransactionsFromCSV();
-        // 从 CSV 文件读取现有交易记录
-        transactions.add(transaction);
-        // 将新交易添加到列表
-        return exportTransactionsToCSV(transactions);
-        // 将更新后的交易列表导出到 CSV 文件，返回是否成功
-    }
-
-    /**
-     * 从CSV文件中删除交易记录
-     * 
-     * @param transactionId 要删除的交易记录ID
-     * @return 是否成功删除
-     */
-    // 方法注释：说明该方法用于从 CSV 文件删除指定 ID 的交易记录
-    public boolean deleteTransactionFromCSV(String transactionId) {
-        // 定义方法，接收交易 ID，返回是否删除成功
-        List<Transaction> transactions = importTransactionsFromCSV();
-        // 从 CSV 文件读取现有交易记录
-        boolean removed = transactions.removeIf(t -> t.getId().equals(transactionId));
-        // 使用 removeIf 删除 ID 匹配的交易记录，返回是否删除成功
-        if (removed) {
-            return exportTransactionsToCSV(transactions);
-            // 如果删除成功，将更新后的交易列表导出到 CSV 文件
-        }
-        return false;
-        // 如果未找到匹配的交易，返回 false
-    }
-
-    /**
-     * 批量删除交易记录
-     * 
-     * @param transactionIds 要删除的交易记录ID列表
-     * @return 成功删除的数量
-     */
-    // 方法注释：说明该方法用于批量删除指定 ID 列表的交易记录
-    public int batchDeleteTransactionsFromCSV(List<String> transactionIds) {
-        // 定义方法，接收交易 ID 列表，返回删除的记录数
-        List<Transaction> transactions = importTransactionsFromCSV();
-        // 从 CSV 文件读取现有交易记录
-        int originalSize = transactions.size();
-        // 记录原始交易列表大小
-        transactions.removeIf(t -> transactionIds.contains(t.getId()));
-        // 使用 removeIf 删除 ID 在 transactionIds 列表中的交易记录
-        int removed = originalSize - transactions.size();
-        // 计算删除的记录数
-
-        if (removed > 0) {
-            exportTransactionsToCSV(transactions);
-            // 如果删除了记录，将更新后的交易列表导出到 CSV 文件
-        }
-
-        return removed;
-        // 返回删除的记录数
-    }
-
-    /**
-     * 更新CSV文件中的交易记录
-     * 
-     * @param updatedTransaction 更新后的交易记录
-     * @return 是否成功更新
-     */
-    // 方法注释：说明该方法用于更新 CSV 文件中的交易记录
-    public boolean updateTransactionInCSV(Transaction updatedTransaction) {
-        // 定义方法，接收更新后的 Transaction 对象，返回是否更新成功
-        List<Transaction> transactions = importTransactionsFromCSV();
-        // 从 CSV 文件读取现有交易记录
-        boolean updated = false;
-        // 标记是否找到并更新了交易
-
-        for (int i = 0; i < transactions.size(); i++) {
-            // 遍历交易列表
-            if (transactions.get(i).getId().equals(updatedTransaction.getId())) {
-                // 检查当前交易的 ID 是否与更新交易的 ID 匹配
-                transactions.set(i, updatedTransaction);
-                // 替换匹配的交易记录
-                updated = true;
-                // 设置更新标志为 true
-                break;
-                // 退出循环
-            }
-        }
-
-        if (updated) {
-            return exportTransactionsToCSV(transactions);
-            // 如果更新成功，将更新后的交易列表导出到 CSV 文件
-        }
-        return false;
-        // 如果未找到匹配的交易，返回 false
-    }
-
     /**
      * 检查CSV文件是否存在
      * 
@@ -352,6 +262,20 @@ public class TransactionCsvExporter {
         }
     }
 
+    /**
+     * 将给定的交易记录写入数据目录下带时间戳的备份文件
+     * 交易记录按月分段存储后，备份直接由内存中的完整账本生成
+     * 
+     * @param transactions 要备份的交易记录列表
+     * @return 是否成功创建备份
+     */
+    public boolean createCsvBackup(List<Transaction> transactions) {
+        String backupFileName = CSV_FILE_NAME + "." + System.currentTimeMillis() + ".bak";
+        Path backupFilePath = getCsvFilePath().resolveSibling(backupFileName);
+        // 备份文件与原来的 transactions.csv 备份位于同一目录，格式相同
+        return exportTransactionsToFile(new ArrayList<>(transactions), backupFilePath);
+    }
+
     /**
      * 将所有交易记录按月导出到指定目录
      * 
@@ -360,6 +284,18 @@ public class TransactionCsvExporter {
      */
     // 方法注释：说明该方法用于按月分组导出交易记录到指定目录
     public ExportResult exportTransactionsByMonth(List<Transaction> transactions) {
+        return exportTransactionsByMonth(transactions, null);
+    }
+
+    /**
+     * 将所有交易记录按月导出到指定目录，报告进度并可取消
+     * 每写完一个月份的文件报告一次进度；取消后在下一个月份之前停止，已写出的文件保留
+     * 
+     * @param transactions  要导出的交易记录列表
+     * @param job 运行该导出的后台任务，可为 null
+     * @return 导出结果，包含成功导出的文件数量和记录数量
+     */
+    public ExportResult exportTransactionsByMonth(List<Transaction> transactions, JobScheduler.Job job) {
         // 定义方法，接收交易记录列表，返回导出结果
         ExportResult result = new ExportResult();
         // 创建 ExportResult 对象，用于存储导出结果（成功/失败文件数和记录数）
@@ -391,8 +327,17 @@ public class TransactionCsvExporter {
             }
 
             // 导出每个月份的交易记录
+            int monthsDone = 0;
             for (Map.Entry<String, List<Transaction>> entry : transactionsByMonth.entrySet()) {
                 // 遍历按年月分组的交易记录
+                if (job != null) {
+                    if (job.isCancelRequested()) {
+                        System.out.println("按月导出已取消，已导出 " + monthsDone + " 个月份");
+                        break;
+                    }
+                    job.setProgress(monthsDone, transactionsByMonth.size(), "导出 " + entry.getKey());
+                }
+                monthsDone++;
                 String yearMonth = entry.getKey();
                 // 获取年月键
                 List<Transaction> monthTransactions = entry.getValue();
@@ -422,6 +367,9 @@ public class TransactionCsvExporter {
                     // 打印失败信息
                 }
             }
+            if (job != null && !job.isCancelRequested()) {
+                job.setProgress(monthsDone, transactionsByMonth.size());
+            }
 
         } catch (Exception e) {
             System.err.println("按月导出交易记录时出错: " + e.getMessage()); // 修改错误消息
@@ -442,8 +390,23 @@ public class TransactionCsvExporter {
      * @return 是否成功导出
      */
     // 方法注释：说明该方法用于将交易记录导出到指定文件
-    private boolean exportTransactionsToFile(List<Transaction> transactions, Path filePath) {
+    // 包内可见，供 TransactionSegmentStore 写入按月分段文件
+    boolean exportTransactionsToFile(List<Transaction> transactions, Path filePath) {
+        return exportTransactionsToFile(transactions, filePath, null);
+    }
+
+    /**
+     * 将交易记录导出到指定文件，报告进度并可取消
+     * 取消时删除写了一半的文件
+     * 
+     * @param transactions 要导出的交易记录列表
+     * @param filePath     文件路径
+     * @param job 运行该导出的后台任务，可为 null
+     * @return 是否成功导出，取消时返回 false
+     */
+    private boolean exportTransactionsToFile(List<Transaction> transactions, Path filePath, JobScheduler.Job job) {
         // 定义私有方法，接收交易记录列表和文件路径，返回是否成功导出
+        boolean cancelled = false;
         try {
             // 使用 try-catch 块处理可能的 IO 异常
             // 确保目录存在
@@ -461,12 +424,20 @@ public class TransactionCsvExporter {
                 // 对交易记录按日期倒序排序
 
                 // 写入每条交易记录
+                int written = 0;
                 for (Transaction transaction : transactions) {
                     // 遍历交易记录
+                    if (job != null && written++ % PROGRESS_INTERVAL == 0) {
+                        if (job.isCancelRequested()) {
+                            cancelled = true;
+                            break;
+                        }
+                        job.setProgress(written - 1, transactions.size());
+                    }
                     csvPrinter.printRecord(
                             transaction.getId(),
                             transaction.getDate().format(DATE_FORMATTER),
-                            transaction.getAmount(),
+                            Money.toPlainString(transaction.getAmountCents()),
                             transaction.getDescription(),
                             transaction.getCategory(),
                             transaction.getParticipant(),
@@ -477,9 +448,18 @@ public class TransactionCsvExporter {
 
                 csvPrinter.flush();
                 // 刷新 CSVPrinter，确保数据写入文件
-                return true;
-                // 导出成功，返回 true
+                if (!cancelled) {
+                    if (job != null) {
+                        job.setProgress(transactions.size(), transactions.size());
+                    }
+                    return true;
+                    // 导出成功，返回 true
+                }
             }
+            // 取消时删除写了一半的文件
+            Files.deleteIfExists(filePath);
+            System.out.println("导出已取消: " + filePath);
+            return false;
         } catch (IOException e) {
             e.printStackTrace();
             // 捕获并打印 IO 异常堆栈跟踪
@@ -494,11 +474,21 @@ public class TransactionCsvExporter {
      * @return 是否成功导出
      */
     public boolean exportAllTransactionsToFile(List<Transaction> transactions) {
+        return exportAllTransactionsToFile(transactions, null);
+    }
+
+    /**
+     * 将所有交易记录导出到指定的 "export/transactions_all.csv" 文件，报告进度并可取消
+     * @param transactions 要导出的交易记录列表
+     * @param job 运行该导出的后台任务，可为 null
+     * @return 是否成功导出，取消时返回 false
+     */
+    public boolean exportAllTransactionsToFile(List<Transaction> transactions, JobScheduler.Job job) {
         Path exportPath = getExportAllFilePath(); // PathUtil provides absolute path
         try {
             // 确保 export 目录存在
             Files.createDirectories(exportPath.getParent());
-            return exportTransactionsToFile(transactions, exportPath);
+            return exportTransactionsToFile(transactions, exportPath, job);
         } catch (IOException e) {
             System.err.println("创建导出目录时出错 '" + PathUtil.getExportDir().toString() + "': " + e.getMessage()); // Use PathUtil here
             e.printStackTrace();
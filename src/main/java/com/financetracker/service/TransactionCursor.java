@@ -0,0 +1,94 @@
+package com.financetracker.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.financetracker.model.Money;
+import com.financetracker.model.Transaction;
+
+/**
+ * Forward-only view over a sequence of transactions that exposes the current row's
+ * fields without requiring a {@link Transaction} object per row.
+ * A cursor is a flyweight: the same instance is repositioned by {@link #next()}, so
+ * values must be copied out if they are needed after moving on.
+ */
+public interface TransactionCursor {
+
+    /**
+     * Moves to the next row.
+     *
+     * @return true if there is a current row, false once the rows are exhausted
+     */
+    boolean next();
+
+    /**
+     * @return The date of the current row as a count of days since 1970-01-01
+     */
+    long getEpochDay();
+
+    default LocalDate getDate() {
+        return LocalDate.ofEpochDay(getEpochDay());
+    }
+
+    /**
+     * @return The amount of the current row in cents
+     */
+    long getAmountCents();
+
+    default double getAmount() {
+        return Money.toMajorUnits(getAmountCents());
+    }
+
+    boolean isExpense();
+
+    String getCategory();
+
+    String getParticipant();
+
+    /**
+     * Creates a cursor over transactions that are already in memory.
+     *
+     * @param transactions The transactions to walk
+     * @return A cursor positioned before the first transaction
+     */
+    static TransactionCursor over(List<Transaction> transactions) {
+        return new TransactionCursor() {
+            private int index = -1;
+
+            @Override
+            public boolean next() {
+                return ++index < transactions.size();
+            }
+
+            @Override
+            public long getEpochDay() {
+                return transactions.get(index).getDate().toEpochDay();
+            }
+
+            @Override
+            public LocalDate getDate() {
+                return transactions.get(index).getDate();
+            }
+
+            @Override
+            public long getAmountCents() {
+                return transactions.get(index).getAmountCents();
+            }
+
+            @Override
+            public boolean isExpense() {
+                return transactions.get(index).isExpense();
+            }
+
+            @Override
+            public String getCategory() {
+                return transactions.get(index).getCategory();
+            }
+
+            @Override
+            public String getParticipant() {
+                return transactions.get(index).getParticipant();
+            }
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package com.financetracker.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import com.financetracker.model.Transaction;
+
+/**
+ * Date range lookups over the repository's per-month lists.
+ * Each month list is kept sorted newest first, so it is its own date index: months that lie
+ * wholly inside a range are copied as they are, and only the two boundary months are cut by
+ * a binary search. Nothing is built or cached, so a mutation that keeps its month sorted
+ * leaves every other month's lookups untouched. A range query costs O(months + log n + k).
+ */
+final class TransactionDateIndex {
+
+    private TransactionDateIndex() {
+    }
+
+    /**
+     * Gets the transactions whose date falls within the given range.
+     *
+     * @param months The month lists, keyed by month, each sorted newest first
+     * @param startDate The start date (inclusive)
+     * @param endDate The end date (inclusive)
+     * @return The matching transactions, newest first
+     */
+    static List<Transaction> range(NavigableMap<YearMonth, List<Transaction>> months,
+                                   LocalDate startDate, LocalDate endDate) {
+        List<Transaction> result = new ArrayList<>();
+        if (startDate.isAfter(endDate)) {
+            return result;
+        }
+        NavigableMap<YearMonth, List<Transaction>> overlapping =
+                months.subMap(YearMonth.from(startDate), true, YearMonth.from(endDate), true);
+        for (Map.Entry<YearMonth, List<Transaction>> entry : overlapping.descendingMap().entrySet()) {
+            YearMonth month = entry.getKey();
+            List<Transaction> monthTransactions = entry.getValue();
+            // 只有范围两端所在的月份需要二分查找，中间的月份整月复制
+            int from = endDate.isBefore(month.atEndOfMonth()) ? firstOnOrBefore(monthTransactions, endDate) : 0;
+            int to = startDate.isAfter(month.atDay(1))
+                    ? firstOnOrBefore(monthTransactions, startDate.minusDays(1))
+                    : monthTransactions.size();
+            if (from < to) {
+                result.addAll(monthTransactions.subList(from, to));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first transaction dated on or before a day in a list sorted newest first.
+     *
+     * @param transactions The transactions, newest first
+     * @param date The day to search for
+     * @return The offset, or the list size if every transaction is later than the day
+     */
+    static int firstOnOrBefore(List<Transaction> transactions, LocalDate date) {
+        int low = 0;
+        int high = transactions.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (transactions.get(mid).getDate().isAfter(date)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first row dated on or before a day in an array sorted newest first.
+     *
+     * @param epochDays The epoch days, in descending order
+     * @param size The number of used entries
+     * @param epochDay The day to search for
+     * @return The row offset, or size if every row is later than the day
+     */
+    static int firstRowOnOrBefore(int[] epochDays, int size, long epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] > epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
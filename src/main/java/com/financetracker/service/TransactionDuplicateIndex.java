@@ -0,0 +1,174 @@
+package com.financetracker.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.financetracker.model.Transaction;
+
+/**
+ * Multiset of content hashes of the ledger's transactions, used to recognise rows of a bank
+ * statement that has already been imported. A transaction's hash covers its date, amount in
+ * cents, description (trimmed, lower case, runs of whitespace collapsed) and participant.
+ * Identical rows are legitimate (two coffees on the same day), so the index counts copies
+ * and a {@link Statement} only skips as many copies of a row as the ledger already has.
+ */
+final class TransactionDuplicateIndex {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<Long, Integer> counts = new HashMap<>();
+    // 记录每条交易被索引时的哈希；调用方可能直接修改交易对象后再保存，删除时不能重新计算
+    private final Map<String, Long> keysById = new HashMap<>();
+
+    /**
+     * Builds an index over transactions.
+     *
+     * @param months The month lists of the ledger
+     * @return The index
+     */
+    static TransactionDuplicateIndex build(Collection<List<Transaction>> months) {
+        TransactionDuplicateIndex index = new TransactionDuplicateIndex();
+        for (List<Transaction> monthTransactions : months) {
+            for (Transaction transaction : monthTransactions) {
+                index.add(transaction);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Computes the content hash of a transaction.
+     *
+     * @param transaction The transaction
+     * @return The hash of its date, amount, normalised description and participant
+     */
+    static long keyOf(Transaction transaction) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, transaction.getDate().toEpochDay());
+        hash = mix(hash, transaction.getAmountCents());
+        hash = mixText(hash, transaction.getDescription());
+        hash = mixText(hash, transaction.getParticipant());
+        return hash;
+    }
+
+    void add(Transaction transaction) {
+        long key = keyOf(transaction);
+        Long previous = keysById.put(transaction.getId(), key);
+        if (previous != null) {
+            decrement(previous);
+        }
+        counts.merge(key, 1, Integer::sum);
+    }
+
+    void remove(String id) {
+        Long key = keysById.remove(id);
+        if (key != null) {
+            decrement(key);
+        }
+    }
+
+    /**
+     * @param key A content hash
+     * @return The number of transactions in the ledger with that hash
+     */
+    int count(long key) {
+        return counts.getOrDefault(key, 0);
+    }
+
+    private void decrement(long key) {
+        counts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash ^ (value & 0xff)) * FNV_PRIME;
+            value >>>= 8;
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes text as if it were trimmed, lower-cased and had every run of whitespace replaced
+     * by a single space, without building that string. A separator keeps "ab","c" apart from
+     * "a","bc".
+     */
+    private static long mixText(long hash, String text) {
+        if (text != null) {
+            boolean pendingSpace = false;
+            boolean started = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    pendingSpace = started;
+                    continue;
+                }
+                if (pendingSpace) {
+                    hash = (hash ^ ' ') * FNV_PRIME;
+                    pendingSpace = false;
+                }
+                c = Character.toLowerCase(c);
+                hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+                hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+                started = true;
+            }
+        }
+        return (hash ^ 0x1f) * FNV_PRIME;
+    }
+
+    /**
+     * The duplicate check for the rows of one imported statement.
+     * A row is a duplicate while the statement has produced fewer copies of it than the
+     * ledger held before the statement was imported. Statements of one batch that is
+     * committed at the end are chained with {@link #next()}, so that rows accepted from an
+     * earlier file count as already present for the later ones.
+     */
+    static final class Statement {
+        // 同一批次中已接受但尚未写入存储的记录
+        private final Map<Long, Integer> staged;
+        // 哈希 -> {导入前账本中的份数, 本文件中已出现的份数}
+        private final Map<Long, int[]> seen = new HashMap<>();
+        private int duplicates = 0;
+
+        Statement() {
+            this(new HashMap<>());
+        }
+
+        private Statement(Map<Long, Integer> staged) {
+            this.staged = staged;
+        }
+
+        /**
+         * @return The check for the next statement of the same batch
+         */
+        Statement next() {
+            return new Statement(staged);
+        }
+
+        /**
+         * @param transaction An imported row
+         * @param index The ledger's index
+         * @return true if the row is new, false if it is a copy of a row already in the ledger
+         */
+        boolean accept(Transaction transaction, TransactionDuplicateIndex index) {
+            long key = keyOf(transaction);
+            // 第一次见到某个哈希时记下账本中已有的份数，之后本文件写入的记录不影响判断
+            int[] copies = seen.computeIfAbsent(key, k -> new int[]{index.count(k) + staged.getOrDefault(k, 0), 0});
+            if (copies[1]++ < copies[0]) {
+                duplicates++;
+                return false;
+            }
+            staged.merge(key, 1, Integer::sum);
+            return true;
+        }
+
+        /**
+         * @return The number of rows of this statement skipped as duplicates
+         */
+        int getDuplicateCount() {
+            return duplicates;
+        }
+    }
+}
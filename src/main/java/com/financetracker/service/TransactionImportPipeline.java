@@ -0,0 +1,267 @@
+package com.financetracker.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.csv.CSVRecord;
+
+import com.financetracker.model.Transaction;
+
+/**
+ * Streaming import pipeline: parse, normalise, classify, append.
+ * A reader thread walks the CSV records and normalises them, a classifier thread turns the
+ * normalised rows into transactions, and the calling thread appends them to the store in
+ * batches. The stages are connected by bounded queues of small chunks, so only a few thousand
+ * rows are in flight however large the file is, and a slow stage holds back the ones before it.
+ *
+ * @param <R> The normalised row type passed from the normaliser to the classifier
+ */
+final class TransactionImportPipeline<R> {
+
+    private static final Logger LOGGER = Logger.getLogger(TransactionImportPipeline.class.getName());
+
+    // 各阶段之间以小块传递，减少队列同步开销
+    private static final int CHUNK_SIZE = 256;
+    private static final int QUEUE_CAPACITY = 8;
+    // 空块表示上游已经结束
+    private static final List<Object> END = Collections.emptyList();
+
+    private final Function<CSVRecord, R> normaliser;
+    private final Function<R, Transaction> classifier;
+    private final UnaryOperator<List<Transaction>> deduplicator;
+    private final Predicate<List<Transaction>> sink;
+    private final int batchSize;
+    private final TransactionService.ImportProgressListener progressListener;
+
+    private final AtomicInteger recordsRead = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    // 只在调用线程中修改
+    private int imported = 0;
+    private int duplicates = 0;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean cancelled = false;
+
+    /**
+     * Constructor for TransactionImportPipeline.
+     *
+     * @param normaliser Turns a record into a normalised row, or null to skip the record
+     * @param classifier Turns a normalised row into a transaction, or null to skip it
+     * @param deduplicator Returns the transactions of a batch that are not in the store yet, may be null
+     * @param sink Appends a batch to the store; returns false if the batch could not be saved
+     * @param batchSize The number of transactions per append
+     * @param progressListener Notified after every batch and asked whether to stop, may be null
+     */
+    TransactionImportPipeline(Function<CSVRecord, R> normaliser, Function<R, Transaction> classifier,
+            UnaryOperator<List<Transaction>> deduplicator, Predicate<List<Transaction>> sink, int batchSize,
+            TransactionService.ImportProgressListener progressListener) {
+        this.normaliser = normaliser;
+        this.classifier = classifier;
+        this.deduplicator = deduplicator;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Runs the pipeline to completion on the given records.
+     *
+     * @param records The parsed CSV records, iterated once on the reader thread
+     * @return The number of transactions appended to the store
+     * @throws IOException If the records cannot be read or a batch cannot be saved; transactions
+     *                     appended before the failure stay in the store
+     */
+    int run(Iterable<CSVRecord> records) throws IOException {
+        BlockingQueue<List<R>> normalised = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<List<Transaction>> classified = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        Thread reader = new Thread(() -> readRecords(records, normalised), "csv-import-reader");
+        Thread classifierThread = new Thread(() -> classifyRows(normalised, classified), "csv-import-classifier");
+        reader.setDaemon(true);
+        classifierThread.setDaemon(true);
+        reader.start();
+        classifierThread.start();
+
+        try {
+            List<Transaction> batch = new ArrayList<>(batchSize);
+            while (true) {
+                List<Transaction> chunk = classified.take();
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                if (progressListener != null && progressListener.isCancelled()) {
+                    // 已写入的批次保留，其余记录丢弃
+                    LOGGER.info("CSV import cancelled after " + imported + " transactions");
+                    break;
+                }
+                batch.addAll(chunk);
+                if (batch.size() >= batchSize) {
+                    append(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                append(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } catch (IOException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            cancelled = true;
+            reader.interrupt();
+            classifierThread.interrupt();
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) error).getCause();
+        }
+        if (error != null) {
+            throw new IOException("CSV import failed: " + error.getMessage(), error);
+        }
+        return imported;
+    }
+
+    /**
+     * @return The number of transactions appended so far, also after a failed run
+     */
+    int getImported() {
+        return imported;
+    }
+
+    /**
+     * @return The number of records skipped so far
+     */
+    int getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * @return The number of transactions dropped so far because they were already in the store
+     */
+    int getDuplicates() {
+        return duplicates;
+    }
+
+    private void append(List<Transaction> batch) throws IOException {
+        if (deduplicator != null) {
+            List<Transaction> fresh = deduplicator.apply(batch);
+            duplicates += batch.size() - fresh.size();
+            batch = fresh;
+        }
+        if (!batch.isEmpty() && !sink.test(batch)) {
+            throw new IOException("Failed to save a batch of " + batch.size() + " imported transactions");
+        }
+        imported += batch.size();
+        if (progressListener != null) {
+            // 重复的记录对调用方而言同样是未导入的记录
+            progressListener.onProgress(recordsRead.get(), imported, skipped.get() + duplicates);
+        }
+    }
+
+    private void readRecords(Iterable<CSVRecord> records, BlockingQueue<List<R>> output) {
+        try {
+            List<R> chunk = new ArrayList<>(CHUNK_SIZE);
+            for (CSVRecord record : records) {
+                if (cancelled) {
+                    return;
+                }
+                recordsRead.incrementAndGet();
+                R row = null;
+                try {
+                    row = normaliser.apply(record);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.FINE, "Skipping CSV record " + record.getRecordNumber(), e);
+                }
+                if (row == null) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    put(output, chunk);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                put(output, chunk);
+            }
+        } catch (RuntimeException e) {
+            // 解析器在读取下一条记录时失败（例如文件格式损坏）
+            failure.compareAndSet(null, e);
+        } catch (InterruptedException e) {
+            return;
+        } finally {
+            putEnd(output);
+        }
+    }
+
+    private void classifyRows(BlockingQueue<List<R>> input, BlockingQueue<List<Transaction>> output) {
+        try {
+            while (!cancelled) {
+                List<R> rows = input.take();
+                if (rows.isEmpty()) {
+                    break;
+                }
+                List<Transaction> chunk = new ArrayList<>(rows.size());
+                for (R row : rows) {
+                    Transaction transaction = null;
+                    try {
+                        transaction = classifier.apply(row);
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.FINE, "Skipping imported row that could not be classified", e);
+                    }
+                    if (transaction == null) {
+                        skipped.incrementAndGet();
+                    } else {
+                        chunk.add(transaction);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    put(output, chunk);
+                }
+            }
+        } catch (InterruptedException e) {
+            return;
+        } finally {
+            putEnd(output);
+        }
+    }
+
+    /**
+     * Waits for room in the queue, giving up once the pipeline has been cancelled.
+     */
+    private <T> void put(BlockingQueue<List<T>> queue, List<T> chunk) throws InterruptedException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (cancelled) {
+                throw new InterruptedException("CSV import cancelled");
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void putEnd(BlockingQueue<List<T>> queue) {
+        try {
+            put(queue, (List<T>) END);
+        } catch (InterruptedException e) {
+            // 下游已经停止，无需再通知
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.financetracker.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import com.financetracker.model.Money;
+import com.financetracker.model.Transaction;
+import com.financetracker.util.PathUtil;
+
+/**
+ * Append-only write-ahead journal of transaction mutations.
+ * Each add/update/delete is appended as one CSV record (keyed by transaction id) and
+ * fsync'd, so a single edit costs one small write instead of rewriting transactions.csv.
+ * The journal is replayed on top of the base file when the ledger is loaded and is
+ * emptied again once its changes have been compacted into the base file.
+ *
+ * Every record ends with a CRC32 of its fields; a record that was torn by a crash
+ * fails the check and replay stops there.
+ */
+public class TransactionJournal {
+
+    private static final Logger LOGGER = Logger.getLogger(TransactionJournal.class.getName());
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
+    private static final int FIELD_COUNT = 10;
+
+    /**
+     * The kind of mutation a journal entry records.
+     */
+    public enum Operation {
+        ADD, UPDATE, DELETE
+    }
+
+    /**
+     * One journal record. Delete entries only carry the transaction id.
+     */
+    public static class Entry {
+        private final Operation operation;
+        private final String transactionId;
+        private final Transaction transaction;
+
+        private Entry(Operation operation, String transactionId, Transaction transaction) {
+            this.operation = operation;
+            this.transactionId = transactionId;
+            this.transaction = transaction;
+        }
+
+        public static Entry add(Transaction transaction) {
+            return new Entry(Operation.ADD, transaction.getId(), transaction);
+        }
+
+        public static Entry update(Transaction transaction) {
+            return new Entry(Operation.UPDATE, transaction.getId(), transaction);
+        }
+
+        public static Entry delete(String transactionId) {
+            return new Entry(Operation.DELETE, transactionId, null);
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        public Transaction getTransaction() {
+            return transaction;
+        }
+    }
+
+    private final Path journalPath;
+    private boolean damagedTail = false;
+
+    /**
+     * Constructor for TransactionJournal using the default journal location.
+     */
+    public TransactionJournal() {
+        this(PathUtil.getTransactionsJournalPath());
+    }
+
+    /**
+     * Constructor for TransactionJournal.
+     *
+     * @param journalPath The journal file
+     */
+    public TransactionJournal(Path journalPath) {
+        this.journalPath = journalPath;
+    }
+
+    public Path getJournalPath() {
+        return journalPath;
+    }
+
+    /**
+     * Appends one entry and forces it to disk.
+     *
+     * @param entry The entry to append
+     * @return true if the entry is durable, false otherwise
+     */
+    public boolean append(Entry entry) {
+        return append(List.of(entry));
+    }
+
+    /**
+     * Appends several entries with a single write and a single fsync.
+     *
+     * @param entries The entries to append
+     * @return true if the entries are durable, false otherwise
+     */
+    public synchronized boolean append(Collection<Entry> entries) {
+        if (entries.isEmpty()) {
+            return true;
+        }
+        try {
+            StringWriter buffer = new StringWriter();
+            try (CSVPrinter printer = new CSVPrinter(buffer, CSVFormat.DEFAULT)) {
+                for (Entry entry : entries) {
+                    List<String> fields = toFields(entry);
+                    fields.add(checksum(fields));
+                    printer.printRecord(fields);
+                }
+            }
+            Files.createDirectories(journalPath.getParent());
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toString().getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(journalPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to append to transaction journal " + journalPath, e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads every intact entry in the journal, in the order they were written.
+     *
+     * @return The journal entries, empty if there is no journal
+     */
+    public synchronized List<Entry> readAll() {
+        List<Entry> entries = new ArrayList<>();
+        damagedTail = false;
+        if (!Files.exists(journalPath)) {
+            return entries;
+        }
+        try (Reader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8);
+             CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT)) {
+            for (CSVRecord record : parser) {
+                Entry entry = parseRecord(record);
+                if (entry == null) {
+                    LOGGER.log(Level.WARNING, "Transaction journal {0} has a damaged record at line {1}; ignoring the rest",
+                            new Object[]{journalPath, record.getRecordNumber()});
+                    damagedTail = true;
+                    break;
+                }
+                entries.add(entry);
+            }
+        } catch (IOException | RuntimeException e) {
+            // 文件末尾记录被截断时解析器可能直接抛出异常，保留已读取的完整记录
+            LOGGER.log(Level.WARNING, "Stopped reading transaction journal " + journalPath + " after "
+                    + entries.size() + " entries: " + e.getMessage());
+            damagedTail = true;
+        }
+        return entries;
+    }
+
+    /**
+     * Tells whether the last {@link #readAll()} stopped at a damaged record.
+     * New entries must not be appended after such a record, so the caller should
+     * compact and clear the journal first.
+     *
+     * @return true if the journal ends with a damaged record
+     */
+    public synchronized boolean hasDamagedTail() {
+        return damagedTail;
+    }
+
+    /**
+     * Deletes the journal, normally right after its entries were compacted into the base file.
+     *
+     * @return true if the journal no longer exists, false otherwise
+     */
+    public synchronized boolean clear() {
+        try {
+            Files.deleteIfExists(journalPath);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to clear transaction journal " + journalPath, e);
+            return false;
+        }
+    }
+
+    /**
+     * Applies journal entries on top of a base list of transactions.
+     * Replaying is idempotent, so entries that were already compacted into the base
+     * (for example after a crash between compaction and clearing the journal) are harmless.
+     *
+     * @param base The transactions from the base file
+     * @param entries The journal entries to apply
+     * @return The resulting transactions, unsorted
+     */
+    public static List<Transaction> replay(List<Transaction> base, List<Entry> entries) {
+        Map<String, Transaction> byId = new LinkedHashMap<>();
+        for (Transaction transaction : base) {
+            byId.put(transaction.getId(), transaction);
+        }
+        for (Entry entry : entries) {
+            if (entry.getOperation() == Operation.DELETE) {
+                byId.remove(entry.getTransactionId());
+            } else {
+                byId.put(entry.getTransactionId(), entry.getTransaction());
+            }
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    private static List<String> toFields(Entry entry) {
+        List<String> fields = new ArrayList<>(FIELD_COUNT);
+        fields.add(entry.getOperation().name());
+        fields.add(entry.getTransactionId());
+        Transaction t = entry.getTransaction();
+        if (t == null) {
+            for (int i = 0; i < 7; i++) {
+                fields.add("");
+            }
+        } else {
+            fields.add(t.getDate().format(DATE_FORMATTER));
+            fields.add(Money.toPlainString(t.getAmountCents()));
+            fields.add(nullToEmpty(t.getDescription()));
+            fields.add(nullToEmpty(t.getCategory()));
+            fields.add(nullToEmpty(t.getParticipant()));
+            fields.add(nullToEmpty(t.getNotes()));
+            fields.add(String.valueOf(t.isExpense()));
+        }
+        return fields;
+    }
+
+    private static Entry parseRecord(CSVRecord record) {
+        if (record.size() != FIELD_COUNT) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>(FIELD_COUNT - 1);
+        for (int i = 0; i < FIELD_COUNT - 1; i++) {
+            fields.add(record.get(i));
+        }
+        if (!checksum(fields).equals(record.get(FIELD_COUNT - 1))) {
+            return null;
+        }
+        try {
+            Operation operation = Operation.valueOf(fields.get(0));
+            String id = fields.get(1);
+            if (operation == Operation.DELETE) {
+                return Entry.delete(id);
+            }
+            Transaction transaction = Transaction.ofCents(id, LocalDate.parse(fields.get(2), DATE_FORMATTER),
+                    Money.parsePlainString(fields.get(3)), fields.get(4), fields.get(5), Boolean.parseBoolean(fields.get(8)));
+            transaction.setParticipant(fields.get(6));
+            transaction.setNotes(fields.get(7));
+            return new Entry(operation, id, transaction);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String checksum(List<String> fields) {
+        CRC32 crc = new CRC32();
+        for (String field : fields) {
+            crc.update(field.getBytes(StandardCharsets.UTF_8));
+            crc.update(0);
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
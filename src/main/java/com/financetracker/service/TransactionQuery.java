@@ -0,0 +1,163 @@
+package com.financetracker.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.financetracker.model.Transaction;
+
+/**
+ * Filter for the transaction table. Every criterion is optional and the ones that are set
+ * must all match. The search text is split into terms the same way the
+ * {@link TransactionTokenIndex} splits descriptions, and each term must occur in the
+ * description, participant or notes, ignoring case.
+ */
+public final class TransactionQuery {
+
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String category;
+    private Long minAmountCents;
+    private Long maxAmountCents;
+    private Boolean expense;
+    private String text;
+    private List<String> terms = List.of();
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * @param startDate The first date to include, or null for no lower bound
+     */
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * @param endDate The last date to include, or null for no upper bound
+     */
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @param category The category, matched ignoring case, or null for all categories
+     */
+    public void setCategory(String category) {
+        this.category = category == null || category.trim().isEmpty() ? null : category.trim();
+    }
+
+    public Long getMinAmountCents() {
+        return minAmountCents;
+    }
+
+    /**
+     * @param minAmountCents The smallest amount to include, in cents, or null for no lower bound
+     */
+    public void setMinAmountCents(Long minAmountCents) {
+        this.minAmountCents = minAmountCents;
+    }
+
+    public Long getMaxAmountCents() {
+        return maxAmountCents;
+    }
+
+    /**
+     * @param maxAmountCents The largest amount to include, in cents, or null for no upper bound
+     */
+    public void setMaxAmountCents(Long maxAmountCents) {
+        this.maxAmountCents = maxAmountCents;
+    }
+
+    public Boolean getExpense() {
+        return expense;
+    }
+
+    /**
+     * @param expense true for expenses only, false for income only, null for both
+     */
+    public void setExpense(Boolean expense) {
+        this.expense = expense;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @param text The words to search for, or null for no text search
+     */
+    public void setText(String text) {
+        this.text = text;
+        this.terms = TransactionTokenIndex.tokenize(text);
+    }
+
+    /**
+     * @return The lower-cased search terms
+     */
+    List<String> getTerms() {
+        return terms;
+    }
+
+    /**
+     * @return true if no criterion is set, i.e. the query matches every transaction
+     */
+    public boolean isEmpty() {
+        return startDate == null && endDate == null && category == null && minAmountCents == null
+                && maxAmountCents == null && expense == null && terms.isEmpty();
+    }
+
+    /**
+     * Tests a transaction against every criterion.
+     *
+     * @param transaction The transaction
+     * @return true if it matches
+     */
+    public boolean matches(Transaction transaction) {
+        LocalDate date = transaction.getDate();
+        if (startDate != null && date.isBefore(startDate) || endDate != null && date.isAfter(endDate)) {
+            return false;
+        }
+        if (category != null && !category.equalsIgnoreCase(transaction.getCategory())) {
+            return false;
+        }
+        // 金额按绝对值比较，收支方向由 expense 条件决定
+        long amount = Math.abs(transaction.getAmountCents());
+        if (minAmountCents != null && amount < minAmountCents || maxAmountCents != null && amount > maxAmountCents) {
+            return false;
+        }
+        if (expense != null && transaction.isExpense() != expense) {
+            return false;
+        }
+        for (String term : terms) {
+            if (!contains(transaction.getDescription(), term) && !contains(transaction.getParticipant(), term)
+                    && !contains(transaction.getNotes(), term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 忽略大小写查找，不为每条记录创建小写副本
+     */
+    private static boolean contains(String field, String term) {
+        if (field == null) {
+            return false;
+        }
+        for (int i = 0, last = field.length() - term.length(); i <= last; i++) {
+            if (field.regionMatches(true, i, term, 0, term.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
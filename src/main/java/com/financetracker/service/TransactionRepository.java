@@ -0,0 +1,1097 @@
+package com.financetracker.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.financetracker.model.Money;
+import com.financetracker.model.Transaction;
+
+/**
+ * Resident, write-through store for transactions.
+ * The ledger lives on disk as per-month segments ({@link TransactionSegmentStore}); a month
+ * is read the first time a query needs it and is then kept in memory sorted by date (newest
+ * first), so range queries only ever open the segments they overlap. Every mutation is
+ * appended to the {@link TransactionJournal} and applied to the months it touches: an edit or
+ * deletion reads the month holding the transaction, while additions to a month that is not in
+ * memory wait in a per-month list until that month is read. Only those months are rewritten
+ * when the journal is compacted, and months no mutation touched are scanned straight from
+ * their segments. A journal left over from an earlier run is replayed and compacted when the
+ * ledger is opened. The cache is only reloaded when the manifest, the journal or a month
+ * segment is changed on disk by someone else (detected via their modification time and size);
+ * months whose segment changed are then read again rather than counted from the manifest.
+ */
+public class TransactionRepository {
+
+    private static final Logger LOGGER = Logger.getLogger(TransactionRepository.class.getName());
+
+    // 日志累计到这么多条后合并回分段文件
+    private static final int COMPACTION_THRESHOLD = 500;
+
+    private final TransactionSegmentStore segmentStore;
+    private final TransactionJournal journal;
+
+    // 已加载的月份，每个月的记录按日期倒序（最新的优先）
+    private final NavigableMap<YearMonth, List<Transaction>> loadedMonths = new TreeMap<>();
+    private final Map<String, Transaction> transactionsById = new HashMap<>();
+    // 记录每条交易所在的月份；调用方可能直接修改了交易对象的日期再调用 update
+    private final Map<String, YearMonth> monthsById = new HashMap<>();
+    // manifest 中有分段文件的月份及其行数；未加载的月份按此计数，无需读取
+    private final NavigableMap<YearMonth, Integer> storedMonths = new TreeMap<>();
+    // 新增到尚未加载的月份、只写入了日志的记录；加载该月份时并入
+    private final Map<YearMonth, List<Transaction>> pendingAdds = new HashMap<>();
+    // 内容与分段文件不一致、合并时需要重写的月份
+    private final Set<YearMonth> dirtyMonths = new HashSet<>();
+
+    // 分析用的每月列式快照，首次汇总该月时建立，修改只作废受影响的月份
+    private final Map<YearMonth, TransactionTable> monthTables = new HashMap<>();
+    // 类别倒排索引，首次按类别查询时建立（需要加载全部月份），之后随每次修改更新
+    private TransactionCategoryIndex categoryIndex;
+    // 内容哈希索引，首次导入时建立（需要加载全部月份），之后随每次修改更新
+    private TransactionDuplicateIndex duplicateIndex;
+    // 描述、交易对象、备注的词索引，首次搜索时构建
+    private TransactionTokenIndex tokenIndex;
+    // 按（月份、类别、收支）预先汇总的结果，首次使用时建立，之后随每次修改更新
+    private TransactionRollup rollup;
+    // 按财务月汇总的结果，财务月起始日变化时重建
+    private TransactionRollup financialRollup;
+
+    private boolean opened = false;
+    private int journalEntryCount = 0;
+    private FileStamp manifestStamp = FileStamp.MISSING;
+    private FileStamp journalStamp = FileStamp.MISSING;
+    // 每个月份的分段文件在本仓库最后一次读写后的状态
+    private final Map<YearMonth, FileStamp> segmentStamps = new HashMap<>();
+
+    /**
+     * Constructor for TransactionRepository.
+     *
+     * @param csvExporter The exporter used to read and write the ledger segments
+     */
+    public TransactionRepository(TransactionCsvExporter csvExporter) {
+        this(new TransactionSegmentStore(csvExporter), new TransactionJournal());
+    }
+
+    /**
+     * Constructor for TransactionRepository.
+     *
+     * @param segmentStore The per-month storage of the ledger
+     * @param journal The journal that records mutations between compactions
+     */
+    public TransactionRepository(TransactionSegmentStore segmentStore, TransactionJournal journal) {
+        this.segmentStore = segmentStore;
+        this.journal = journal;
+    }
+
+    /**
+     * Gets all transactions, newest first.
+     *
+     * @return A copy of all transactions
+     */
+    public synchronized List<Transaction> findAll() {
+        ensureOpen();
+        loadAllMonths();
+        List<Transaction> result = new ArrayList<>();
+        for (List<Transaction> monthTransactions : loadedMonths.descendingMap().values()) {
+            result.addAll(monthTransactions);
+        }
+        return result;
+    }
+
+    /**
+     * Gets a page of transactions in the order of {@link #findAll()}, without copying the
+     * rest of the ledger. Months before the page are skipped by their row counts, so only the
+     * months the page covers are read.
+     *
+     * @param offset The position of the first transaction, 0 for the newest
+     * @param limit The maximum number of transactions
+     * @return The transactions of the page, newest first; empty if the offset is past the end
+     */
+    public synchronized List<Transaction> findPage(int offset, int limit) {
+        ensureOpen();
+        List<Transaction> page = new ArrayList<>();
+        int skip = offset;
+        for (YearMonth month : knownMonths().descendingSet()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            int monthSize = monthSize(month);
+            if (skip >= monthSize) {
+                // 整个月份都在这一页之前，不必读取
+                skip -= monthSize;
+                continue;
+            }
+            List<Transaction> monthTransactions = loadMonth(month);
+            int end = Math.min(monthTransactions.size(), skip + limit - page.size());
+            page.addAll(monthTransactions.subList(skip, end));
+            skip = 0;
+        }
+        return page;
+    }
+
+    /**
+     * Gets the position of a transaction in the order of {@link #findAll()}.
+     * Only the month holding the transaction is read, normally the month of its date; newer
+     * months are counted.
+     *
+     * @param transaction The transaction
+     * @return The position, or -1 if there is no such transaction
+     */
+    public synchronized int indexOf(Transaction transaction) {
+        ensureOpen();
+        String id = transaction.getId();
+        YearMonth month = locateMonth(id, YearMonth.from(transaction.getDate()));
+        if (month == null) {
+            return -1;
+        }
+        int index = 0;
+        for (YearMonth newerMonth : knownMonths().tailSet(month, false)) {
+            index += monthSize(newerMonth);
+        }
+        List<Transaction> monthTransactions = loadedMonths.get(month);
+        for (int i = 0; i < monthTransactions.size(); i++) {
+            if (monthTransactions.get(i).getId().equals(id)) {
+                return index + i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the transactions whose date falls within the given range.
+     * Only the month segments overlapping the range are read; the rows are then located
+     * with a binary search in the boundary months ({@link TransactionDateIndex}).
+     *
+     * @param startDate The start date (inclusive)
+     * @param endDate The end date (inclusive)
+     * @return The matching transactions, newest first
+     */
+    public synchronized List<Transaction> findByDateRange(LocalDate startDate, LocalDate endDate) {
+        ensureOpen();
+        if (startDate.isAfter(endDate)) {
+            return new ArrayList<>();
+        }
+        NavigableSet<YearMonth> months = knownMonths()
+                .subSet(YearMonth.from(startDate), true, YearMonth.from(endDate), true);
+        for (YearMonth month : months) {
+            loadMonth(month);
+        }
+        return TransactionDateIndex.range(loadedMonths, startDate, endDate);
+    }
+
+    /**
+     * Visits the rows whose date falls within the given range through a {@link TransactionCursor},
+     * newest month first. Months that are not in memory and have no pending additions are
+     * scanned straight from their segment (memory-mapped when stored as binary) without being
+     * loaded; edits and deletions always load the month they touch.
+     *
+     * @param startDate The start date (inclusive)
+     * @param endDate The end date (inclusive)
+     * @param rowVisitor Called once per matching row with the cursor positioned on it
+     */
+    public synchronized void scan(LocalDate startDate, LocalDate endDate, Consumer<TransactionCursor> rowVisitor) {
+        ensureOpen();
+        if (startDate.isAfter(endDate)) {
+            return;
+        }
+        long startDay = startDate.toEpochDay();
+        long endDay = endDate.toEpochDay();
+        NavigableSet<YearMonth> months = knownMonths()
+                .subSet(YearMonth.from(startDate), true, YearMonth.from(endDate), true);
+        for (YearMonth month : months.descendingSet()) {
+            // 只有被修改过的月份需要叠加日志，它们已在内存中或有待并入的新增记录
+            TransactionCursor cursor = loadedMonths.containsKey(month) || pendingAdds.containsKey(month)
+                    ? TransactionCursor.over(loadMonth(month))
+                    : segmentStore.openCursor(month);
+            while (cursor.next()) {
+                long day = cursor.getEpochDay();
+                if (day >= startDay && day <= endDay) {
+                    rowVisitor.accept(cursor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sums the amounts of income or expense transactions within a date range from the columnar
+     * month tables, without materialising the transactions.
+     *
+     * @param startDate The start date (inclusive)
+     * @param endDate The end date (inclusive)
+     * @param isExpense Whether to sum expenses or income
+     * @return The total in cents
+     */
+    public synchronized long sumCents(LocalDate startDate, LocalDate endDate, boolean isExpense) {
+        ensureOpen();
+        long total = 0;
+        for (TransactionTable monthTable : getMonthTables(startDate, endDate)) {
+            total += monthTable.sumCents(startDate, endDate, isExpense);
+        }
+        return total;
+    }
+
+    /**
+     * Sums the amounts of income or expense transactions within a date range per category from
+     * the columnar month tables.
+     *
+     * @param startDate The start date (inclusive)
+     * @param endDate The end date (inclusive)
+     * @param isExpense Whether to sum expenses or income
+     * @return The total of each category that has matching transactions
+     */
+    public synchronized Map<String, Double> categoryTotals(LocalDate startDate, LocalDate endDate, boolean isExpense) {
+        ensureOpen();
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (TransactionTable monthTable : getMonthTables(startDate, endDate)) {
+            monthTable.addCategoryTotals(startDate, endDate, isExpense, totals);
+        }
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : totals.entrySet()) {
+            result.put(entry.getKey(), Money.toMajorUnits(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the columnar tables of the months overlapping a date range, building those that
+     * are missing. A table is built by {@link #scan}, so months that are not in memory never
+     * turn into Transaction objects, and it is only rebuilt after its own month changed.
+     */
+    private List<TransactionTable> getMonthTables(LocalDate startDate, LocalDate endDate) {
+        List<TransactionTable> tables = new ArrayList<>();
+        if (startDate.isAfter(endDate)) {
+            return tables;
+        }
+        for (YearMonth month : knownMonths().subSet(YearMonth.from(startDate), true, YearMonth.from(endDate), true)) {
+            TransactionTable monthTable = monthTables.get(month);
+            if (monthTable == null) {
+                TransactionTable.Builder builder = new TransactionTable.Builder();
+                scan(month.atDay(1), month.atEndOfMonth(), builder::add);
+                monthTable = builder.build();
+                monthTables.put(month, monthTable);
+            }
+            tables.add(monthTable);
+        }
+        return tables;
+    }
+
+    /**
+     * Gets the monthly rollup of the ledger, building it on first use.
+     * Like the month tables, the rollup is built by {@link #scan}; afterwards it is kept up to
+     * date by every mutation rather than rebuilt.
+     *
+     * @return The current rollup
+     */
+    public synchronized TransactionRollup getRollup() {
+        ensureOpen();
+        if (rollup == null) {
+            rollup = buildRollup(null);
+        }
+        return rollup;
+    }
+
+    /**
+     * Gets the rollup of the ledger by financial month. It is built on first use and rebuilt
+     * only when the calendar's month start day differs from the one it was built with;
+     * otherwise it is kept up to date by every mutation like {@link #getRollup}.
+     *
+     * @param calendar The calendar that defines the financial months
+     * @return The current financial-month rollup
+     */
+    public synchronized TransactionRollup getFinancialRollup(FinancialCalendar calendar) {
+        ensureOpen();
+        if (financialRollup == null
+                || financialRollup.getCalendar().getMonthStartDay() != calendar.getMonthStartDay()) {
+            financialRollup = buildRollup(calendar);
+        }
+        return financialRollup;
+    }
+
+    private TransactionRollup buildRollup(FinancialCalendar calendar) {
+        TransactionRollup newRollup = new TransactionRollup(calendar);
+        NavigableSet<YearMonth> months = knownMonths();
+        if (!months.isEmpty()) {
+            scan(months.first().atDay(1), months.last().atEndOfMonth(), newRollup::add);
+        }
+        return newRollup;
+    }
+
+    /**
+     * Gets the transactions of a category.
+     *
+     * @param category The category
+     * @return The matching transactions, newest first
+     */
+    public synchronized List<Transaction> findByCategory(String category) {
+        return findByCategory(category, false);
+    }
+
+    /**
+     * Gets the transactions of a category from the {@link TransactionCategoryIndex}.
+     *
+     * @param category The category
+     * @param ignoreCase Whether to match the category name case-insensitively
+     * @return The matching transactions, newest first
+     */
+    public synchronized List<Transaction> findByCategory(String category, boolean ignoreCase) {
+        ensureOpen();
+        return getCategoryIndex().find(category, ignoreCase);
+    }
+
+    /**
+     * Gets the transactions of a category whose date falls within the given range.
+     * The category's posting list is narrowed to the range by binary search.
+     *
+     * @param category The category
+     * @param ignoreCase Whether to match the category name case-insensitively
+     * @param startDate The start date (inclusive)
+     * @param endDate The end date (inclusive)
+     * @return The matching transactions, newest first
+     */
+    public synchronized List<Transaction> findByCategoryAndDateRange(String category, boolean ignoreCase,
+            LocalDate startDate, LocalDate endDate) {
+        ensureOpen();
+        return getCategoryIndex().find(category, ignoreCase, startDate, endDate);
+    }
+
+    /**
+     * Gets the transactions that match a query, newest first.
+     * The smallest candidate list the indexes offer is chosen: the category's posting list
+     * narrowed to the date range, the date range from the {@link TransactionDateIndex}, or
+     * the rows containing the rarest search term from the {@link TransactionTokenIndex}.
+     * Only those candidates are then tested against the remaining criteria.
+     *
+     * @param query The query
+     * @return The matching transactions, newest first
+     */
+    public synchronized List<Transaction> findMatching(TransactionQuery query) {
+        ensureOpen();
+        loadAllMonths();
+        LocalDate startDate = query.getStartDate() != null ? query.getStartDate() : LocalDate.MIN;
+        LocalDate endDate = query.getEndDate() != null ? query.getEndDate() : LocalDate.MAX;
+        if (startDate.isAfter(endDate)) {
+            return new ArrayList<>();
+        }
+        // null 表示没有可用的索引，需要遍历全部记录
+        List<Transaction> candidates = null;
+        if (query.getCategory() != null) {
+            candidates = getCategoryIndex().find(query.getCategory(), true, startDate, endDate);
+        } else if (query.getStartDate() != null || query.getEndDate() != null) {
+            candidates = TransactionDateIndex.range(loadedMonths, startDate, endDate);
+        }
+        if (!query.getTerms().isEmpty()) {
+            TransactionTokenIndex index = getTokenIndex();
+            List<Integer> rarestTokens = null;
+            int rarestCount = Integer.MAX_VALUE;
+            for (String term : query.getTerms()) {
+                List<Integer> tokens = index.tokensContaining(term);
+                int count = index.postingCount(tokens);
+                if (count < rarestCount) {
+                    rarestTokens = tokens;
+                    rarestCount = count;
+                }
+            }
+            if (rarestCount < (candidates != null ? candidates.size() : transactionsById.size())) {
+                candidates = index.find(rarestTokens);
+            }
+        }
+        List<Transaction> result = new ArrayList<>();
+        if (candidates == null) {
+            for (List<Transaction> monthTransactions : loadedMonths.descendingMap().values()) {
+                for (Transaction transaction : monthTransactions) {
+                    if (query.matches(transaction)) {
+                        result.add(transaction);
+                    }
+                }
+            }
+        } else {
+            for (Transaction transaction : candidates) {
+                if (query.matches(transaction)) {
+                    result.add(transaction);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets a transaction by its id.
+     *
+     * @param id The transaction id
+     * @return The transaction, or null if there is none with this id
+     */
+    public synchronized Transaction findById(String id) {
+        ensureOpen();
+        return locateMonth(id, null) != null ? transactionsById.get(id) : null;
+    }
+
+    /**
+     * Gets the number of stored transactions from the row counts of the months, without
+     * reading the months that are not in memory.
+     *
+     * @return The transaction count
+     */
+    public synchronized int size() {
+        ensureOpen();
+        int size = 0;
+        for (YearMonth month : knownMonths()) {
+            size += monthSize(month);
+        }
+        return size;
+    }
+
+    /**
+     * Adds a transaction and appends it to the journal.
+     *
+     * @param transaction The transaction to add
+     * @return true if the operation was successful, false otherwise
+     */
+    public synchronized boolean add(Transaction transaction) {
+        ensureOpen();
+        applyAdd(transaction);
+        return appendToJournal(List.of(TransactionJournal.Entry.add(transaction)), true);
+    }
+
+    /**
+     * Adds several transactions with a single journal append.
+     *
+     * @param newTransactions The transactions to add
+     * @return true if the operation was successful, false otherwise
+     */
+    public synchronized boolean addAll(Collection<Transaction> newTransactions) {
+        return addAll(newTransactions, true);
+    }
+
+    /**
+     * Adds several transactions with a single journal append.
+     * Bulk imports pass {@code compactWhenFull = false} and call {@link #compact()} themselves
+     * every few batches, so that each batch does not rewrite the months it touched.
+     *
+     * @param newTransactions The transactions to add
+     * @param compactWhenFull Whether to compact once the journal grows past the threshold
+     * @return true if the operation was successful, false otherwise
+     */
+    public synchronized boolean addAll(Collection<Transaction> newTransactions, boolean compactWhenFull) {
+        ensureOpen();
+        if (newTransactions.isEmpty()) {
+            return true;
+        }
+        List<TransactionJournal.Entry> entries = new ArrayList<>(newTransactions.size());
+        for (Transaction transaction : newTransactions) {
+            applyAdd(transaction);
+            entries.add(TransactionJournal.Entry.add(transaction));
+        }
+        return appendToJournal(entries, compactWhenFull);
+    }
+
+    /**
+     * Drops the imported rows that are already in the ledger, in O(1) per row.
+     * The rows that are kept count as present for later calls with the same statement.
+     *
+     * @param importedRows The rows read from one statement, or one batch of them
+     * @param statement The duplicate check of the statement the rows come from
+     * @return The rows that are not yet in the ledger
+     */
+    synchronized List<Transaction> removeDuplicates(List<Transaction> importedRows,
+                                                    TransactionDuplicateIndex.Statement statement) {
+        ensureOpen();
+        TransactionDuplicateIndex index = getDuplicateIndex();
+        List<Transaction> fresh = new ArrayList<>(importedRows.size());
+        for (Transaction transaction : importedRows) {
+            if (statement.accept(transaction, index)) {
+                fresh.add(transaction);
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Replaces the stored transaction that has the same id.
+     *
+     * @param transaction The updated transaction
+     * @return true if the transaction existed and was saved, false otherwise
+     */
+    public synchronized boolean update(Transaction transaction) {
+        ensureOpen();
+        YearMonth previousMonth = locateMonth(transaction.getId(), YearMonth.from(transaction.getDate()));
+        if (previousMonth == null) {
+            return false;
+        }
+        removeById(transaction.getId());
+        insertSorted(transaction);
+        rebuildRollups(previousMonth);
+        rebuildRollups(YearMonth.from(transaction.getDate()));
+        return appendToJournal(List.of(TransactionJournal.Entry.update(transaction)), true);
+    }
+
+    /**
+     * Deletes the transaction with the given id.
+     *
+     * @param id The transaction id
+     * @return true if the transaction existed and the deletion was saved, false otherwise
+     */
+    public synchronized boolean delete(String id) {
+        ensureOpen();
+        YearMonth previousMonth = locateMonth(id, null);
+        if (previousMonth == null) {
+            return false;
+        }
+        removeById(id);
+        rebuildRollups(previousMonth);
+        return appendToJournal(List.of(TransactionJournal.Entry.delete(id)), true);
+    }
+
+    /**
+     * Replaces several stored transactions with a single journal append, so that either all
+     * of the changes are saved or none of them are.
+     *
+     * @param changedTransactions The updated transactions
+     * @return true if every transaction existed and the changes were saved, false otherwise
+     */
+    public synchronized boolean updateAll(Collection<Transaction> changedTransactions) {
+        ensureOpen();
+        // 先确认全部存在，避免只修改了一部分
+        for (Transaction transaction : changedTransactions) {
+            if (locateMonth(transaction.getId(), YearMonth.from(transaction.getDate())) == null) {
+                return false;
+            }
+        }
+        if (changedTransactions.isEmpty()) {
+            return true;
+        }
+        Set<YearMonth> touchedMonths = new TreeSet<>();
+        List<TransactionJournal.Entry> entries = new ArrayList<>(changedTransactions.size());
+        for (Transaction transaction : changedTransactions) {
+            touchedMonths.add(monthsById.get(transaction.getId()));
+            removeById(transaction.getId());
+            insertSorted(transaction);
+            touchedMonths.add(YearMonth.from(transaction.getDate()));
+            entries.add(TransactionJournal.Entry.update(transaction));
+        }
+        for (YearMonth month : touchedMonths) {
+            rebuildRollups(month);
+        }
+        return appendToJournal(entries, true);
+    }
+
+    /**
+     * Deletes several transactions with a single journal append.
+     * Ids that are not stored are skipped.
+     *
+     * @param ids The transaction ids
+     * @return The deleted transactions, or null if the deletion could not be saved
+     */
+    public synchronized List<Transaction> deleteAll(Collection<String> ids) {
+        ensureOpen();
+        List<Transaction> deleted = new ArrayList<>(ids.size());
+        Set<YearMonth> touchedMonths = new TreeSet<>();
+        List<TransactionJournal.Entry> entries = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            YearMonth month = locateMonth(id, null);
+            Transaction transaction = transactionsById.get(id);
+            if (month == null || !removeById(id)) {
+                continue;
+            }
+            deleted.add(transaction);
+            touchedMonths.add(month);
+            entries.add(TransactionJournal.Entry.delete(id));
+        }
+        if (deleted.isEmpty()) {
+            return deleted;
+        }
+        for (YearMonth month : touchedMonths) {
+            rebuildRollups(month);
+        }
+        return appendToJournal(entries, true) ? deleted : null;
+    }
+
+    /**
+     * Replaces the whole ledger with the given transactions.
+     * This rewrites every segment directly and discards the journal.
+     *
+     * @param newTransactions The transactions to store
+     * @return true if the operation was successful, false otherwise
+     */
+    public synchronized boolean replaceAll(List<Transaction> newTransactions) {
+        boolean saved = segmentStore.replaceAll(newTransactions);
+        if (!saved) {
+            opened = false;
+            return false;
+        }
+        journal.clear();
+        monthTables.clear();
+        categoryIndex = null;
+        duplicateIndex = null;
+        tokenIndex = null;
+        rollup = null;
+        financialRollup = null;
+        loadedMonths.clear();
+        transactionsById.clear();
+        monthsById.clear();
+        storedMonths.clear();
+        pendingAdds.clear();
+        dirtyMonths.clear();
+        journalEntryCount = 0;
+        for (Transaction transaction : newTransactions) {
+            insertSorted(transaction);
+        }
+        dirtyMonths.clear();
+        segmentStamps.clear();
+        for (Map.Entry<YearMonth, List<Transaction>> entry : loadedMonths.entrySet()) {
+            storedMonths.put(entry.getKey(), entry.getValue().size());
+            segmentStamps.put(entry.getKey(), FileStamp.of(segmentStore.getSegmentPath(entry.getKey())));
+        }
+        recordFileStamps();
+        opened = true;
+        return true;
+    }
+
+    /**
+     * Folds the journal into the month segments it touched and empties it.
+     * Called automatically once the journal grows past {@link #COMPACTION_THRESHOLD}
+     * entries, and on shutdown so the next start does not have to replay it.
+     *
+     * @return true if there was nothing to compact or compaction succeeded, false otherwise
+     */
+    public synchronized boolean compact() {
+        ensureOpen();
+        if (journalEntryCount == 0 && dirtyMonths.isEmpty() && journalStamp.equals(FileStamp.MISSING)) {
+            return true;
+        }
+        return writeDirtyMonths();
+    }
+
+    /**
+     * Drops the cached ledger so that the next query reads it from disk again.
+     */
+    public synchronized void invalidate() {
+        opened = false;
+    }
+
+    private void ensureOpen() {
+        if (opened && !backingFilesChanged()) {
+            return;
+        }
+        // 分段文件被外部替换但 manifest 未更新时，manifest 中的行数已不可信，重新打开后直接读取这些月份
+        Set<YearMonth> changedSegments = changedSegments();
+        monthTables.clear();
+        categoryIndex = null;
+        duplicateIndex = null;
+        tokenIndex = null;
+        rollup = null;
+        financialRollup = null;
+        loadedMonths.clear();
+        transactionsById.clear();
+        monthsById.clear();
+        storedMonths.clear();
+        pendingAdds.clear();
+        dirtyMonths.clear();
+        // readManifest 会在首次打开时把旧的 transactions.csv 拆分为按月分段
+        try {
+            storedMonths.putAll(segmentStore.readManifest());
+        } catch (IOException e) {
+            // 保持未打开状态，下次访问时重试；分段文件不会按不完整的 manifest 改写
+            LOGGER.log(Level.SEVERE, "Failed to read ledger manifest " + segmentStore.getManifestPath(), e);
+            opened = false;
+            return;
+        }
+        List<TransactionJournal.Entry> pending = journal.readAll();
+        journalEntryCount = pending.size();
+        recordFileStamps();
+        segmentStamps.clear();
+        for (YearMonth month : storedMonths.keySet()) {
+            segmentStamps.put(month, FileStamp.of(segmentStore.getSegmentPath(month)));
+        }
+        opened = true;
+        for (YearMonth month : changedSegments) {
+            if (storedMonths.containsKey(month)) {
+                loadMonth(month);
+            }
+        }
+        LOGGER.log(Level.FINE, "Opened ledger with {0} month segments ({1} journal entries pending)",
+                new Object[]{storedMonths.size(), pending.size()});
+        // 日志末尾有损坏的记录时同样要合并并清空日志，避免新记录追加在损坏数据之后
+        if (!pending.isEmpty() || journal.hasDamagedTail()) {
+            replayJournal(pending);
+        }
+    }
+
+    /**
+     * Applies a journal left over from an earlier run and compacts it, so that afterwards every
+     * pending change belongs to a month in memory. Edits and deletions only name the transaction
+     * id, so they make every month be read; a journal of additions only reads the months they
+     * were added to. Replaying is idempotent: a row that was already compacted is replaced
+     * rather than duplicated.
+     */
+    private void replayJournal(List<TransactionJournal.Entry> entries) {
+        boolean onlyAdditions = true;
+        for (TransactionJournal.Entry entry : entries) {
+            if (entry.getOperation() == TransactionJournal.Operation.ADD) {
+                loadMonth(YearMonth.from(entry.getTransaction().getDate()));
+            } else {
+                onlyAdditions = false;
+            }
+        }
+        if (!onlyAdditions) {
+            loadAllMonths();
+        }
+        for (TransactionJournal.Entry entry : entries) {
+            removeById(entry.getTransactionId());
+            if (entry.getOperation() != TransactionJournal.Operation.DELETE) {
+                insertSorted(entry.getTransaction());
+            }
+        }
+        if (!writeDirtyMonths() && !journal.hasDamagedTail()) {
+            // 合并失败时日志仍在磁盘上，受影响的月份都已在内存中，可以继续使用并在之后再合并
+            opened = true;
+        }
+    }
+
+    /**
+     * Months that may contain transactions: segments on disk, months already in memory and
+     * months that only have additions in the journal so far.
+     */
+    private NavigableSet<YearMonth> knownMonths() {
+        NavigableSet<YearMonth> months = new TreeSet<>(storedMonths.keySet());
+        months.addAll(loadedMonths.keySet());
+        months.addAll(pendingAdds.keySet());
+        return months;
+    }
+
+    /**
+     * 某个月份的记录数：已加载时为内存中的行数，否则为 manifest 中的行数加上待并入的新增记录数
+     */
+    private int monthSize(YearMonth month) {
+        List<Transaction> monthTransactions = loadedMonths.get(month);
+        if (monthTransactions != null) {
+            return monthTransactions.size();
+        }
+        List<Transaction> added = pendingAdds.get(month);
+        return storedMonths.getOrDefault(month, 0) + (added != null ? added.size() : 0);
+    }
+
+    /**
+     * Finds the month holding a transaction while reading as few months as possible: the
+     * months in memory first, then the month it is most likely dated in, and every month only
+     * if it is still not found.
+     *
+     * @return The month, or null if there is no transaction with this id
+     */
+    private YearMonth locateMonth(String id, YearMonth likelyMonth) {
+        YearMonth month = monthsById.get(id);
+        if (month == null && likelyMonth != null && !loadedMonths.containsKey(likelyMonth)) {
+            loadMonth(likelyMonth);
+            month = monthsById.get(id);
+        }
+        if (month == null) {
+            loadAllMonths();
+            month = monthsById.get(id);
+        }
+        return month;
+    }
+
+    private void loadAllMonths() {
+        for (YearMonth month : knownMonths()) {
+            loadMonth(month);
+        }
+    }
+
+    private TransactionCategoryIndex getCategoryIndex() {
+        if (categoryIndex == null) {
+            loadAllMonths();
+            categoryIndex = TransactionCategoryIndex.build(loadedMonths.descendingMap().values());
+        }
+        return categoryIndex;
+    }
+
+    private TransactionTokenIndex getTokenIndex() {
+        if (tokenIndex == null) {
+            loadAllMonths();
+            tokenIndex = TransactionTokenIndex.build(loadedMonths.descendingMap().values());
+        }
+        return tokenIndex;
+    }
+
+    private TransactionDuplicateIndex getDuplicateIndex() {
+        if (duplicateIndex == null) {
+            loadAllMonths();
+            duplicateIndex = TransactionDuplicateIndex.build(loadedMonths.values());
+        }
+        return duplicateIndex;
+    }
+
+    /**
+     * Reads one month's segment and merges in the additions to that month that so far are only
+     * in the journal. Edits and deletions never need to be overlaid here: they are applied to
+     * the month in memory when they are made.
+     */
+    private List<Transaction> loadMonth(YearMonth month) {
+        List<Transaction> monthTransactions = loadedMonths.get(month);
+        if (monthTransactions != null) {
+            return monthTransactions;
+        }
+        if (storedMonths.containsKey(month)) {
+            monthTransactions = segmentStore.readMonth(month);
+            // 读取旧格式的分段时会重写该文件
+            segmentStamps.put(month, FileStamp.of(segmentStore.getSegmentPath(month)));
+        } else {
+            monthTransactions = new ArrayList<>();
+        }
+        List<Transaction> added = pendingAdds.remove(month);
+        if (added != null) {
+            monthTransactions.addAll(added);
+        }
+        // 与原 getAllTransactions 相同的稳定排序，同一天的记录保持文件中的顺序
+        monthTransactions.sort((a, b) -> b.getDate().compareTo(a.getDate()));
+        loadedMonths.put(month, monthTransactions);
+        for (Transaction transaction : monthTransactions) {
+            transactionsById.put(transaction.getId(), transaction);
+            monthsById.put(transaction.getId(), month);
+            if (categoryIndex != null) {
+                categoryIndex.add(transaction);
+            }
+            if (duplicateIndex != null) {
+                duplicateIndex.add(transaction);
+            }
+            if (tokenIndex != null) {
+                tokenIndex.add(transaction);
+            }
+        }
+        return monthTransactions;
+    }
+
+    private void applyAdd(Transaction transaction) {
+        YearMonth month = YearMonth.from(transaction.getDate());
+        // 尚未加载的月份不必读取，加载时会从 pendingAdds 补上这条记录；
+        // 类别索引、重复索引或词索引存在时所有月份均已加载，未加载的月份必定是新月份
+        if (loadedMonths.containsKey(month) || categoryIndex != null || duplicateIndex != null || tokenIndex != null) {
+            insertSorted(transaction);
+        } else {
+            pendingAdds.computeIfAbsent(month, m -> new ArrayList<>()).add(transaction);
+            dirtyMonths.add(month);
+            monthTables.remove(month);
+        }
+        if (rollup != null) {
+            rollup.add(transaction);
+        }
+        if (financialRollup != null) {
+            financialRollup.add(transaction);
+        }
+    }
+
+    /**
+     * Inserts after every transaction with the same or a later date, which keeps the
+     * order a stable newest-first sort would produce.
+     */
+    private void insertSorted(Transaction transaction) {
+        YearMonth month = YearMonth.from(transaction.getDate());
+        List<Transaction> monthTransactions = loadMonth(month);
+        LocalDate date = transaction.getDate();
+        int low = 0;
+        int high = monthTransactions.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (monthTransactions.get(mid).getDate().isBefore(date)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        monthTransactions.add(low, transaction);
+        monthTables.remove(month);
+        if (categoryIndex != null) {
+            categoryIndex.add(transaction);
+        }
+        if (duplicateIndex != null) {
+            duplicateIndex.add(transaction);
+        }
+        if (tokenIndex != null) {
+            tokenIndex.add(transaction);
+        }
+        transactionsById.put(transaction.getId(), transaction);
+        monthsById.put(transaction.getId(), month);
+        dirtyMonths.add(month);
+    }
+
+    /**
+     * Recomputes the rollup months that overlap a calendar month, since a removed row may have
+     * been a minimum or maximum. The old values of the row are not known when the caller
+     * edited it in place. Only the calendar months a rollup month spans are read.
+     */
+    private void rebuildRollups(YearMonth month) {
+        for (TransactionRollup target : new TransactionRollup[]{rollup, financialRollup}) {
+            if (target == null) {
+                continue;
+            }
+            for (YearMonth period : target.periodsOverlapping(month)) {
+                LocalDate startDate = target.getStartDate(period);
+                LocalDate endDate = target.getEndDate(period);
+                for (YearMonth spanned = YearMonth.from(startDate); !spanned.isAfter(YearMonth.from(endDate));
+                        spanned = spanned.plusMonths(1)) {
+                    loadMonth(spanned);
+                }
+                target.rebuildPeriod(period, TransactionDateIndex.range(loadedMonths, startDate, endDate));
+            }
+        }
+    }
+
+    private boolean removeById(String id) {
+        if (transactionsById.remove(id) == null) {
+            return false;
+        }
+        YearMonth month = monthsById.remove(id);
+        if (categoryIndex != null) {
+            categoryIndex.remove(id);
+        }
+        if (duplicateIndex != null) {
+            duplicateIndex.remove(id);
+        }
+        if (tokenIndex != null) {
+            tokenIndex.remove(id);
+        }
+        List<Transaction> monthTransactions = loadedMonths.get(month);
+        for (int i = 0; i < monthTransactions.size(); i++) {
+            if (monthTransactions.get(i).getId().equals(id)) {
+                monthTransactions.remove(i);
+                break;
+            }
+        }
+        monthTables.remove(month);
+        dirtyMonths.add(month);
+        return true;
+    }
+
+    private boolean appendToJournal(List<TransactionJournal.Entry> entries, boolean compactWhenFull) {
+        if (!journal.append(entries)) {
+            // 写入失败时内存与磁盘不一致，下次查询从磁盘重新加载
+            opened = false;
+            return false;
+        }
+        journalEntryCount += entries.size();
+        recordFileStamps();
+        if (compactWhenFull && journalEntryCount >= COMPACTION_THRESHOLD) {
+            // 合并失败不影响本次修改，它已经安全写入日志
+            writeDirtyMonths();
+        }
+        return true;
+    }
+
+    private boolean writeDirtyMonths() {
+        // 修改过的月份都已在内存中，只有新增记录的月份还需要读取并并入
+        Map<YearMonth, List<Transaction>> changedMonths = new TreeMap<>();
+        for (YearMonth month : dirtyMonths) {
+            changedMonths.put(month, loadMonth(month));
+        }
+        if (!segmentStore.writeMonths(changedMonths)) {
+            opened = false;
+            return false;
+        }
+        // 分段文件已包含全部修改；即使清空日志失败，重放也是幂等的
+        if (journal.clear()) {
+            journalEntryCount = 0;
+        }
+        for (Map.Entry<YearMonth, List<Transaction>> entry : changedMonths.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                storedMonths.remove(entry.getKey());
+                segmentStamps.remove(entry.getKey());
+            } else {
+                storedMonths.put(entry.getKey(), entry.getValue().size());
+                segmentStamps.put(entry.getKey(), FileStamp.of(segmentStore.getSegmentPath(entry.getKey())));
+            }
+        }
+        dirtyMonths.clear();
+        recordFileStamps();
+        LOGGER.log(Level.FINE, "Compacted transaction journal into {0} month segments", changedMonths.size());
+        return true;
+    }
+
+    private boolean backingFilesChanged() {
+        return !FileStamp.of(segmentStore.getManifestPath()).equals(manifestStamp)
+                || !FileStamp.of(journal.getJournalPath()).equals(journalStamp)
+                || !changedSegments().isEmpty();
+    }
+
+    /**
+     * 状态与本仓库最后一次读写时不同的分段文件所在的月份
+     */
+    private Set<YearMonth> changedSegments() {
+        Set<YearMonth> changed = new HashSet<>();
+        for (Map.Entry<YearMonth, FileStamp> entry : segmentStamps.entrySet()) {
+            if (!FileStamp.of(segmentStore.getSegmentPath(entry.getKey())).equals(entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+        return changed;
+    }
+
+    private void recordFileStamps() {
+        manifestStamp = FileStamp.of(segmentStore.getManifestPath());
+        journalStamp = FileStamp.of(journal.getJournalPath());
+    }
+
+    /**
+     * Modification time and size of a file, used to notice changes made outside this repository.
+     */
+    private static final class FileStamp {
+        static final FileStamp MISSING = new FileStamp(null, -1);
+
+        private final FileTime modifiedTime;
+        private final long size;
+
+        private FileStamp(FileTime modifiedTime, long size) {
+            this.modifiedTime = modifiedTime;
+            this.size = size;
+        }
+
+        static FileStamp of(Path path) {
+            try {
+                // 一次系统调用同时读取修改时间和大小，每次访问仓库都要检查全部分段文件
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new FileStamp(attributes.lastModifiedTime(), attributes.size());
+            } catch (NoSuchFileException e) {
+                return MISSING;
+            } catch (IOException e) {
+                // 无法读取时返回一个与任何记录都不相等的标记，强制重新加载
+                return new FileStamp(null, -2);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FileStamp)) {
+                return false;
+            }
+            FileStamp other = (FileStamp) o;
+            return size == other.size && Objects.equals(modifiedTime, other.modifiedTime);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(modifiedTime, size);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.financetracker.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.financetracker.model.Money;
+import com.financetracker.model.Transaction;
+
+/**
+ * Materialised monthly rollup of the ledger keyed by (month, category, income/expense).
+ * Each cell holds the sum, count, minimum and maximum of its amounts in cents, so monthly
+ * totals, multi-month averages and category distributions are answered from a few hundred
+ * cells instead of the individual transactions.
+ *
+ * Months are calendar months, or financial months when the rollup is created with a
+ * {@link FinancialCalendar}. Additions are applied to their cell directly. A removal may
+ * invalidate a cell's minimum or maximum, so the repository rebuilds the whole month from
+ * its rows instead.
+ */
+public final class TransactionRollup {
+
+    // 为 null 时按自然月汇总
+    private final FinancialCalendar calendar;
+    // 每个月两组单元格：[0] 收入，[1] 支出，按类别（可为 null）索引
+    private final NavigableMap<YearMonth, MonthCells> months = new TreeMap<>();
+
+    /**
+     * Creates a rollup by calendar month.
+     */
+    TransactionRollup() {
+        this(null);
+    }
+
+    /**
+     * Creates a rollup by financial month.
+     *
+     * @param calendar The calendar that defines the financial months, or null for calendar months
+     */
+    TransactionRollup(FinancialCalendar calendar) {
+        this.calendar = calendar;
+    }
+
+    /**
+     * @return The calendar of a financial-month rollup, or null for a calendar-month rollup
+     */
+    public FinancialCalendar getCalendar() {
+        return calendar;
+    }
+
+    /**
+     * Gets the month a date is rolled up into.
+     *
+     * @param date The date
+     * @return The calendar or financial month
+     */
+    public YearMonth periodOf(LocalDate date) {
+        return calendar == null ? YearMonth.from(date) : calendar.periodOf(date);
+    }
+
+    LocalDate getStartDate(YearMonth period) {
+        return calendar == null ? period.atDay(1) : calendar.getStartDate(period);
+    }
+
+    LocalDate getEndDate(YearMonth period) {
+        return calendar == null ? period.atEndOfMonth() : calendar.getEndDate(period);
+    }
+
+    /**
+     * Gets the months of this rollup that share days with a calendar month.
+     *
+     * @param month The calendar month
+     * @return One month for a calendar-month rollup, up to two for a financial-month rollup
+     */
+    Set<YearMonth> periodsOverlapping(YearMonth month) {
+        Set<YearMonth> periods = new TreeSet<>();
+        periods.add(periodOf(month.atDay(1)));
+        periods.add(periodOf(month.atEndOfMonth()));
+        return periods;
+    }
+
+    /**
+     * Adds one row to its cell.
+     *
+     * @param date The date of the row
+     * @param category The category, may be null
+     * @param isExpense Whether the row is an expense
+     * @param amountCents The amount in cents
+     */
+    void add(LocalDate date, String category, boolean isExpense, long amountCents) {
+        cellsFor(periodOf(date)).of(isExpense).computeIfAbsent(category, c -> new Cell()).add(amountCents);
+    }
+
+    void add(TransactionCursor row) {
+        add(row.getDate(), row.getCategory(), row.isExpense(), row.getAmountCents());
+    }
+
+    void add(Transaction transaction) {
+        add(transaction.getDate(), transaction.getCategory(), transaction.isExpense(),
+                transaction.getAmountCents());
+    }
+
+    /**
+     * Discards a month's cells and recomputes them from its rows.
+     *
+     * @param period The calendar or financial month
+     * @param periodTransactions All transactions dated within the month
+     */
+    void rebuildPeriod(YearMonth period, List<Transaction> periodTransactions) {
+        months.remove(period);
+        for (Transaction transaction : periodTransactions) {
+            add(transaction);
+        }
+    }
+
+    /**
+     * Gets the cell of a month, category and type.
+     *
+     * @param month The month
+     * @param category The category, may be null
+     * @param isExpense Whether to get the expense or income cell
+     * @return The cell, or null if the month has no such rows
+     */
+    public Cell getCell(YearMonth month, String category, boolean isExpense) {
+        MonthCells cells = months.get(month);
+        return cells == null ? null : cells.of(isExpense).get(category);
+    }
+
+    /**
+     * Sums the income or expense cells of a range of months.
+     *
+     * @param firstMonth The first month (inclusive)
+     * @param lastMonth The last month (inclusive)
+     * @param isExpense Whether to sum expenses or income
+     * @return The total in cents
+     */
+    public long sumCents(YearMonth firstMonth, YearMonth lastMonth, boolean isExpense) {
+        long total = 0;
+        for (MonthCells cells : range(firstMonth, lastMonth).values()) {
+            for (Cell cell : cells.of(isExpense).values()) {
+                total += cell.sumCents;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sums the income or expense cells of a range of months per category.
+     *
+     * @param firstMonth The first month (inclusive)
+     * @param lastMonth The last month (inclusive)
+     * @param isExpense Whether to sum expenses or income
+     * @return The total of each category that has rows in the range
+     */
+    public Map<String, Double> categoryTotals(YearMonth firstMonth, YearMonth lastMonth, boolean isExpense) {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (MonthCells cells : range(firstMonth, lastMonth).values()) {
+            for (Map.Entry<String, Cell> entry : cells.of(isExpense).entrySet()) {
+                totals.merge(entry.getKey(), entry.getValue().sumCents, Long::sum);
+            }
+        }
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : totals.entrySet()) {
+            result.put(entry.getKey(), Money.toMajorUnits(entry.getValue()));
+        }
+        return result;
+    }
+
+    private NavigableMap<YearMonth, MonthCells> range(YearMonth firstMonth, YearMonth lastMonth) {
+        if (firstMonth.isAfter(lastMonth)) {
+            return new TreeMap<>();
+        }
+        return months.subMap(firstMonth, true, lastMonth, true);
+    }
+
+    private MonthCells cellsFor(YearMonth month) {
+        return months.computeIfAbsent(month, m -> new MonthCells());
+    }
+
+    /**
+     * 一个月份的收入和支出单元格，按类别索引
+     */
+    private static final class MonthCells {
+        private final Map<String, Cell> income = new HashMap<>();
+        private final Map<String, Cell> expense = new HashMap<>();
+
+        private Map<String, Cell> of(boolean isExpense) {
+            return isExpense ? expense : income;
+        }
+    }
+
+    /**
+     * Aggregates of one (month, category, type) combination.
+     */
+    public static final class Cell {
+        private long sumCents;
+        private int count;
+        private long minCents = Long.MAX_VALUE;
+        private long maxCents = Long.MIN_VALUE;
+
+        private void add(long amountCents) {
+            sumCents += amountCents;
+            count++;
+            minCents = Math.min(minCents, amountCents);
+            maxCents = Math.max(maxCents, amountCents);
+        }
+
+        public double getSum() {
+            return Money.toMajorUnits(sumCents);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public double getMin() {
+            return Money.toMajorUnits(minCents);
+        }
+
+        public double getMax() {
+            return Money.toMajorUnits(maxCents);
+        }
+    }
+}
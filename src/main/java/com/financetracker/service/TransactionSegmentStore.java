@@ -0,0 +1,410 @@
+package com.financetracker.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import com.financetracker.model.Transaction;
+import com.financetracker.util.PathUtil;
+
+/**
+ * Date-partitioned on-disk layout of the ledger.
+ * Transactions are stored as one segment per year-month (data/ledger/yyyy-MM.csv with the
+ * same columns as transactions.csv, or yyyy-MM.bin) and a small manifest lists the months that have a
+ * segment together with their row counts. Readers only open the segments they need and
+ * writers only replace the months that changed.
+ *
+ * Segments are written in the configured {@link LedgerFormat}; segments found in the other
+ * format are converted when the manifest is first read, so switching {@code ledger.format}
+ * migrates the whole ledger once in either direction.
+ *
+ * A legacy single-file transactions.csv is split into segments the first time the store
+ * is opened and then renamed to transactions.csv.migrated.
+ */
+public class TransactionSegmentStore {
+
+    private static final Logger LOGGER = Logger.getLogger(TransactionSegmentStore.class.getName());
+    private static final String[] MANIFEST_HEADERS = {"Month", "File", "Count"};
+
+    private final TransactionCsvExporter csvExporter;
+    private final LedgerFormat format;
+    private final Path ledgerDir;
+    private final Path manifestPath;
+    private final Path legacyCsvPath;
+
+    /**
+     * Constructor for TransactionSegmentStore using the default data directory.
+     *
+     * @param csvExporter The exporter that reads and writes the CSV segments
+     */
+    public TransactionSegmentStore(TransactionCsvExporter csvExporter) {
+        this(csvExporter, LedgerFormat.fromConfig(), PathUtil.getLedgerDir(), PathUtil.getLedgerManifestPath(),
+                PathUtil.getTransactionsCsvPath());
+    }
+
+    /**
+     * Constructor for TransactionSegmentStore.
+     *
+     * @param csvExporter The exporter that reads and writes the CSV segments
+     * @param format The format new segments are written in
+     * @param ledgerDir The directory holding the month segments
+     * @param manifestPath The manifest file
+     * @param legacyCsvPath The single-file ledger to migrate from, if present
+     */
+    public TransactionSegmentStore(TransactionCsvExporter csvExporter, LedgerFormat format, Path ledgerDir,
+            Path manifestPath, Path legacyCsvPath) {
+        this.csvExporter = csvExporter;
+        this.format = format;
+        this.ledgerDir = ledgerDir;
+        this.manifestPath = manifestPath;
+        this.legacyCsvPath = legacyCsvPath;
+    }
+
+    public Path getManifestPath() {
+        return manifestPath;
+    }
+
+    /**
+     * Checks whether there is any stored ledger, migrated or not.
+     *
+     * @return true if a manifest or a legacy transactions.csv exists
+     */
+    public boolean exists() {
+        return Files.exists(manifestPath) || Files.exists(legacyCsvPath);
+    }
+
+    /**
+     * Reads the manifest, migrating a legacy transactions.csv first if needed.
+     * A manifest that cannot be read completely is an error rather than a shorter ledger,
+     * so that no caller writes the months it did read back as the whole ledger.
+     *
+     * @return The stored months and their row counts, oldest first
+     * @throws IOException if the manifest cannot be read or has a malformed row
+     */
+    public synchronized NavigableMap<YearMonth, Integer> readManifest() throws IOException {
+        if (!Files.exists(manifestPath) && Files.exists(legacyCsvPath)) {
+            migrateLegacyCsv();
+        }
+        NavigableMap<YearMonth, Integer> months = new TreeMap<>();
+        if (!Files.exists(manifestPath)) {
+            return months;
+        }
+        List<YearMonth> otherFormatMonths = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8);
+             CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT.builder().setHeader().setSkipHeaderRecord(true).build())) {
+            for (CSVRecord record : parser) {
+                YearMonth month = YearMonth.parse(record.get("Month"));
+                months.put(month, Integer.parseInt(record.get("Count")));
+                if (!record.get("File").endsWith(format.getFileSuffix())) {
+                    otherFormatMonths.add(month);
+                }
+            }
+        } catch (RuntimeException e) {
+            // 缺少列、月份或行数格式错误
+            throw new IOException("Malformed ledger manifest " + manifestPath + ": " + e.getMessage(), e);
+        }
+        if (!otherFormatMonths.isEmpty()) {
+            convertSegments(otherFormatMonths, months);
+        }
+        return months;
+    }
+
+    /**
+     * Reads the transactions of one month.
+     *
+     * @param month The month
+     * @return The month's transactions in file order (newest first), empty if it has no segment
+     */
+    public List<Transaction> readMonth(YearMonth month) {
+        Path path = getSegmentPath(month);
+        List<Transaction> transactions = readSegment(path);
+        if (storesDoubleAmounts(path)) {
+            migrateDoubleAmounts(month, transactions);
+        }
+        return transactions;
+    }
+
+    /**
+     * Gets the file holding one month's segment.
+     *
+     * @param month The month
+     * @return The segment in the configured format, or in the other format if the month has
+     *         not been converted yet
+     */
+    public Path getSegmentPath(YearMonth month) {
+        Path path = segmentPath(month, format);
+        // 格式切换尚未完成时，该月可能仍是另一种格式的文件
+        return Files.exists(path) ? path : segmentPath(month, otherFormat());
+    }
+
+    /**
+     * Opens a cursor over one month without materialising its transactions when possible.
+     * Binary segments are memory-mapped (read into memory on Windows); CSV segments have to be parsed and are walked in memory.
+     *
+     * @param month The month
+     * @return A cursor over the month's rows in file order (newest first)
+     */
+    public TransactionCursor openCursor(YearMonth month) {
+        Path binaryPath = segmentPath(month, LedgerFormat.BINARY);
+        if (Files.exists(binaryPath)) {
+            try {
+                return MappedSegmentReader.open(binaryPath);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not map ledger segment " + binaryPath + ", reading it instead", e);
+            }
+        }
+        return TransactionCursor.over(readMonth(month));
+    }
+
+    /**
+     * Reads every stored transaction.
+     *
+     * @return All transactions, newest month first
+     */
+    public List<Transaction> readAll() {
+        List<Transaction> result = new ArrayList<>();
+        NavigableMap<YearMonth, Integer> manifest;
+        try {
+            manifest = readManifest();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to read ledger manifest " + manifestPath, e);
+            return result;
+        }
+        for (YearMonth month : manifest.descendingKeySet()) {
+            result.addAll(readMonth(month));
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the segments of the given months and updates the manifest.
+     * A month mapped to an empty list has its segment removed.
+     *
+     * @param changedMonths The new contents of each changed month
+     * @return true if every segment and the manifest were written, false otherwise
+     */
+    public synchronized boolean writeMonths(Map<YearMonth, List<Transaction>> changedMonths) {
+        NavigableMap<YearMonth, Integer> manifest;
+        try {
+            manifest = readManifest();
+        } catch (IOException e) {
+            // 不能用读到一半的 manifest 覆盖原文件，否则之后的月份会从账本中消失
+            LOGGER.log(Level.SEVERE, "Failed to read ledger manifest " + manifestPath + ", not writing any segment", e);
+            return false;
+        }
+        boolean success = true;
+        for (Map.Entry<YearMonth, List<Transaction>> entry : changedMonths.entrySet()) {
+            if (writeSegment(entry.getKey(), entry.getValue())) {
+                if (entry.getValue().isEmpty()) {
+                    manifest.remove(entry.getKey());
+                } else {
+                    manifest.put(entry.getKey(), entry.getValue().size());
+                }
+            } else {
+                success = false;
+            }
+        }
+        // 分段文件全部写完后再更新 manifest
+        return writeManifest(manifest) && success;
+    }
+
+    /**
+     * Replaces the whole ledger, removing segments of months that no longer have transactions.
+     *
+     * @param transactions The transactions to store
+     * @return true if the operation was successful, false otherwise
+     */
+    public synchronized boolean replaceAll(Collection<Transaction> transactions) {
+        Map<YearMonth, List<Transaction>> changedMonths = groupByMonth(transactions);
+        try {
+            for (YearMonth month : readManifest().keySet()) {
+                changedMonths.putIfAbsent(month, new ArrayList<>());
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to read ledger manifest " + manifestPath + ", not replacing the ledger", e);
+            return false;
+        }
+        return writeMonths(changedMonths);
+    }
+
+    /**
+     * Groups transactions by the year-month of their date.
+     *
+     * @param transactions The transactions to group
+     * @return The transactions of each month, oldest month first
+     */
+    public static NavigableMap<YearMonth, List<Transaction>> groupByMonth(Collection<Transaction> transactions) {
+        NavigableMap<YearMonth, List<Transaction>> byMonth = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            byMonth.computeIfAbsent(YearMonth.from(transaction.getDate()), m -> new ArrayList<>()).add(transaction);
+        }
+        return byMonth;
+    }
+
+    private Path segmentPath(YearMonth month, LedgerFormat segmentFormat) {
+        return ledgerDir.resolve(month + segmentFormat.getFileSuffix());
+    }
+
+    private LedgerFormat otherFormat() {
+        return format == LedgerFormat.CSV ? LedgerFormat.BINARY : LedgerFormat.CSV;
+    }
+
+    private static boolean storesDoubleAmounts(Path path) {
+        if (!path.getFileName().toString().endsWith(LedgerFormat.BINARY.getFileSuffix()) || !Files.exists(path)) {
+            return false;
+        }
+        try {
+            return TransactionBinaryCodec.hasDoubleAmounts(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 旧版本以 double 保存金额的二进制分段只读取一次，随即按分重新写入
+     */
+    private synchronized void migrateDoubleAmounts(YearMonth month, List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        if (writeSegment(month, transactions)) {
+            LOGGER.log(Level.INFO, "Rewrote ledger segment {0} with amounts in cents", month);
+        } else {
+            LOGGER.log(Level.WARNING, "Could not rewrite ledger segment {0} with amounts in cents", month);
+        }
+    }
+
+    private List<Transaction> readSegment(Path path) {
+        if (!path.getFileName().toString().endsWith(LedgerFormat.BINARY.getFileSuffix())) {
+            return csvExporter.importTransactionsFromFile(path);
+        }
+        try {
+            return TransactionBinaryCodec.read(path);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to read ledger segment " + path, e);
+            return new ArrayList<>();
+        }
+    }
+
+    private boolean writeSegment(YearMonth month, List<Transaction> transactions) {
+        Path path = segmentPath(month, format);
+        Path otherFormatPath = segmentPath(month, otherFormat());
+        try {
+            if (transactions.isEmpty()) {
+                Files.deleteIfExists(path);
+                Files.deleteIfExists(otherFormatPath);
+                return true;
+            }
+            // 分段内按日期倒序保存（稳定排序），读取方可以依赖这个顺序
+            List<Transaction> sorted = new ArrayList<>(transactions);
+            sorted.sort((a, b) -> b.getDate().compareTo(a.getDate()));
+            // 先写临时文件再原子替换，写到一半崩溃不会损坏原分段
+            Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+            if (format == LedgerFormat.BINARY) {
+                TransactionBinaryCodec.write(sorted, tempPath);
+            } else if (!csvExporter.exportTransactionsToFile(sorted, tempPath)) {
+                return false;
+            }
+            moveIntoPlace(tempPath, path);
+            Files.deleteIfExists(otherFormatPath);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to write ledger segment " + path, e);
+            return false;
+        }
+    }
+
+    private boolean writeManifest(NavigableMap<YearMonth, Integer> manifest) {
+        Path tempPath = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(manifestPath.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8);
+                 CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.builder().setHeader(MANIFEST_HEADERS).build())) {
+                for (Map.Entry<YearMonth, Integer> entry : manifest.entrySet()) {
+                    printer.printRecord(entry.getKey(), segmentPath(entry.getKey(), format).getFileName(), entry.getValue());
+                }
+            }
+            moveIntoPlace(tempPath, manifestPath);
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to write ledger manifest " + manifestPath, e);
+            return false;
+        }
+    }
+
+    /**
+     * Rewrites segments stored in the other format in the configured one.
+     */
+    private void convertSegments(List<YearMonth> months, NavigableMap<YearMonth, Integer> manifest) {
+        int converted = 0;
+        for (YearMonth month : months) {
+            List<Transaction> transactions = readSegment(segmentPath(month, otherFormat()));
+            if (transactions.isEmpty() && !Files.exists(segmentPath(month, otherFormat()))) {
+                // 上次转换已写出新格式文件但未来得及更新 manifest
+                continue;
+            }
+            if (!writeSegment(month, transactions)) {
+                LOGGER.log(Level.SEVERE, "Conversion of ledger segment {0} to {1} failed", new Object[]{month, format});
+                return;
+            }
+            manifest.put(month, transactions.size());
+            converted++;
+        }
+        if (writeManifest(manifest)) {
+            LOGGER.log(Level.INFO, "Converted {0} ledger segments to {1}", new Object[]{converted, format});
+        }
+    }
+
+    private void migrateLegacyCsv() {
+        List<Transaction> legacy = csvExporter.importTransactionsFromFile(legacyCsvPath);
+        Map<YearMonth, List<Transaction>> byMonth = groupByMonth(legacy);
+        NavigableMap<YearMonth, Integer> manifest = new TreeMap<>();
+        for (Map.Entry<YearMonth, List<Transaction>> entry : byMonth.entrySet()) {
+            if (!writeSegment(entry.getKey(), entry.getValue())) {
+                // 保留旧文件，下次启动重新迁移
+                LOGGER.log(Level.SEVERE, "Migration of {0} stopped at month {1}", new Object[]{legacyCsvPath, entry.getKey()});
+                return;
+            }
+            manifest.put(entry.getKey(), entry.getValue().size());
+        }
+        if (!writeManifest(manifest)) {
+            return;
+        }
+        try {
+            Files.move(legacyCsvPath, legacyCsvPath.resolveSibling(legacyCsvPath.getFileName() + ".migrated"),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Migrated " + legacyCsvPath + " but could not rename it", e);
+        }
+        LOGGER.log(Level.INFO, "Split {0} transactions from {1} into {2} month segments",
+                new Object[]{legacy.size(), legacyCsvPath, manifest.size()});
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // 文件系统不支持原子替换时退回普通替换；MappedSegmentReader 在 Windows 上不映射文件，替换不会被映射阻止
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -3,26 +3,29 @@ package com.financetracker.service;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 
+import com.financetracker.model.Money;
 import com.financetracker.model.SavingGoal;
 import com.financetracker.model.Settings;
 import com.financetracker.model.Transaction;
+import com.financetracker.util.PathUtil;
 
 /**
  * Service for managing transactions.
@@ -30,20 +33,55 @@ import com.financetracker.model.Transaction;
 public class TransactionService {
     
     private static final Logger LOGGER = Logger.getLogger(TransactionService.class.getName());
+    // CSV 导入每批写入的记录数，以及每导入多少条合并一次日志
+    private static final int IMPORT_BATCH_SIZE = 2000;
+    private static final int IMPORT_COMPACTION_INTERVAL = 50000;
+    // 缓存的不同商户描述数量上限
+    private static final int CLASSIFICATION_CACHE_CAPACITY = 20000;
     // private static final Set<String> INCOME_CATEGORIES_FROM_PYTHON = Set.of("收入", "兼职", "投资"); // 已移除
     
     // 不再需要硬编码的完整路径
     // private static final String CSV_FILE_PATH = "E:\\code\\Java\\software_lab\\data\\transactions.csv";
     private final TransactionCsvExporter csvExporter;
-    private final Settings settings; // 新增字段存储Settings引用
+    private final TransactionRepository repository;
+    private volatile Settings settings; // 当前设置；重置设置会换成新的对象，随 SettingsChanged 事件更新
+    private final DomainEventBus eventBus; // 保存成功后发布交易变更事件
+    private FinancialCalendar financialCalendar; // 财务月起始日变化时重新创建
+    private volatile KeywordClassifier keywordClassifier; // 保存设置时按新规则重新编译，分类线程直接读取，不加锁
+    private volatile CategoryPredictor categoryPredictor; // 首次预测时从账本训练，之后随增删改增量更新；替换整个账本后置空重新训练
+    private List<List<String>> keywordClassifierRules; // 编译 keywordClassifier 时的规则和类别（包括无效的规则）
+    private final ClassificationCache classificationCache =
+            new ClassificationCache(PathUtil.getClassificationCachePath(), CLASSIFICATION_CACHE_CAPACITY);
     
     /**
      * Constructor for TransactionService.
      * @param settings The application settings.
      */
     public TransactionService(Settings settings) { // 修改构造函数
+        this(settings, new DomainEventBus());
+    }
+    
+    /**
+     * Constructor for TransactionService.
+     * @param settings The application settings.
+     * @param eventBus The bus on which changes to the ledger are published.
+     */
+    public TransactionService(Settings settings, DomainEventBus eventBus) {
         this.csvExporter = new TransactionCsvExporter();
+        this.repository = new TransactionRepository(csvExporter);
         this.settings = settings; // 存储Settings引用
+        this.eventBus = eventBus;
+        // 恢复默认设置时 SettingsService 会创建新的 Settings 对象，改用事件中的最新对象，
+        // 否则财务月起始日、收入类别和分类规则仍按旧设置计算
+        eventBus.subscribe(DomainEvent.SettingsChanged.class, event -> {
+            if (event.getSettings() != null) {
+                this.settings = event.getSettings();
+            }
+            // 分类规则只在设置保存后重新编译，分类时不再逐条比较规则
+            if (keywordClassifier != null) {
+                compileKeywordClassifier();
+            }
+        });
         
         // 确保数据目录存在 (不再需要在此处创建，由各服务在使用PathUtil获取路径后自行处理)
         // try {
@@ -61,17 +99,48 @@ public class TransactionService {
      * @return The list of all transactions
      */
     public List<Transaction> getAllTransactions() {
-        List<Transaction> transactions = new ArrayList<>();
-        
-        // 从CSV文件加载
-        if (csvExporter.csvFileExists()) {
-            transactions = csvExporter.importTransactionsFromCSV();
-        }
-        
-        // 按日期排序（最新的优先）
-        transactions.sort(Comparator.comparing(Transaction::getDate).reversed());
-        
-        return transactions;
+        // 从内存中的交易仓库读取，已按日期排序（最新的优先）
+        return repository.findAll();
+    }
+    
+    /**
+     * Gets the number of transactions.
+     * 
+     * @return The transaction count
+     */
+    public int getTransactionCount() {
+        return repository.size();
+    }
+    
+    /**
+     * Searches the transactions with the repository's date, category and word indexes.
+     * 
+     * @param query The filter
+     * @return The matching transactions, newest first
+     */
+    public List<Transaction> searchTransactions(TransactionQuery query) {
+        return repository.findMatching(query);
+    }
+    
+    /**
+     * Gets a page of transactions in the order of {@link #getAllTransactions()}.
+     * 
+     * @param offset The position of the first transaction, 0 for the newest
+     * @param limit The maximum number of transactions
+     * @return The transactions of the page
+     */
+    public List<Transaction> getTransactionPage(int offset, int limit) {
+        return repository.findPage(offset, limit);
+    }
+    
+    /**
+     * Gets the position of a transaction in the order of {@link #getAllTransactions()}.
+     * 
+     * @param transaction The transaction
+     * @return The position, or -1 if it is not stored
+     */
+    public int indexOfTransaction(Transaction transaction) {
+        return repository.indexOf(transaction);
     }
     
     /**
@@ -82,11 +151,7 @@ public class TransactionService {
      * @return The list of transactions in the date range
      */
     public List<Transaction> getTransactionsForDateRange(LocalDate startDate, LocalDate endDate) {
-        List<Transaction> allTransactions = getAllTransactions();
-        
-        return allTransactions.stream()
-                .filter(t -> !t.getDate().isBefore(startDate) && !t.getDate().isAfter(endDate))
-                .collect(Collectors.toList());
+        return repository.findByDateRange(startDate, endDate);
     }
     
     /**
@@ -112,7 +177,21 @@ public class TransactionService {
         LocalDate today = LocalDate.now();
         return getTransactionsForMonth(today.getYear(), today.getMonthValue());
     }
-    
+
+    /**
+     * Gets transactions for the current month and the given number of whole months before it.
+     *
+     * @param months The number of previous months to include
+     * @return The list of transactions from the first day of the earliest month to the end of the current month
+     */
+    public List<Transaction> getTransactionsForLastMonths(int months) {
+        LocalDate today = LocalDate.now();
+        LocalDate startDate = today.minusMonths(months).withDayOfMonth(1);
+        LocalDate endDate = today.withDayOfMonth(today.lengthOfMonth());
+
+        return getTransactionsForDateRange(startDate, endDate);
+    }
+
     /**
      * Gets transactions for a specific category.
      * 
@@ -120,11 +199,18 @@ public class TransactionService {
      * @return The list of transactions in the category
      */
     public List<Transaction> getTransactionsForCategory(String category) {
-        List<Transaction> allTransactions = getAllTransactions();
-        
-        return allTransactions.stream()
-                .filter(t -> t.getCategory().equals(category))
-                .collect(Collectors.toList());
+        return repository.findByCategory(category);
+    }
+
+    /**
+     * Gets transactions for a specific category, optionally ignoring the case of the name.
+     *
+     * @param category The category
+     * @param ignoreCase Whether to match the category name case-insensitively
+     * @return The list of transactions in the category
+     */
+    public List<Transaction> getTransactionsForCategory(String category, boolean ignoreCase) {
+        return repository.findByCategory(category, ignoreCase);
     }
     
     /**
@@ -136,11 +222,7 @@ public class TransactionService {
      * @return The list of transactions in the category and date range
      */
     public List<Transaction> getTransactionsForCategoryAndDateRange(String category, LocalDate startDate, LocalDate endDate) {
-        List<Transaction> transactionsInDateRange = getTransactionsForDateRange(startDate, endDate);
-        
-        return transactionsInDateRange.stream()
-                .filter(t -> t.getCategory().equals(category))
-                .collect(Collectors.toList());
+        return repository.findByCategoryAndDateRange(category, false, startDate, endDate);
     }
     
     /**
@@ -151,12 +233,72 @@ public class TransactionService {
      * @return The total amount
      */
     public double getTotalAmount(List<Transaction> transactions, boolean isExpense) {
-        return transactions.stream()
-                .filter(t -> t.isExpense() == isExpense)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        long totalCents = 0;
+        for (Transaction t : transactions) {
+            if (t.isExpense() == isExpense) {
+                totalCents += t.getAmountCents();
+            }
+        }
+        return Money.toMajorUnits(totalCents);
     }
     
+    /**
+     * Gets the total amount for a date range without materialising the transactions.
+     * 
+     * @param startDate The start date (inclusive)
+     * @param endDate The end date (inclusive)
+     * @param isExpense Whether to calculate expenses or income
+     * @return The total amount
+     */
+    public double getTotalAmount(LocalDate startDate, LocalDate endDate, boolean isExpense) {
+        return Money.toMajorUnits(repository.sumCents(startDate, endDate, isExpense));
+    }
+    
+    /**
+     * Gets the total amount per category for a date range without materialising the transactions.
+     * 
+     * @param startDate The start date (inclusive)
+     * @param endDate The end date (inclusive)
+     * @param isExpense Whether to total expenses or income
+     * @return The total amount of each category
+     */
+    public Map<String, Double> getCategoryTotals(LocalDate startDate, LocalDate endDate, boolean isExpense) {
+        return repository.categoryTotals(startDate, endDate, isExpense);
+    }
+
+    /**
+     * Gets the total amount for a range of whole months from the monthly rollup.
+     *
+     * @param firstMonth The first month (inclusive)
+     * @param lastMonth The last month (inclusive)
+     * @param isExpense Whether to calculate expenses or income
+     * @return The total amount
+     */
+    public double getTotalAmount(YearMonth firstMonth, YearMonth lastMonth, boolean isExpense) {
+        return Money.toMajorUnits(repository.getRollup().sumCents(firstMonth, lastMonth, isExpense));
+    }
+
+    /**
+     * Gets the total amount per category for a range of whole months from the monthly rollup.
+     *
+     * @param firstMonth The first month (inclusive)
+     * @param lastMonth The last month (inclusive)
+     * @param isExpense Whether to total expenses or income
+     * @return The total amount of each category
+     */
+    public Map<String, Double> getCategoryTotals(YearMonth firstMonth, YearMonth lastMonth, boolean isExpense) {
+        return repository.getRollup().categoryTotals(firstMonth, lastMonth, isExpense);
+    }
+
+    /**
+     * Gets the monthly rollup, for per-month sums, counts, minimums and maximums.
+     *
+     * @return The rollup of the whole ledger
+     */
+    public TransactionRollup getMonthlyRollup() {
+        return repository.getRollup();
+    }
+
     /**
      * Gets the total expense amount for a list of transactions.
      * 
@@ -194,8 +336,6 @@ public class TransactionService {
      * @return true if the operation was successful, false otherwise
      */
     public boolean addTransaction(Transaction transaction) {
-        List<Transaction> transactions = getAllTransactions();
-
         // 根据类别设置 IsExpense
         if (transaction.getCategory() != null && this.settings.getIncomeCategories().contains(transaction.getCategory())) {
             transaction.setExpense(false);
@@ -216,10 +356,13 @@ public class TransactionService {
             }
         }
 
-        transactions.add(transaction);
-        
-        // 保存到CSV文件
-        return csvExporter.exportTransactionsToCSV(transactions);
+        // 写入内存仓库并同步保存到CSV文件
+        if (!repository.add(transaction)) {
+            return false;
+        }
+        learnCategory(transaction);
+        eventBus.publish(new DomainEvent.TransactionAdded(transaction));
+        return true;
     }
     
     /**
@@ -229,27 +372,27 @@ public class TransactionService {
      * @return true if the operation was successful, false otherwise
      */
     public boolean updateTransaction(Transaction transaction) {
-        List<Transaction> transactions = getAllTransactions();
-        
         // 查找要更新的交易
-        for (int i = 0; i < transactions.size(); i++) {
-            if (transactions.get(i).getId().equals(transaction.getId())) {
-                // 根据类别设置 IsExpense
-                if (transaction.getCategory() != null && this.settings.getIncomeCategories().contains(transaction.getCategory())) {
-                    transaction.setExpense(false);
-                } else {
-                    // 与addTransaction中类似的考虑
-                    // 此处也仅确保收入类别被正确设为false，其他情况信任传入的transaction对象的isExpense值。
-                    // 如果需要对非收入类别强制设为true，则：transaction.setExpense(true);
-                }
-                transactions.set(i, transaction);
-                
-                // 保存到CSV文件
-                return csvExporter.exportTransactionsToCSV(transactions);
-            }
+        if (repository.findById(transaction.getId()) == null) {
+            return false;
         }
-        
-        return false;
+
+        // 根据类别设置 IsExpense
+        if (transaction.getCategory() != null && this.settings.getIncomeCategories().contains(transaction.getCategory())) {
+            transaction.setExpense(false);
+        } else {
+            // 与addTransaction中类似的考虑
+            // 此处也仅确保收入类别被正确设为false，其他情况信任传入的transaction对象的isExpense值。
+            // 如果需要对非收入类别强制设为true，则：transaction.setExpense(true);
+        }
+
+        // 写入内存仓库并同步保存到CSV文件
+        if (!repository.update(transaction)) {
+            return false;
+        }
+        learnCategory(transaction);
+        eventBus.publish(new DomainEvent.TransactionUpdated(transaction));
+        return true;
     }
     
     /**
@@ -259,19 +402,59 @@ public class TransactionService {
      * @return true if the operation was successful, false otherwise
      */
     public boolean deleteTransaction(Transaction transaction) {
-        List<Transaction> transactions = getAllTransactions();
-        
-        // 查找要删除的交易
-        for (int i = 0; i < transactions.size(); i++) {
-            if (transactions.get(i).getId().equals(transaction.getId())) {
-                transactions.remove(i);
-                
-                // 保存到CSV文件
-                return csvExporter.exportTransactionsToCSV(transactions);
+        if (!repository.delete(transaction.getId())) {
+            return false;
+        }
+        unlearnCategory(transaction);
+        eventBus.publish(new DomainEvent.TransactionDeleted(transaction));
+        return true;
+    }
+
+    /**
+     * Updates several transactions in one step: a single journal append and a single
+     * change event, and nothing is saved unless every transaction exists.
+     *
+     * @param transactions The transactions to update
+     * @return true if the operation was successful, false otherwise
+     */
+    public boolean updateTransactions(Collection<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            // 与updateTransaction相同，只确保收入类别被设为收入
+            if (transaction.getCategory() != null && this.settings.getIncomeCategories().contains(transaction.getCategory())) {
+                transaction.setExpense(false);
             }
         }
-        
-        return false;
+        if (!repository.updateAll(transactions)) {
+            return false;
+        }
+        for (Transaction transaction : transactions) {
+            learnCategory(transaction);
+        }
+        if (!transactions.isEmpty()) {
+            eventBus.publish(new DomainEvent.TransactionsChanged(transactions.size()));
+        }
+        return true;
+    }
+
+    /**
+     * Deletes several transactions by id in one step: a single journal append and a single
+     * change event. Ids that are not stored are skipped.
+     *
+     * @param ids The ids of the transactions to delete
+     * @return The number of transactions deleted, or -1 if the deletion could not be saved
+     */
+    public int deleteTransactions(Collection<String> ids) {
+        List<Transaction> deleted = repository.deleteAll(ids);
+        if (deleted == null) {
+            return -1;
+        }
+        for (Transaction transaction : deleted) {
+            unlearnCategory(transaction);
+        }
+        if (!deleted.isEmpty()) {
+            eventBus.publish(new DomainEvent.TransactionsChanged(deleted.size()));
+        }
+        return deleted.size();
     }
     
     /**
@@ -281,7 +464,22 @@ public class TransactionService {
      * @return true if the operation was successful, false otherwise
      */
     public boolean saveTransactions(List<Transaction> transactions) {
-        return csvExporter.exportTransactionsToCSV(transactions);
+        if (!repository.replaceAll(transactions)) {
+            return false;
+        }
+        // 整个账本被替换，下次预测时重新训练
+        categoryPredictor = null;
+        eventBus.publish(new DomainEvent.TransactionsChanged(transactions.size()));
+        return true;
+    }
+
+    /**
+     * Folds pending journal entries into the transactions CSV file.
+     * 
+     * @return true if the data file is up to date, false otherwise
+     */
+    public boolean compactStorage() {
+        return repository.compact();
     }
     
     /**
@@ -321,8 +519,10 @@ public class TransactionService {
         // 但查看这两个方法的实现，它们通常处理的是正金额，并通过布尔isExpense参数判断。
         // 此处的 amount 可能是正也可能是负，autoDetectIsExpense 内部会处理。
 
-        String category = autoDetectCategory(description, Math.abs(amount), initialIsExpenseGuess);
-        boolean isExpense = autoDetectIsExpense(description, Math.abs(amount), category);
+        KeywordClassifier classifier = getKeywordClassifier();
+        ClassificationCache.Classification classification = classifyDescription(classifier, description);
+        String category = autoDetectCategory(classification, initialIsExpenseGuess);
+        boolean isExpense = autoDetectIsExpense(classifier, classification, category);
         
         result.put("category", category);
         result.put("isExpense", isExpense);
@@ -330,6 +530,30 @@ public class TransactionService {
         return result;
     }
     
+    /**
+     * Receives progress updates while a CSV file is imported.
+     */
+    public interface ImportProgressListener {
+        /**
+         * Called after every batch that was appended to the store, on the importing thread.
+         *
+         * @param recordsRead The number of CSV records read so far
+         * @param imported The number of transactions imported so far
+         * @param skipped The number of records that could not be imported so far
+         */
+        void onProgress(int recordsRead, int imported, int skipped);
+
+        /**
+         * Asked before every chunk of rows is stored. Returning true stops the import; the
+         * transactions stored so far are kept.
+         *
+         * @return true to stop the import
+         */
+        default boolean isCancelled() {
+            return false;
+        }
+    }
+
     /**
      * 从CSV文件导入交易记录
      * 
@@ -345,8 +569,62 @@ public class TransactionService {
     public int importFromCsv(String filePath, String dateColumn, String amountColumn, 
                             String descriptionColumn, String categoryColumn, 
                             String dateFormat, boolean isExpense) {
-        int importedCount = 0;
+        return importFromCsv(filePath, dateColumn, amountColumn, descriptionColumn, categoryColumn,
+                dateFormat, isExpense, null);
+    }
+
+    /**
+     * 从CSV文件导入交易记录
+     * 文件经由 {@link TransactionImportPipeline} 流式处理：记录在后台线程中解析、规范化和分类，
+     * 再分批写入存储，内存占用不随文件大小增长。账本中已有的记录（例如之前导入过的重叠账单）会被跳过。
+     * 
+     * @param filePath CSV文件路径
+     * @param dateColumn 日期列名
+     * @param amountColumn 金额列名
+     * @param descriptionColumn 描述列名
+     * @param categoryColumn 类别列名（可选）
+     * @param dateFormat 日期格式
+     * @param isExpense 是否为支出（此参数已被忽略，现在会自动检测）
+     * @param progressListener 导入进度回调，可为 null
+     * @return 导入的记录数量
+     */
+    public int importFromCsv(String filePath, String dateColumn, String amountColumn, 
+                            String descriptionColumn, String categoryColumn, 
+                            String dateFormat, boolean isExpense, ImportProgressListener progressListener) {
+        final boolean classifyWithAi = checkAiAssistantForImport();
+        final boolean hasCategoryColumn = categoryColumn != null && !categoryColumn.isEmpty();
+        final DateParser dateParser = DateParser.forFormat(dateFormat);
+        // 在导入开始前训练好预测模型，导入的记录之后增量学习
+        getCategoryPredictor();
+        
+        System.out.println("开始导入CSV文件: " + filePath);
+        System.out.println("日期列: " + dateColumn + ", 金额列: " + amountColumn + ", 描述列: " + descriptionColumn);
+        System.out.println("类别列: " + (hasCategoryColumn ? categoryColumn : "未指定") + ", 日期格式: " + dateFormat);
+        
+        // 导入期间不在每批之后合并日志，而是每隔一段合并一次
+        AtomicInteger sinceCompaction = new AtomicInteger();
+        TransactionDuplicateIndex.Statement statement = new TransactionDuplicateIndex.Statement();
+        TransactionImportPipeline<ImportedRow> pipeline = new TransactionImportPipeline<>(
+                record -> normaliseImportedRecord(record, dateParser, dateColumn, amountColumn,
+                        descriptionColumn, hasCategoryColumn ? categoryColumn : null),
+                row -> classifyImportedRow(row, hasCategoryColumn, classifyWithAi),
+                batch -> repository.removeDuplicates(batch, statement),
+                batch -> {
+                    if (!repository.addAll(batch, false)) {
+                        return false;
+                    }
+                    for (Transaction transaction : batch) {
+                        learnCategory(transaction);
+                    }
+                    if (sinceCompaction.addAndGet(batch.size()) >= IMPORT_COMPACTION_INTERVAL) {
+                        sinceCompaction.set(0);
+                        repository.compact();
+                    }
+                    return true;
+                },
+                IMPORT_BATCH_SIZE, progressListener);
         
+        long startTime = System.currentTimeMillis();
         try (Reader reader = new FileReader(filePath);
              CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.builder()
                     .setHeader()
@@ -354,445 +632,492 @@ public class TransactionService {
                     .setIgnoreHeaderCase(true)
                     .setTrim(true)
                     .build())) {
-            
-            List<Transaction> existingTransactions = getAllTransactions();
-            List<Transaction> importedTransactions = new ArrayList<>();
-            
-            // 判断是否可以使用AI助手（改为默认不使用）
-            boolean useAiAssistant = false;
-            
-            // 尝试检查AI服务是否可用，但即使不可用也不抛出异常
-            try {
-                useAiAssistant = isAiAssistantAvailable();
-            } catch (Exception e) {
-                System.err.println("检查AI服务时出错，将不使用AI分析功能: " + e.getMessage());
-                useAiAssistant = false;
-            }
-            
-            System.out.println("开始导入CSV文件: " + filePath);
-            System.out.println("日期列: " + dateColumn + ", 金额列: " + amountColumn + ", 描述列: " + descriptionColumn);
-            System.out.println("类别列: " + (categoryColumn != null ? categoryColumn : "未指定") + ", 日期格式: " + dateFormat);
-            
-            for (CSVRecord record : csvParser) {
-                try {
-                    // 获取日期字段并解析
-                    String dateStr = record.get(dateColumn);
-                    // 处理不同格式的日期
-                    LocalDate date;
-                    try {
-                        date = LocalDate.parse(dateStr, DateTimeFormatter.ofPattern(dateFormat));
-                    } catch (Exception e) {
-                        // 尝试其他常见日期格式
-                        date = tryParseDate(dateStr);
-                        if (date == null) {
-                            System.err.println("无法解析日期: " + dateStr + "，跳过此记录");
-                            continue; // 跳过这条记录
-                        }
-                    }
-                    
-                    // 获取描述
-                    String description = "";
-                    try {
-                        description = record.get(descriptionColumn);
-                    } catch (Exception e) {
-                        System.err.println("获取描述字段出错: " + e.getMessage() + "，使用空字符串代替");
-                    }
-                    
-                    // 获取金额字段并解析
-                    String amountStr = "";
-                    try {
-                        amountStr = record.get(amountColumn);
-                        // 移除金额中的货币符号和其他非数字字符（除了小数点和负号）
-                        amountStr = amountStr.replaceAll("[^\\d.-]", "");
-                    } catch (Exception e) {
-                        System.err.println("获取金额字段出错: " + e.getMessage() + "，跳过此记录");
-                        continue;
-                    }
-                    
-                    double amount;
-                    try {
-                        amount = Double.parseDouble(amountStr);
-                    } catch (NumberFormatException e) {
-                        System.err.println("无法解析金额: " + amountStr + "，跳过此记录");
-                        continue; // 跳过这条记录
-                    }
-                    
-                    // 确定交易类型（收入或支出）和类别
-                    boolean transactionIsExpense = true; // 默认为支出
-                    String category = "未分类";
-                    
-                    // 首先基于金额判断交易类型
-                    if (amount < 0) {
-                        // 负数金额通常表示支出
-                        transactionIsExpense = true;
-                        amount = Math.abs(amount); // 取绝对值存储
-                    } else {
-                        // 尝试根据描述判断收入/支出
-                        transactionIsExpense = autoDetectIsExpense(description, amount, "");
-                    }
-                    
-                    // 如果类别列存在，优先使用类别列的值
-                    if (categoryColumn != null && !categoryColumn.isEmpty()) {
-                        try {
-                            category = record.get(categoryColumn);
-                            // 如果类别为空，则使用自动检测
-                            if (category == null || category.trim().isEmpty()) {
-                                if (useAiAssistant) {
-                                    Map<String, Object> aiResult = detectCategoryAndType(description, amount);
-                                    category = (String) aiResult.get("category");
-                                    // 使用AI检测的交易类型
-                                    transactionIsExpense = (boolean) aiResult.get("isExpense");
-                                } else {
-                                    category = autoDetectCategory(description, amount, transactionIsExpense);
-                                    
-                                    // 重新检测收入/支出类型
-                                    if (!description.isEmpty()) {
-                                        transactionIsExpense = autoDetectIsExpense(description, amount, category);
-                                    }
-                                }
-                            } else {
-                                // 即使有类别，也尝试根据类别名称判断交易类型
-                                if (!description.isEmpty()) {
-                                    // 根据类别和描述再次判断收入/支出
-                                    boolean suggestedType = autoDetectIsExpense(description, amount, category);
-                                    // 如果类别是典型的收入类别，优先使用类别判断结果
-                                    // Use English categories for checking income type
-                                    List<String> incomeCategories = getStandardIncomeCategories(); // Helper method to get defined income categories
-                                    final String currentCategory = category; // Use a final variable for the lambda
-                                    if (incomeCategories.stream().anyMatch(incomeCat -> incomeCat.equalsIgnoreCase(currentCategory))) {
-                                        transactionIsExpense = false;
-                                    } else if (suggestedType) {
-                                        // 如果自动检测为支出，则采用
-                                        transactionIsExpense = true;
-                                    }
-                                }
-                            }
-                        } catch (Exception e) {
-                            System.err.println("获取类别字段出错: " + e.getMessage() + "，使用自动分类");
-                            category = autoDetectCategory(description, amount, transactionIsExpense);
-                        }
-                    } else if (useAiAssistant) {
-                        // 没有提供类别列，使用AI识别
-                        try {
-                            Map<String, Object> aiResult = detectCategoryAndType(description, amount);
-                            category = (String) aiResult.get("category");
-                            transactionIsExpense = (boolean) aiResult.get("isExpense");
-                        } catch (Exception e) {
-                            System.err.println("AI分析出错: " + e.getMessage() + "，使用规则分析");
-                            category = autoDetectCategory(description, amount, transactionIsExpense);
-                        }
-                    } else {
-                        // 使用规则分析类别
-                        category = autoDetectCategory(description, amount, transactionIsExpense);
-                        
-                        // 根据类别再次确认交易类型
-                        if (!description.isEmpty()) {
-                            transactionIsExpense = autoDetectIsExpense(description, amount, category);
-                        }
-                    }
-                    
-                    // 确保金额为正数
-                    amount = Math.abs(amount);
-                    
-                    // ---- 新增最终检查 ----
-                    // 如果类别在我们定义的中文收入类别列表中，则确保 transactionIsExpense 为 false
-                    if (category != null && this.settings.getIncomeCategories().contains(category)) {
-                        transactionIsExpense = false;
-                    }
-                    // ---- 结束新增 ----
-                    
-                    // 创建新的交易记录
-                    Transaction transaction = new Transaction();
-                    transaction.setId(UUID.randomUUID().toString());
-                    transaction.setDate(date);
-                    transaction.setAmount(amount);
-                    transaction.setDescription(description);
-                    transaction.setCategory(category);
-                    transaction.setExpense(transactionIsExpense);
-                    
-                    // 尝试获取参与者信息
-                    try {
-                        if (record.isMapped("Participant") || record.isMapped("参与者")) {
-                            String participant = record.isMapped("Participant") ? 
-                                record.get("Participant") : record.get("参与者");
-                            transaction.setParticipant(participant);
-                        } else {
-                            transaction.setParticipant(""); // 设置默认值
-                        }
-                    } catch (Exception e) {
-                        transaction.setParticipant(""); // 异常时设置默认值
-                    }
-                    
-                    // 尝试获取备注信息
-                    try {
-                        if (record.isMapped("Notes") || record.isMapped("备注")) {
-                            String notes = record.isMapped("Notes") ? 
-                                record.get("Notes") : record.get("备注");
-                            transaction.setNotes(notes);
-                        } else {
-                            transaction.setNotes(""); // 设置默认值
-                        }
-                    } catch (Exception e) {
-                        transaction.setNotes(""); // 异常时设置默认值
-                    }
-                    
-                    importedTransactions.add(transaction);
-                    importedCount++;
-                    System.out.println("导入记录: " + transaction.getDescription() + ", 金额: " + transaction.getAmount() + ", 类别: " + transaction.getCategory());
-                } catch (Exception e) {
-                    System.err.println("导入记录时出错: " + e.getMessage());
-                    e.printStackTrace();
-                    // 继续处理下一条记录
-                }
-            }
-            
-            // 添加所有导入的交易记录
-            if (importedCount > 0) {
-                existingTransactions.addAll(importedTransactions);
-                boolean saved = saveTransactions(existingTransactions);
-                
-                if (!saved) {
-                    System.err.println("保存导入的交易记录时出错");
-                }
-            }
-            
-            System.out.println("CSV导入完成，共导入 " + importedCount + " 条记录");
+            pipeline.run(csvParser);
         } catch (IOException e) {
             System.err.println("读取CSV文件时出错: " + e.getMessage());
             e.printStackTrace();
         } catch (Exception e) {
             System.err.println("导入过程中出现意外错误: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            // 已导入的批次都已写入日志，这里把剩余部分合并回分段文件
+            if (pipeline.getImported() > 0) {
+                repository.compact();
+                // 整个文件只发布一次事件，而不是每批一次
+                eventBus.publish(new DomainEvent.TransactionsChanged(pipeline.getImported()));
+            }
+            saveClassificationCache();
         }
         
+        int importedCount = pipeline.getImported();
+        LOGGER.log(Level.INFO, "Imported {0} transactions from {1} ({2} records skipped, {3} duplicates) in {4} ms",
+                new Object[]{importedCount, filePath, pipeline.getSkipped(), pipeline.getDuplicates(),
+                        System.currentTimeMillis() - startTime});
+        System.out.println("CSV导入完成，共导入 " + importedCount + " 条记录，跳过 " + pipeline.getDuplicates() + " 条重复记录");
         return importedCount;
     }
     
     /**
-     * 尝试使用多种常见日期格式解析日期字符串
+     * 从CSV文件读取并分类交易记录，但不保存
+     * 在调用线程中按与 {@link #importFromCsv(String, String, String, String, String, String, boolean)}
+     * 相同的规则解析和分类，多个文件可以同时读取，再由 {@link #addTransactions} 一起保存。
      * 
-     * @param dateStr 日期字符串
-     * @return 解析后的LocalDate，如果无法解析则返回null
+     * @param filePath CSV文件路径
+     * @param dateColumn 日期列名
+     * @param amountColumn 金额列名
+     * @param descriptionColumn 描述列名
+     * @param categoryColumn 类别列名（可选）
+     * @param dateFormat 日期格式
+     * @return 读取到的交易记录，按文件中的顺序
+     * @throws IOException 如果文件无法读取
      */
-    private LocalDate tryParseDate(String dateStr) {
-        String[][] formats = {
-            {"yyyy-MM-dd", "\\d{4}-\\d{1,2}-\\d{1,2}"},
-            {"MM/dd/yyyy", "\\d{1,2}/\\d{1,2}/\\d{4}"},
-            {"dd/MM/yyyy", "\\d{1,2}/\\d{1,2}/\\d{4}"},
-            {"yyyy/MM/dd", "\\d{4}/\\d{1,2}/\\d{1,2}"},
-            {"dd-MM-yyyy", "\\d{1,2}-\\d{1,2}-\\d{4}"},
-            {"dd.MM.yyyy", "\\d{1,2}\\.\\d{1,2}\\.\\d{4}"}
-        };
+    public List<Transaction> readTransactionsFromCsv(String filePath, String dateColumn, String amountColumn,
+                                                     String descriptionColumn, String categoryColumn,
+                                                     String dateFormat) throws IOException {
+        boolean useAiAssistant = checkAiAssistantForImport();
+        boolean hasCategoryColumn = categoryColumn != null && !categoryColumn.isEmpty();
+        DateParser dateParser = DateParser.forFormat(dateFormat);
         
-        // 先尝试匹配格式
-        for (String[] format : formats) {
-            if (dateStr.matches(format[1])) {
+        List<Transaction> transactions = new ArrayList<>();
+        try (Reader reader = new FileReader(filePath);
+             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.builder()
+                    .setHeader()
+                    .setSkipHeaderRecord(true)
+                    .setIgnoreHeaderCase(true)
+                    .setTrim(true)
+                    .build())) {
+            for (CSVRecord record : csvParser) {
                 try {
-                    return LocalDate.parse(dateStr, DateTimeFormatter.ofPattern(format[0]));
-                } catch (Exception e) {
-                    // 继续尝试其他格式
+                    ImportedRow row = normaliseImportedRecord(record, dateParser, dateColumn, amountColumn,
+                            descriptionColumn, hasCategoryColumn ? categoryColumn : null);
+                    if (row != null) {
+                        transactions.add(classifyImportedRow(row, hasCategoryColumn, useAiAssistant));
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.FINE, "Skipping CSV record " + record.getRecordNumber(), e);
                 }
             }
+        } catch (UncheckedIOException e) {
+            // 解析器在读取下一条记录时失败
+            throw e.getCause();
         }
+        return transactions;
+    }
+    
+    /**
+     * Drops the rows of an imported statement that are already in the ledger.
+     * 
+     * @param transactions 从一个文件读取到的交易记录
+     * @param statement 该文件的重复检查，同一批次的文件用 {@link TransactionDuplicateIndex.Statement#next()} 串联
+     * @return 账本中尚不存在的交易记录
+     */
+    List<Transaction> removeDuplicates(List<Transaction> transactions, TransactionDuplicateIndex.Statement statement) {
+        return repository.removeDuplicates(transactions, statement);
+    }
+    
+    /**
+     * Adds transactions to the store with a single journal append and compacts the journal
+     * afterwards, so that either all of them or none of them are saved.
+     * 
+     * @param transactions 要添加的交易记录
+     * @return 是否保存成功
+     */
+    public boolean addTransactions(Collection<Transaction> transactions) {
+        if (!repository.addAll(transactions, false)) {
+            return false;
+        }
+        for (Transaction transaction : transactions) {
+            learnCategory(transaction);
+        }
+        // 合并失败不影响结果，记录已经安全写入日志
+        repository.compact();
+        eventBus.publish(new DomainEvent.TransactionsChanged(transactions.size()));
+        return true;
+    }
+    
+    private boolean checkAiAssistantForImport() {
+        // 判断是否可以使用AI助手（改为默认不使用）
+        // 尝试检查AI服务是否可用，但即使不可用也不抛出异常
+        try {
+            return isAiAssistantAvailable();
+        } catch (Exception e) {
+            System.err.println("检查AI服务时出错，将不使用AI分析功能: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * 读取并规范化一条CSV记录（导入的读取阶段，可在任意线程中执行）
+     * 
+     * @return 规范化后的记录，无法解析日期或金额时返回 null 表示跳过
+     */
+    private ImportedRow normaliseImportedRecord(CSVRecord record, DateParser dateParser,
+                                                String dateColumn, String amountColumn,
+                                                String descriptionColumn, String categoryColumn) {
+        // 获取日期字段并解析
+        String dateStr = record.get(dateColumn);
+        // 按锁定的格式解析，个别不符的行再尝试其他常见日期格式
+        LocalDate date = dateParser.parse(dateStr);
+        if (date == null) {
+            LOGGER.log(Level.FINE, "Skipping CSV record {0}: cannot parse date ''{1}''",
+                    new Object[]{record.getRecordNumber(), dateStr});
+            return null;
+        }
+        
+        ImportedRow row = new ImportedRow();
+        row.date = date;
         
-        // 如果没有匹配成功，尝试所有格式
-        for (String[] format : formats) {
+        // 获取描述
+        try {
+            row.description = record.get(descriptionColumn);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Cannot read description of CSV record {0}: {1}",
+                    new Object[]{record.getRecordNumber(), e.getMessage()});
+            row.description = "";
+        }
+        
+        // 获取金额字段并解析为精确的分，货币符号、千位分隔符等由 MoneyParser 处理
+        try {
+            row.amountMinorUnits = MoneyParser.parseMinorUnits(record.get(amountColumn));
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Skipping CSV record {0}: cannot parse amount ({1})",
+                    new Object[]{record.getRecordNumber(), e.getMessage()});
+            return null;
+        }
+        
+        // 类别列读取失败时由分类阶段自动分类
+        if (categoryColumn != null) {
             try {
-                return LocalDate.parse(dateStr, DateTimeFormatter.ofPattern(format[0]));
+                row.category = record.get(categoryColumn);
             } catch (Exception e) {
-                // 继续尝试其他格式
+                LOGGER.log(Level.FINE, "Cannot read category of CSV record {0}: {1}",
+                        new Object[]{record.getRecordNumber(), e.getMessage()});
+                row.categoryUnreadable = true;
             }
         }
         
-        return null;
+        row.participant = getOptionalColumn(record, "Participant", "参与者");
+        row.notes = getOptionalColumn(record, "Notes", "备注");
+        return row;
+    }
+    
+    /**
+     * 读取可选列（英文或中文列名），缺失或出错时返回空字符串
+     */
+    private static String getOptionalColumn(CSVRecord record, String englishName, String chineseName) {
+        try {
+            if (record.isMapped(englishName)) {
+                return record.get(englishName);
+            }
+            if (record.isMapped(chineseName)) {
+                return record.get(chineseName);
+            }
+        } catch (Exception e) {
+            // 异常时使用默认值
+        }
+        return "";
     }
     
     /**
-     * 使用AI自动检测交易类别
+     * 确定一条规范化记录的收支类型和类别并创建交易（导入的分类阶段，可在任意线程中执行）
      * 
-     * @param description 交易描述
-     * @param amount 交易金额
-     * @param isExpense 是否为支出
-     * @return 推荐的类别
+     * @param row 规范化后的记录
+     * @param hasCategoryColumn 是否指定了类别列
+     * @param useAiAssistant 类别为空时是否使用AI规则分析
+     * @return 新的交易记录
      */
-    private String autoDetectCategory(String description, double amount, boolean isExpense) {
-        // 简单规则匹配逻辑：根据描述中的关键词判断类别
-        String lowerDesc = description.toLowerCase();
+    private Transaction classifyImportedRow(ImportedRow row, boolean hasCategoryColumn, boolean useAiAssistant) {
+        String description = row.description;
+        double amount = Money.toMajorUnits(row.amountMinorUnits);
+        // 每条描述只分类一次（重复的商户描述直接命中缓存），之后的判断都基于分类结果
+        KeywordClassifier classifier = getKeywordClassifier();
+        ClassificationCache.Classification classification = classifyDescription(classifier, description);
         
-        // 收入类别
-        if (!isExpense) {
-            if (lowerDesc.contains("salary") || lowerDesc.contains("payroll")) {
-                return "Salary";
-            } else if (lowerDesc.contains("bonus") || lowerDesc.contains("award")) {
-                return "Bonus";
-            } else if (lowerDesc.contains("invest") || lowerDesc.contains("stock") || lowerDesc.contains("fund") || lowerDesc.contains("financial")) {
-                return "Investment";
-            } else if (lowerDesc.contains("interest") || (lowerDesc.contains("bank") && lowerDesc.contains("deposit"))) {
-                return "Interest";
-            } else if (lowerDesc.contains("refund") || lowerDesc.contains("reimbursement")) {
-                return "Refund";
-            } else if (lowerDesc.contains("gift") || lowerDesc.contains("present")) {
-                return "Gift";
-            } else if (lowerDesc.contains("freelance") || lowerDesc.contains("part-time job")) {
-                return "Freelance/Part-time";
-            } else {
-                return "Other Income";
-            }
+        // 确定交易类型（收入或支出）和类别
+        boolean transactionIsExpense = true; // 默认为支出
+        String category = "未分类";
+        
+        // 首先基于金额判断交易类型
+        if (amount < 0) {
+            // 负数金额通常表示支出
+            transactionIsExpense = true;
+            amount = Math.abs(amount); // 取绝对值存储
+        } else {
+            // 尝试根据描述判断收入/支出
+            transactionIsExpense = autoDetectIsExpense(classifier, classification, "");
         }
         
-        // 支出类别
-        if (lowerDesc.contains("food") || lowerDesc.contains("eat") || lowerDesc.contains("meal") || 
-            lowerDesc.contains("restaurant") || lowerDesc.contains("grocery") || lowerDesc.contains("supermarket") || lowerDesc.contains("dining")) {
-            return "Food";
-        } else if (lowerDesc.contains("shop") || lowerDesc.contains("buy") || lowerDesc.contains("purchase") || 
-                   lowerDesc.contains("store") || lowerDesc.contains("mall") || lowerDesc.contains("online") ||
-                   lowerDesc.contains("taobao") || lowerDesc.contains("jd") || lowerDesc.contains("amazon") || lowerDesc.contains("apparel")) {
-            if (lowerDesc.contains("cloth") || lowerDesc.contains("shoe") || 
-                lowerDesc.contains("bag") || lowerDesc.contains("wear") || lowerDesc.contains("fashion")) {
-                return "Clothing";
+        // 没有可用的类别时，先用从用户自己的账本中学到的模型预测；负数金额只在支出类别中预测
+        boolean needsCategory = !hasCategoryColumn || row.categoryUnreadable
+                || row.category == null || row.category.trim().isEmpty();
+        CategoryPredictor.Prediction prediction = needsCategory
+                ? getCategoryPredictor().predict(description, row.amountMinorUnits < 0 ? Boolean.TRUE : null)
+                : null;
+        
+        if (prediction != null) {
+            category = prediction.getCategory();
+            transactionIsExpense = prediction.isExpense();
+        } else if (hasCategoryColumn && row.categoryUnreadable) {
+            category = autoDetectCategory(classification, transactionIsExpense);
+        } else if (hasCategoryColumn) {
+            // 如果类别列存在，优先使用类别列的值
+            category = row.category;
+            // 如果类别为空，则使用自动检测
+            if (category == null || category.trim().isEmpty()) {
+                if (useAiAssistant) {
+                    Map<String, Object> aiResult = detectCategoryAndType(description, amount);
+                    category = (String) aiResult.get("category");
+                    // 使用AI检测的交易类型
+                    transactionIsExpense = (boolean) aiResult.get("isExpense");
+                } else {
+                    category = autoDetectCategory(classification, transactionIsExpense);
+                    
+                    // 重新检测收入/支出类型
+                    if (!description.isEmpty()) {
+                        transactionIsExpense = autoDetectIsExpense(classifier, classification, category);
+                    }
+                }
+            } else if (!description.isEmpty()) {
+                // 即使有类别，也根据类别和描述再次判断收入/支出
+                boolean suggestedType = autoDetectIsExpense(classifier, classification, category);
+                // 如果类别是典型的收入类别，优先使用类别判断结果
+                // Use English categories for checking income type
+                List<String> incomeCategories = getStandardIncomeCategories(classifier); // Helper method to get defined income categories
+                final String currentCategory = category; // Use a final variable for the lambda
+                if (incomeCategories.stream().anyMatch(incomeCat -> incomeCat.equalsIgnoreCase(currentCategory))) {
+                    transactionIsExpense = false;
+                } else if (suggestedType) {
+                    // 如果自动检测为支出，则采用
+                    transactionIsExpense = true;
+                }
+            }
+        } else if (useAiAssistant) {
+            // 没有提供类别列，使用AI识别
+            try {
+                Map<String, Object> aiResult = detectCategoryAndType(description, amount);
+                category = (String) aiResult.get("category");
+                transactionIsExpense = (boolean) aiResult.get("isExpense");
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "AI category detection failed, falling back to rules", e);
+                category = autoDetectCategory(classification, transactionIsExpense);
+            }
+        } else {
+            // 使用规则分析类别
+            category = autoDetectCategory(classification, transactionIsExpense);
+            
+            // 根据类别再次确认交易类型
+            if (!description.isEmpty()) {
+                transactionIsExpense = autoDetectIsExpense(classifier, classification, category);
             }
-            return "Shopping";
-        } else if (lowerDesc.contains("traffic") || lowerDesc.contains("bus") || lowerDesc.contains("subway") || 
-                   lowerDesc.contains("taxi") || lowerDesc.contains("didi") || lowerDesc.contains("train") || 
-                   lowerDesc.contains("flight") || lowerDesc.contains("gas") || lowerDesc.contains("fuel") || 
-                   lowerDesc.contains("parking")) {
-            return "Transportation";
-        } else if (lowerDesc.contains("house") || lowerDesc.contains("rent") || lowerDesc.contains("mortgage") ||
-                   lowerDesc.contains("hotel") || lowerDesc.contains("property fee") || lowerDesc.contains("accommodation")) {
-            return "Housing";
-        } else if (lowerDesc.contains("utility") || lowerDesc.contains("water") || 
-                   lowerDesc.contains("electricity") || lowerDesc.contains("gas") || 
-                   lowerDesc.contains("internet") || (lowerDesc.contains("phone") && lowerDesc.contains("bill"))) {
-            return "Utilities";
-        } else if ((lowerDesc.contains("phone") && !lowerDesc.contains("bill")) ||
-                   lowerDesc.contains("mobile") || lowerDesc.contains("communication")) {
-            return "Communication";
-        } else if (lowerDesc.contains("entertainment") || lowerDesc.contains("movie") || lowerDesc.contains("game") || 
-                   lowerDesc.contains("travel") || lowerDesc.contains("concert") || lowerDesc.contains("sport") || 
-                   lowerDesc.contains("hobby")) {
-            return "Entertainment";
-        } else if (lowerDesc.contains("medical") || lowerDesc.contains("medicine") || 
-                   lowerDesc.contains("hospital") || lowerDesc.contains("health") || lowerDesc.contains("doctor") || 
-                   lowerDesc.contains("pharmacy")) {
-            return "Healthcare";
-        } else if (lowerDesc.contains("education") || lowerDesc.contains("school") || 
-                   lowerDesc.contains("course") || lowerDesc.contains("book") || 
-                   lowerDesc.contains("training") || lowerDesc.contains("tuition")) {
-            return "Education";
-        } else if (lowerDesc.contains("child") || lowerDesc.contains("kid") || lowerDesc.contains("baby")) {
-            return "Kids";
-        } else if (lowerDesc.contains("pet") || lowerDesc.contains("cat") || lowerDesc.contains("dog")) {
-            return "Pets";
-        } else if (lowerDesc.contains("insurance")) {
-            return "Insurance";
-        } else if (lowerDesc.contains("tax")) {
-            return "Taxes";
-        } else if (lowerDesc.contains("donation") || lowerDesc.contains("charity")) {
-            return "Donation";
-        } else if (lowerDesc.contains("repair") || lowerDesc.contains("maintenance")) {
-            return "Repairs/Maintenance";
-        } else if (lowerDesc.contains("gym") || lowerDesc.contains("fitness")) {
-            return "Fitness/Sports";
-        } else if (lowerDesc.contains("subscription") || lowerDesc.contains("membership")) {
-            return "Subscriptions/Memberships";
         }
         
-        return "Others";
+        // 如果类别在我们定义的中文收入类别列表中，则确保 transactionIsExpense 为 false
+        if (category != null && this.settings.getIncomeCategories().contains(category)) {
+            transactionIsExpense = false;
+        }
+        
+        // 创建新的交易记录
+        // 确保金额为正数，直接使用解析得到的分，不经过 double
+        Transaction transaction = Transaction.ofCents(UUID.randomUUID().toString(), row.date,
+                Math.abs(row.amountMinorUnits), description, category, transactionIsExpense);
+        transaction.setParticipant(row.participant);
+        transaction.setNotes(row.notes);
+        return transaction;
+    }
+    
+    /**
+     * 导入流水线中读取阶段与分类阶段之间传递的规范化记录
+     */
+    private static final class ImportedRow {
+        LocalDate date;
+        // 金额，以分为单位
+        long amountMinorUnits;
+        String description;
+        // 类别列的原始值；未指定类别列时为 null
+        String category;
+        boolean categoryUnreadable;
+        String participant;
+        String notes;
+    }
+    
+    /**
+     * Gets the keyword classifier compiled from the rules in the settings.
+     * It is compiled on first use and again when saved settings change the rules or the
+     * categories; invalid rules fall back to the built-in ones. Reading it takes no lock, so
+     * the classify workers of an import can call this for every row.
+     *
+     * @return The keyword classifier
+     */
+    public KeywordClassifier getKeywordClassifier() {
+        KeywordClassifier classifier = keywordClassifier;
+        return classifier != null ? classifier : compileKeywordClassifier();
+    }
+    
+    /**
+     * 按当前设置中的规则和类别编译关键词分类器；规则和类别都未变化时保留原分类器和分类缓存
+     */
+    private synchronized KeywordClassifier compileKeywordClassifier() {
+        List<String> incomeRules = KeywordClassifier.DEFAULT_INCOME_RULES;
+        List<String> expenseRules = KeywordClassifier.DEFAULT_EXPENSE_RULES;
+        List<String> typeRules = KeywordClassifier.DEFAULT_TYPE_RULES;
+        Settings settings = this.settings;
+        if (settings != null) {
+            if (settings.getIncomeKeywordRules() != null) {
+                incomeRules = settings.getIncomeKeywordRules();
+            }
+            if (settings.getExpenseKeywordRules() != null) {
+                expenseRules = settings.getExpenseKeywordRules();
+            }
+            if (settings.getTypeKeywordRules() != null) {
+                typeRules = settings.getTypeKeywordRules();
+            }
+        }
+        List<String> incomeCategories = settings != null ? settings.getIncomeCategories() : List.of();
+        List<String> expenseCategories = settings != null ? settings.getExpenseCategories() : List.of();
+        List<List<String>> rules = List.of(incomeRules, expenseRules, typeRules, incomeCategories, expenseCategories);
+        if (keywordClassifier == null || !rules.equals(keywordClassifierRules)) {
+            // 保存副本，设置中的列表可能被原地修改
+            keywordClassifierRules = List.of(new ArrayList<>(incomeRules), new ArrayList<>(expenseRules),
+                    new ArrayList<>(typeRules), new ArrayList<>(incomeCategories), new ArrayList<>(expenseCategories));
+            // 规则或类别变化后，之前缓存的分类结果作废
+            classificationCache.setFingerprint(Integer.toHexString(keywordClassifierRules.hashCode()));
+            KeywordClassifier classifier;
+            try {
+                classifier = new KeywordClassifier(incomeRules, expenseRules, typeRules);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Invalid keyword rules in settings, using the built-in rules", e);
+                classifier = KeywordClassifier.getDefault();
+            }
+            keywordClassifier = classifier;
+        }
+        return keywordClassifier;
+    }
+    
+    /**
+     * Classifies a description with the keyword rules, using the classification cache.
+     *
+     * @param classifier The current keyword classifier
+     * @param description The transaction description
+     * @return The categories and type the rules conclude from the description
+     */
+    private ClassificationCache.Classification classifyDescription(KeywordClassifier classifier, String description) {
+        String key = ClassificationCache.normalise(description, classifier.hasDigitKeywords());
+        ClassificationCache.Classification classification = classificationCache.get(key);
+        if (classification == null) {
+            // 扫描规范化后的描述，保证相同键的描述得到相同的结果
+            KeywordClassifier.Matches matches = classifier.scan(key);
+            classification = new ClassificationCache.Classification(classifier.categorize(matches, false),
+                    classifier.categorize(matches, true), classifier.isExpense(matches));
+            classificationCache.put(key, classification);
+        }
+        return classification;
+    }
+    
+    /**
+     * Gets the category predictor trained on the ledger.
+     * It is trained on first use and after the whole ledger was replaced; added, edited and
+     * deleted transactions update it incrementally in between.
+     *
+     * @return The category predictor
+     */
+    public CategoryPredictor getCategoryPredictor() {
+        // 已训练好时直接读取，导入的分类线程逐条调用也不争用服务的锁
+        CategoryPredictor predictor = categoryPredictor;
+        return predictor != null ? predictor : trainCategoryPredictor();
+    }
+    
+    private synchronized CategoryPredictor trainCategoryPredictor() {
+        if (categoryPredictor == null) {
+            CategoryPredictor predictor = new CategoryPredictor();
+            predictor.learnAll(repository.findAll());
+            categoryPredictor = predictor;
+            LOGGER.log(Level.FINE, "Trained category predictor on {0} transactions", predictor.getTrainingCount());
+        }
+        return categoryPredictor;
+    }
+    
+    /**
+     * Predicts the category of a new transaction from the user's own labelling.
+     *
+     * @param description The transaction description
+     * @param isExpense Restricts the prediction to expense or income categories, or null for either
+     * @return The prediction, or null if there is no confident prediction
+     */
+    public CategoryPredictor.Prediction predictCategory(String description, Boolean isExpense) {
+        return getCategoryPredictor().predict(description, isExpense);
+    }
+    
+    private void learnCategory(Transaction transaction) {
+        CategoryPredictor predictor = categoryPredictor;
+        // 尚未训练时，训练时会读取到这条记录
+        if (predictor != null) {
+            predictor.learn(transaction);
+        }
+    }
+    
+    private void unlearnCategory(Transaction transaction) {
+        CategoryPredictor predictor = categoryPredictor;
+        if (predictor != null) {
+            predictor.unlearn(transaction);
+        }
+    }
+    
+    /**
+     * Writes the classification cache to disk so that the next import starts warm.
+     *
+     * @return true if the cache was saved or unchanged, false otherwise
+     */
+    public boolean saveClassificationCache() {
+        return classificationCache.save();
+    }
+    
+    private String autoDetectCategory(ClassificationCache.Classification classification, boolean isExpense) {
+        // 规则匹配逻辑：根据描述中的关键词判断类别，规则按顺序匹配，第一条命中的规则生效
+        return classification.getCategory(isExpense);
     }
     
     // Helper method to provide a standard list of income categories (in English)
     // This should ideally come from Settings or a shared constant.
-    private List<String> getStandardIncomeCategories() {
-        return List.of("Salary", "Bonus", "Investment", "Interest", "Refund", "Gift", "Freelance/Part-time", "Other Income");
+    private List<String> getStandardIncomeCategories(KeywordClassifier classifier) {
+        return classifier.getCategoryNames(false);
     }
     
     /**
      * 使用简单规则自动判断交易是收入还是支出
      * 
-     * @param description 交易描述
-     * @param amount 交易金额
+     * @param classifier 当前的关键词分类器
+     * @param classification 交易描述的关键词分类结果
      * @param category 交易类别（可能已经通过规则确定）
      * @return 是否为支出
      */
-    private boolean autoDetectIsExpense(String description, double amount, String category) {
+    private boolean autoDetectIsExpense(KeywordClassifier classifier, ClassificationCache.Classification classification,
+                                        String category) {
         // 首先，检查是否为已知的收入类别 (来自 Settings)
         if (category != null && !category.isEmpty() && this.settings.getIncomeCategories().contains(category)) {
             return false; // 明确是收入
         }
 
-        // 根据类别判断 (此部分为原有逻辑，现在作为已知收入类别检查后的备用)
+        // 根据类别判断：关键词规则中定义的收入类别或支出类别
         if (category != null && !category.isEmpty()) {
-            // 使用英文类别名进行判断
-            if (category.equalsIgnoreCase("Salary") || category.equalsIgnoreCase("Bonus") || 
-                category.equalsIgnoreCase("Investment") || category.equalsIgnoreCase("Interest") || 
-                category.equalsIgnoreCase("Refund") || category.equalsIgnoreCase("Gift") || 
-                category.equalsIgnoreCase("Freelance/Part-time") || category.equalsIgnoreCase("Other Income")) {
+            if (containsIgnoreCase(classifier.getCategoryNames(false), category)) {
                 return false; // 这些是明确的收入类别
             }
-            // 如果类别是支出类别中定义的，则肯定是支出 (虽然此函数主要用于在类别未知或不明确时辅助判断)
-             if (category.equalsIgnoreCase("Food") || category.equalsIgnoreCase("Shopping") ||
-                category.equalsIgnoreCase("Transportation") || category.equalsIgnoreCase("Housing") ||
-                category.equalsIgnoreCase("Utilities") || category.equalsIgnoreCase("Communication") ||
-                category.equalsIgnoreCase("Entertainment") || category.equalsIgnoreCase("Clothing") ||
-                category.equalsIgnoreCase("Healthcare") || category.equalsIgnoreCase("Education") ||
-                category.equalsIgnoreCase("Kids") || category.equalsIgnoreCase("Pets") ||
-                category.equalsIgnoreCase("Insurance") || category.equalsIgnoreCase("Taxes") ||
-                category.equalsIgnoreCase("Donation") || category.equalsIgnoreCase("Repairs/Maintenance") ||
-                category.equalsIgnoreCase("Fitness/Sports") || category.equalsIgnoreCase("Subscriptions/Memberships") ||
-                category.equalsIgnoreCase("Others")) {
+            if (containsIgnoreCase(classifier.getCategoryNames(true), category)) {
                 return true;
             }
         }
         
-        // 根据描述中的关键词判断 (保留部分中文关键词以兼容旧数据或中文输入)
-        String lowerDesc = description.toLowerCase();
-        
-        // 收入关键词
-        String[] incomeKeywords = {
-            "salary", "income", "bonus", "refund", "reimbursement", "interest", "dividend",
-            "return", "rebate", "subsidy", "allowance", "benefit", "rent income", "part-time",
-            "side job", "gift", "payroll", "revenue", "earnings"
-        };
-        
-        // 支出关键词
-        String[] expenseKeywords = {
-            "expense", "cost", "purchase", "buy", "pay", "payment", "bill", "fee", "charge",
-            "spend", "spent", "order"
-        };
-        
-        // 检查描述中是否包含收入关键词
-        for (String keyword : incomeKeywords) {
-            if (lowerDesc.contains(keyword)) {
-                return false; // 包含收入关键词，判定为收入
-            }
-        }
-        
-        // 检查描述中是否包含支出关键词
-        for (String keyword : expenseKeywords) {
-            if (lowerDesc.contains(keyword)) {
-                return true; // 包含支出关键词，判定为支出
-            }
-        }
-        
-        // 判断常见收入来源名称
-        String[] incomeSourceNames = {
-            "工商银行", "农业银行", "建设银行", "中国银行", "交通银行", "招商银行", "邮政储蓄",
-            "支付宝", "微信", "公司", "单位", "企业", "集团", "有限公司", "银行转账", "转账收入"
-        };
-        
-        for (String source : incomeSourceNames) {
-            if (lowerDesc.contains(source.toLowerCase())) {
-                // 如果同时包含"转出"、"支出"等词，则仍判断为支出
-                if (lowerDesc.contains("转出") || lowerDesc.contains("支出") || 
-                    lowerDesc.contains("付款") || lowerDesc.contains("消费")) {
-                    return true;
-                }
-                return false; // 可能是银行或公司转账收入
+        // 根据描述中的关键词判断（收入关键词、支出关键词、常见收入来源名称），默认为支出
+        return classification.expenseByKeywords;
+    }
+    
+    private static boolean containsIgnoreCase(List<String> names, String name) {
+        for (String candidate : names) {
+            if (candidate.equalsIgnoreCase(name)) {
+                return true;
             }
         }
-        
-        // 默认为支出
-        return true;
+        return false;
     }
     
     /**
@@ -800,7 +1125,8 @@ public class TransactionService {
      * @return true if the backup was successful, false otherwise
      */
     public boolean createBackup() {
-        return csvExporter.createCsvBackup();
+        // 账本按月分段存储，备份由当前完整账本生成单个 CSV 文件
+        return csvExporter.createCsvBackup(getAllTransactions());
     }
 
     /**
@@ -812,6 +1138,16 @@ public class TransactionService {
         return csvExporter.exportAllTransactionsToFile(transactions);
     }
 
+    /**
+     * Exports all transactions to the designated export file as a background job.
+     * @param job The job running the export, for progress and cancellation
+     * @return true if export was successful, false if it failed or was cancelled
+     */
+    public boolean exportAllTransactions(JobScheduler.Job job) {
+        List<Transaction> transactions = getAllTransactions();
+        return csvExporter.exportAllTransactionsToFile(transactions, job);
+    }
+
     /**
      * Exports transactions grouped by month to the designated classify directory.
      * @return An ExportResult object containing details of the export process.
@@ -821,6 +1157,16 @@ public class TransactionService {
         return csvExporter.exportTransactionsByMonth(transactions);
     }
 
+    /**
+     * Exports transactions grouped by month as a background job.
+     * @param job The job running the export, for progress and cancellation
+     * @return An ExportResult object containing details of the export process.
+     */
+    public TransactionCsvExporter.ExportResult exportTransactionsByMonth(JobScheduler.Job job) {
+        List<Transaction> transactions = getAllTransactions();
+        return csvExporter.exportTransactionsByMonth(transactions, job);
+    }
+
     /**
      * 获取当前财务月的开始和结束日期
      * 这是根据设置中的monthStartDay来定义财务月，而不是自然月
@@ -828,29 +1174,12 @@ public class TransactionService {
      * @return 包含开始和结束日期的Map
      */
     public Map<String, LocalDate> getCurrentFinancialMonthRange() {
-        // 从SettingsService获取Settings
-        SettingsService settingsService = new SettingsService();
-        Settings settings = settingsService.getSettings();
-        int monthStartDay = settings.getMonthStartDay();
-        
-        LocalDate today = LocalDate.now();
-        LocalDate startDate;
-        
-        // 确定当前财务月的开始日期
-        if (today.getDayOfMonth() >= monthStartDay) {
-            // 如果当前日期已过本月的起始日，则财务月从本月的起始日开始
-            startDate = today.withDayOfMonth(monthStartDay);
-        } else {
-            // 如果当前日期在本月起始日之前，则财务月从上个月的起始日开始
-            startDate = today.minusMonths(1).withDayOfMonth(monthStartDay);
-        }
-        
-        // 财务月结束日期是下个财务月开始前一天
-        LocalDate endDate = startDate.plusMonths(1).minusDays(1);
+        FinancialCalendar calendar = getFinancialCalendar();
+        YearMonth period = calendar.currentPeriod();
         
         Map<String, LocalDate> result = new HashMap<>();
-        result.put("startDate", startDate);
-        result.put("endDate", endDate);
+        result.put("startDate", calendar.getStartDate(period));
+        result.put("endDate", calendar.getEndDate(period));
         
         return result;
     }
@@ -877,24 +1206,55 @@ public class TransactionService {
      * @return 包含开始和结束日期的Map
      */
     public Map<String, LocalDate> getFinancialMonthRange(int year, int month) {
-        // 从SettingsService获取Settings
-        SettingsService settingsService = new SettingsService();
-        Settings settings = settingsService.getSettings();
-        int monthStartDay = settings.getMonthStartDay();
-        
-        // 指定月的起始日
-        LocalDate startDate = LocalDate.of(year, month, monthStartDay);
-        
-        // 财务月结束日期是下个财务月开始前一天
-        LocalDate endDate = startDate.plusMonths(1).minusDays(1);
+        FinancialCalendar calendar = getFinancialCalendar();
+        YearMonth period = YearMonth.of(year, month);
         
         Map<String, LocalDate> result = new HashMap<>();
-        result.put("startDate", startDate);
-        result.put("endDate", endDate);
+        result.put("startDate", calendar.getStartDate(period));
+        // 财务月结束日期是下个财务月开始前一天
+        result.put("endDate", calendar.getEndDate(period));
         
         return result;
     }
 
+    /**
+     * 获取财务月日历
+     * 使用当前设置中的monthStartDay，不再每次从磁盘读取settings.dat
+     * 
+     * @return 当前财务月起始日对应的财务月日历
+     */
+    public FinancialCalendar getFinancialCalendar() {
+        Settings settings = this.settings;
+        return getFinancialCalendar(settings != null ? settings.getMonthStartDay() : 1);
+    }
+
+    private synchronized FinancialCalendar getFinancialCalendar(int monthStartDay) {
+        if (financialCalendar == null || financialCalendar.getMonthStartDay() != monthStartDay) {
+            financialCalendar = new FinancialCalendar(monthStartDay);
+        }
+        return financialCalendar;
+    }
+
+    /**
+     * 获取指定财务月的收入或支出总额
+     * 从按财务月预先汇总的结果中读取，不遍历交易记录
+     * 
+     * @param period 财务月（以其开始的自然月表示）
+     * @param isExpense 是否为支出
+     * @return 总额
+     */
+    public double getFinancialMonthTotal(YearMonth period, boolean isExpense) {
+        return getFinancialMonthTotal(getFinancialCalendar(), period, isExpense);
+    }
+
+    private double getFinancialMonthTotal(FinancialCalendar calendar, YearMonth period, boolean isExpense) {
+        return Money.toMajorUnits(getFinancialMonthTotalCents(calendar, period, isExpense));
+    }
+
+    private long getFinancialMonthTotalCents(FinancialCalendar calendar, YearMonth period, boolean isExpense) {
+        return repository.getFinancialRollup(calendar).sumCents(period, period, isExpense);
+    }
+
     /**
      * 获取指定财务月的交易记录
      * 
@@ -911,15 +1271,19 @@ public class TransactionService {
      * Calculates the remaining balance for the current financial month.
      * Remaining Balance = Total Income - Total Expenses, without subtracting active savings contributions.
      *
-     * @param settings The application settings, used to get saving goals.
+     * @param settings The application settings, whose month start day defines the current financial month;
+     *                 null for the settings this service follows.
      * @return The calculated remaining balance.
      */
     public double calculateRemainingBalanceForCurrentFinancialMonth(Settings settings) {
-        List<Transaction> transactions = getTransactionsForCurrentFinancialMonth();
-        double totalIncome = getTotalIncome(transactions);
-        double totalExpense = getTotalExpense(transactions);
+        FinancialCalendar calendar = settings != null
+                ? getFinancialCalendar(settings.getMonthStartDay())
+                : getFinancialCalendar();
+        YearMonth currentPeriod = calendar.currentPeriod();
+        long totalIncome = getFinancialMonthTotalCents(calendar, currentPeriod, false);
+        long totalExpense = getFinancialMonthTotalCents(calendar, currentPeriod, true);
 
-        return totalIncome - totalExpense;
+        return Money.toMajorUnits(totalIncome - totalExpense);
     }
 
     /**
@@ -970,11 +1334,11 @@ public class TransactionService {
                 }
                 
                 // Additional check: ensure we don't over-contribute if very close to target
-                double contributionAmount = goal.getMonthlyContribution();
-                if (goal.getCurrentAmount() + contributionAmount > goal.getTargetAmount() && goal.getTargetAmount() > 0) {
+                long contributionAmount = goal.getMonthlyContributionCents();
+                if (goal.getCurrentAmountCents() + contributionAmount > goal.getTargetAmountCents() && goal.getTargetAmountCents() > 0) {
                     // Adjust contribution to not exceed target.
                     // This case might also mean the goal is effectively completed by this contribution.
-                    contributionAmount = goal.getTargetAmount() - goal.getCurrentAmount();
+                    contributionAmount = goal.getTargetAmountCents() - goal.getCurrentAmountCents();
                     if (contributionAmount <= 0) { // Already met or exceeded
                         LOGGER.log(Level.INFO, "Saving goal ''{0}'' is already met or exceeded. No contribution needed.", goal.getName());
                         continue; 
@@ -986,7 +1350,7 @@ public class TransactionService {
                     String description = String.format("Monthly contribution to savings goal: %s", goal.getName());
                     Transaction savingsTransaction = new Transaction(
                             transactionDate,
-                            contributionAmount,
+                            Money.toMajorUnits(contributionAmount),
                             description,
                             savingsCategory, // Use the passed savingsCategory
                             null, // Participant
@@ -995,9 +1359,9 @@ public class TransactionService {
                     );
 
                     if (addTransaction(savingsTransaction)) {
-                        goal.addContribution(contributionAmount); // This method handles currentAmount += contributionAmount
+                        goal.addContributionCents(contributionAmount); // This method handles currentAmount += contributionAmount
                         settingsNeedSaving = true;
-                        LOGGER.log(Level.INFO, "Processed monthly savings contribution for goal: ''{0}'', Amount: {1}", new Object[]{goal.getName(), contributionAmount});
+                        LOGGER.log(Level.INFO, "Processed monthly savings contribution for goal: ''{0}'', Amount: {1}", new Object[]{goal.getName(), Money.toPlainString(contributionAmount)});
                     } else {
                         allGoalsProcessedSuccessfully = false;
                         LOGGER.log(Level.SEVERE, "Failed to add savings transaction for goal: ''{0}''", goal.getName());
@@ -1035,21 +1399,14 @@ public class TransactionService {
             return false;
         }
 
-        int monthStartDay = settings.getMonthStartDay();
+        FinancialCalendar calendar = getFinancialCalendar(settings.getMonthStartDay());
         String lastClosedMonthStr = settings.getLastMonthClosed(); // Format: YYYY-MM
         LocalDate today = LocalDate.now();
         boolean monthClosedThisRun = false;
 
         // Determine the YearMonth of the financial month that ends *before* the current financial month starts.
         // This is the latest month we can safely close.
-        LocalDate currentFinancialMonthStartDate;
-        if (today.getDayOfMonth() >= monthStartDay) {
-            currentFinancialMonthStartDate = today.withDayOfMonth(monthStartDay);
-        } else {
-            currentFinancialMonthStartDate = today.minusMonths(1).withDayOfMonth(monthStartDay);
-        }
-        // The latest financial month we can close is the one that started *before* currentFinancialMonthStartDate
-        YearMonth latestClosableFinancialYearMonth = YearMonth.from(currentFinancialMonthStartDate.minusMonths(1));
+        YearMonth latestClosableFinancialYearMonth = calendar.currentPeriod().minusMonths(1);
 
 
         YearMonth startClosingFromYearMonth;
@@ -1075,28 +1432,29 @@ public class TransactionService {
             LOGGER.log(Level.INFO, "Attempting to close financial month: " + currentMonthToAttemptClose);
 
             // Get the date range for the financial month to close
-            // The 'year' and 'month' for getFinancialMonthRange should correspond to the start of that financial month.
-            Map<String, LocalDate> financialMonthDateRange = getFinancialMonthRange(currentMonthToAttemptClose.getYear(), currentMonthToAttemptClose.getMonthValue());
-            LocalDate periodStartDate = financialMonthDateRange.get("startDate");
-            LocalDate periodEndDate = financialMonthDateRange.get("endDate");
+            LocalDate periodStartDate = calendar.getStartDate(currentMonthToAttemptClose);
+            LocalDate periodEndDate = calendar.getEndDate(currentMonthToAttemptClose);
 
             if (periodEndDate.isAfter(today.minusDays(1))) { // Ensure the financial month has fully passed
                  LOGGER.log(Level.INFO, "Financial month " + currentMonthToAttemptClose + " has not fully passed. Skipping.");
                  break; // Stop if we've reached a month that isn't fully over
             }
 
-            List<Transaction> transactionsForMonth = getTransactionsForDateRange(periodStartDate, periodEndDate);
-            double surplus = getNetAmount(transactionsForMonth);
+            // 从按财务月汇总的结果中读取，不再加载该月的交易记录
+            // 以分为单位累加，余额逐月结转也不会积累浮点误差
+            Money surplus = Money.of(getFinancialMonthTotalCents(calendar, currentMonthToAttemptClose, false)
+                    - getFinancialMonthTotalCents(calendar, currentMonthToAttemptClose, true),
+                    settings.getDefaultCurrency());
 
-            LOGGER.log(Level.INFO, String.format("Surplus for %s (%s to %s): %.2f",
+            LOGGER.log(Level.INFO, String.format("Surplus for %s (%s to %s): %s",
                     currentMonthToAttemptClose, periodStartDate, periodEndDate, surplus));
 
-            settings.setOverallAccountBalance(settings.getOverallAccountBalance() + surplus);
+            settings.setOverallAccountBalanceMoney(settings.getOverallAccountBalanceMoney().plus(surplus));
             settings.setLastMonthClosed(currentMonthToAttemptClose.format(DateTimeFormatter.ofPattern("yyyy-MM")));
 
             if (settingsService.saveSettings()) {
                 LOGGER.log(Level.INFO, "Successfully closed financial month " + currentMonthToAttemptClose +
-                        ". New overall account balance: " + settings.getOverallAccountBalance());
+                        ". New overall account balance: " + settings.getOverallAccountBalanceMoney());
                 monthClosedThisRun = true;
             } else {
                 LOGGER.log(Level.SEVERE, "Failed to save settings after closing month " + currentMonthToAttemptClose +
@@ -0,0 +1,258 @@
+package com.financetracker.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.financetracker.model.Money;
+
+/**
+ * Read-only struct-of-arrays snapshot of ledger rows for analytics; the repository keeps one
+ * per month, so an edit only rebuilds the table of the month it touched.
+ * Each row is stored as an epoch day, an amount in cents, a category id and an expense bit,
+ * with category names interned in a string pool. Rows are ordered by date, newest first,
+ * like the rest of the repository, so a date range is located by binary search. Totals are
+ * plain loops over primitive arrays and the table costs roughly 17 bytes per row instead of
+ * a Transaction with a LocalDate and six String references.
+ */
+public final class TransactionTable {
+
+    private static final int NO_CATEGORY = -1;
+
+    private final int size;
+    private final int[] epochDays;
+    private final long[] amountCents;
+    private final int[] categoryIds;
+    private final BitSet expenses;
+    private final String[] categoryNames;
+
+    private TransactionTable(int size, int[] epochDays, long[] amountCents, int[] categoryIds, BitSet expenses,
+            String[] categoryNames) {
+        this.size = size;
+        this.epochDays = epochDays;
+        this.amountCents = amountCents;
+        this.categoryIds = categoryIds;
+        this.expenses = expenses;
+        this.categoryNames = categoryNames;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getEpochDay(int row) {
+        return epochDays[row];
+    }
+
+    public LocalDate getDate(int row) {
+        return LocalDate.ofEpochDay(epochDays[row]);
+    }
+
+    public long getAmountCents(int row) {
+        return amountCents[row];
+    }
+
+    public double getAmount(int row) {
+        return Money.toMajorUnits(amountCents[row]);
+    }
+
+    public boolean isExpense(int row) {
+        return expenses.get(row);
+    }
+
+    public int getCategoryId(int row) {
+        return categoryIds[row];
+    }
+
+    public String getCategory(int row) {
+        return categoryName(categoryIds[row]);
+    }
+
+    /**
+     * @return The number of distinct categories in the pool
+     */
+    public int categoryCount() {
+        return categoryNames.length;
+    }
+
+    public String categoryName(int categoryId) {
+        return categoryId == NO_CATEGORY ? null : categoryNames[categoryId];
+    }
+
+    /**
+     * Sums the amounts of income or expense rows within a date range.
+     *
+     * @param startDate The start date (inclusive)
+     * @param endDate The end date (inclusive)
+     * @param isExpense Whether to sum expenses or income
+     * @return The total in cents
+     */
+    public long sumCents(LocalDate startDate, LocalDate endDate, boolean isExpense) {
+        int from = firstRow(endDate);
+        int to = firstRow(startDate.minusDays(1));
+        long total = 0;
+        for (int row = from; row < to; row++) {
+            if (expenses.get(row) == isExpense) {
+                total += amountCents[row];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sums the amounts of income or expense rows within a date range per category.
+     *
+     * @param startDate The start date (inclusive)
+     * @param endDate The end date (inclusive)
+     * @param isExpense Whether to sum expenses or income
+     * @return The total of each category that has matching rows
+     */
+    public Map<String, Double> categoryTotals(LocalDate startDate, LocalDate endDate, boolean isExpense) {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        addCategoryTotals(startDate, endDate, isExpense, totals);
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : totals.entrySet()) {
+            result.put(entry.getKey(), Money.toMajorUnits(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Adds the per-category totals in cents of income or expense rows within a date range to
+     * a map, so that the totals of several tables can be combined without rounding.
+     *
+     * @param startDate The start date (inclusive)
+     * @param endDate The end date (inclusive)
+     * @param isExpense Whether to sum expenses or income
+     * @param categoryTotals The totals in cents by category (null for rows without one), updated in place
+     */
+    public void addCategoryTotals(LocalDate startDate, LocalDate endDate, boolean isExpense, Map<String, Long> categoryTotals) {
+        int from = firstRow(endDate);
+        int to = firstRow(startDate.minusDays(1));
+        long[] totals = new long[categoryNames.length + 1];
+        boolean[] seen = new boolean[categoryNames.length + 1];
+        for (int row = from; row < to; row++) {
+            if (expenses.get(row) == isExpense) {
+                // 下标 0 留给没有类别的记录
+                int slot = categoryIds[row] + 1;
+                totals[slot] += amountCents[row];
+                seen[slot] = true;
+            }
+        }
+        for (int slot = 0; slot < totals.length; slot++) {
+            if (seen[slot]) {
+                categoryTotals.merge(categoryName(slot - 1), totals[slot], Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Finds the first row dated on or before the given date; the rows of a date range are the
+     * run between the bounds of its end date and the day before its start date.
+     *
+     * @param date The date
+     * @return The row offset, or {@link #size()} if every row is later
+     */
+    public int firstRow(LocalDate date) {
+        return TransactionDateIndex.firstRowOnOrBefore(epochDays, size, date.toEpochDay());
+    }
+
+    /**
+     * Accumulates rows and interns their categories; rows should be added newest first.
+     */
+    public static final class Builder {
+        private int size;
+        private int[] epochDays = new int[1024];
+        private long[] amountCents = new long[1024];
+        private int[] categoryIds = new int[1024];
+        private final BitSet expenses = new BitSet();
+        private final Map<String, Integer> categoryPool = new HashMap<>();
+        private final List<String> categoryNames = new ArrayList<>();
+
+        /**
+         * Appends the row the cursor is positioned on.
+         *
+         * @param row The cursor
+         * @return This builder
+         */
+        public Builder add(TransactionCursor row) {
+            return add(row.getEpochDay(), row.getAmountCents(), row.isExpense(), row.getCategory());
+        }
+
+        /**
+         * Appends a row.
+         *
+         * @param epochDay The date as days since 1970-01-01
+         * @param cents The amount in cents
+         * @param isExpense Whether the row is an expense
+         * @param category The category, may be null
+         * @return This builder
+         */
+        public Builder add(long epochDay, long cents, boolean isExpense, String category) {
+            if (size == epochDays.length) {
+                int capacity = size * 2;
+                epochDays = Arrays.copyOf(epochDays, capacity);
+                amountCents = Arrays.copyOf(amountCents, capacity);
+                categoryIds = Arrays.copyOf(categoryIds, capacity);
+            }
+            epochDays[size] = (int) epochDay;
+            amountCents[size] = cents;
+            categoryIds[size] = intern(category);
+            expenses.set(size, isExpense);
+            size++;
+            return this;
+        }
+
+        public TransactionTable build() {
+            int[] days = Arrays.copyOf(epochDays, size);
+            long[] amounts = Arrays.copyOf(amountCents, size);
+            int[] categories = Arrays.copyOf(categoryIds, size);
+            BitSet expenseBits = (BitSet) expenses.clone();
+            if (!isNewestFirst(days)) {
+                // 行未按日期倒序加入时重新排列（稳定排序，同一天保持加入顺序）
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (a, b) -> Integer.compare(epochDays[b], epochDays[a]));
+                expenseBits.clear();
+                for (int i = 0; i < size; i++) {
+                    int source = order[i];
+                    days[i] = epochDays[source];
+                    amounts[i] = amountCents[source];
+                    categories[i] = categoryIds[source];
+                    expenseBits.set(i, expenses.get(source));
+                }
+            }
+            return new TransactionTable(size, days, amounts, categories, expenseBits,
+                    categoryNames.toArray(new String[0]));
+        }
+
+        private int intern(String category) {
+            if (category == null) {
+                return NO_CATEGORY;
+            }
+            Integer id = categoryPool.get(category);
+            if (id == null) {
+                id = categoryNames.size();
+                categoryPool.put(category, id);
+                categoryNames.add(category);
+            }
+            return id;
+        }
+
+        private static boolean isNewestFirst(int[] days) {
+            for (int i = 1; i < days.length; i++) {
+                if (days[i] > days[i - 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.financetracker.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.financetracker.model.Transaction;
+
+/**
+ * Inverted index from the words of the description, participant and notes to the
+ * transactions that contain them. A word is a run of letters or digits, lower-cased, so
+ * "Starbucks #123" yields "starbucks" and "123", and a Chinese description without spaces is
+ * one word. A search term matches every word that contains it, which gives substring search
+ * while only the distinct words are scanned, and ledgers repeat the same merchants, so there
+ * are far fewer words than transactions. Posting lists are sorted by date, newest first,
+ * like the {@link TransactionCategoryIndex}.
+ */
+final class TransactionTokenIndex {
+
+    private static final Comparator<Transaction> NEWEST_FIRST = (a, b) -> b.getDate().compareTo(a.getDate());
+
+    private final Map<String, Integer> tokenIds = new HashMap<>();
+    private final List<String> tokens = new ArrayList<>();
+    private final List<List<Transaction>> postings = new ArrayList<>();
+    // 记录每条交易被索引时的词；调用方可能直接修改了交易对象再调用 update
+    private final Map<String, int[]> tokensById = new HashMap<>();
+
+    /**
+     * Builds an index over transactions that are already sorted newest first.
+     *
+     * @param monthsNewestFirst The month lists, newest month first, each sorted newest first
+     * @return The index
+     */
+    static TransactionTokenIndex build(Collection<List<Transaction>> monthsNewestFirst) {
+        TransactionTokenIndex index = new TransactionTokenIndex();
+        for (List<Transaction> monthTransactions : monthsNewestFirst) {
+            for (Transaction transaction : monthTransactions) {
+                int[] ids = index.idsOf(transaction);
+                for (int id : ids) {
+                    // 按顺序追加即可保持倒序，无需查找插入位置
+                    index.postings.get(id).add(transaction);
+                }
+                index.tokensById.put(transaction.getId(), ids);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Splits text into distinct lower-cased runs of letters or digits.
+     *
+     * @param text The text, may be null
+     * @return The words in order of first appearance
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * Adds a transaction after every posting with the same or a later date.
+     *
+     * @param transaction The transaction to add
+     */
+    void add(Transaction transaction) {
+        remove(transaction.getId());
+        int[] ids = idsOf(transaction);
+        long epochDay = transaction.getDate().toEpochDay();
+        for (int id : ids) {
+            List<Transaction> postingList = postings.get(id);
+            postingList.add(firstPostingBefore(postingList, epochDay), transaction);
+        }
+        tokensById.put(transaction.getId(), ids);
+    }
+
+    /**
+     * Removes a transaction from the posting lists of the words it was indexed under.
+     *
+     * @param id The transaction id
+     */
+    void remove(String id) {
+        int[] ids = tokensById.remove(id);
+        if (ids == null) {
+            return;
+        }
+        for (int tokenId : ids) {
+            List<Transaction> postingList = postings.get(tokenId);
+            for (int i = 0; i < postingList.size(); i++) {
+                if (postingList.get(i).getId().equals(id)) {
+                    postingList.remove(i);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the words that contain a search term.
+     *
+     * @param term A lower-cased search term
+     * @return The ids of the matching words
+     */
+    List<Integer> tokensContaining(String term) {
+        List<Integer> matches = new ArrayList<>();
+        for (int id = 0; id < tokens.size(); id++) {
+            if (!postings.get(id).isEmpty() && tokens.get(id).contains(term)) {
+                matches.add(id);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @param ids Word ids
+     * @return The total length of their posting lists, an upper bound of {@link #find}'s size
+     */
+    int postingCount(List<Integer> ids) {
+        int count = 0;
+        for (int id : ids) {
+            count += postings.get(id).size();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the transactions that contain any of the given words.
+     *
+     * @param ids Word ids
+     * @return The transactions, newest first, each once
+     */
+    List<Transaction> find(List<Integer> ids) {
+        if (ids.size() == 1) {
+            return new ArrayList<>(postings.get(ids.get(0)));
+        }
+        // 各倒排表已按日期倒序排列，拼接后的稳定排序只需归并这些有序段；
+        // 同一条交易可能出现在多个词的倒排表中，只保留一次
+        Set<Transaction> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Transaction> result = new ArrayList<>(postingCount(ids));
+        for (int id : ids) {
+            for (Transaction transaction : postings.get(id)) {
+                if (seen.add(transaction)) {
+                    result.add(transaction);
+                }
+            }
+        }
+        result.sort(NEWEST_FIRST);
+        return result;
+    }
+
+    private int[] idsOf(Transaction transaction) {
+        Set<String> words = new LinkedHashSet<>(tokenize(transaction.getDescription()));
+        words.addAll(tokenize(transaction.getParticipant()));
+        words.addAll(tokenize(transaction.getNotes()));
+        int[] ids = new int[words.size()];
+        int i = 0;
+        for (String word : words) {
+            Integer id = tokenIds.get(word);
+            if (id == null) {
+                id = tokens.size();
+                tokenIds.put(word, id);
+                tokens.add(word);
+                postings.add(new ArrayList<>());
+            }
+            ids[i++] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Finds the first posting dated strictly before a day.
+     */
+    private static int firstPostingBefore(List<Transaction> postingList, long epochDay) {
+        int low = 0;
+        int high = postingList.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (postingList.get(mid).getDate().toEpochDay() >= epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
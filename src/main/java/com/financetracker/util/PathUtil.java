@@ -77,6 +77,38 @@ public class PathUtil {
         return getDataDir().resolve("transactions.csv");
     }
 
+    /**
+     * Gets the absolute path to the transaction journal (pending changes not yet compacted into the ledger segments).
+     * @return Absolute Path to transactions.journal.
+     */
+    public static Path getTransactionsJournalPath() {
+        return getDataDir().resolve("transactions.journal");
+    }
+
+    /**
+     * Gets the absolute path to the directory holding the per-month ledger segments.
+     * @return Absolute Path to the data/ledger directory.
+     */
+    public static Path getLedgerDir() {
+        return getDataDir().resolve("ledger");
+    }
+
+    /**
+     * Gets the absolute path to the ledger manifest that lists the month segments.
+     * @return Absolute Path to ledger/manifest.csv.
+     */
+    public static Path getLedgerManifestPath() {
+        return getLedgerDir().resolve("manifest.csv");
+    }
+
+    /**
+     * Gets the absolute path to the persisted cache of description classifications.
+     * @return Absolute Path to classification_cache.tsv.
+     */
+    public static Path getClassificationCachePath() {
+        return getDataDir().resolve("classification_cache.tsv");
+    }
+
     /**
      * Gets the absolute path to the settings data file.
      * @return Absolute Path to settings.dat.
@@ -0,0 +1,73 @@
+package com.financetracker.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link DateParser#guessFormat(Iterable)} and {@link DateParser#guessFormat(Path, String)}.
+ */
+class DateParserTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void ambiguousDayAndMonthPrefersMonthFirst() {
+        assertEquals("MM/dd/yyyy", DateParser.guessFormat(Collections.singletonList("01/02/2024")));
+    }
+
+    @Test
+    void dayAboveTwelveSettlesDayFirst() {
+        assertEquals("dd/MM/yyyy", DateParser.guessFormat(Arrays.asList("01/02/2024", "13/02/2024")));
+    }
+
+    @Test
+    void monthAboveTwelveSettlesMonthFirst() {
+        assertEquals("MM/dd/yyyy", DateParser.guessFormat(Arrays.asList("01/02/2024", "02/13/2024")));
+    }
+
+    @Test
+    void otherSeparators() {
+        assertEquals("yyyy-MM-dd", DateParser.guessFormat(Collections.singletonList("2024-03-05")));
+        assertEquals("yyyy/MM/dd", DateParser.guessFormat(Collections.singletonList("2024/03/05")));
+        assertEquals("dd-MM-yyyy", DateParser.guessFormat(Collections.singletonList("05-03-2024")));
+        assertEquals("dd.MM.yyyy", DateParser.guessFormat(Collections.singletonList("05.03.2024")));
+    }
+
+    @Test
+    void nothingParsableFallsBackToDefault() {
+        assertEquals(DateParser.DEFAULT_FORMAT, DateParser.guessFormat(Collections.<String>emptyList()));
+        assertEquals(DateParser.DEFAULT_FORMAT, DateParser.guessFormat(Arrays.asList("yesterday", null, "")));
+    }
+
+    @Test
+    void samplesColumnOfCsvWithQuotedCommas() throws IOException {
+        Path csv = folder.resolve("export.csv");
+        String content = "Description,Date,Amount\n"
+                + "\"Shop, Inc\",01/02/2024,\"1,234.50\"\n"
+                + "\"Cafe, Ltd\",13/02/2024,12.00\n";
+        Files.write(csv, content.getBytes(StandardCharsets.UTF_8));
+
+        // 列名不区分大小写
+        assertEquals("dd/MM/yyyy", DateParser.guessFormat(csv, "date"));
+    }
+
+    @Test
+    void unreadableFileOrColumnFallsBackToDefault() throws IOException {
+        Path csv = folder.resolve("export.csv");
+        Files.write(csv, "Date,Amount\n13/02/2024,1\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(DateParser.DEFAULT_FORMAT, DateParser.guessFormat(folder.resolve("missing.csv"), "Date"));
+        assertEquals(DateParser.DEFAULT_FORMAT, DateParser.guessFormat(csv, null));
+        assertEquals(DateParser.DEFAULT_FORMAT, DateParser.guessFormat(csv, "Posted"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.financetracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link MoneyParser#parseMinorUnits(CharSequence)}.
+ */
+class MoneyParserTest {
+
+    @Test
+    void loneCommaBeforeThreeDigitsIsThousandsSeparator() {
+        assertEquals(123400, MoneyParser.parseMinorUnits("1,234"));
+    }
+
+    @Test
+    void loneCommaBeforeOtherDigitCountsIsDecimalPoint() {
+        assertEquals(123, MoneyParser.parseMinorUnits("1,23"));
+        assertEquals(1250, MoneyParser.parseMinorUnits("12,5"));
+    }
+
+    @Test
+    void loneDotIsAlwaysDecimalPoint() {
+        // "1.234" 中的点按小数点处理，多出的一位四舍五入
+        assertEquals(123, MoneyParser.parseMinorUnits("1.234"));
+        assertEquals(1250, MoneyParser.parseMinorUnits("12.50"));
+    }
+
+    @Test
+    void lastOfMixedSeparatorsIsDecimalPoint() {
+        assertEquals(123456, MoneyParser.parseMinorUnits("1.234,56"));
+        assertEquals(123456, MoneyParser.parseMinorUnits("1,234.56"));
+        assertEquals(123456789, MoneyParser.parseMinorUnits("1,234,567.89"));
+    }
+
+    @Test
+    void repeatedSeparatorIsThousandsSeparator() {
+        assertEquals(123456700, MoneyParser.parseMinorUnits("1,234,567"));
+        assertEquals(123456700, MoneyParser.parseMinorUnits("1.234.567"));
+    }
+
+    @Test
+    void spaceAndApostropheGroupingIsIgnored() {
+        assertEquals(123456, MoneyParser.parseMinorUnits("1 234,56"));
+        assertEquals(123450, MoneyParser.parseMinorUnits("1'234.50"));
+    }
+
+    @Test
+    void negativeSigns() {
+        assertEquals(-1250, MoneyParser.parseMinorUnits("-12.50"));
+        assertEquals(-1250, MoneyParser.parseMinorUnits("12.50-"));
+        assertEquals(-1250, MoneyParser.parseMinorUnits("(12.50)"));
+        assertEquals(-500, MoneyParser.parseMinorUnits("−5"));
+    }
+
+    @Test
+    void fractionsBeyondCentsRoundHalfUp() {
+        assertEquals(13, MoneyParser.parseMinorUnits("0.125"));
+        assertEquals(12, MoneyParser.parseMinorUnits("0.124"));
+        assertEquals(-13, MoneyParser.parseMinorUnits("-0.125"));
+        assertEquals(100, MoneyParser.parseMinorUnits("0.9999"));
+    }
+
+    @Test
+    void fullWidthDigitsAndPunctuation() {
+        assertEquals(12345, MoneyParser.parseMinorUnits("１２３．４５"));
+        assertEquals(123400, MoneyParser.parseMinorUnits("１，２３４"));
+    }
+
+    @Test
+    void currencySymbolsAndCodesAreIgnored() {
+        assertEquals(120000, MoneyParser.parseMinorUnits("¥1,200.00"));
+        assertEquals(3550, MoneyParser.parseMinorUnits("CNY 35.5"));
+        assertEquals(1200, MoneyParser.parseMinorUnits("$12"));
+    }
+
+    @Test
+    void leadingZerosDoNotCountAsDigits() {
+        assertEquals(1250, MoneyParser.parseMinorUnits("0000000000000000000012.50"));
+    }
+
+    @Test
+    void rejectsMissingOrOversizedAmounts() {
+        assertThrows(NumberFormatException.class, () -> MoneyParser.parseMinorUnits(null));
+        assertThrows(NumberFormatException.class, () -> MoneyParser.parseMinorUnits("abc"));
+        assertThrows(NumberFormatException.class, () -> MoneyParser.parseMinorUnits(""));
+        assertThrows(NumberFormatException.class, () -> MoneyParser.parseMinorUnits("1234567890123456789"));
+        assertThrows(NumberFormatException.class, () -> MoneyParser.parseMinorUnits("123456789012345678"));
+    }
+
+    @Test
+    void parseReturnsMajorUnits() {
+        assertEquals(1234.56, MoneyParser.parse("1.234,56"));
+        assertEquals(-12.5, MoneyParser.parse("(12.50)"));
+    }
+}